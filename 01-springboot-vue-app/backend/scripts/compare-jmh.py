@@ -0,0 +1,83 @@
+#!/usr/bin/env python3
+"""JMHの結果（-rf json）を2つ比較し、性能が悪化したベンチマークを報告します。
+
+使い方:
+    python3 scripts/compare-jmh.py baseline.json target/jmh-result.json [--threshold 10]
+
+変化率がしきい値（%）を超えて悪化し、かつ差が両方の測定誤差の合計より大きいものを悪化と判定します。
+悪化が1件でもあれば終了コード 1 を返します。
+"""
+import argparse
+import json
+import math
+import sys
+
+# スコアが小さいほど良いモード（それ以外の thrpt は大きいほど良い）
+LOWER_IS_BETTER = {"avgt", "sample", "ss"}
+
+
+def load(path):
+    with open(path, encoding="utf-8") as f:
+        results = {}
+        for entry in json.load(f):
+            params = entry.get("params") or {}
+            key = entry["benchmark"]
+            if params:
+                key += "(" + ", ".join(f"{k}={v}" for k, v in sorted(params.items())) + ")"
+            key += " [" + entry["mode"] + "]"
+            metric = entry["primaryMetric"]
+            results[key] = (entry["mode"], float(metric["score"]), to_float(metric.get("scoreError")),
+                            metric["scoreUnit"])
+        return results
+
+
+def to_float(value):
+    try:
+        result = float(value)
+    except (TypeError, ValueError):
+        return 0.0
+    return 0.0 if math.isnan(result) else result
+
+
+def main():
+    parser = argparse.ArgumentParser(description="JMHの結果を比較して性能の悪化を検出します")
+    parser.add_argument("baseline", help="比較元の結果ファイル")
+    parser.add_argument("current", help="比較先の結果ファイル")
+    parser.add_argument("--threshold", type=float, default=10.0, help="悪化と判定する変化率（%%、既定値 10）")
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    current = load(args.current)
+    regressions = 0
+
+    for key in sorted(baseline.keys() | current.keys()):
+        if key not in current:
+            print(f"  REMOVED     {key}")
+            continue
+        if key not in baseline:
+            print(f"  NEW         {key}: {current[key][1]:.3f} {current[key][3]}")
+            continue
+        mode, old, old_error, unit = baseline[key]
+        _, new, new_error, _ = current[key]
+        if old == 0:
+            continue
+        change = (new - old) / old * 100
+        worse = change if mode in LOWER_IS_BETTER else -change
+        significant = abs(new - old) > old_error + new_error
+        if worse > args.threshold and significant:
+            status = "REGRESSION"
+            regressions += 1
+        elif worse < -args.threshold and significant:
+            status = "IMPROVED"
+        else:
+            status = "ok"
+        print(f"  {status:<11} {key}: {old:.3f} -> {new:.3f} {unit} ({change:+.1f}%)")
+
+    if regressions:
+        print(f"{regressions} benchmark(s) regressed by more than {args.threshold:g}%")
+        return 1
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+# 同じ負荷試験を、プラットフォームスレッドと仮想スレッドのそれぞれでリクエストを処理して実行し、結果を並べて表示します。
+#
+# 使い方:
+#     scripts/compare-threading.sh [負荷試験のオプション...]
+#     （例）scripts/compare-threading.sh --loadtest.rate=300 --loadtest.duration-seconds=180
+#
+# どちらも virtual プロファイルの接続プール設定で起動し、スレッドの種類だけを切り替えます。
+# 結果は target/loadtest/platform と target/loadtest/virtual に出力されます。JDK 21 以降が必要です。
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+VERSION=$(java -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')
+if [ "${VERSION%%.*}" -lt 21 ]; then
+    echo "virtual threads require JDK 21 or later (current: $VERSION)" >&2
+    exit 1
+fi
+
+mkdir -p target/loadtest
+for mode in platform virtual; do
+    enabled=$([ "$mode" = virtual ] && echo true || echo false)
+    echo "=== $mode threads ==="
+    ./mvnw -B -q -Ploadtest test-compile exec:exec -Dloadtest.args="$* --spring.profiles.active=virtual \
+--spring.threads.virtual.enabled=$enabled --loadtest.output-dir=target/loadtest/$mode" 2>&1 | tee "target/loadtest/$mode.log"
+done
+
+for mode in platform virtual; do
+    echo
+    echo "=== $mode threads ==="
+    cat "target/loadtest/$mode/summary.txt"
+done
+echo
+echo "pinned virtual threads: $(grep -c 'Virtual thread pinned' target/loadtest/virtual.log || true)"
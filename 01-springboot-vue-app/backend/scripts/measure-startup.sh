@@ -0,0 +1,85 @@
+#!/usr/bin/env bash
+# アプリケーションの起動から最初のHTTPレスポンスを返すまでの時間を、起動方法ごとに計測します。
+#
+# 使い方:
+#     ./mvnw -Pfast-startup -DskipTests package
+#     scripts/measure-startup.sh [回数（既定 5）] [起動方法...（既定 jar prod aot-cds）]
+#
+# 起動方法:
+#     jar      通常の実行可能jar（application.properties のとおり起動時にスキーマを生成）
+#     prod     通常の実行可能jar + prod プロファイル（スキーマ生成なし）
+#     aot-cds  展開したjar + Spring AOT + CDSアーカイブ + prod プロファイル
+#
+# 各回とも新しいJVMを起動し、PROBE_PATH（既定 /actuator/health）が状態コードに関係なく応答するまでの時間を
+# 計測して、最小値・中央値・最大値をミリ秒で表示します。/actuator/health はデータベースに接続するため、
+# MySQL を起動した状態で計測してください。接続先などは JAVA_OPTS・APP_ARGS で追加指定できます。
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+shift || true
+MODES=("$@")
+if [ ${#MODES[@]} -eq 0 ]; then
+    MODES=(jar prod aot-cds)
+fi
+PORT=${PORT:-18080}
+PROBE_PATH=${PROBE_PATH:-/actuator/health}
+JAR=$(ls target/my-diary-app-*.jar | grep -v -- '-plain' | head -n 1)
+APP_DIR=target/application
+LOG_DIR=target/startup
+mkdir -p "$LOG_DIR"
+
+now_ms() {
+    date +%s%3N
+}
+
+# 起動方法ごとの作業ディレクトリとコマンドを設定します
+command_for() {
+    case "$1" in
+        jar)     WORK_DIR=. ; CMD=(java ${JAVA_OPTS:-} -jar "$JAR") ;;
+        prod)    WORK_DIR=. ; CMD=(java ${JAVA_OPTS:-} -jar "$JAR" --spring.profiles.active=prod) ;;
+        aot-cds) WORK_DIR=$APP_DIR
+                 CMD=(java ${JAVA_OPTS:-} -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true
+                      -jar "$(basename "$JAR")" --spring.profiles.active=prod) ;;
+        *) echo "unknown mode: $1" >&2; exit 2 ;;
+    esac
+}
+
+# 1回起動し、最初のレスポンスまでの時間（ミリ秒）を出力します
+measure_once() {
+    local mode=$1 run=$2 log start pid status
+    log="$(pwd)/$LOG_DIR/$mode-$run.log"
+    command_for "$mode"
+    start=$(now_ms)
+    (cd "$WORK_DIR" && exec "${CMD[@]}" --server.port="$PORT" ${APP_ARGS:-} > "$log" 2>&1) &
+    pid=$!
+    while true; do
+        status=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT$PROBE_PATH" || true)
+        if [ "$status" != "000" ]; then
+            echo $(( $(now_ms) - start ))
+            break
+        fi
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "$mode: the application exited before responding (see $log)" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+}
+
+if [ ! -f "$APP_DIR/application.jsa" ]; then
+    echo "$APP_DIR/application.jsa not found; build with ./mvnw -Pfast-startup -DskipTests package" >&2
+    exit 1
+fi
+
+printf '%-8s %8s %8s %8s\n' mode min median max
+for mode in "${MODES[@]}"; do
+    times=()
+    for run in $(seq 1 "$RUNS"); do
+        times+=("$(measure_once "$mode" "$run")")
+    done
+    sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+    printf '%-8s %6dms %6dms %6dms\n' "$mode" "${sorted[0]}" "${sorted[$(( RUNS / 2 ))]}" "${sorted[$(( RUNS - 1 ))]}"
+done
@@ -0,0 +1,74 @@
+package com.example.mydiaryapp.dto;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+
+/**
+ * 日記の作成・更新リクエストに対する Bean Validation のベンチマークです。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiaryRequestValidationBenchmark {
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private DiaryRequest valid;
+    private DiaryRequest invalid;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+
+        DiaryRequest.ImageRequest image = new DiaryRequest.ImageRequest();
+        image.setFilename("photo.jpg");
+        image.setData("data:image/jpeg;base64,AAAA");
+
+        valid = new DiaryRequest();
+        valid.setTitle("今日の出来事");
+        valid.setContent("今日は晴れ。".repeat(500));
+        valid.setEmotion("happy");
+        valid.setTags(List.of("仕事", "旅行"));
+        valid.setImages(List.of(image));
+
+        invalid = new DiaryRequest();
+        invalid.setTitle(" ");
+        invalid.setContent("x".repeat(70000));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<DiaryRequest>> validRequest() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<DiaryRequest>> invalidRequest() {
+        return validator.validate(invalid);
+    }
+}
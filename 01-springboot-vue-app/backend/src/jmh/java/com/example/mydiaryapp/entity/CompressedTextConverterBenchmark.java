@@ -0,0 +1,57 @@
+package com.example.mydiaryapp.entity;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 本文の保存形式へのエンコード（圧縮）とデコードのベンチマークです。
+ * しきい値は application.properties の既定値と同じ 1024 バイトです。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressedTextConverterBenchmark {
+    private static final int THRESHOLD = 1024;
+
+    /** 本文の文字数。 */
+    @Param({"300", "3000", "30000"})
+    private int contentLength;
+
+    private String content;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(contentLength);
+        int day = 0;
+        while (builder.length() < contentLength) {
+            builder.append(day++).append("日目。朝から雨が降っていたので、家で本を読んで過ごした。\n");
+        }
+        content = builder.substring(0, contentLength);
+        encoded = CompressedTextConverter.encode(content, THRESHOLD);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return CompressedTextConverter.encode(content, THRESHOLD);
+    }
+
+    @Benchmark
+    public String decode() {
+        return CompressedTextConverter.decode(encoded);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.mydiaryapp.entity.Diary;
+import com.example.mydiaryapp.entity.Image;
+import com.example.mydiaryapp.entity.Tag;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 日記エンティティをレスポンスのMapに変換し、JacksonでJSONに書き出すまでのベンチマークです。
+ * 一覧は1ページ分（10件）、詳細は1件を変換します。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiaryResponseBenchmark {
+    private static final int PAGE_SIZE = 10;
+
+    /** 本文の文字数。 */
+    @Param({"200", "5000"})
+    private int contentLength;
+
+    private DiaryService diaryService;
+    private ObjectMapper objectMapper;
+    private List<Diary> page;
+
+    @Setup
+    public void setUp() {
+        // 変換処理はリポジトリ等を使用しない
+        diaryService = new DiaryService(null, null, null, null, null, null, null, null);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        page = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(diary(i));
+        }
+    }
+
+    @Benchmark
+    public byte[] listPage() throws JsonProcessingException {
+        List<Object> diaries = new ArrayList<>(PAGE_SIZE);
+        for (Diary diary : page) {
+            diaries.add(diaryService.convertToMap(diary));
+        }
+        return objectMapper.writeValueAsBytes(diaries);
+    }
+
+    @Benchmark
+    public byte[] detail() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(diaryService.convertToDetailMap(page.get(0)));
+    }
+
+    private Diary diary(int index) {
+        Diary diary = new Diary();
+        diary.setId("00000000-0000-0000-0000-00000000000" + index);
+        diary.setTitle("今日の出来事 " + index);
+        diary.setContent("今日は晴れ。".repeat(contentLength / 6 + 1).substring(0, contentLength));
+        diary.setEmotion("happy");
+        diary.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0).plusDays(index));
+        diary.setUpdatedAt(diary.getCreatedAt());
+
+        Set<Tag> tags = new HashSet<>();
+        for (String name : new String[] {"仕事", "旅行", "家族"}) {
+            Tag tag = new Tag();
+            tag.setName(name);
+            tags.add(tag);
+        }
+        diary.setTags(tags);
+
+        List<Image> images = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Image image = new Image();
+            image.setId("image-" + index + "-" + i);
+            image.setUrl("http://localhost:8080/images/image-" + index + "-" + i + ".jpg");
+            images.add(image);
+        }
+        diary.setImages(images);
+        return diary;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.mydiaryapp.service;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.mydiaryapp.dto.DiaryRequest;
+import com.example.mydiaryapp.entity.Diary;
+import com.example.mydiaryapp.entity.Image;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 画像サイズごとの ImageService.saveImage（Data URLの解析とBase64デコード）のベンチマークです。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageServiceBenchmark {
+    /** デコード後の画像のバイト数。 */
+    @Param({"10240", "262144", "2097152"})
+    private int imageBytes;
+
+    private ImageService imageService;
+    private Diary diary;
+    private DiaryRequest.ImageRequest request;
+
+    @Setup
+    public void setUp() {
+        imageService = new ImageService(new SimpleMeterRegistry());
+        diary = new Diary();
+        byte[] image = new byte[imageBytes];
+        new Random(42).nextBytes(image);
+        request = new DiaryRequest.ImageRequest();
+        request.setFilename("photo.png");
+        request.setData("data:image/png;base64," + Base64.getEncoder().encodeToString(image));
+    }
+
+    @Benchmark
+    public Image saveImage() {
+        return imageService.saveImage(diary, request);
+    }
+}
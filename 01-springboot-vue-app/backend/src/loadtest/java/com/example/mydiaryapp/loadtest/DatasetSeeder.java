@@ -0,0 +1,167 @@
+package com.example.mydiaryapp.loadtest;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.example.mydiaryapp.config.ShardContext;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.entity.CompressedTextConverter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 負荷試験用の日記・タグ・画像のデータを投入するクラスです。
+ * 件数が多いため、APIを経由せずユーザーのシャードに JDBC のバッチで直接書き込みます。
+ * 本文は本番と同じ形式（しきい値以上は圧縮）で保存します。
+ */
+@Slf4j
+public class DatasetSeeder {
+    /** タグの候補。 */
+    static final List<String> TAGS = List.of(
+        "仕事", "旅行", "家族", "友人", "読書", "映画", "音楽", "料理", "運動", "散歩",
+        "勉強", "買い物", "健康", "趣味", "ペット", "カフェ", "ゲーム", "写真", "天気", "休日");
+
+    /** 本文の語彙。検索キーワードにも使用します。 */
+    static final List<String> WORDS = List.of(
+        "朝", "昼", "夜", "雨", "晴れ", "電車", "会議", "公園", "友達", "コーヒー",
+        "本", "映画", "散歩", "夕飯", "旅行", "仕事", "週末", "猫", "海", "山");
+
+    private static final List<String> EMOTIONS = List.of("happy", "sad", "angry", "excited", "neutral", "tired");
+    private static final int BATCH_SIZE = 1000;
+    private static final int SAMPLE_IDS_PER_USER = 1000;
+
+    private final DataSource dataSource;
+    private final ShardRouter shardRouter;
+    private final int compressionThreshold;
+    private final Random random = new Random(42);
+
+    public DatasetSeeder(DataSource dataSource, ShardRouter shardRouter, int compressionThreshold) {
+        this.dataSource = dataSource;
+        this.shardRouter = shardRouter;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * 登録済みのユーザーに日記を投入します。
+     * 作成日時は直近約2年に分散させ、アーカイブの対象にならないようにします。
+     * @param userId ユーザーID
+     * @param diaryCount 日記の件数
+     * @param sampleIds 詳細取得に使用する日記IDの格納先
+     * @return 日記が存在する月（YYYY-MM形式）
+     */
+    public List<String> seed(String userId, int diaryCount, List<String> sampleIds) {
+        return ShardContext.call(shardRouter.shardFor(userId), () -> {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            Map<String, Long> tagIds = ensureTags(jdbc);
+            Set<String> months = new TreeSet<>();
+            LocalDateTime now = LocalDateTime.now();
+
+            List<Object[]> diaries = new ArrayList<>(BATCH_SIZE);
+            List<Object[]> tagLinks = new ArrayList<>();
+            List<Object[]> images = new ArrayList<>();
+            for (int i = 0; i < diaryCount; i++) {
+                String id = UUID.randomUUID().toString();
+                LocalDateTime createdAt = now.minusMinutes(random.nextInt(700 * 24 * 60));
+                months.add(YearMonth.from(createdAt).toString());
+                diaries.add(new Object[] {id, userId, "日記 " + i + " " + word(), content(),
+                    EMOTIONS.get(random.nextInt(EMOTIONS.size())), Timestamp.valueOf(createdAt),
+                    Timestamp.valueOf(createdAt)});
+                Set<String> tags = new LinkedHashSet<>();
+                for (int t = random.nextInt(4); t > 0; t--) {
+                    tags.add(TAGS.get(random.nextInt(TAGS.size())));
+                }
+                tags.forEach(tag -> tagLinks.add(new Object[] {id, tagIds.get(tag)}));
+                // 1割の日記に1～2枚の画像を添付する
+                if (random.nextInt(10) == 0) {
+                    for (int n = random.nextInt(2) + 1; n > 0; n--) {
+                        String imageId = UUID.randomUUID().toString();
+                        images.add(new Object[] {imageId, id, "http://localhost:8080/images/" + imageId + ".jpg",
+                            "photo" + n + ".jpg", Timestamp.valueOf(createdAt)});
+                    }
+                }
+                if (sampleIds.size() < SAMPLE_IDS_PER_USER) {
+                    sampleIds.add(id);
+                }
+                if (diaries.size() == BATCH_SIZE || i == diaryCount - 1) {
+                    flush(jdbc, diaries, tagLinks, images);
+                }
+            }
+            refreshTagUsages(jdbc, userId);
+            log.info("Seeded {} diaries for user {}", diaryCount, userId);
+            return new ArrayList<>(months);
+        });
+    }
+
+    private Map<String, Long> ensureTags(JdbcTemplate jdbc) {
+        jdbc.batchUpdate("INSERT IGNORE INTO tags (name) VALUES (?)",
+            TAGS.stream().map(tag -> new Object[] {tag}).toList());
+        Map<String, Long> ids = new HashMap<>();
+        new NamedParameterJdbcTemplate(jdbc).query("SELECT id, name FROM tags WHERE name IN (:names)",
+            Map.of("names", TAGS), row -> {
+                ids.put(row.getString("name"), row.getLong("id"));
+            });
+        return ids;
+    }
+
+    /**
+     * 投入した日記のタグの関連から、ユーザーのタグの使用件数（tag_usages）を集計し直します。
+     * 中間テーブルに直接投入しているため、タグ一覧とタグの入力候補に反映するために必要です（集計は schema.sql の移行用SQLと同じです）。
+     */
+    private void refreshTagUsages(JdbcTemplate jdbc, String userId) {
+        jdbc.update("INSERT INTO tag_usages (user_id, tag_name, diary_count, last_used_at) "
+            + "SELECT d.user_id, t.name, COUNT(*), MAX(d.updated_at) FROM diaries d "
+            + "JOIN diary_tags dt ON dt.diary_id = d.id JOIN tags t ON t.id = dt.tag_id "
+            + "WHERE d.user_id = ? GROUP BY d.user_id, t.name "
+            + "ON DUPLICATE KEY UPDATE diary_count = VALUES(diary_count), last_used_at = VALUES(last_used_at)",
+            userId);
+    }
+
+    private void flush(JdbcTemplate jdbc, List<Object[]> diaries, List<Object[]> tagLinks, List<Object[]> images) {
+        jdbc.batchUpdate("INSERT INTO diaries (id, user_id, title, content, emotion, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)", diaries);
+        if (!tagLinks.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO diary_tags (diary_id, tag_id) VALUES (?, ?)", tagLinks);
+        }
+        if (!images.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO images (id, diary_id, url, filename, created_at) VALUES (?, ?, ?, ?, ?)",
+                images);
+        }
+        diaries.clear();
+        tagLinks.clear();
+        images.clear();
+    }
+
+    /**
+     * 100～3,000文字程度の本文を生成し、保存形式にエンコードします。
+     */
+    private byte[] content() {
+        int length = 100 + random.nextInt(2900);
+        StringBuilder builder = new StringBuilder(length + 32);
+        while (builder.length() < length) {
+            builder.append(word()).append("の").append(word()).append("について考えた。");
+            if (random.nextInt(5) == 0) {
+                builder.append('\n');
+            }
+        }
+        return CompressedTextConverter.encode(builder.toString(), compressionThreshold);
+    }
+
+    private String word() {
+        return WORDS.get(random.nextInt(WORDS.size()));
+    }
+}
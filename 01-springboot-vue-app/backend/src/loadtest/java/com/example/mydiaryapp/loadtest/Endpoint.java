@@ -0,0 +1,19 @@
+package com.example.mydiaryapp.loadtest;
+
+/**
+ * 負荷試験で発生させるリクエストの種類です。
+ */
+public enum Endpoint {
+    /** ログイン（POST /api/auth/login）。 */
+    LOGIN,
+    /** 日記一覧のページ取得（GET /api/diaries?page=）。 */
+    LIST,
+    /** 日記詳細の取得（GET /api/diaries/{id}）。 */
+    DETAIL,
+    /** 画像付きの日記の作成（POST /api/diaries）。 */
+    CREATE,
+    /** キーワード検索（GET /api/diaries?q=）。 */
+    SEARCH,
+    /** カレンダー表示用の月の日記取得（GET /api/diaries?month=）。 */
+    CALENDAR
+}
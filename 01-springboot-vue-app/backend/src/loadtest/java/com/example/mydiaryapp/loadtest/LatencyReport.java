@@ -0,0 +1,123 @@
+package com.example.mydiaryapp.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * リクエストの種類ごとに応答時間を HdrHistogram で記録し、集計結果を出力するクラスです。
+ * 応答時間は送信予定時刻から計測するため、アプリケーションの停滞で送信が遅れた分も含まれます
+ * （coordinated omission の補正）。
+ */
+public class LatencyReport {
+    /** 記録できる最大の応答時間（これを超える値は最大値として記録します）。 */
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> rateLimited = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> dropped = new EnumMap<>(Endpoint.class);
+
+    public LatencyReport() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new Recorder(MAX_LATENCY_NANOS, 3));
+            errors.put(endpoint, new LongAdder());
+            rateLimited.put(endpoint, new LongAdder());
+            dropped.put(endpoint, new LongAdder());
+        }
+    }
+
+    /**
+     * 成功したリクエストの応答時間を記録します。
+     * @param endpoint リクエストの種類
+     * @param latencyNanos 送信予定時刻からの経過時間（ナノ秒）
+     */
+    public void recordSuccess(Endpoint endpoint, long latencyNanos) {
+        recorders.get(endpoint).recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+    }
+
+    /**
+     * 失敗したリクエスト（エラー応答・タイムアウト）を記録します。
+     * @param endpoint リクエストの種類
+     */
+    public void recordError(Endpoint endpoint) {
+        errors.get(endpoint).increment();
+    }
+
+    /**
+     * 流量制限（429）で拒否されたリクエストを記録します。
+     * アプリケーションの障害ではないため、エラーとは分けて数えます。
+     * @param endpoint リクエストの種類
+     */
+    public void recordRateLimited(Endpoint endpoint) {
+        rateLimited.get(endpoint).increment();
+    }
+
+    /**
+     * 同時実行数の上限を超えたため送信しなかったリクエストを記録します。
+     * @param endpoint リクエストの種類
+     */
+    public void recordDropped(Endpoint endpoint) {
+        dropped.get(endpoint).increment();
+    }
+
+    /**
+     * ウォームアップ中の記録を破棄します。
+     */
+    public void reset() {
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+        rateLimited.values().forEach(LongAdder::reset);
+        dropped.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * 計測期間の結果を出力します。
+     * 種類ごとに HdrHistogram のパーセンタイル分布（.hgrm、単位はミリ秒）をファイルに書き出し、
+     * 件数・スループット・パーセンタイルの一覧を summary.txt と標準出力に出力します。
+     * @param outputDir 出力先ディレクトリ
+     * @param durationSeconds 計測期間（秒）
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void write(Path outputDir, double durationSeconds) throws IOException {
+        Files.createDirectories(outputDir);
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+            "%-10s %9s %7s %7s %8s %10s %10s %10s %10s %10s %10s%n",
+            "endpoint", "count", "errors", "429", "dropped", "req/s", "p50(ms)", "p95(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = recorders.get(endpoint).getIntervalHistogram();
+            long count = histogram.getTotalCount();
+            long errorCount = errors.get(endpoint).sum();
+            long rateLimitedCount = rateLimited.get(endpoint).sum();
+            long droppedCount = dropped.get(endpoint).sum();
+            if (count == 0 && errorCount == 0 && rateLimitedCount == 0 && droppedCount == 0) {
+                continue;
+            }
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(outputDir.resolve(endpoint.name().toLowerCase() + ".hgrm")))) {
+                histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+            summary.append(String.format(Locale.ROOT,
+                "%-10s %9d %7d %7d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                endpoint.name().toLowerCase(), count, errorCount, rateLimitedCount, droppedCount, count / durationSeconds,
+                millis(histogram, 50), millis(histogram, 95), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / NANOS_PER_MILLI));
+        }
+        Files.writeString(outputDir.resolve("summary.txt"), summary);
+        System.out.print(summary);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.mydiaryapp.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import com.example.mydiaryapp.MyDiaryAppApplication;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ローカルのデータベースに対してアプリケーションを起動し、本番に近い負荷をかける負荷試験です。
+ *
+ * <ol>
+ *   <li>アプリケーションを同じプロセスで起動します（接続先は spring.datasource.* で指定）。</li>
+ *   <li>ユーザーを登録し、各ユーザーに日記・タグ・画像を投入します。</li>
+ *   <li>一定の到着率（オープンモデル）でリクエストを送り続けます。応答を待たずに次のリクエストを
+ *       送るため、応答が遅くなっても負荷は下がりません。</li>
+ *   <li>ウォームアップ後の計測期間について、種類ごとのパーセンタイルとスループットを出力します。</li>
+ * </ol>
+ * 設定は loadtest.* のプロパティで指定します（例: --loadtest.rate=200）。
+ * 少数のユーザーで大量のリクエストを送るため、ユーザーごとの流量制限は既定で無効にして起動します
+ * （--diary.rate-limit.enabled=true で有効にした場合、429 の応答はエラーとは分けて数えます）。
+ */
+@Slf4j
+public final class LoadTest {
+    private static final String PASSWORD = "loadtest123";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MyDiaryAppApplication.class)
+            .run(withDefaults(args, "--server.port=0", "--diary.rate-limit.enabled=false"));
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        try {
+            run(context, executor);
+        } finally {
+            executor.shutdownNow();
+            context.close();
+        }
+    }
+
+    private static void run(ConfigurableApplicationContext context, ExecutorService executor) throws Exception {
+        Environment env = context.getEnvironment();
+        int userCount = env.getProperty("loadtest.users", Integer.class, 10);
+        int diariesPerUser = env.getProperty("loadtest.diaries-per-user", Integer.class, 10_000);
+        int rate = env.getProperty("loadtest.rate", Integer.class, 100);
+        int warmupSeconds = env.getProperty("loadtest.warmup-seconds", Integer.class, 30);
+        int durationSeconds = env.getProperty("loadtest.duration-seconds", Integer.class, 120);
+        int maxInFlight = env.getProperty("loadtest.max-in-flight", Integer.class, 2000);
+        int imageBytes = env.getProperty("loadtest.image-bytes", Integer.class, 50_000);
+        String mix = env.getProperty("loadtest.mix", TrafficMix.DEFAULT_MIX);
+        Path outputDir = Path.of(env.getProperty("loadtest.output-dir", "target/loadtest"));
+        String baseUrl = "http://localhost:" + env.getProperty("local.server.port");
+        if (userCount < 1 || diariesPerUser < 1 || rate < 1) {
+            throw new IllegalArgumentException("loadtest.users, loadtest.diaries-per-user and loadtest.rate must be positive");
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(executor)
+            .build();
+
+        DatasetSeeder seeder = new DatasetSeeder(context.getBean(DataSource.class), context.getBean(ShardRouter.class),
+            env.getProperty("diary.content.compression-threshold", Integer.class, 1024));
+        List<SeededUser> users = new ArrayList<>();
+        long runId = System.currentTimeMillis();
+        for (int i = 0; i < userCount; i++) {
+            users.add(seedUser(client, baseUrl, seeder, "loadtest-" + runId + "-" + i + "@example.com", diariesPerUser));
+        }
+
+        TrafficMix traffic = new TrafficMix(baseUrl, users, mix, imageBytes);
+        LatencyReport report = new LatencyReport();
+        log.info("Warming up for {}s at {} req/s", warmupSeconds, rate);
+        drive(client, traffic, report, rate, warmupSeconds, maxInFlight);
+        report.reset();
+        log.info("Measuring for {}s at {} req/s", durationSeconds, rate);
+        AtomicInteger inFlight = drive(client, traffic, report, rate, durationSeconds, maxInFlight);
+        awaitCompletion(inFlight);
+        report.write(outputDir, durationSeconds);
+        log.info("Wrote latency histograms to {}", outputDir.toAbsolutePath());
+    }
+
+    /**
+     * 一定の間隔でリクエストを送信します。各リクエストの応答時間は送信予定時刻から計測します。
+     * @return 応答待ちのリクエスト数
+     */
+    private static AtomicInteger drive(HttpClient client, TrafficMix traffic, LatencyReport report,
+                                       int rate, int seconds, int maxInFlight) {
+        AtomicInteger inFlight = new AtomicInteger();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended - end >= 0) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = traffic.next();
+            if (inFlight.get() >= maxInFlight) {
+                report.recordDropped(endpoint);
+                continue;
+            }
+            inFlight.incrementAndGet();
+            client.sendAsync(traffic.request(endpoint), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long latency = System.nanoTime() - intended;
+                    inFlight.decrementAndGet();
+                    if (error == null && response.statusCode() < 400) {
+                        report.recordSuccess(endpoint, latency);
+                    } else if (error == null && response.statusCode() == 429) {
+                        report.recordRateLimited(endpoint);
+                    } else {
+                        report.recordError(endpoint);
+                    }
+                });
+        }
+        return inFlight;
+    }
+
+    private static void awaitCompletion(AtomicInteger inFlight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * APIでユーザーを登録して日記を投入し、ログインしたトークンを取得します。
+     */
+    private static SeededUser seedUser(HttpClient client, String baseUrl, DatasetSeeder seeder,
+                                       String email, int diaryCount) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpRequest register = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(
+                Map.of("username", email.substring(0, Math.min(50, email.indexOf('@'))), "email", email,
+                    "password", PASSWORD))))
+            .build();
+        HttpResponse<String> response = client.send(register, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Failed to register " + email + ": " + response.body());
+        }
+        Map<?, ?> body = objectMapper.readValue(response.body(), Map.class);
+        String userId = (String) body.get("userId");
+
+        List<String> diaryIds = new ArrayList<>();
+        List<String> months = seeder.seed(userId, diaryCount, diaryIds);
+        return new SeededUser(userId, email, PASSWORD, (String) body.get("token"), diaryIds, months);
+    }
+
+    /**
+     * 引数で指定されていないプロパティに既定値を加えます。
+     * ポートは空いているものを使い、ユーザーごとの流量制限は無効にします。
+     */
+    private static String[] withDefaults(String[] args, String... defaults) {
+        List<String> result = new ArrayList<>(Arrays.asList(args));
+        for (String option : defaults) {
+            String prefix = option.substring(0, option.indexOf('=') + 1);
+            if (Arrays.stream(args).noneMatch(arg -> arg.startsWith(prefix))) {
+                result.add(option);
+            }
+        }
+        return result.toArray(String[]::new);
+    }
+}
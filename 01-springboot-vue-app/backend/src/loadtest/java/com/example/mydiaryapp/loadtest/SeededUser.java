@@ -0,0 +1,22 @@
+package com.example.mydiaryapp.loadtest;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 負荷試験用に登録したユーザーと、そのユーザーの日記の情報です。
+ */
+@Getter
+@AllArgsConstructor
+public class SeededUser {
+    private final String userId;
+    private final String email;
+    private final String password;
+    private final String token;
+    /** 詳細取得に使用する日記IDの一部。 */
+    private final List<String> diaryIds;
+    /** 日記が存在する月（YYYY-MM形式）。 */
+    private final List<String> months;
+}
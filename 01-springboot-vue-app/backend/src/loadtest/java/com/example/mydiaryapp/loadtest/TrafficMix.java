@@ -0,0 +1,149 @@
+package com.example.mydiaryapp.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * リクエストの種類ごとの比率に従って、ユーザーとリクエストを選ぶクラスです。
+ * 比率は "login=2,list=35,..." の形式で指定します（指定しない種類は 0）。
+ */
+public class TrafficMix {
+    /** 既定の比率（本番のアクセスログの傾向に合わせています）。 */
+    public static final String DEFAULT_MIX = "login=2,list=35,detail=30,create=5,search=10,calendar=18";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final List<SeededUser> users;
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String imageData;
+
+    /**
+     * @param baseUrl アプリケーションのURL（例: http://localhost:8080）
+     * @param users リクエストを送るユーザー
+     * @param mix 種類ごとの比率
+     * @param imageBytes 作成時に添付する画像のバイト数
+     */
+    public TrafficMix(String baseUrl, List<SeededUser> users, String mix, int imageBytes) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        Map<Endpoint, Integer> weights = parse(mix);
+        this.endpoints = weights.keySet().toArray(new Endpoint[0]);
+        this.cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += weights.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Traffic mix has no weight: " + mix);
+        }
+        byte[] image = new byte[imageBytes];
+        new Random(7).nextBytes(image);
+        this.imageData = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(image);
+    }
+
+    /**
+     * 比率に従ってリクエストの種類を選びます。
+     * @return リクエストの種類
+     */
+    public Endpoint next() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+
+    /**
+     * ランダムに選んだユーザーで、指定した種類のリクエストを作成します。
+     * @param endpoint リクエストの種類
+     * @return HTTPリクエスト
+     */
+    public HttpRequest request(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SeededUser user = users.get(random.nextInt(users.size()));
+        switch (endpoint) {
+            case LOGIN:
+                return post("/api/auth/login", null, Map.of("email", user.getEmail(), "password", user.getPassword()));
+            case LIST:
+                return get("/api/diaries?page=" + (random.nextInt(20) + 1) + "&limit=10", user);
+            case DETAIL:
+                return get("/api/diaries/" + pick(user.getDiaryIds(), random), user);
+            case CREATE:
+                return post("/api/diaries", user, Map.of(
+                    "title", "負荷試験 " + random.nextInt(1_000_000),
+                    "content", "今日は" + pick(DatasetSeeder.WORDS, random) + "について書いた。".repeat(20),
+                    "emotion", "happy",
+                    "tags", List.of(pick(DatasetSeeder.TAGS, random)),
+                    "images", List.of(Map.of("filename", "photo.jpg", "data", imageData))));
+            case SEARCH:
+                return get("/api/diaries?q=" + encode(pick(DatasetSeeder.WORDS, random)), user);
+            case CALENDAR:
+                return get("/api/diaries?month=" + pick(user.getMonths(), random) + "&limit=31", user);
+            default:
+                throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+        }
+    }
+
+    private HttpRequest get(String path, SeededUser user) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(TIMEOUT)
+            .header("Authorization", "Bearer " + user.getToken())
+            .GET()
+            .build();
+    }
+
+    private HttpRequest post(String path, SeededUser user, Object body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(TIMEOUT)
+            .header("Content-Type", "application/json");
+        if (user != null) {
+            builder.header("Authorization", "Bearer " + user.getToken());
+        }
+        try {
+            return builder.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))).build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> T pick(List<T> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static Map<Endpoint, Integer> parse(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid traffic mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Endpoint.valueOf(pair[0].trim().toUpperCase()), weight);
+            }
+        }
+        return weights;
+    }
+}
@@ -2,13 +2,16 @@ package com.example.mydiaryapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * アプリケーションのエントリポイントを定義するクラスです。
  * Spring Bootの自動設定とBean登録を有効にし、
  * アプリケーションの起動を担当します。
+ * 下書きの定期反映などのバックグラウンド処理のためにスケジューリングを有効にします。
  */
 @SpringBootApplication
+@EnableScheduling
 public class MyDiaryAppApplication {
 
     /**
@@ -0,0 +1,140 @@
+package com.example.mydiaryapp.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 応答時間の変化から同時実行数の上限を調整するリミッターです（勾配方式）。
+ *
+ * <ul>
+ *   <li>一定時間ごとに直近の平均応答時間を求め、これまでの最小値（基準の応答時間）と比べます。</li>
+ *   <li>直近の応答時間が基準の tolerance 倍を超えると、待ち行列ができていると判断し、
+ *       その比率に応じて上限を下げます。</li>
+ *   <li>応答時間が基準の tolerance 倍以内の間は、上限を √上限 ずつ上げます。ただし実際の同時実行数が
+ *       上限の半分に届いていない場合は、上限が足りているかを判断できないため上げません。</li>
+ *   <li>基準が一定回数更新されない場合は、上限を半分にして測り直します。待ち行列による遅れを
+ *       基準に取り込まずに、データベース自体が遅くなった場合は新しい応答時間に追従します。</li>
+ * </ul>
+ * 上限の取得と実行中の件数の増減はロックを使わず、上限の再計算だけを同期します。
+ */
+public final class AdaptiveConcurrencyLimit {
+    /** 再計算した上限を反映する割合。1回の計測のばらつきで上限が大きく動かないようにします。 */
+    private static final double SMOOTHING = 0.2;
+    /** 基準の応答時間を更新しないまま、測り直すまでの再計算の回数。 */
+    private static final int BASE_RTT_WINDOWS = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // 以下は onSample の同期の中でのみ読み書きします（baseRtt はナノ秒）
+    private double baseRtt;
+    private int baseRttAge;
+    private long windowStart;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    /**
+     * @param initialLimit 上限の初期値
+     * @param minLimit 上限の最小値
+     * @param maxLimit 上限の最大値
+     * @param tolerance 上限を下げ始める、基準の応答時間に対する直近の応答時間の倍率
+     * @param windowMillis 上限を再計算する間隔（ミリ秒）
+     * @param minWindowSamples 上限を再計算するのに必要な計測数
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double tolerance, long windowMillis, int minWindowSamples) {
+        this.minLimit = minLimit;
+        this.maxLimit = Math.max(minLimit, maxLimit);
+        this.tolerance = tolerance;
+        this.windowNanos = windowMillis * 1_000_000;
+        this.minWindowSamples = minWindowSamples;
+        this.limit = clamp(initialLimit);
+    }
+
+    /**
+     * 実行中の件数が上限に達していなければ、1件分の実行枠を確保します。
+     * @return 確保できた場合は true（処理後に {@link #release} を呼び出してください）
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 確保した実行枠を返します。
+     * @param rttNanos 処理にかかった時間（ナノ秒）
+     * @param sample 応答時間を上限の計算に使う場合は true（例外で終了した処理は使いません）
+     */
+    public void release(long rttNanos, boolean sample) {
+        int observed = inFlight.getAndDecrement();
+        if (sample) {
+            onSample(rttNanos, observed);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int observedInFlight) {
+        long now = System.nanoTime();
+        if (windowSamples == 0) {
+            windowStart = now;
+        }
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, observedInFlight);
+        if (now - windowStart < windowNanos || windowSamples < minWindowSamples) {
+            return;
+        }
+
+        double shortRtt = Math.max(1, (double) windowRttSum / windowSamples);
+        double current = limit;
+        if (baseRtt == 0 || shortRtt <= baseRtt) {
+            baseRtt = shortRtt;
+            baseRttAge = 0;
+        } else if (++baseRttAge >= BASE_RTT_WINDOWS) {
+            // 基準の応答時間を測り直します。上限を一時的に半分にして待ち行列をなくし、
+            // データベース自体が遅くなった場合は、その応答時間を新しい基準にします
+            baseRtt = shortRtt;
+            baseRttAge = 0;
+            limit = clamp(current / 2);
+            resetWindow();
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baseRtt / shortRtt));
+        double next = gradient < 1.0 ? current * gradient : current + Math.sqrt(current);
+        next = current * (1 - SMOOTHING) + next * SMOOTHING;
+        if (next < current || windowMaxInFlight >= current / 2) {
+            limit = clamp(next);
+        }
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+}
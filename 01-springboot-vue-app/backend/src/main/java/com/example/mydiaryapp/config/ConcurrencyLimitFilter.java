@@ -0,0 +1,191 @@
+package com.example.mydiaryapp.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * APIの同時実行数を制限し、上限を超えたリクエストを待たせずに 503 で返すフィルタです。
+ * データベースが遅くなったときに、Tomcat のスレッドと接続プールの待ち行列にリクエストが溜まって
+ * すべてのリクエストの応答時間が延びるのを防ぎます。
+ *
+ * <ul>
+ *   <li>上限は {@link AdaptiveConcurrencyLimit} が応答時間の変化から調整します。</li>
+ *   <li>負荷の性質が異なるため、読み取り（GET）、書き込み（画像のアップロードを含む）、
+ *       認証（BCrypt によるパスワードの照合）で別々の上限を持ちます。</li>
+ *   <li>上限と実行中の件数は diary.concurrency.limit / diary.concurrency.in-flight、
+ *       拒否した件数は diary.concurrency.rejected として記録します。</li>
+ * </ul>
+ * JWT の検証でのユーザー検索も制限の対象にするため、Spring Security のフィルタチェインで
+ * {@code JwtAuthenticationFilter} の前に実行します。ヘルスチェックなど /actuator は制限しません。
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private static final String REJECTED_BODY =
+        "{\"error\":\"サーバーが混み合っています。しばらくしてから再度お試しください\"}";
+
+    /**
+     * 同時実行数を別々に制限するリクエストの種類です。
+     */
+    enum RequestClass {
+        READ(40, 120), WRITE(10, 40), AUTH(4, 16);
+
+        private final int defaultInitialLimit;
+        private final int defaultMaxLimit;
+
+        RequestClass(int defaultInitialLimit, int defaultMaxLimit) {
+            this.defaultInitialLimit = defaultInitialLimit;
+            this.defaultMaxLimit = defaultMaxLimit;
+        }
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final boolean enabled;
+    private final String retryAfterSeconds;
+    private final Map<RequestClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> rejected = new EnumMap<>(RequestClass.class);
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+                                  Environment environment,
+                                  @Value("${diary.concurrency.enabled:true}") boolean enabled,
+                                  @Value("${diary.concurrency.min-limit:2}") int minLimit,
+                                  @Value("${diary.concurrency.tolerance:1.5}") double tolerance,
+                                  @Value("${diary.concurrency.window-ms:1000}") long windowMillis,
+                                  @Value("${diary.concurrency.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.enabled = enabled;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+        for (RequestClass requestClass : RequestClass.values()) {
+            String prefix = "diary.concurrency." + requestClass.tag();
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+                environment.getProperty(prefix + ".initial-limit", Integer.class, requestClass.defaultInitialLimit),
+                minLimit,
+                environment.getProperty(prefix + ".max-limit", Integer.class, requestClass.defaultMaxLimit),
+                tolerance, windowMillis, 10);
+            limits.put(requestClass, limit);
+            Gauge.builder("diary.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("リクエストの種類ごとの同時実行数の上限")
+                .tag("class", requestClass.tag())
+                .register(meterRegistry);
+            Gauge.builder("diary.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("リクエストの種類ごとの実行中の件数")
+                .tag("class", requestClass.tag())
+                .register(meterRegistry);
+            rejected.put(requestClass, Counter.builder("diary.concurrency.rejected")
+                .description("同時実行数の上限を超えたため 503 で返したリクエスト数")
+                .tag("class", requestClass.tag())
+                .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RequestClass requestClass = classify(request);
+        AdaptiveConcurrencyLimit limit = limits.get(requestClass);
+        if (!limit.tryAcquire()) {
+            rejected.get(requestClass).increment();
+            reject(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (completed && request.isAsyncStarted()) {
+                // 非同期処理の場合は、レスポンスを返し終えた時点で実行枠を返します
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limit, start));
+            } else {
+                limit.release(System.nanoTime() - start, completed);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    private static RequestClass classify(HttpServletRequest request) {
+        if (request.getRequestURI().startsWith("/api/auth/")) {
+            return RequestClass.AUTH;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) ? RequestClass.READ : RequestClass.WRITE;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(REJECTED_BODY);
+    }
+
+    /**
+     * 非同期処理の終了時に実行枠を返すリスナーです。
+     */
+    private static class ReleaseOnComplete implements AsyncListener {
+        private final AdaptiveConcurrencyLimit limit;
+        private final long start;
+        private boolean released;
+
+        ReleaseOnComplete(AdaptiveConcurrencyLimit limit, long start) {
+            this.limit = limit;
+            this.start = start;
+        }
+
+        @Override
+        public synchronized void onComplete(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public synchronized void onTimeout(AsyncEvent event) {
+            release(false);
+        }
+
+        @Override
+        public synchronized void onError(AsyncEvent event) {
+            release(false);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release(boolean sample) {
+            if (!released) {
+                released = true;
+                limit.release(System.nanoTime() - start, sample);
+            }
+        }
+    }
+}
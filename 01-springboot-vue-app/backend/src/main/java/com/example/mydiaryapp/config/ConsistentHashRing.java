@@ -0,0 +1,59 @@
+package com.example.mydiaryapp.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * キーをノード（シャード名）に割り当てるコンシステントハッシュリングです。
+ * 各ノードをリング上の複数の仮想ノードとして配置するため、ノードを追加・削除しても
+ * 割り当てが変わるキーはおよそ 1/ノード数 に抑えられます。
+ */
+public class ConsistentHashRing {
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * @param nodes ノード名の一覧
+     * @param virtualNodes ノードごとの仮想ノード数
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * キーを担当するノードを返します。
+     * キーのハッシュ値以上の位置にある最初の仮想ノードを選び、末尾を越えた場合は先頭に戻ります。
+     * @param key 割り当てるキー（ユーザーIDなど）
+     * @return ノード名
+     */
+    public String nodeFor(String key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * MD5 ダイジェストの先頭8バイトをハッシュ値として使用します。
+     */
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = hash << 8 | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.mydiaryapp.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * 読み取りレプリカを使用する場合のデータソース設定クラスです。
+ * diary.datasource.replica.jdbc-url が設定されている場合のみ有効になり、
+ * spring.datasource.* をプライマリ、diary.datasource.replica.* をレプリカとする
+ * 振り分けデータソースを構成します。
+ * シャーディング（diary.sharding.enabled=true）と同時には使用できず、その場合はシャーディングが優先されます。
+ */
+@Configuration
+@ConditionalOnExpression("'${diary.datasource.replica.jdbc-url:}' != '' && !${diary.sharding.enabled:false}")
+public class DataSourceConfig {
+
+    /**
+     * プライマリとレプリカの接続プールを持つ振り分けデータソースを提供します。
+     * @param properties spring.datasource.* の設定
+     * @param environment 接続プール設定のバインドに使用する環境
+     * @param readYourWritesMillis 書き込み後にそのユーザーの読み取りをプライマリに送る期間（ミリ秒）
+     * @return ReadWriteRoutingDataSource
+     */
+    @Bean(destroyMethod = "close")
+    public ReadWriteRoutingDataSource routingDataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            @Value("${diary.datasource.read-your-writes-ms:5000}") long readYourWritesMillis) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = new HikariDataSource();
+        replica.setDriverClassName(properties.determineDriverClassName());
+        binder.bind("diary.datasource.replica", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+
+        return new ReadWriteRoutingDataSource(primary, replica, readYourWritesMillis);
+    }
+
+    /**
+     * アプリケーションが使用するデータソースを提供します。
+     * トランザクション開始後、最初のSQL実行時に接続を取得するため、
+     * 読み取り専用フラグに基づいた振り分けが可能になります。
+     * @param routingDataSource 振り分けデータソース
+     * @return LazyConnectionDataSourceProxy
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.mydiaryapp.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+/**
+ * メトリクス収集の設定クラスです。
+ * エンドポイント（http.server.requests）とリポジトリ（spring.data.repository.invocations）の計測は
+ * Spring Boot Actuator が自動で行い、サービスのメソッドは @Timed を付与したクラスを計測します。
+ * 収集したメトリクスは /actuator/prometheus から Prometheus 形式で取得できます。
+ */
+@Configuration
+public class MetricsConfig {
+    /** ユーザーや日記ごとに値が変わるため、メトリクスのタグとして使用しない名前。 */
+    private static final String[] PER_USER_TAGS = {"userId", "email", "diaryId"};
+
+    /**
+     * @Timed を付与したクラス・メソッドの実行時間を計測するアスペクトを登録します。
+     * @param meterRegistry メトリクスの登録先
+     * @return TimedAspect
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /**
+     * ユーザー単位の値を持つタグを除去し、メトリクスの系列数がユーザー数に比例して増えるのを防ぎます。
+     * @return MeterFilter
+     */
+    @Bean
+    public MeterFilter perUserTagFilter() {
+        return MeterFilter.ignoreTags(PER_USER_TAGS);
+    }
+
+    /**
+     * リクエストごとのSQLのメトリクスで、URIタグの種類が上限を超えた場合は記録しないようにします。
+     * 存在しないパスへの大量のリクエストで系列が増え続けるのを防ぎます。
+     * @return MeterFilter
+     */
+    @Bean
+    public MeterFilter queryGuardUriLimit() {
+        return MeterFilter.maximumAllowableTags("diary.request", "uri", 100, MeterFilter.deny());
+    }
+}
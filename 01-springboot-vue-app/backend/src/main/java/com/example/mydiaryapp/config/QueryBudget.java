@@ -0,0 +1,22 @@
+package com.example.mydiaryapp.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * コントローラーのメソッドで、1リクエストあたりに発行してよいSQLの件数を指定します。
+ * 件数には認証時のユーザー検索も含みます。超過した場合は {@link QueryGuardFilter} が警告を記録し、
+ * diary.query-guard.fail-on-violation=true の場合（結合テスト用）は 500 を返します。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface QueryBudget {
+    /**
+     * 1リクエストあたりのSQLの最大件数。
+     */
+    int maxStatements();
+}
@@ -0,0 +1,164 @@
+package com.example.mydiaryapp.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * HTTPリクエストごとに発行されたSQLを集計し、N+1 問題や過剰なSQLを検出するフィルタです。
+ *
+ * <ul>
+ *   <li>SQLの件数と実行時間の合計をエンドポイントごとのメトリクスとして記録します。</li>
+ *   <li>パラメータだけが異なる同じSELECT文がしきい値以上発行された場合は、N+1 の疑いとして警告を記録します。</li>
+ *   <li>コントローラーのメソッドに {@link QueryBudget} がある場合、件数が予算を超えると警告を記録します。
+ *       diary.query-guard.fail-on-violation=true のときはレスポンスをメモリに保持しておき、
+ *       超過した場合はコントローラーのレスポンスの代わりに 500 を返して結合テストを失敗させます。</li>
+ * </ul>
+ * 認証時のユーザー検索も含めるため、Spring Security のフィルタより先に実行します。
+ * URIタグにはパス変数を含まないマッピングのパターンを使用します。
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class QueryGuardFilter extends OncePerRequestFilter {
+    /** リクエストごとのSQL件数のメトリクス名。 */
+    public static final String METRIC_NAME = "diary.request.statements";
+
+    private static final int MAX_LOGGED_SQL_LENGTH = 300;
+
+    private final MeterRegistry meterRegistry;
+    private final int repeatThreshold;
+    private final boolean failOnViolation;
+
+    public QueryGuardFilter(MeterRegistry meterRegistry,
+                            @Value("${diary.query-guard.repeat-threshold:5}") int repeatThreshold,
+                            @Value("${diary.query-guard.fail-on-violation:false}") boolean failOnViolation) {
+        this.meterRegistry = meterRegistry;
+        this.repeatThreshold = repeatThreshold;
+        this.failOnViolation = failOnViolation;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            // 非同期処理の完了後に、最初のディスパッチで保持したレスポンスを書き出します
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                ContentCachingResponseWrapper buffered =
+                    WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+                if (buffered != null) {
+                    buffered.copyBodyToResponse();
+                }
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper buffered = failOnViolation ? new ContentCachingResponseWrapper(response) : null;
+        SqlStatementCounter.start();
+        QueryStats stats;
+        try {
+            filterChain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            stats = SqlStatementCounter.stop();
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        record(request.getMethod(), uri, stats);
+
+        Map<String, Integer> repeated = stats.getRepeatedSelects(repeatThreshold);
+        if (!repeated.isEmpty()) {
+            Counter.builder("diary.request.repeated.selects")
+                .description("同じ形のSELECT文が繰り返し発行されたリクエスト数（N+1の疑い）")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .increment();
+            repeated.forEach((sql, count) -> log.warn("Possible N+1 query on {} {}: {} executions of {}",
+                request.getMethod(), uri, count, abbreviate(sql)));
+        }
+
+        QueryBudget budget = budgetOf(request);
+        if (budget != null && stats.getStatements() > budget.maxStatements()) {
+            String message = String.format("%s %s issued %d SQL statements (budget %d)",
+                request.getMethod(), uri, stats.getStatements(), budget.maxStatements());
+            log.warn(message);
+            if (buffered != null && !request.isAsyncStarted()) {
+                // 保持していたレスポンスは捨て、まだ送信していないレスポンスを 500 にします
+                response.reset();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message);
+                return;
+            }
+        }
+        if (buffered != null && !request.isAsyncStarted()) {
+            buffered.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * 失敗させる設定では、非同期処理のレスポンスも保持しているため、完了後のディスパッチでも実行します。
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return !failOnViolation;
+    }
+
+    /**
+     * メトリクスの取得自体は計測しません。
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    private void record(String method, String uri, QueryStats stats) {
+        DistributionSummary.builder(METRIC_NAME)
+            .description("Hibernate が発行したSQLのリクエストごとの件数")
+            .tag("method", method)
+            .tag("uri", uri)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(stats.getStatements());
+        Timer.builder("diary.request.db.time")
+            .description("Hibernate が発行したSQLのリクエストごとの実行時間の合計")
+            .tag("method", method)
+            .tag("uri", uri)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(stats.getExecutionNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static QueryBudget budgetOf(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        return handler instanceof HandlerMethod method ? method.getMethodAnnotation(QueryBudget.class) : null;
+    }
+
+    private static String abbreviate(String sql) {
+        String singleLine = sql.replaceAll("\\s+", " ").trim();
+        return singleLine.length() <= MAX_LOGGED_SQL_LENGTH
+            ? singleLine : singleLine.substring(0, MAX_LOGGED_SQL_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.mydiaryapp.config;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 1つのリクエストの処理中に Hibernate が発行したSQLの統計です。
+ * SQLはパラメータを埋め込む前の形で記録されるため、パラメータだけが異なる同じSQLは同じ文字列になります。
+ */
+public class QueryStats {
+    private int statements;
+    private long executionNanos;
+    private final Map<String, Integer> selects = new HashMap<>();
+
+    void statementPrepared(String sql) {
+        statements++;
+        if (sql.stripLeading().toLowerCase(Locale.ROOT).startsWith("select")) {
+            selects.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void statementExecuted(long nanos) {
+        executionNanos += nanos;
+    }
+
+    /**
+     * 発行されたSQLの件数を返します。
+     * @return SQLの件数
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    /**
+     * SQLの実行にかかった時間の合計を返します。
+     * @return 実行時間の合計（ナノ秒）
+     */
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+
+    /**
+     * 指定回数以上繰り返し発行された同じ形のSELECT文を返します（N+1の疑い）。
+     * @param threshold 回数のしきい値
+     * @return SQLと発行回数（回数の多い順）
+     */
+    public Map<String, Integer> getRepeatedSelects(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        selects.entrySet().stream()
+            .filter(entry -> entry.getValue() >= threshold)
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .forEach(entry -> repeated.put(entry.getKey(), entry.getValue()));
+        return repeated;
+    }
+}
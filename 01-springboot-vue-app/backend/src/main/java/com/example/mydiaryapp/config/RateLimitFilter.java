@@ -0,0 +1,172 @@
+package com.example.mydiaryapp.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.mydiaryapp.security.CustomUserDetails;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ユーザーごとに書き込みのリクエスト数を制限するフィルタです。
+ * 同期処理の不具合などで1つのクライアントが画像付きの書き込みを繰り返しても、
+ * 他のユーザーの書き込みが待たされないようにします。
+ *
+ * <ul>
+ *   <li>ユーザーと書き込みの区分ごとのトークンバケット（{@link TokenBucketStore}）で制限します。
+ *       読み取り（GET）と未認証のリクエストは制限しません。</li>
+ *   <li>上限を超えた場合は 429 を返します。レスポンスには RateLimit-Limit / RateLimit-Remaining /
+ *       RateLimit-Reset ヘッダー、429 の場合は Retry-After ヘッダーを付けます。</li>
+ * </ul>
+ * ユーザーIDを使用するため、Spring Security のフィルタチェインで {@code JwtAuthenticationFilter} の直後に実行します。
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final String REJECTED_BODY =
+        "{\"error\":\"書き込みが多すぎます。しばらくしてから再度お試しください\"}";
+
+    /**
+     * 別々のバケットで制限する書き込みの区分です。
+     */
+    enum WriteClass {
+        /** 日記の作成・更新・削除（画像を含む）。 */
+        DIARY(10, 30),
+        /** 下書きの自動保存。 */
+        DRAFT(20, 60),
+        /** 日記の一括処理（バッチ・一括削除・タグの一括変更）。 */
+        BULK(5, 10),
+        /** タグ・設定などその他の書き込み。 */
+        OTHER(20, 60);
+
+        private final int defaultBurst;
+        private final int defaultPerMinute;
+
+        WriteClass(int defaultBurst, int defaultPerMinute) {
+            this.defaultBurst = defaultBurst;
+            this.defaultPerMinute = defaultPerMinute;
+        }
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<WriteClass, TokenBucketStore> stores = new EnumMap<>(WriteClass.class);
+    private final Map<WriteClass, Counter> rejected = new EnumMap<>(WriteClass.class);
+
+    public RateLimitFilter(MeterRegistry meterRegistry,
+                           Environment environment,
+                           @Value("${diary.rate-limit.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        for (WriteClass writeClass : WriteClass.values()) {
+            String prefix = "diary.rate-limit." + writeClass.tag();
+            TokenBucketStore store = new TokenBucketStore(
+                environment.getProperty(prefix + ".burst", Integer.class, writeClass.defaultBurst),
+                environment.getProperty(prefix + ".per-minute", Integer.class, writeClass.defaultPerMinute));
+            stores.put(writeClass, store);
+            Gauge.builder("diary.rate-limit.buckets", store, TokenBucketStore::size)
+                .description("メモリに保持している書き込みのトークンバケットの件数")
+                .tag("class", writeClass.tag())
+                .register(meterRegistry);
+            rejected.put(writeClass, Counter.builder("diary.rate-limit.rejected")
+                .description("ユーザーごとの書き込みの上限を超えたため 429 で返したリクエスト数")
+                .tag("class", writeClass.tag())
+                .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String userId = currentUserId();
+        if (userId == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        WriteClass writeClass = classify(request.getRequestURI());
+        TokenBucketStore store = stores.get(writeClass);
+        long result = store.tryConsume(TokenBucketStore.hash(userId, writeClass.ordinal()), System.currentTimeMillis());
+        response.setHeader("RateLimit-Limit", String.valueOf(store.getBurst()));
+        if (result >= 0) {
+            response.setHeader("RateLimit-Remaining", String.valueOf(result / 1000));
+            response.setHeader("RateLimit-Reset", String.valueOf(store.secondsUntilFull(result)));
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        rejected.get(writeClass).increment();
+        String retryAfter = String.valueOf((-result - 1 + 999) / 1000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("RateLimit-Remaining", "0");
+        response.setHeader("RateLimit-Reset", retryAfter);
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(REJECTED_BODY);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !enabled || "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)
+            || !request.getRequestURI().startsWith("/api/") || request.getRequestURI().startsWith("/api/auth/");
+    }
+
+    /**
+     * 満杯まで補充されたバケットを定期的に削除し、使われなくなったユーザーの分のメモリを解放します。
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        long now = System.currentTimeMillis();
+        stores.forEach((writeClass, store) -> {
+            int evicted = store.evictIdle(now);
+            if (evicted > 0) {
+                log.debug("Evicted {} idle {} rate limit buckets", evicted, writeClass.tag());
+            }
+        });
+    }
+
+    private static String currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof CustomUserDetails details
+            ? details.getUserId() : null;
+    }
+
+    private static WriteClass classify(String uri) {
+        if (uri.startsWith("/api/diaries/")) {
+            if (uri.endsWith("/draft")) {
+                return WriteClass.DRAFT;
+            }
+            if (uri.equals("/api/diaries/batch") || uri.startsWith("/api/diaries/bulk-")) {
+                return WriteClass.BULK;
+            }
+            return WriteClass.DIARY;
+        }
+        return uri.equals("/api/diaries") ? WriteClass.DIARY : WriteClass.OTHER;
+    }
+}
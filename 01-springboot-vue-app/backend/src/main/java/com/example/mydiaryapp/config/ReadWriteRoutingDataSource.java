@@ -0,0 +1,122 @@
+package com.example.mydiaryapp.config;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.mydiaryapp.security.CustomUserDetails;
+import com.zaxxer.hikari.HikariDataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 読み取り専用トランザクションをレプリカへ、それ以外をプライマリへ振り分けるデータソースです。
+ * トランザクションの読み取り専用フラグが確定してから接続を取得する必要があるため、
+ * LazyConnectionDataSourceProxy で包んで使用します。
+ *
+ * <ul>
+ *   <li>レプリカから接続を取得できない場合は一定時間プライマリにフォールバックします。</li>
+ *   <li>ユーザーの書き込みがコミットされた直後の一定時間は、そのユーザーの読み取りもプライマリに送り、
+ *       レプリカの遅延によって自分の書き込みが見えなくなることを防ぎます。</li>
+ * </ul>
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements Closeable {
+    private static final long REPLICA_RETRY_MILLIS = 30_000;
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final long readYourWritesMillis;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile long replicaDownUntil;
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, HikariDataSource replica, long readYourWritesMillis) {
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (useReplica()) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                replicaDownUntil = System.currentTimeMillis() + REPLICA_RETRY_MILLIS;
+                log.warn("Replica unavailable, routing reads to primary for {} ms: {}",
+                    REPLICA_RETRY_MILLIS, e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * 現在のトランザクションをレプリカに送るかを判定します。
+     * 読み書きトランザクションの場合は、コミット後に現在のユーザーの書き込み時刻を記録します。
+     */
+    private boolean useReplica() {
+        String userId = CustomUserDetails.currentUserId();
+        long now = System.currentTimeMillis();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (userId != null && readYourWritesMillis > 0) {
+                recordWrite(userId);
+            }
+            return false;
+        }
+        if (now < replicaDownUntil) {
+            return false;
+        }
+        if (userId != null) {
+            Long lastWrite = lastWrites.get(userId);
+            if (lastWrite != null && now - lastWrite < readYourWritesMillis) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ユーザーの書き込み時刻を記録します。
+     * 接続の取得時に記録すると、トランザクションが長い場合にコミット前に保証の期間が過ぎてしまうため、
+     * トランザクション内ではコミット後に記録します。トランザクション外（自動コミット）の場合はすぐに記録します。
+     */
+    private void recordWrite(String userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lastWrites.put(userId, System.currentTimeMillis());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWrites.put(userId, System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * 読み取り後書き込み保証の期間を過ぎた書き込み記録を削除します。
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpiredWrites() {
+        long threshold = System.currentTimeMillis() - readYourWritesMillis;
+        lastWrites.values().removeIf(lastWrite -> lastWrite < threshold);
+    }
+
+    @Override
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.mydiaryapp.config;
+
+import java.util.function.Supplier;
+
+/**
+ * 現在のスレッドで使用するシャードを明示的に指定するためのユーティリティクラスです。
+ * スケジューラや非同期処理など、認証済みユーザーのいないスレッドからシャード上のデータに
+ * アクセスする場合に使用します。指定はトランザクションの開始前に行う必要があります。
+ */
+public final class ShardContext {
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * 現在のスレッドに指定されたシャード名を取得します。
+     * @return シャード名（指定されていない場合は null）
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 指定したシャードで処理を実行し、結果を返します。
+     * @param shard シャード名
+     * @param action 実行する処理
+     * @return 処理の結果
+     */
+    public static <T> T call(String shard, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 指定したシャードで処理を実行します。
+     * @param shard シャード名
+     * @param action 実行する処理
+     */
+    public static void run(String shard, Runnable action) {
+        call(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.mydiaryapp.config;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * シャードごとの接続プールを保持するクラスです。
+ * ディレクトリシャード（spring.datasource.*）はユーザー情報とシャード配置表を保持し、
+ * 配置表に登録されていない既存ユーザーの日記もこのシャードに置かれます。
+ */
+public class ShardDataSources implements Closeable {
+    private final String directoryShard;
+    private final Map<String, HikariDataSource> shards;
+
+    /**
+     * @param directoryShard ディレクトリシャードの名前
+     * @param shards シャード名と接続プールの対応（登録順を保持したもの）
+     */
+    public ShardDataSources(String directoryShard, LinkedHashMap<String, HikariDataSource> shards) {
+        if (!shards.containsKey(directoryShard)) {
+            throw new IllegalArgumentException("Unknown directory shard: " + directoryShard);
+        }
+        this.directoryShard = directoryShard;
+        this.shards = Collections.unmodifiableMap(shards);
+    }
+
+    public String getDirectoryShard() {
+        return directoryShard;
+    }
+
+    public Map<String, ? extends DataSource> getShards() {
+        return shards;
+    }
+
+    /**
+     * 指定したシャードの接続プールを返します。
+     * @param shard シャード名
+     * @return DataSource
+     * @throws IllegalArgumentException 存在しないシャード名の場合
+     */
+    public DataSource get(String shard) {
+        DataSource dataSource = shards.get(shard);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        return dataSource;
+    }
+
+    @Override
+    public void close() {
+        shards.values().forEach(HikariDataSource::close);
+    }
+}
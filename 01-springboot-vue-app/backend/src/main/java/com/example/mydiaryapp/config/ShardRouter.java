@@ -0,0 +1,303 @@
+package com.example.mydiaryapp.config;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ユーザーIDから日記データを保持するシャードを決定するクラスです。
+ *
+ * <ul>
+ *   <li>新規ユーザーはコンシステントハッシュで決まるシャード（ホームシャード）に配置され、
+ *       その結果をディレクトリシャードの配置表 user_shards に記録します。</li>
+ *   <li>配置表に登録されていない既存ユーザーはディレクトリシャードに置かれているものとして扱います。</li>
+ *   <li>配置表の内容は一定時間キャッシュします。シャードを追加してホームシャードが変わったユーザーは、
+ *       再配置処理によって移動されるまで元のシャードを使い続けます。</li>
+ * </ul>
+ * シャーディングが無効な場合は、すべてのユーザーを単一のシャードに割り当てます。
+ */
+@Slf4j
+@Component
+public class ShardRouter {
+    /** シャーディングが無効な場合のシャード名。 */
+    public static final String SINGLE_SHARD = "default";
+
+    private final ShardDataSources shards;
+    private final ConsistentHashRing ring;
+    private final JdbcTemplate directory;
+    private final long cacheMillis;
+    private final Map<String, Placement> cache = new ConcurrentHashMap<>();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public ShardRouter(ObjectProvider<ShardDataSources> shardDataSources,
+                       MeterRegistry meterRegistry,
+                       @Value("${diary.sharding.virtual-nodes:128}") int virtualNodes,
+                       @Value("${diary.sharding.directory-cache-ms:5000}") long cacheMillis) {
+        this.shards = shardDataSources.getIfAvailable();
+        this.cacheMillis = cacheMillis;
+        this.cacheHits = meterRegistry.counter("diary.cache.gets", "cache", "shard-placement", "result", "hit");
+        this.cacheMisses = meterRegistry.counter("diary.cache.gets", "cache", "shard-placement", "result", "miss");
+        if (shards != null) {
+            this.ring = new ConsistentHashRing(shards.getShards().keySet(), virtualNodes);
+            this.directory = new JdbcTemplate(shards.get(shards.getDirectoryShard()));
+        } else {
+            this.ring = null;
+            this.directory = null;
+        }
+    }
+
+    /**
+     * シャード配置表がない場合は作成します。
+     */
+    @PostConstruct
+    public void initDirectory() {
+        if (!isSharded()) {
+            return;
+        }
+        directory.execute("CREATE TABLE IF NOT EXISTS user_shards ("
+            + "user_id CHAR(36) NOT NULL, "
+            + "shard_key VARCHAR(50) NOT NULL, "
+            + "move_target VARCHAR(50) NULL, "
+            + "updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, "
+            + "PRIMARY KEY (user_id)) ENGINE=InnoDB");
+        log.info("Sharding enabled with shards {} (directory: {})",
+            shards.getShards().keySet(), shards.getDirectoryShard());
+    }
+
+    /**
+     * シャーディングが有効かを返します。
+     * @return 複数のシャードが構成されている場合 true
+     */
+    public boolean isSharded() {
+        return shards != null;
+    }
+
+    /**
+     * ユーザー情報とシャード配置表を保持するシャードの名前を返します。
+     * @return ディレクトリシャード名
+     */
+    public String getDirectoryShard() {
+        return isSharded() ? shards.getDirectoryShard() : SINGLE_SHARD;
+    }
+
+    /**
+     * 構成されているすべてのシャード名を返します。
+     * @return シャード名の集合
+     */
+    public Collection<String> getShardNames() {
+        return isSharded() ? shards.getShards().keySet() : Set.of(SINGLE_SHARD);
+    }
+
+    /**
+     * 指定したシャードの接続プールを返します。シャード間でデータを移動する場合に使用します。
+     * @param shard シャード名
+     * @return DataSource
+     */
+    public DataSource getDataSource(String shard) {
+        if (!isSharded()) {
+            throw new IllegalStateException("Sharding is not enabled");
+        }
+        return shards.get(shard);
+    }
+
+    /**
+     * 配置表のキャッシュ期間（ミリ秒）を返します。
+     * 配置の変更がすべてのインスタンスに反映されるまでの最大時間です。
+     * @return キャッシュ期間（ミリ秒）
+     */
+    public long getCacheMillis() {
+        return cacheMillis;
+    }
+
+    /**
+     * ユーザーの日記データが現在置かれているシャードを返します。
+     * @param userId ユーザーID
+     * @return シャード名
+     */
+    public String shardFor(String userId) {
+        return placement(userId).getShard();
+    }
+
+    /**
+     * ユーザーのデータがシャード間で移動中かを返します。移動中は書き込みを受け付けません。
+     * @param userId ユーザーID
+     * @return 移動中の場合 true
+     */
+    public boolean isMoving(String userId) {
+        return placement(userId).isMoving();
+    }
+
+    /**
+     * コンシステントハッシュで決まるユーザーの本来のシャードを返します。
+     * @param userId ユーザーID
+     * @return シャード名
+     */
+    public String homeShard(String userId) {
+        return isSharded() ? ring.nodeFor(userId) : SINGLE_SHARD;
+    }
+
+    /**
+     * 新規登録したユーザーをホームシャードに配置します。
+     * ホームシャードがディレクトリシャード以外の場合は、日記の外部キーのために
+     * ユーザー情報の複製をホームシャードに作成してから配置表に登録します。
+     * @param userId ディレクトリシャードに登録済みのユーザーID
+     */
+    public void assignNewUser(String userId) {
+        if (!isSharded()) {
+            return;
+        }
+        String home = homeShard(userId);
+        copyUserRow(userId, home);
+        directory.update("INSERT INTO user_shards (user_id, shard_key) VALUES (?, ?)", userId, home);
+        cache.remove(userId);
+    }
+
+    /**
+     * ディレクトリシャードのユーザー情報を指定シャードに複製します（既に存在する場合は何もしません）。
+     * @param userId ユーザーID
+     * @param shard 複製先のシャード名
+     */
+    public void copyUserRow(String userId, String shard) {
+        if (shard.equals(getDirectoryShard())) {
+            return;
+        }
+        Map<String, Object> user = directory.queryForMap(
+            "SELECT id, username, email, password_hash, theme, reminder_time, created_at, updated_at "
+                + "FROM users WHERE id = ?", userId);
+        new JdbcTemplate(getDataSource(shard)).update(
+            "INSERT IGNORE INTO users (id, username, email, password_hash, theme, reminder_time, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+            user.get("id"), user.get("username"), user.get("email"), user.get("password_hash"),
+            user.get("theme"), user.get("reminder_time"), user.get("created_at"), user.get("updated_at"));
+    }
+
+    /**
+     * ユーザーの移動を開始し、書き込みを停止します。
+     * 別のインスタンスが同じユーザーを移動中の場合は開始しません。
+     * @param userId ユーザーID
+     * @param target 移動先のシャード名
+     * @return 移動を開始できた場合 true
+     */
+    public boolean beginMove(String userId, String target) {
+        directory.update("INSERT IGNORE INTO user_shards (user_id, shard_key) VALUES (?, ?)",
+            userId, getDirectoryShard());
+        int updated = directory.update(
+            "UPDATE user_shards SET move_target = ? WHERE user_id = ? AND move_target IS NULL", target, userId);
+        cache.remove(userId);
+        return updated == 1;
+    }
+
+    /**
+     * 移動中のユーザーの読み取り先を移動先のシャードに切り替えます。
+     * @param userId ユーザーID
+     */
+    public void switchToTarget(String userId) {
+        directory.update("UPDATE user_shards SET shard_key = move_target WHERE user_id = ? AND move_target IS NOT NULL",
+            userId);
+        cache.remove(userId);
+    }
+
+    /**
+     * ユーザーの移動を終了し、書き込みを再開します。
+     * @param userId ユーザーID
+     */
+    public void endMove(String userId) {
+        directory.update("UPDATE user_shards SET move_target = NULL WHERE user_id = ?", userId);
+        cache.remove(userId);
+    }
+
+    /**
+     * 削除したユーザーを配置表から削除します。
+     * @param userId ユーザーID
+     */
+    public void removePlacement(String userId) {
+        if (!isSharded()) {
+            return;
+        }
+        directory.update("DELETE FROM user_shards WHERE user_id = ?", userId);
+        cache.remove(userId);
+    }
+
+    /**
+     * 異常終了などで一定時間以上移動中のままになっているユーザーの書き込み停止を解除します。
+     * 読み取り先を切り替える前に中断した移動は、次回の再配置で最初からやり直されます。
+     * @param staleSeconds 移動中とみなす最大の秒数
+     * @return 解除したユーザー数
+     */
+    public int releaseStaleMoves(long staleSeconds) {
+        return directory.update("UPDATE user_shards SET move_target = NULL "
+            + "WHERE move_target IS NOT NULL AND updated_at < NOW() - INTERVAL ? SECOND", staleSeconds);
+    }
+
+    /**
+     * ユーザーID順に、各ユーザーの現在のシャードを取得します。削除中のユーザーは含みません。
+     * @param afterUserId このIDより後のユーザーから取得（先頭から取得する場合は空文字）
+     * @param limit 取得件数
+     * @return id と shard_key を含む行のリスト
+     */
+    public List<Map<String, Object>> findPlacements(String afterUserId, int limit) {
+        return directory.queryForList("SELECT u.id, COALESCE(s.shard_key, ?) AS shard_key "
+            + "FROM users u LEFT JOIN user_shards s ON s.user_id = u.id "
+            + "WHERE u.id > ? AND u.deleted_at IS NULL AND s.move_target IS NULL ORDER BY u.id LIMIT ?",
+            getDirectoryShard(), afterUserId, limit);
+    }
+
+    /**
+     * 期限切れのキャッシュを削除します。
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpiredPlacements() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(placement -> placement.getExpiresAt() < now);
+    }
+
+    private Placement placement(String userId) {
+        if (!isSharded()) {
+            return new Placement(SINGLE_SHARD, false, Long.MAX_VALUE);
+        }
+        long now = System.currentTimeMillis();
+        Placement cached = cache.get(userId);
+        if (cached != null && cached.getExpiresAt() > now) {
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
+        List<Map<String, Object>> rows = directory.queryForList(
+            "SELECT shard_key, move_target FROM user_shards WHERE user_id = ?", userId);
+        Placement placement = rows.isEmpty()
+            ? new Placement(getDirectoryShard(), false, now + cacheMillis)
+            : new Placement((String) rows.get(0).get("shard_key"), rows.get(0).get("move_target") != null,
+                now + cacheMillis);
+        cache.put(userId, placement);
+        return placement;
+    }
+
+    /**
+     * キャッシュしたユーザーの配置を表すクラスです。
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class Placement {
+        private final String shard;
+        private final boolean moving;
+        private final long expiresAt;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.mydiaryapp.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.example.mydiaryapp.security.CustomUserDetails;
+
+/**
+ * 接続を取得する時点のユーザーに応じて、そのユーザーのシャードへ接続を振り分けるデータソースです。
+ *
+ * <ol>
+ *   <li>{@link ShardContext} でシャードが指定されている場合はそのシャード</li>
+ *   <li>認証済みユーザーがいる場合はそのユーザーのシャード</li>
+ *   <li>それ以外（認証処理、ユーザー登録、起動時のスキーマ生成など）はディレクトリシャード</li>
+ * </ol>
+ * JPA のトランザクションは開始時に接続を取得するため、1つのトランザクションは1つのシャードで完結します。
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private final ShardRouter shardRouter;
+
+    public ShardRoutingDataSource(ShardDataSources shardDataSources, ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+        Map<Object, Object> targets = new HashMap<>(shardDataSources.getShards());
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shardDataSources.get(shardDataSources.getDirectoryShard()));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = ShardContext.current();
+        if (shard != null) {
+            return shard;
+        }
+        String userId = CustomUserDetails.currentUserId();
+        return userId != null ? shardRouter.shardFor(userId) : shardRouter.getDirectoryShard();
+    }
+}
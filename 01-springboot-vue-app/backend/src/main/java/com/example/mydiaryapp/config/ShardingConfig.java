@@ -0,0 +1,108 @@
+package com.example.mydiaryapp.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.mydiaryapp.security.CustomUserDetails;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * ユーザー単位のシャーディングを使用する場合のデータソース設定クラスです。
+ * diary.sharding.enabled=true の場合のみ有効になり、spring.datasource.* を
+ * ディレクトリシャード（default）、diary.sharding.shards.&lt;名前&gt;.* を追加のシャードとして構成します。
+ * 各シャードには database/schema.sql でテーブルを作成しておく必要があります。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "diary.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig implements WebMvcConfigurer {
+    private static final String DIRECTORY_SHARD = "default";
+
+    private final ShardRouter shardRouter;
+
+    public ShardingConfig(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * すべてのシャードの接続プールを提供します。
+     * @param properties spring.datasource.* の設定
+     * @param environment 接続プール設定のバインドに使用する環境
+     * @return ShardDataSources
+     */
+    @Bean(destroyMethod = "close")
+    public static ShardDataSources shardDataSources(DataSourceProperties properties, Environment environment) {
+        Binder binder = Binder.get(environment);
+        LinkedHashMap<String, HikariDataSource> shards = new LinkedHashMap<>();
+
+        HikariDataSource directory = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(directory));
+        directory.setPoolName("shard-" + DIRECTORY_SHARD);
+        shards.put(DIRECTORY_SHARD, directory);
+
+        Map<String, Object> configured = binder.bind("diary.sharding.shards",
+            Bindable.mapOf(String.class, Object.class)).orElse(Map.of());
+        for (String name : configured.keySet()) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setDriverClassName(properties.determineDriverClassName());
+            binder.bind("diary.sharding.shards." + name, Bindable.ofInstance(shard));
+            shard.setPoolName("shard-" + name);
+            shards.put(name, shard);
+        }
+        return new ShardDataSources(DIRECTORY_SHARD, shards);
+    }
+
+    /**
+     * アプリケーションが使用するデータソースを提供します。
+     * @param shardDataSources すべてのシャードの接続プール
+     * @return ShardRoutingDataSource
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources) {
+        return new ShardRoutingDataSource(shardDataSources, shardRouter);
+    }
+
+    /**
+     * シャード間を移動中のユーザーからの書き込みリクエストを拒否するインターセプタを登録します。
+     * 移動中も読み取りは移動元のシャードで継続できます。
+     * 日記だけでなく、タグの名前の変更・統合などシャード上の行を書き換えるAPIも対象にするため、認証以外のすべてのAPIに適用します。
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                HttpMethod method = HttpMethod.valueOf(request.getMethod());
+                if (method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS) {
+                    return true;
+                }
+                String userId = CustomUserDetails.currentUserId();
+                if (userId != null && shardRouter.isMoving(userId)) {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "日記データを移動中です。しばらくしてから再度お試しください");
+                }
+                return true;
+            }
+        }).addPathPatterns("/api/**").excludePathPatterns("/api/auth/**");
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.mydiaryapp.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate が発行するSQLを、スレッドごとに {@link QueryStats} に記録するクラスです。
+ * hibernate.session_factory.statement_inspector に登録し、{@link #start()} から {@link #stop()} までに
+ * 現在のスレッドで発行されたSQLを記録します。JdbcTemplate で直接発行したSQLは記録しません。
+ * 実行時間は {@link SqlTimingListener} が記録します。
+ */
+public class SqlStatementCounter implements StatementInspector {
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 現在のスレッドで記録を開始します。
+     */
+    public static void start() {
+        CURRENT.set(new QueryStats());
+    }
+
+    /**
+     * 現在のスレッドでの記録を終了し、開始からの統計を返します。
+     * @return SQLの統計（記録を開始していない場合は空の統計）
+     */
+    public static QueryStats stop() {
+        QueryStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats == null ? new QueryStats() : stats;
+    }
+
+    /**
+     * 現在のスレッドで記録中の統計を返します。
+     * @return SQLの統計（記録していない場合は null）
+     */
+    static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * SQLを変更せずに、記録中であれば統計に加えます。
+     * @param sql 発行されるSQL
+     * @return 同じSQL
+     */
+    @Override
+    public String inspect(String sql) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.statementPrepared(sql);
+        }
+        return sql;
+    }
+}
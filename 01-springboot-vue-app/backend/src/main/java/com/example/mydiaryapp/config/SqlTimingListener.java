@@ -0,0 +1,39 @@
+package com.example.mydiaryapp.config;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Hibernate のセッションで実行されたSQLの実行時間を、記録中の {@link QueryStats} に加えるクラスです。
+ * hibernate.session.events.auto に登録し、セッションごとに生成されます。
+ */
+public class SqlTimingListener extends BaseSessionEventListener {
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record(statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record(batchStart);
+    }
+
+    private static void record(long start) {
+        QueryStats stats = SqlStatementCounter.current();
+        if (stats != null) {
+            stats.statementExecuted(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.mydiaryapp.config;
+
+/**
+ * キーごとのトークンバケットをメモリに保持するストアです。数百万件のバケットを保持できるように、
+ * バケットをオブジェクトにせず long の配列に詰めて保持します。
+ *
+ * <ul>
+ *   <li>キーは文字列から計算した64ビットのハッシュ値で識別し、文字列自体は保持しません。</li>
+ *   <li>配列はキーのハッシュ値で分けた区画（ストライプ）ごとに持ち、区画ごとにロックします。
+ *       区画内はオープンアドレス法（線形探索）のハッシュ表です。</li>
+ *   <li>1件のバケットは、最後に補充した時刻（40ビット、ミリ秒）と残りのトークン（24ビット）を
+ *       1つの long に詰めて保持します。トークンは 1/60000 単位で保持し、1ミリ秒あたりの補充量
+ *       （1分あたりの件数と同じ値）が整数になるようにして、頻繁に呼び出しても端数を失わないようにします。
+ *       そのため容量は {@link #MAX_BURST} 件までです。</li>
+ *   <li>{@link #tryConsume} はオブジェクトを生成しません（区画の拡張時を除く）。</li>
+ *   <li>満杯まで補充されたバケットは、新しいバケットと区別できないため {@link #evictIdle} で削除します。</li>
+ * </ul>
+ */
+public final class TokenBucketStore {
+    private static final int STRIPE_BITS = 6;
+    private static final int INITIAL_SLOTS = 64;
+    private static final long MILLI = 1000;
+    /** 1トークンの内部単位での量（1分のミリ秒数）。 */
+    private static final long UNIT = 60_000;
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long TIME_MASK = (1L << (Long.SIZE - TOKEN_BITS)) - 1;
+    /** バケットの容量の上限（件）。 */
+    public static final int MAX_BURST = (int) (TOKEN_MASK / UNIT);
+
+    private final Segment[] segments = new Segment[1 << STRIPE_BITS];
+    /** バケットの容量（内部単位）。 */
+    private final long capacity;
+    /** 1ミリ秒あたりに補充する量（内部単位）。 */
+    private final long perMinute;
+    /** 空のバケットが満杯になるまでの時間（ミリ秒）。 */
+    private final long fullRefillMillis;
+    private final long epochMillis = System.currentTimeMillis();
+
+    /**
+     * @param burst バケットの容量（連続して受け付ける件数。{@link #MAX_BURST} を超える場合は切り詰めます）
+     * @param perMinute 1分あたりに補充するトークン数
+     */
+    public TokenBucketStore(int burst, int perMinute) {
+        this.capacity = Math.min(MAX_BURST, Math.max(1, burst)) * UNIT;
+        this.perMinute = Math.max(1, perMinute);
+        this.fullRefillMillis = millisFor(capacity);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * キーのバケットからトークンを1つ取り出します。バケットがない場合は満杯のバケットを作成します。
+     * @param key キーのハッシュ値（{@link #hash} で計算した値）
+     * @param nowMillis 現在時刻（ミリ秒）
+     * @return 取り出せた場合は残りのトークン（1/1000単位に切り捨て、0以上）、
+     *         取り出せなかった場合は次のトークンが補充されるまでのミリ秒に1を足して負にした値
+     */
+    public long tryConsume(long key, long nowMillis) {
+        long now = Math.max(0, nowMillis - epochMillis) & TIME_MASK;
+        Segment segment = segments[(int) (key >>> (Long.SIZE - STRIPE_BITS))];
+        synchronized (segment) {
+            int slot = segment.find(key);
+            long tokens;
+            long refilledAt;
+            if (slot < 0) {
+                tokens = capacity;
+                refilledAt = now;
+                slot = segment.insert(key);
+            } else {
+                long state = segment.states[slot];
+                tokens = refill(state, now);
+                refilledAt = Math.max(now, state >>> TOKEN_BITS);
+            }
+            long result;
+            if (tokens >= UNIT) {
+                tokens -= UNIT;
+                result = tokens * MILLI / UNIT;
+            } else {
+                result = -millisFor(UNIT - tokens) - 1;
+            }
+            segment.states[slot] = (refilledAt << TOKEN_BITS) | tokens;
+            return result;
+        }
+    }
+
+    /**
+     * 満杯まで補充される時間が経過したバケットを削除します。
+     * @param nowMillis 現在時刻（ミリ秒）
+     * @return 削除した件数
+     */
+    public int evictIdle(long nowMillis) {
+        long now = Math.max(0, nowMillis - epochMillis) & TIME_MASK;
+        int evicted = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                int i = 0;
+                while (i < segment.keys.length) {
+                    if (segment.keys[i] != 0 && refill(segment.states[i], now) >= capacity) {
+                        // 後ろの要素が詰められるため、同じ位置をもう一度確認します
+                        segment.removeAt(i);
+                        evicted++;
+                    } else {
+                        i++;
+                    }
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * 保持しているバケットの件数を返します（ロックしないため概算です）。
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * バケットの容量を返します。
+     */
+    public int getBurst() {
+        return (int) (capacity / UNIT);
+    }
+
+    /**
+     * 残りのトークンから、バケットが満杯になるまでの秒数を求めます。
+     * @param remaining {@link #tryConsume} が返した残りのトークン（1/1000単位）
+     * @return 満杯になるまでの秒数（切り上げ）
+     */
+    public long secondsUntilFull(long remaining) {
+        return (millisFor(Math.max(0, capacity - remaining * UNIT / MILLI)) + MILLI - 1) / MILLI;
+    }
+
+    /**
+     * 保持している状態に、最後に補充した時刻から現在までの分を補充したトークン（内部単位、容量まで）を求めます。
+     */
+    private long refill(long state, long now) {
+        long elapsed = Math.max(0, now - (state >>> TOKEN_BITS));
+        return Math.min(capacity, (state & TOKEN_MASK) + Math.min(elapsed, fullRefillMillis) * perMinute);
+    }
+
+    /**
+     * 指定したトークン（内部単位）が補充されるまでのミリ秒を求めます（切り上げ）。
+     */
+    private long millisFor(long tokens) {
+        return (tokens + perMinute - 1) / perMinute;
+    }
+
+    /**
+     * 文字列からキーのハッシュ値（FNV-1a、64ビット）をオブジェクトを生成せずに計算します。
+     * 区分ごとに別のバケットにするため、区分の番号も含めます。
+     * @param text ユーザーIDなど
+     * @param category 区分の番号
+     * @return 0 以外のハッシュ値
+     */
+    public static long hash(String text, int category) {
+        long hash = 0xcbf29ce484222325L ^ category;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // 上位ビットで区画、下位ビットで区画内の位置を決めるため、ビットを混ぜます
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * ロックの単位となる区画です。keys の 0 は空きを表します。
+     */
+    private static final class Segment {
+        private long[] keys = new long[INITIAL_SLOTS];
+        private long[] states = new long[INITIAL_SLOTS];
+        private int size;
+
+        private int home(long key) {
+            return (int) key & (keys.length - 1);
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = home(key); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int insert(long key) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = home(key);
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            size++;
+            return i;
+        }
+
+        /**
+         * 線形探索の連なりが途切れないように、後ろの要素を詰めながら削除します。
+         */
+        private void removeAt(int index) {
+            int mask = keys.length - 1;
+            int hole = index;
+            int i = index;
+            while (true) {
+                i = (i + 1) & mask;
+                if (keys[i] == 0) {
+                    break;
+                }
+                int home = home(keys[i]);
+                boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+                if (movable) {
+                    keys[hole] = keys[i];
+                    states[hole] = states[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = 0;
+            states[hole] = 0;
+            size--;
+        }
+
+        private void resize(int slots) {
+            long[] oldKeys = keys;
+            long[] oldStates = states;
+            keys = new long[slots];
+            states = new long[slots];
+            int mask = slots - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    int i = home(oldKeys[j]);
+                    while (keys[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    states[i] = oldStates[j];
+                }
+            }
+        }
+    }
+}
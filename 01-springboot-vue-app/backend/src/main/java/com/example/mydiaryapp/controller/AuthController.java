@@ -1,10 +1,17 @@
 package com.example.mydiaryapp.controller;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -12,6 +19,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.example.mydiaryapp.dto.AuthRequest;
 import com.example.mydiaryapp.dto.RegisterRequest;
+import com.example.mydiaryapp.security.CustomUserDetails;
+import com.example.mydiaryapp.service.AccountDeletionService;
 import com.example.mydiaryapp.service.AuthService;
 
 import jakarta.validation.Valid;
@@ -19,50 +28,47 @@ import lombok.RequiredArgsConstructor;
 
 /**
  * 認証関連のエンドポイントを提供するコントローラークラスです。
- * ユーザーの登録、ログイン、ログアウト機能を実装しています。
+ * ユーザーの登録、ログイン、ログアウト、アカウントの削除機能を実装しています。
+ * 登録とログインはパスワードのハッシュ化を待つ間リクエストのスレッドを解放するため、非同期のレスポンスを返します。
  */
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:5173")
 public class AuthController {
+    private static final String BUSY_MESSAGE = "ログインが混み合っています。しばらくしてから再度お試しください";
+
     private final AuthService authService;
+    private final AccountDeletionService accountDeletionService;
 
     /**
      * ユーザー登録を行います。
      * @param request ユーザー名、メールアドレス、パスワードを含む登録情報
      * @return 生成したユーザー情報とJWTトークンなどを含むMap
      *         成功時はHTTPステータス201(CREATED)、
-     *         失敗時はHTTPステータス400(BAD_REQUEST)とエラーメッセージを返します。
+     *         失敗時はHTTPステータス400(BAD_REQUEST)とエラーメッセージ、
+     *         混雑時はHTTPステータス503(SERVICE_UNAVAILABLE)を返します。
      */
     @PostMapping("/register")
-    public ResponseEntity<Map<String, Object>> register(@Valid @RequestBody RegisterRequest request) {
-        try {
-            // 新規ユーザーを登録し、トークン等を生成
-            Map<String, Object> response = authService.register(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
-        } catch (RuntimeException e) {
-            // 登録失敗時のエラーハンドリング
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> register(@Valid @RequestBody RegisterRequest request) {
+        // 新規ユーザーを登録し、トークン等を生成
+        // 登録失敗時はサービスのエラーメッセージを返却
+        return respond(() -> authService.register(request), HttpStatus.CREATED, Throwable::getMessage);
     }
 
     /**
      * ログイン認証を行い、JWTトークンを発行します。
      * @param request メールアドレスとパスワードを含む認証情報
      * @return 認証成功時はJWTトークン等を含むMapとHTTPステータス200(OK)、
-     *         認証失敗時はHTTPステータス400(BAD_REQUEST)と固定エラーメッセージを返します。
+     *         認証失敗時はHTTPステータス400(BAD_REQUEST)と固定エラーメッセージ、
+     *         混雑時はHTTPステータス503(SERVICE_UNAVAILABLE)を返します。
      */
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> login(@Valid @RequestBody AuthRequest request) {
-        try {
-            // 認証処理とトークン生成
-            Map<String, Object> response = authService.login(request);
-            return ResponseEntity.ok(response);
-        } catch (RuntimeException e) {
-            // 認証失敗時は詳細を隠してメッセージ返却
-            return ResponseEntity.badRequest().body(Map.of("error", "メールアドレスまたはパスワードが正しくありません"));
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> login(@Valid @RequestBody AuthRequest request) {
+        // 認証処理とトークン生成
+        // 認証失敗時は詳細を隠してメッセージ返却
+        return respond(() -> authService.login(request), HttpStatus.OK,
+            e -> "メールアドレスまたはパスワードが正しくありません");
     }
 
     /**
@@ -74,4 +80,51 @@ public class AuthController {
         // 現在サーバー側でセッションやトークンを管理していないため、空レスポンスで返却
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * 認証済みユーザーのアカウントの削除を受け付けます。
+     * 受付後はログインできなくなり、日記などのデータはバックグラウンドで削除されます。
+     * @return 受付日時を含むMapとHTTPステータス202(ACCEPTED)、
+     *         未認証の場合はHTTPステータス401(UNAUTHORIZED)を返します。
+     */
+    @DeleteMapping("/account")
+    public ResponseEntity<Map<String, Object>> deleteAccount() {
+        String userId = CustomUserDetails.currentUserId();
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(accountDeletionService.requestDeletion(userId));
+    }
+
+    /**
+     * 非同期の処理結果をレスポンスに変換します。
+     * ハッシュ化の待ち行列が満杯の場合は 503 と Retry-After ヘッダー、その他の失敗は 400 とエラーメッセージを返します。
+     * @param action 処理（呼び出し時に例外を投げた場合も失敗として扱います）
+     * @param status 成功時のHTTPステータス
+     * @param errorMessage 失敗時のエラーメッセージ
+     * @return レスポンス
+     */
+    private static CompletableFuture<ResponseEntity<Map<String, Object>>> respond(
+            Supplier<CompletableFuture<Map<String, Object>>> action,
+            HttpStatus status,
+            Function<Throwable, String> errorMessage) {
+        CompletableFuture<Map<String, Object>> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.handle((response, e) -> {
+            if (e == null) {
+                return ResponseEntity.status(status).body(response);
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RejectedExecutionException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", BUSY_MESSAGE));
+            }
+            return ResponseEntity.badRequest().body(Map.of("error", errorMessage.apply(cause)));
+        });
+    }
 }
\ No newline at end of file
@@ -1,27 +1,40 @@
 package com.example.mydiaryapp.controller;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.http.HttpStatus; // この行を追加
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity; // この行を追加
 import org.springframework.security.core.annotation.AuthenticationPrincipal; // この行を追加
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.mydiaryapp.config.QueryBudget;
+import com.example.mydiaryapp.dto.DiaryBatchRequest;
+import com.example.mydiaryapp.dto.DiaryBulkRequest;
+import com.example.mydiaryapp.dto.DiaryDraftRequest;
+import com.example.mydiaryapp.dto.DiaryPatchRequest;
 import com.example.mydiaryapp.dto.DiaryRequest;
 import com.example.mydiaryapp.entity.User;
 import com.example.mydiaryapp.repository.UserRepository;
 import com.example.mydiaryapp.security.CustomUserDetails;
+import com.example.mydiaryapp.service.DiaryReadCoalescer;
 import com.example.mydiaryapp.service.DiaryService;
+import com.example.mydiaryapp.service.DraftService;
+import com.example.mydiaryapp.service.IdempotencyService;
+import com.example.mydiaryapp.service.RevisionService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -29,6 +42,8 @@ import lombok.RequiredArgsConstructor;
 /**
  * 日記エントリの取得、作成、更新、削除を提供するコントローラークラスです。
  * 認証済みユーザーの日記操作を担当します。
+ * 一覧と詳細の取得は、同じ条件の同時のリクエストで1回の取得結果を共有します（{@link DiaryReadCoalescer}）。
+ * 作成・更新・バッチは Idempotency-Key ヘッダーを指定すると、再送されても1回だけ実行します（{@link IdempotencyService}）。
  */
 @RestController
 @RequestMapping("/api/diaries")
@@ -36,6 +51,10 @@ import lombok.RequiredArgsConstructor;
 @CrossOrigin(origins = "http://localhost:5173")
 public class DiaryController {
     private final DiaryService diaryService;
+    private final DiaryReadCoalescer diaryReadCoalescer;
+    private final DraftService draftService;
+    private final IdempotencyService idempotencyService;
+    private final RevisionService revisionService;
     private final UserRepository userRepository;
 
     /**
@@ -49,6 +68,7 @@ public class DiaryController {
      * @return 日記リスト、総件数、ページ情報などを含むMapとHTTPステータス200(OK)
      */
     @GetMapping
+    @QueryBudget(maxStatements = 12)
     public ResponseEntity<Map<String, Object>> getDiaries(
             @AuthenticationPrincipal UserDetails userDetails,
             @RequestParam(required = false) String q,
@@ -58,7 +78,7 @@ public class DiaryController {
             @RequestParam(defaultValue = "10") int limit) {
         
         String userId = getUserId(userDetails);
-        Map<String, Object> response = diaryService.getDiaries(userId, q, tag, month, page, limit);
+        Map<String, Object> response = diaryReadCoalescer.getDiaries(userId, q, tag, month, page, limit);
         return ResponseEntity.ok(response);
     }
 
@@ -66,16 +86,20 @@ public class DiaryController {
      * 新規日記を作成します。
      * @param userDetails 認証済みのユーザー情報
      * @param request タイトル、本文、タグなどの日記情報
+     * @param idempotencyKey 再送を識別するキー（オプション）
      * @return 作成した日記の詳細を含むMapとHTTPステータス201(CREATED)
      */
     @PostMapping
     public ResponseEntity<Map<String, Object>> createDiary(
             @AuthenticationPrincipal UserDetails userDetails,
-            @Valid @RequestBody DiaryRequest request) {
+            @Valid @RequestBody DiaryRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         
         String userId = getUserId(userDetails);
-        Map<String, Object> response = diaryService.createDiary(userId, request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return idempotencyService.execute(userId, idempotencyKey, "POST /api/diaries", request, () -> {
+            Map<String, Object> response = diaryService.createDiary(userId, request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        });
     }
 
     /**
@@ -85,12 +109,13 @@ public class DiaryController {
      * @return 日記の詳細を含むMapとHTTPステータス200(OK)
      */
     @GetMapping("/{diaryId}")
+    @QueryBudget(maxStatements = 8)
     public ResponseEntity<Map<String, Object>> getDiary(
             @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable String diaryId) {
         
         String userId = getUserId(userDetails);
-        Map<String, Object> response = diaryService.getDiary(userId, diaryId);
+        Map<String, Object> response = diaryReadCoalescer.getDiary(userId, diaryId);
         return ResponseEntity.ok(response);
     }
 
@@ -99,16 +124,114 @@ public class DiaryController {
      * @param userDetails 認証済みのユーザー情報
      * @param diaryId 更新対象の日記ID
      * @param request 更新後のタイトル、本文、タグなどを含む日記情報
+     * @param idempotencyKey 再送を識別するキー（オプション）
      * @return 更新した日記の詳細を含むMapとHTTPステータス200(OK)
      */
     @PutMapping("/{diaryId}")
     public ResponseEntity<Map<String, Object>> updateDiary(
             @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable String diaryId,
-            @Valid @RequestBody DiaryRequest request) {
+            @Valid @RequestBody DiaryRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         
         String userId = getUserId(userDetails);
-        Map<String, Object> response = diaryService.updateDiary(userId, diaryId, request);
+        return idempotencyService.execute(userId, idempotencyKey, "PUT /api/diaries/" + diaryId, request, () -> {
+            draftService.discard(userId, diaryId);
+            Map<String, Object> response = diaryService.updateDiary(userId, diaryId, request);
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    /**
+     * 指定IDの日記を部分更新します。
+     * JSON Merge Patch 形式で、リクエストに含まれる項目のみを更新します。
+     * @param userDetails 認証済みのユーザー情報
+     * @param diaryId 更新対象の日記ID
+     * @param request 変更する項目のみを含む日記情報
+     * @return 更新した日記の詳細を含むMapとHTTPステータス200(OK)
+     */
+    @PatchMapping(value = "/{diaryId}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Map<String, Object>> patchDiary(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable String diaryId,
+            @Valid @RequestBody DiaryPatchRequest request) {
+
+        String userId = getUserId(userDetails);
+        draftService.discard(userId, diaryId);
+        Map<String, Object> response = diaryService.patchDiary(userId, diaryId, request);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 編集中の日記の下書きを自動保存します。
+     * 下書きはサーバーのメモリ上に蓄積され、一定間隔でまとめてデータベースに反映されます。
+     * @param userDetails 認証済みのユーザー情報
+     * @param diaryId 編集中の日記ID
+     * @param request 編集中のタイトル、本文、感情
+     * @return 日記IDと保存時刻を含むMapとHTTPステータス202(ACCEPTED)
+     */
+    @PutMapping("/{diaryId}/draft")
+    public ResponseEntity<Map<String, Object>> saveDraft(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable String diaryId,
+            @Valid @RequestBody DiaryDraftRequest request) {
+
+        String userId = getUserId(userDetails);
+        Map<String, Object> response = draftService.saveDraft(userId, diaryId, request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    /**
+     * まだデータベースに反映されていない下書きを取得します。
+     * @param userDetails 認証済みのユーザー情報
+     * @param diaryId 日記ID
+     * @return 下書きを含むMapとHTTPステータス200(OK)、下書きがない場合はHTTPステータス204(NO_CONTENT)
+     */
+    @GetMapping("/{diaryId}/draft")
+    @QueryBudget(maxStatements = 2)
+    public ResponseEntity<Map<String, Object>> getDraft(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable String diaryId) {
+
+        String userId = getUserId(userDetails);
+        return draftService.getDraft(userId, diaryId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    /**
+     * 指定IDの日記の変更履歴（版の一覧）を新しい順に取得します。
+     * @param userDetails 認証済みのユーザー情報
+     * @param diaryId 日記ID
+     * @return 版の一覧を含むMapとHTTPステータス200(OK)
+     */
+    @GetMapping("/{diaryId}/revisions")
+    @QueryBudget(maxStatements = 3)
+    public ResponseEntity<Map<String, Object>> getRevisions(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable String diaryId) {
+
+        String userId = getUserId(userDetails);
+        Map<String, Object> response = revisionService.getRevisions(userId, diaryId);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 指定IDの日記の特定の版を取得します。
+     * @param userDetails 認証済みのユーザー情報
+     * @param diaryId 日記ID
+     * @param revision 版番号
+     * @return 復元した版のタイトル、本文などを含むMapとHTTPステータス200(OK)
+     */
+    @GetMapping("/{diaryId}/revisions/{revision}")
+    @QueryBudget(maxStatements = 5)
+    public ResponseEntity<Map<String, Object>> getRevision(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable String diaryId,
+            @PathVariable int revision) {
+
+        String userId = getUserId(userDetails);
+        Map<String, Object> response = revisionService.getRevision(userId, diaryId, revision);
         return ResponseEntity.ok(response);
     }
 
@@ -124,16 +247,75 @@ public class DiaryController {
             @PathVariable String diaryId) {
         
         String userId = getUserId(userDetails);
+        draftService.discard(userId, diaryId);
         diaryService.deleteDiary(userId, diaryId);
         return ResponseEntity.noContent().build();
     }
 
     /**
-     * UserDetailsからユーザーIDを取得します。
-     * CustomUserDetailsの場合は直接取得し、Emailベースの場合はDB検索を行います。
+     * 日記の作成・更新・削除をまとめて1回のリクエストで実行します。
+     * オフライン中の編集をまとめて反映する用途を想定しています。
+     * 更新・削除する日記の未反映の下書きは破棄します。
      * @param userDetails 認証済みのユーザー情報
-     * @return ユーザーID
+     * @param request 実行順に並んだ操作リスト
+     * @param idempotencyKey 再送を識別するキー（オプション）
+     * @return 操作ごとの実行結果を含むMapとHTTPステータス200(OK)
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> executeBatch(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @Valid @RequestBody DiaryBatchRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+
+        String userId = getUserId(userDetails);
+        return idempotencyService.execute(userId, idempotencyKey, "POST /api/diaries/batch", request, () -> {
+            // 更新・削除する日記の未反映の下書きが、バッチの結果を上書きしないように破棄する
+            request.getOperations().stream()
+                .filter(operation -> !"create".equals(operation.getOp()) && operation.getDiaryId() != null)
+                .forEach(operation -> draftService.discard(userId, operation.getDiaryId()));
+            Map<String, Object> response = diaryService.executeBatch(userId, request);
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    /**
+     * 日記IDのリストまたは絞り込み条件に一致する日記をまとめて削除します。
+     * 削除した日記の未反映の下書きも破棄します。
+     * @param userDetails 認証済みのユーザー情報
+     * @param request 対象の日記IDまたは絞り込み条件
+     * @return 削除した件数と日記ID、上限を超えた残りの有無を含むMapとHTTPステータス200(OK)
      */
+    @PostMapping("/bulk-delete")
+    @QueryBudget(maxStatements = 20)
+    public ResponseEntity<Map<String, Object>> bulkDelete(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @Valid @RequestBody DiaryBulkRequest request) {
+
+        String userId = getUserId(userDetails);
+        Map<String, Object> response = diaryService.bulkDelete(userId, request);
+        @SuppressWarnings("unchecked")
+        List<String> deleted = (List<String>) response.get("diaryIds");
+        deleted.forEach(diaryId -> draftService.discard(userId, diaryId));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 日記IDのリストまたは絞り込み条件に一致する日記に、タグをまとめて追加・削除します。
+     * @param userDetails 認証済みのユーザー情報
+     * @param request 対象の日記IDまたは絞り込み条件と、追加・削除するタグ名
+     * @return 更新した件数と日記ID、上限を超えた残りの有無を含むMapとHTTPステータス200(OK)。
+     *         タグが指定されていない場合は {@link DiaryService#bulkRetag} が400(BAD_REQUEST)で失敗します。
+     */
+    @PostMapping("/bulk-tags")
+    @QueryBudget(maxStatements = 32)
+    public ResponseEntity<Map<String, Object>> bulkRetag(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @Valid @RequestBody DiaryBulkRequest request) {
+
+        String userId = getUserId(userDetails);
+        return ResponseEntity.ok(diaryService.bulkRetag(userId, request));
+    }
+
     /**
      * UserDetailsからユーザーIDを取得します。
      * CustomUserDetailsの場合は直接取得し、Emailベースの場合はDB検索を行います。
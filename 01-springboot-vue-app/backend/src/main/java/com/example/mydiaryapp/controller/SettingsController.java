@@ -0,0 +1,71 @@
+package com.example.mydiaryapp.controller;
+
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.mydiaryapp.dto.SettingsRequest;
+import com.example.mydiaryapp.entity.User;
+import com.example.mydiaryapp.repository.UserRepository;
+import com.example.mydiaryapp.security.CustomUserDetails;
+import com.example.mydiaryapp.service.SettingsService;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ユーザー設定の取得・更新を提供するコントローラークラスです。
+ */
+@RestController
+@RequestMapping("/api/settings")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:5173")
+public class SettingsController {
+    private final SettingsService settingsService;
+    private final UserRepository userRepository;
+
+    /**
+     * 認証済みユーザーの設定を取得します。
+     * @param userDetails 認証済みのユーザー情報
+     * @return テーマとリマインダー時刻を含むMapとHTTPステータス200(OK)
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getSettings(@AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(settingsService.getSettings(getUserId(userDetails)));
+    }
+
+    /**
+     * 認証済みユーザーの設定を更新します。
+     * @param userDetails 認証済みのユーザー情報
+     * @param request テーマとリマインダー時刻（null の場合は解除）
+     * @return 更新後の設定を含むMapとHTTPステータス200(OK)
+     */
+    @PutMapping
+    public ResponseEntity<Map<String, Object>> updateSettings(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @Valid @RequestBody SettingsRequest request) {
+        return ResponseEntity.ok(settingsService.updateSettings(getUserId(userDetails), request));
+    }
+
+    /**
+     * 認証情報からユーザーIDを取得します。
+     * @param userDetails 認証済みのユーザー情報
+     * @return ユーザーID
+     */
+    private String getUserId(UserDetails userDetails) {
+        if (userDetails instanceof CustomUserDetails) {
+            return ((CustomUserDetails) userDetails).getUserId();
+        }
+        return userRepository.findByEmail(userDetails.getUsername())
+            .map(User::getId)
+            .orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.mydiaryapp.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.mydiaryapp.config.QueryBudget;
+import com.example.mydiaryapp.dto.TagMergeRequest;
+import com.example.mydiaryapp.entity.User;
+import com.example.mydiaryapp.repository.UserRepository;
+import com.example.mydiaryapp.security.CustomUserDetails;
+import com.example.mydiaryapp.service.TagService;
+import com.example.mydiaryapp.service.TagSuggestionService;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * タグの一覧取得と入力候補、タグの名前の変更・統合を提供するコントローラークラスです。
+ * 変更は認証済みユーザーの日記のタグにのみ反映されます。
+ */
+@RestController
+@RequestMapping("/api/tags")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:5173")
+public class TagController {
+    private final TagService tagService;
+    private final TagSuggestionService tagSuggestionService;
+    private final UserRepository userRepository;
+
+    /**
+     * 認証済みユーザーが使用しているタグを、日記の件数とともに取得します。
+     * @param userDetails 認証済みのユーザー情報
+     * @return タグ名と件数のリストを含むMapとHTTPステータス200(OK)
+     */
+    @GetMapping
+    @QueryBudget(maxStatements = 2)
+    public ResponseEntity<Map<String, Object>> getTags(@AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(tagService.getTags(getUserId(userDetails)));
+    }
+
+    /**
+     * 入力中の文字列に前方一致する、認証済みユーザーのタグの候補を取得します。
+     * 候補はメモリ上の索引から返すため、索引の作成後はデータベースにアクセスしません。
+     * @param userDetails 認証済みのユーザー情報
+     * @param prefix 入力中の文字列（オプション）
+     * @param limit 取得件数（デフォルト10、最大20）
+     * @return タグ名と件数のリストを含むMapとHTTPステータス200(OK)
+     */
+    @GetMapping("/suggestions")
+    @QueryBudget(maxStatements = 2)
+    public ResponseEntity<Map<String, Object>> suggestTags(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(tagSuggestionService.suggest(getUserId(userDetails), prefix, limit));
+    }
+
+    /**
+     * 認証済みユーザーの日記のタグの名前を変更します。変更後の名前のタグを既に使用している場合は統合します。
+     * @param userDetails 認証済みのユーザー情報
+     * @param name 変更前のタグ名
+     * @param request 変更後のタグ名
+     * @return 変更後のタグ名と件数を含むMapとHTTPステータス200(OK)、
+     *         タグを使用していない場合はHTTPステータス400(BAD_REQUEST)とエラーメッセージを返します。
+     */
+    @PutMapping("/{name}")
+    @QueryBudget(maxStatements = 16)
+    public ResponseEntity<Map<String, Object>> renameTag(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable String name,
+            @Valid @RequestBody TagMergeRequest request) {
+
+        String userId = getUserId(userDetails);
+        try {
+            return ResponseEntity.ok(tagService.renameTag(userId, name, request.getName()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 認証済みユーザーの日記の複数のタグを1つのタグに統合します。
+     * @param userDetails 認証済みのユーザー情報
+     * @param request 統合するタグ名と統合先のタグ名
+     * @return 統合先のタグ名と件数を含むMapとHTTPステータス200(OK)、
+     *         統合するタグがない場合はHTTPステータス400(BAD_REQUEST)とエラーメッセージを返します。
+     */
+    @PostMapping("/merge")
+    @QueryBudget(maxStatements = 16)
+    public ResponseEntity<Map<String, Object>> mergeTags(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @Valid @RequestBody TagMergeRequest request) {
+
+        String userId = getUserId(userDetails);
+        List<String> sources = request.getSources() != null ? request.getSources() : List.of();
+        try {
+            return ResponseEntity.ok(tagService.mergeTags(userId, sources, request.getName()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 認証情報からユーザーIDを取得します。
+     * @param userDetails 認証済みのユーザー情報
+     * @return ユーザーID
+     */
+    private String getUserId(UserDetails userDetails) {
+        if (userDetails instanceof CustomUserDetails) {
+            return ((CustomUserDetails) userDetails).getUserId();
+        }
+        return userRepository.findByEmail(userDetails.getUsername())
+            .map(User::getId)
+            .orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
+    }
+}
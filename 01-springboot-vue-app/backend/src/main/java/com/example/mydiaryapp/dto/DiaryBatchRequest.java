@@ -0,0 +1,53 @@
+package com.example.mydiaryapp.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * 日記の一括操作用のリクエストDTOクラスです。
+ * 作成・更新・削除の操作を指定順に保持します。
+ */
+@Data
+public class DiaryBatchRequest {
+    /**
+     * 実行する操作のリスト。
+     * 1件以上100件以下で、リストの順番どおりに実行されます。
+     */
+    @NotEmpty(message = "操作は1件以上指定してください")
+    @Size(max = 100, message = "一度に実行できる操作は100件までです")
+    private List<@Valid Operation> operations;
+
+    /**
+     * 一括操作の1件分を表す内部クラスです。
+     * 操作種別、対象の日記ID、日記の内容を保持します。
+     */
+    @Data
+    public static class Operation {
+        /**
+         * 操作種別（"create"、"update"、"delete" のいずれか）。
+         * 必須です。
+         */
+        @NotBlank(message = "操作種別は必須です")
+        @Pattern(regexp = "create|update|delete", message = "操作種別はcreate、update、deleteのいずれかを指定してください")
+        private String op;
+
+        /**
+         * 対象の日記ID。
+         * update と delete の場合に必須です。
+         */
+        private String diaryId;
+
+        /**
+         * 日記の内容。
+         * create と update の場合に必須です。
+         */
+        @Valid
+        private DiaryRequest diary;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.mydiaryapp.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * 複数の日記をまとめて削除・タグ付けする操作のリクエストDTOクラスです。
+ * 対象は日記IDのリスト、またはタグ・月による絞り込みで指定します。
+ * 両方を指定した場合は、IDのリストのうち絞り込みに一致する日記が対象になります。
+ */
+@Data
+public class DiaryBulkRequest {
+    /**
+     * 対象の日記IDのリスト。
+     * 最大1000件です。
+     */
+    @Size(max = 1000, message = "一度に指定できる日記は1000件までです")
+    private List<String> diaryIds;
+
+    /**
+     * 絞り込み用のタグ名。
+     */
+    @Size(max = 50, message = "タグ名は50文字以内で入力してください")
+    private String tag;
+
+    /**
+     * 絞り込み用の年月（YYYY-MM形式）。
+     */
+    @Pattern(regexp = "\\d{4}-\\d{2}", message = "月はYYYY-MM形式で指定してください")
+    private String month;
+
+    /**
+     * 追加するタグ名のリスト（タグの一括変更時）。
+     * 最大10件です。
+     */
+    @Size(max = 10, message = "一度に追加できるタグは10件までです")
+    private List<@NotBlank @Size(max = 50, message = "タグ名は50文字以内で入力してください") String> addTags;
+
+    /**
+     * 外すタグ名のリスト（タグの一括変更時）。
+     * 最大10件です。
+     */
+    @Size(max = 10, message = "一度に外せるタグは10件までです")
+    private List<@NotBlank String> removeTags;
+
+    /**
+     * 対象の指定を検証します。すべての日記を意図せず対象にしないよう、IDまたは絞り込みを必須とします。
+     * @return IDのリストまたは絞り込みが指定されている場合 true
+     */
+    @AssertTrue(message = "日記IDまたは絞り込み条件を指定してください")
+    public boolean isSelectionSpecified() {
+        return (diaryIds != null && !diaryIds.isEmpty())
+            || (tag != null && !tag.isBlank())
+            || (month != null && !month.isBlank());
+    }
+}
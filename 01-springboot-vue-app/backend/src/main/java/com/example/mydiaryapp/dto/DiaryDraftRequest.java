@@ -0,0 +1,33 @@
+package com.example.mydiaryapp.dto;
+
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * 日記の下書き自動保存用のリクエストDTOクラスです。
+ * 編集中のタイトル、本文、感情を保持します。
+ * null の項目は下書き保存の対象外（現在の値を維持）として扱います。
+ */
+@Data
+public class DiaryDraftRequest {
+    /**
+     * 編集中のタイトル。
+     * 最大255文字です。
+     */
+    @Size(max = 255, message = "タイトルは255文字以内で入力してください")
+    private String title;
+
+    /**
+     * 編集中の本文。
+     * 最大65,535文字まで許容します。
+     */
+    @Size(max = 65535, message = "本文は65,535文字以内で入力してください")
+    private String content;
+
+    /**
+     * 編集中の感情状態。
+     * 最大20文字です（日記の emotion カラムの長さ）。
+     */
+    @Size(max = 20, message = "感情は20文字以内で入力してください")
+    private String emotion;
+}
@@ -0,0 +1,116 @@
+package com.example.mydiaryapp.dto;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 日記の部分更新(JSON Merge Patch)用のリクエストDTOクラスです。
+ * リクエストに含まれていた項目だけを記録し、含まれていない項目は更新しません。
+ * 値に null を指定した項目は削除（クリア）として扱います。
+ */
+@Data
+public class DiaryPatchRequest {
+    /**
+     * 日記のタイトル。
+     * 指定する場合は空にできず、最大255文字です。
+     */
+    @Size(max = 255, message = "タイトルは255文字以内で入力してください")
+    private String title;
+
+    /**
+     * 日記の本文。
+     * 最大65,535文字まで許容します。
+     */
+    @Size(max = 65535, message = "本文は65,535文字以内で入力してください")
+    private String content;
+
+    /**
+     * 日記の感情状態を表す文字列。
+     */
+    private String emotion;
+
+    /**
+     * 置き換え後のタグ一覧。
+     * 現在のタグとの差分だけが diary_tags に反映されます。
+     */
+    private List<String> tags;
+
+    /**
+     * 追加するタグ一覧。
+     */
+    private List<String> addTags;
+
+    /**
+     * 削除するタグ一覧。
+     */
+    private List<String> removeTags;
+
+    /**
+     * 置き換え後の添付画像リスト。
+     * 指定した場合のみ既存の画像を置き換えます。
+     */
+    private List<DiaryRequest.@Valid ImageRequest> images;
+
+    /**
+     * リクエストに含まれていた項目名の集合。
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Set<String> presentFields = new HashSet<>();
+
+    public void setTitle(String title) {
+        this.title = title;
+        presentFields.add("title");
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+        presentFields.add("content");
+    }
+
+    public void setEmotion(String emotion) {
+        this.emotion = emotion;
+        presentFields.add("emotion");
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+        presentFields.add("tags");
+    }
+
+    public void setImages(List<DiaryRequest.ImageRequest> images) {
+        this.images = images;
+        presentFields.add("images");
+    }
+
+    /**
+     * 指定した項目がリクエストに含まれていたかを判定します。
+     * @param field 項目名
+     * @return 含まれていた場合 true
+     */
+    public boolean has(String field) {
+        return presentFields.contains(field);
+    }
+
+    /**
+     * タイトルを指定する場合に空でないことを検証します。
+     * @return タイトルが未指定、または空でない場合 true
+     */
+    @JsonIgnore
+    @AssertTrue(message = "タイトルは必須です")
+    public boolean isTitleValid() {
+        return !has("title") || (title != null && !title.trim().isEmpty());
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.mydiaryapp.dto;
+
+import java.time.LocalTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+/**
+ * ユーザー設定の更新用のリクエストDTOクラスです。
+ */
+@Data
+public class SettingsRequest {
+    /**
+     * 表示テーマ（"light" または "dark"）。
+     * 指定しない場合は変更しません。
+     */
+    @Pattern(regexp = "light|dark", message = "テーマは light または dark を指定してください")
+    private String theme;
+
+    /**
+     * リマインダーの通知時刻（HH:mm形式）。
+     * null または空文字の場合はリマインダーを解除します。
+     */
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime reminderTime;
+}
@@ -0,0 +1,27 @@
+package com.example.mydiaryapp.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * タグの名前の変更・統合用のリクエストDTOクラスです。
+ */
+@Data
+public class TagMergeRequest {
+    /**
+     * 統合するタグ名のリスト（名前の変更では使用しません）。
+     */
+    @Size(max = 20, message = "一度に統合できるタグは20件までです")
+    private List<@NotBlank String> sources;
+
+    /**
+     * 変更後・統合先のタグ名。
+     */
+    @NotBlank(message = "タグ名は必須です")
+    @Size(max = 50, message = "タグ名は50文字以内で入力してください")
+    private String name;
+}
@@ -0,0 +1,69 @@
+package com.example.mydiaryapp.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * アカウント削除の進捗エンティティクラス。
+ * 削除を受け付けたユーザーごとに1行を持ち、削除を実行するインスタンスのリースと削除した件数を記録します。
+ * 削除が完了するとユーザーと同じトランザクションで削除されます。
+ */
+@Entity
+@Table(name = "account_deletions", indexes = {
+    @Index(name = "idx_account_deletions_lease_until", columnList = "lease_until")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountDeletion {
+    /**
+     * 削除するユーザーのID。
+     */
+    @Id
+    @Column(name = "user_id", length = 36)
+    private String userId;
+
+    /**
+     * 削除を受け付けた日時。
+     */
+    @Column(name = "requested_at", nullable = false)
+    private LocalDateTime requestedAt;
+
+    /**
+     * 削除を実行しているインスタンスの識別子。まだ開始していない場合は null。
+     */
+    @Column(length = 100)
+    private String owner;
+
+    /**
+     * 実行中のインスタンスのリースの期限。期限を過ぎた場合は別のインスタンスが続きから再開します。
+     */
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    /**
+     * 削除した日記の件数（アーカイブ済みの日記を含む）。
+     */
+    @Column(name = "deleted_diaries", nullable = false)
+    private int deletedDiaries;
+
+    /**
+     * 削除した画像の件数。
+     */
+    @Column(name = "deleted_images", nullable = false)
+    private int deletedImages;
+
+    /**
+     * 最後に進捗を記録した日時。
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
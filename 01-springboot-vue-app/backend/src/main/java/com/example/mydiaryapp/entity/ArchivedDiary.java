@@ -0,0 +1,192 @@
+package com.example.mydiaryapp.entity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * アーカイブ済み日記エンティティクラス。
+ * 長期間更新されていない日記を diaries テーブルから移動して保持します。
+ * 本文は長さに関わらず圧縮し、タグは名前、画像は参照情報のみを保持します。変更履歴は元の形式のまま移動します。
+ * 行の追加・日記への復元はアーカイブ処理のSQLでのみ行うため、エンティティとしては読み取り専用です。
+ */
+@Entity
+@Immutable
+@Table(name = "archived_diaries",
+    indexes = @Index(name = "idx_archived_diaries_user_created", columnList = "user_id, created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedDiary {
+    /**
+     * 元の日記のID。
+     */
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    /**
+     * 日記の所有者のユーザーID。
+     */
+    @Column(name = "user_id", length = 36, nullable = false)
+    private String userId;
+
+    /**
+     * 日記のタイトル。
+     */
+    @Column(nullable = false)
+    private String title;
+
+    /**
+     * 日記の本文。形式は diaries.content と同じです。
+     */
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private String content;
+
+    /**
+     * 感情状態。
+     */
+    @Column(length = 20)
+    private String emotion;
+
+    /**
+     * 元の日記の作成日時。
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 元の日記の更新日時。
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * アーカイブした日時。
+     */
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    /**
+     * 付与されていたタグ名の集合。
+     */
+    @ElementCollection
+    @CollectionTable(name = "archived_diary_tags", joinColumns = @JoinColumn(name = "diary_id"))
+    @Column(name = "tag_name", length = 50, nullable = false)
+    private Set<String> tags;
+
+    /**
+     * 添付されていた画像の参照情報。
+     */
+    @ElementCollection
+    @CollectionTable(name = "archived_diary_images", joinColumns = @JoinColumn(name = "diary_id"))
+    private List<ArchivedImage> images;
+
+    /**
+     * 日記テーブルから移動した変更履歴。日記テーブルに戻す際に diary_revisions へ戻します。
+     */
+    @ElementCollection
+    @CollectionTable(name = "archived_diary_revisions", joinColumns = @JoinColumn(name = "diary_id"),
+        uniqueConstraints = @UniqueConstraint(columnNames = {"diary_id", "revision_number"}))
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<ArchivedRevision> revisions;
+
+    /**
+     * アーカイブ済み日記に添付されていた画像の参照情報です。
+     */
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ArchivedImage {
+        /**
+         * 元の画像のID。
+         */
+        @Column(name = "image_id", length = 36, nullable = false)
+        private String imageId;
+
+        /**
+         * 画像の保存先URL。
+         */
+        @Column(length = 2048, nullable = false)
+        private String url;
+
+        /**
+         * オリジナルのファイル名。
+         */
+        @Column(nullable = false)
+        private String filename;
+
+        /**
+         * 元の画像の作成日時。
+         */
+        @Column(name = "created_at", nullable = false)
+        private LocalDateTime createdAt;
+    }
+
+    /**
+     * アーカイブ済み日記の変更履歴の1つの版です。列の意味は diary_revisions と同じです。
+     */
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ArchivedRevision {
+        /**
+         * 版番号（1始まりの連番）。
+         */
+        @Column(name = "revision_number", nullable = false)
+        private int revisionNumber;
+
+        /**
+         * data が本文の全文スナップショットの場合 true、直前の版からの差分の場合 false。
+         */
+        @Column(nullable = false)
+        private boolean snapshot;
+
+        /**
+         * この版のタイトル。
+         */
+        @Column(nullable = false)
+        private String title;
+
+        /**
+         * この版の感情状態。
+         */
+        @Column(length = 20)
+        private String emotion;
+
+        /**
+         * 本文のスナップショット（UTF-8）または差分のバイト列。
+         */
+        @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+        private byte[] data;
+
+        /**
+         * 元の版の作成日時。
+         */
+        @Column(name = "created_at", nullable = false)
+        private LocalDateTime createdAt;
+    }
+}
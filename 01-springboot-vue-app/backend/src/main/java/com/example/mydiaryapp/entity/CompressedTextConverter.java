@@ -0,0 +1,135 @@
+package com.example.mydiaryapp.entity;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * 長い文字列を圧縮してバイナリカラムに保存するJPA属性コンバータです。
+ * しきい値以上の長さの文字列のみを Deflate(zlib) で圧縮し、短い文字列や圧縮効果の
+ * 小さい文字列はそのまま UTF-8 で保存します。
+ *
+ * 保存形式:
+ * <ul>
+ *   <li>非圧縮: UTF-8 のバイト列そのもの（従来の TEXT カラムの行もこの形式で読めます）</li>
+ *   <li>圧縮: [0xFF][形式 0x01][元の長さ(4バイト, リトルエンディアン)][zlibストリーム]</li>
+ * </ul>
+ * 0xFF は UTF-8 の先頭バイトとして現れないため、非圧縮データと区別できます。
+ * 3バイト目以降は MySQL の COMPRESS() と同じ形式のため、SQL からも
+ * {@code UNCOMPRESS(SUBSTRING(content, 3))} で展開できます。
+ */
+@Component
+@Converter(autoApply = false)
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+    private static final byte MARKER = (byte) 0xFF;
+    private static final byte FORMAT_ZLIB = 0x01;
+    private static final int HEADER_LENGTH = 6;
+
+    private final int threshold;
+
+    public CompressedTextConverter(@Value("${diary.content.compression-threshold:1024}") int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        return attribute == null ? null : encode(attribute, threshold);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        return dbData == null ? null : decode(dbData);
+    }
+
+    /**
+     * 文字列を保存形式にエンコードします。
+     * UTF-8 でしきい値以上の長さがあり、圧縮により1割以上小さくなる場合のみ圧縮します。
+     * @param value エンコードする文字列
+     * @param threshold 圧縮を試みる最小バイト数
+     * @return 保存形式のバイト列
+     */
+    public static byte[] encode(String value, int threshold) {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < threshold) {
+            return raw;
+        }
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + HEADER_LENGTH);
+            out.write(MARKER);
+            out.write(FORMAT_ZLIB);
+            out.write(raw.length);
+            out.write(raw.length >>> 8);
+            out.write(raw.length >>> 16);
+            out.write(raw.length >>> 24);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            byte[] compressed = out.toByteArray();
+            return compressed.length < raw.length * 0.9 ? compressed : raw;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 保存形式のバイト列を文字列にデコードします。
+     * 圧縮ヘッダーがない場合は UTF-8 の文字列としてそのまま読み込みます。
+     * @param data 保存形式のバイト列
+     * @return デコードした文字列
+     * @throws IllegalStateException 圧縮データが壊れている、または未知の形式の場合
+     */
+    public static String decode(byte[] data) {
+        if (data.length == 0 || data[0] != MARKER) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        if (data.length < HEADER_LENGTH || data[1] != FORMAT_ZLIB) {
+            throw new IllegalStateException("Unknown content storage format");
+        }
+
+        int length = (data[2] & 0xff) | (data[3] & 0xff) << 8 | (data[4] & 0xff) << 16 | (data[5] & 0xff) << 24;
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+            byte[] raw = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != length) {
+                throw new IllegalStateException("Truncated compressed content");
+            }
+            return new String(raw, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 保存形式のバイト列が圧縮されているかを判定します。
+     * @param data 保存形式のバイト列
+     * @return 圧縮されている場合 true
+     */
+    public static boolean isCompressed(byte[] data) {
+        return data != null && data.length >= HEADER_LENGTH && data[0] == MARKER && data[1] == FORMAT_ZLIB;
+    }
+}
@@ -4,14 +4,17 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
 
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.GenericGenerator;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
@@ -27,9 +30,14 @@ import lombok.NoArgsConstructor;
 /**
  * 日記エンティティクラス。
  * ユーザーが作成する日記の基本情報を表します。
+ * 更新時は変更されたカラムのみをUPDATE文に含めます（本文が大きい場合の書き込み量削減）。
  */
 @Entity
-@Table(name = "diaries")
+@Table(name = "diaries", indexes = {
+    @Index(name = "idx_diaries_user_id_created_at", columnList = "user_id, created_at"),
+    @Index(name = "idx_diaries_updated_at", columnList = "updated_at")
+})
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -59,9 +67,10 @@ public class Diary {
 
     /**
      * 日記の本文。
-     * TEXT型カラムとしてマッピングされます。
+     * MEDIUMBLOB型カラムとしてマッピングされ、長い本文は圧縮して保存されます。
      */
-    @Column(columnDefinition = "TEXT")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "MEDIUMBLOB")
     private String content;
 
     /**
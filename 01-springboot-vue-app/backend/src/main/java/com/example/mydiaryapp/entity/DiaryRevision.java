@@ -0,0 +1,92 @@
+package com.example.mydiaryapp.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 日記の変更履歴エンティティクラス。
+ * 本文は一定間隔ごとの全文スナップショットと、直前の版からの差分として保存します。
+ * タイトルと感情状態は小さいため各版に全文を保持します。
+ */
+@Entity
+@Table(name = "diary_revisions",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"diary_id", "revision_number"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiaryRevision {
+    /**
+     * 履歴の一意なID（自動生成）。
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 対象の日記ID。
+     */
+    @Column(name = "diary_id", length = 36, nullable = false)
+    private String diaryId;
+
+    /**
+     * 日記の所有者ユーザーID。
+     */
+    @Column(name = "user_id", length = 36, nullable = false)
+    private String userId;
+
+    /**
+     * 版番号（1始まりの連番）。
+     */
+    @Column(name = "revision_number", nullable = false)
+    private int revisionNumber;
+
+    /**
+     * data が本文の全文スナップショットの場合 true、直前の版からの差分の場合 false。
+     */
+    @Column(nullable = false)
+    private boolean snapshot;
+
+    /**
+     * この版のタイトル。
+     */
+    @Column(nullable = false)
+    private String title;
+
+    /**
+     * この版の感情状態。
+     */
+    @Column(length = 20)
+    private String emotion;
+
+    /**
+     * 本文のスナップショット（UTF-8）または差分のバイト列。
+     */
+    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] data;
+
+    /**
+     * レコード作成日時。
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 新規レコード挿入時に呼び出されるプリパース処理。
+     * createdAt に現在日時を設定します。
+     */
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
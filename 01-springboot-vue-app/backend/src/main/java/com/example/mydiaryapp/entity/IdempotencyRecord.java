@@ -0,0 +1,90 @@
+package com.example.mydiaryapp.entity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Idempotency-Key ヘッダー付きの書き込みの実行状況と結果のエンティティクラス。
+ * 再送されたリクエストに、実行し直さずに同じレスポンスを返すために使用します。
+ * 行の追加と更新はリポジトリのSQLで行います。
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@IdClass(IdempotencyRecord.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    /**
+     * リクエストしたユーザーのID。
+     */
+    @Id
+    @Column(name = "user_id", length = 36)
+    private String userId;
+
+    /**
+     * クライアントが指定したキー。
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String idempotencyKey;
+
+    /**
+     * リクエストの内容のハッシュ値（SHA-256、16進数）。
+     */
+    @Column(name = "request_hash", length = 64, nullable = false)
+    private String requestHash;
+
+    /**
+     * リクエストを実行しているインスタンスの識別子。
+     */
+    @Column(length = 100, nullable = false)
+    private String owner;
+
+    /**
+     * 実行中のインスタンスのリースの期限。
+     */
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    /**
+     * レスポンスのHTTPステータス（実行中は null）。
+     */
+    @Column(name = "status_code")
+    private Integer statusCode;
+
+    /**
+     * レスポンスのJSON（{@link CompressedTextConverter} の保存形式）。
+     */
+    @Column(name = "response_body", columnDefinition = "MEDIUMBLOB")
+    private byte[] responseBody;
+
+    /**
+     * この日時を過ぎるとキーを再利用できます。
+     */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    /**
+     * 複合主キーを表すクラスです。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userId;
+        private String idempotencyKey;
+    }
+}
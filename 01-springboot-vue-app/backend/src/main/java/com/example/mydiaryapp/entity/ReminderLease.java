@@ -0,0 +1,48 @@
+package com.example.mydiaryapp.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * リマインダー送信のリースエンティティクラス。
+ * 複数のアプリケーションインスタンスのうち1つだけが、1分ごとの通知をまとめて送信するために使用します。
+ * 行の追加と更新はリポジトリのSQLで行います。
+ */
+@Entity
+@Table(name = "reminder_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderLease {
+    /**
+     * 通知する日時（分単位）。
+     */
+    @Id
+    @Column(name = "slot")
+    private LocalDateTime slot;
+
+    /**
+     * 送信を担当しているインスタンスの識別子。
+     */
+    @Column(length = 100, nullable = false)
+    private String owner;
+
+    /**
+     * リースの期限。送信を終えないまま期限を過ぎた場合は、別のインスタンスが引き継ぎます。
+     */
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    /**
+     * 送信を終えたかどうか。
+     */
+    @Column(nullable = false)
+    private boolean completed;
+}
@@ -1,5 +1,6 @@
 package com.example.mydiaryapp.entity;
 
+import java.time.LocalDateTime;
 import java.util.Set;
 
 import jakarta.persistence.Column;
@@ -7,19 +8,26 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 /**
  * タグエンティティクラス。
  * 日記に付与できるラベル情報を表します。
+ * 等価性は一意なタグ名で判定し、関連する日記の集合は比較対象に含めません。
  */
 @Entity
-@Table(name = "tags")
+@Table(name = "tags", indexes = {
+    @Index(name = "idx_tags_orphaned_at", columnList = "orphaned_at")
+})
 @Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Tag {
@@ -34,13 +42,22 @@ public class Tag {
      * タグ名。
      * 最大50文字、一意制約があります。
      */
+    @EqualsAndHashCode.Include
     @Column(length = 50, nullable = false, unique = true)
     private String name;
 
+    /**
+     * どの日記からも参照されていないことを確認した日時（参照されている場合は null）。
+     * 一定時間が経過しても参照されていないタグは、バックグラウンドの処理で削除されます。
+     */
+    @Column(name = "orphaned_at")
+    private LocalDateTime orphanedAt;
+
     /**
      * このタグが関連付けられた日記の集合。
      * 多対多のリレーションを通じて管理されます。
      */
+    @ToString.Exclude
     @ManyToMany(mappedBy = "tags")
     private Set<Diary> diaries;
 }
\ No newline at end of file
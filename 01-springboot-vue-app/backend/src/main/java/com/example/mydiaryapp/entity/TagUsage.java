@@ -0,0 +1,63 @@
+package com.example.mydiaryapp.entity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ユーザーごとのタグの使用件数エンティティクラス。
+ * 各タグを付けた日記（アーカイブ済みを含む）の件数を保持し、タグ一覧の取得で中間テーブルを集計しないようにします。
+ * 件数の増減はリポジトリのSQLで行います。
+ */
+@Entity
+@Table(name = "tag_usages")
+@IdClass(TagUsage.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagUsage {
+    /**
+     * ユーザーID。
+     */
+    @Id
+    @Column(name = "user_id", length = 36)
+    private String userId;
+
+    /**
+     * タグ名。タグのIDはシャードごとに異なるため、名前で保持します。
+     */
+    @Id
+    @Column(name = "tag_name", length = 50)
+    private String tagName;
+
+    /**
+     * このタグを付けた日記の件数。
+     */
+    @Column(name = "diary_count", nullable = false)
+    private int diaryCount;
+
+    /**
+     * 最後にこのタグを日記に付けた日時。
+     */
+    @Column(name = "last_used_at")
+    private LocalDateTime lastUsedAt;
+
+    /**
+     * 複合主キーを表すクラスです。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userId;
+        private String tagName;
+    }
+}
@@ -11,10 +11,12 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -24,11 +26,22 @@ import lombok.NoArgsConstructor;
  * アプリケーションの使用者情報を表します。
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+    @UniqueConstraint(name = User.USERNAME_CONSTRAINT, columnNames = "username"),
+    @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email")
+}, indexes = {
+    @Index(name = "idx_users_reminder_time", columnList = "reminder_time"),
+    @Index(name = "idx_users_updated_at", columnList = "updated_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
+    /** ユーザー名の一意制約の名前。登録時の重複をこの名前で判定します。 */
+    public static final String USERNAME_CONSTRAINT = "idx_users_username";
+    /** メールアドレスの一意制約の名前。 */
+    public static final String EMAIL_CONSTRAINT = "idx_users_email";
+
     /**
      * ユーザーの一意なUUID形式ID。
      */
@@ -42,14 +55,14 @@ public class User {
      * ユーザー名。
      * 最大50文字、一意制約があります。
      */
-    @Column(length = 50, nullable = false, unique = true)
+    @Column(length = 50, nullable = false)
     private String username;
 
     /**
      * メールアドレス。
      * 最大255文字、一意制約があり、有効な形式が要求されます。
      */
-    @Column(length = 255, nullable = false, unique = true)
+    @Column(length = 255, nullable = false)
     private String email;
 
     /**
@@ -68,11 +81,18 @@ public class User {
 
     /**
      * リマインダー通知時刻。
-     * オプションで設定できます。
+     * オプションで設定できます。設定した時刻（分単位）に、その日の日記を書いていない場合に通知します。
      */
     @Column(name = "reminder_time")
     private LocalTime reminderTime;
 
+    /**
+     * アカウントの削除を受け付けた日時。
+     * 設定されている場合は認証を受け付けず、日記などのデータはバックグラウンドで削除されます。
+     */
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     /**
      * レコード作成日時。
      */
@@ -0,0 +1,117 @@
+package com.example.mydiaryapp.jfr;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * アプリケーションのJFRイベントを常時記録し、直近の記録をファイルに書き出すクラスです。
+ * 記録は保持期間と最大サイズを上限とするリングバッファ（ディスク上のリポジトリ）に保存され、
+ * 書き出すまではファイルを作成しません。イベントにはユーザーを特定できる値を含めていません。
+ * diary.jfr.configuration に "default" などを指定すると、JDK 標準のイベントも合わせて記録します。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "diary.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class ContinuousRecording {
+    private static final String RECORDING_NAME = "diary-continuous";
+    private static final List<Class<? extends Event>> EVENTS = List.of(
+        DiaryListEvent.class, DiaryWriteEvent.class, ImageDecodeEvent.class, JwtVerifyEvent.class);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+    private final String configuration;
+    private final Path dumpDir;
+    private Recording recording;
+
+    public ContinuousRecording(@Value("${diary.jfr.max-age-minutes:30}") long maxAgeMinutes,
+                               @Value("${diary.jfr.max-size-mb:100}") long maxSizeMb,
+                               @Value("${diary.jfr.configuration:}") String configuration,
+                               @Value("${diary.jfr.dump-dir:./data/jfr}") String dumpDir) {
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.configuration = configuration;
+        this.dumpDir = Path.of(dumpDir);
+    }
+
+    /**
+     * 記録を開始します。
+     * @throws IOException 設定ファイルを読み込めない場合
+     * @throws ParseException 設定ファイルの形式が不正な場合
+     */
+    @PostConstruct
+    public void start() throws IOException, ParseException {
+        recording = configuration.isBlank()
+            ? new Recording()
+            : new Recording(Configuration.getConfiguration(configuration));
+        recording.setName(RECORDING_NAME);
+        EVENTS.forEach(event -> recording.enable(event).withThreshold(Duration.ZERO));
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeBytes);
+        recording.start();
+        log.info("Started continuous flight recording (max age {}, max size {} bytes)", maxAge, maxSizeBytes);
+    }
+
+    /**
+     * 記録を停止し、リポジトリのファイルを削除します。
+     */
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    /**
+     * 直近の指定期間の記録をファイルに書き出します。
+     * 期間の指定には HotSpot の診断コマンド（JFR.dump）を使用し、使用できない場合は保持しているすべての記録を書き出します。
+     * @param period 書き出す期間（保持期間より長い場合は保持期間）
+     * @return 書き出したファイル
+     * @throws IOException 書き出しに失敗した場合
+     */
+    public synchronized Path dump(Duration period) throws IOException {
+        Files.createDirectories(dumpDir);
+        Path file = dumpDir.resolve("diary-" + LocalDateTime.now().format(FILE_TIME) + ".jfr").toAbsolutePath();
+        Duration age = period.compareTo(maxAge) > 0 ? maxAge : period;
+        try {
+            ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "jfrDump",
+                new Object[] {new String[] {
+                    "name=" + RECORDING_NAME, "filename=" + file, "maxage=" + age.toSeconds() + "s"}},
+                new String[] {String[].class.getName()});
+        } catch (Exception e) {
+            log.warn("JFR.dump is not available, dumping the whole recording: {}", e.getMessage());
+            recording.dump(file);
+        }
+        return file;
+    }
+
+    /**
+     * 記録を保持する期間を返します。
+     * @return 保持期間
+     */
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.mydiaryapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 日記一覧・検索の取得処理を記録するJFRイベントです。
+ */
+@Name("com.example.mydiaryapp.DiaryList")
+@Label("Diary List")
+@Category({"My Diary App", "Diary"})
+@Setter
+public class DiaryListEvent extends Event {
+    /** 絞り込みの種類（all, keyword, tag, month）。 */
+    @Label("Filter")
+    private String filter;
+
+    @Label("Page")
+    private int page;
+
+    @Label("Limit")
+    private int limit;
+
+    /** 返した日記の件数。 */
+    @Label("Rows")
+    private int rows;
+
+    /** 条件に一致した日記の総数。 */
+    @Label("Total")
+    private long total;
+
+    /** アーカイブテーブルも検索したかどうか。 */
+    @Label("Archive Searched")
+    private boolean archiveSearched;
+}
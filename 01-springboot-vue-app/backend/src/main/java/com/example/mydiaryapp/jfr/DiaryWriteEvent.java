@@ -0,0 +1,34 @@
+package com.example.mydiaryapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 日記の作成・更新・削除・一括操作の処理を記録するJFRイベントです。
+ */
+@Name("com.example.mydiaryapp.DiaryWrite")
+@Label("Diary Write")
+@Category({"My Diary App", "Diary"})
+@Setter
+public class DiaryWriteEvent extends Event {
+    /** 操作の種類（create, update, patch, delete, batch, bulk-delete, bulk-retag, draft-flush）。 */
+    @Label("Operation")
+    private String operation;
+
+    /** 対象の日記の件数（一括操作では操作の件数）。 */
+    @Label("Diaries")
+    private int diaries;
+
+    @Label("Tags")
+    private int tags;
+
+    @Label("Images")
+    private int images;
+
+    /** 本文の文字数。 */
+    @Label("Content Length")
+    private int contentLength;
+}
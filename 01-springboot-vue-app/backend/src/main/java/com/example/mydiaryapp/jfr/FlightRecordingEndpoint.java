@@ -0,0 +1,49 @@
+package com.example.mydiaryapp.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 常時記録しているJFRの直近の記録をファイルに書き出す管理用エンドポイントです。
+ * POST /actuator/flightrecording に {"minutes": 10} のように期間を指定します（省略時は5分）。
+ * アクセスはサーバー自身（localhost）からのみ許可しています。
+ */
+@Component
+@ConditionalOnProperty(name = "diary.jfr.enabled", havingValue = "true", matchIfMissing = true)
+@Endpoint(id = "flightrecording")
+@RequiredArgsConstructor
+public class FlightRecordingEndpoint {
+    private static final int DEFAULT_MINUTES = 5;
+
+    private final ContinuousRecording recording;
+
+    /**
+     * 直近の記録をファイルに書き出します。
+     * @param minutes 書き出す期間（分）
+     * @return 書き出したファイルのパスとサイズを含むMap
+     * @throws IOException 書き出しに失敗した場合
+     */
+    @WriteOperation
+    public Map<String, Object> dump(@Nullable Integer minutes) throws IOException {
+        int period = minutes == null || minutes <= 0 ? DEFAULT_MINUTES : minutes;
+        Path file = recording.dump(Duration.ofMinutes(period));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("file", file.toString());
+        response.put("bytes", Files.size(file));
+        response.put("minutes", Math.min(period, recording.getMaxAge().toMinutes()));
+        return response;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.mydiaryapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 画像データのBase64デコード処理を記録するJFRイベントです。
+ */
+@Name("com.example.mydiaryapp.ImageDecode")
+@Label("Image Decode")
+@Category({"My Diary App", "Image"})
+@Setter
+public class ImageDecodeEvent extends Event {
+    /** ファイル形式（拡張子）。 */
+    @Label("Format")
+    private String format;
+
+    @Label("Encoded Size")
+    @DataAmount
+    private long encodedBytes;
+
+    @Label("Decoded Size")
+    @DataAmount
+    private long decodedBytes;
+}
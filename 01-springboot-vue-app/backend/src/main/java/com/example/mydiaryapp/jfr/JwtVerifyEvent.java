@@ -0,0 +1,20 @@
+package com.example.mydiaryapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * JWTの解析と署名検証の処理を記録するJFRイベントです。
+ */
+@Name("com.example.mydiaryapp.JwtVerify")
+@Label("JWT Verify")
+@Category({"My Diary App", "Security"})
+@Setter
+public class JwtVerifyEvent extends Event {
+    /** 署名と形式が正しかったかどうか。 */
+    @Label("Valid")
+    private boolean valid;
+}
@@ -0,0 +1,89 @@
+package com.example.mydiaryapp.jfr;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 仮想スレッドでリクエストを処理している場合に、キャリアスレッドの固定（pinning）を検出するクラスです。
+ * synchronized の中でロック待ちやI/O待ちになった仮想スレッドはキャリアスレッドを手放せず、
+ * 同時に処理できるリクエスト数が減るため、JDK の jdk.VirtualThreadPinned イベントを監視します。
+ * 一定時間以上固定された場合は、アプリケーションのコードで最も内側のメソッドをタグにしてメトリクス
+ * diary.virtual.pinned を記録し、スタックトレースとともに警告を記録します。
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class PinnedThreadMonitor {
+    private static final String EVENT_NAME = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.example.mydiaryapp.";
+    private static final int MAX_LOGGED_FRAMES = 12;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(MeterRegistry meterRegistry,
+                               @Value("${diary.virtual-threads.pinned-threshold-ms:20}") long thresholdMillis) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = Duration.ofMillis(thresholdMillis);
+    }
+
+    /**
+     * イベントの監視を開始します。
+     */
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(EVENT_NAME).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT_NAME, this::onPinned);
+        stream.startAsync();
+        log.info("Monitoring virtual thread pinning longer than {}", threshold);
+    }
+
+    /**
+     * イベントの監視を停止します。
+     */
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null ? event.getStackTrace().getFrames() : List.of();
+        String site = frames.stream()
+            .filter(frame -> frame.getMethod().getType().getName().startsWith(APP_PACKAGE))
+            .findFirst()
+            .map(PinnedThreadMonitor::describe)
+            .orElse("library");
+        Counter.builder("diary.virtual.pinned")
+            .description("キャリアスレッドを固定したまま待機した仮想スレッドの回数")
+            .tag("site", site)
+            .register(meterRegistry)
+            .increment();
+
+        StringBuilder trace = new StringBuilder();
+        frames.stream().limit(MAX_LOGGED_FRAMES)
+            .forEach(frame -> trace.append("\n\tat ").append(describe(frame)).append(':').append(frame.getLineNumber()));
+        log.warn("Virtual thread pinned for {} ms at {}{}", event.getDuration().toMillis(), site, trace);
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.mydiaryapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.mydiaryapp.entity.AccountDeletion;
+
+/**
+ * アカウント削除の進捗に対する永続化操作を行うリポジトリインターフェースです。
+ * 削除の実行権はリースの期限を条件にした更新で取得し、更新件数で取得できたかを判定します。
+ */
+@Repository
+public interface AccountDeletionRepository extends JpaRepository<AccountDeletion, String> {
+
+    /**
+     * まだ開始していない、またはリースの期限を過ぎた削除の実行権を取得します。
+     * @param userId ユーザーID
+     * @param owner インスタンスの識別子
+     * @param leaseUntil リースの期限
+     * @param now 現在日時
+     * @return 取得できた場合 1、別のインスタンスが実行中の場合 0
+     */
+    @Modifying
+    @Query("UPDATE AccountDeletion a SET a.owner = :owner, a.leaseUntil = :leaseUntil, a.updatedAt = :now "
+        + "WHERE a.userId = :userId AND (a.leaseUntil IS NULL OR a.leaseUntil < :now)")
+    int tryClaim(@Param("userId") String userId,
+                 @Param("owner") String owner,
+                 @Param("leaseUntil") LocalDateTime leaseUntil,
+                 @Param("now") LocalDateTime now);
+
+    /**
+     * 削除した件数を加算し、リースを延長します。
+     * @param userId ユーザーID
+     * @param owner インスタンスの識別子
+     * @param diaries 今回削除した日記の件数
+     * @param images 今回削除した画像の件数
+     * @param leaseUntil 新しいリースの期限
+     * @param now 現在日時
+     * @return 更新した件数（リースを引き継がれていた場合は 0）
+     */
+    @Modifying
+    @Query("UPDATE AccountDeletion a SET a.deletedDiaries = a.deletedDiaries + :diaries, "
+        + "a.deletedImages = a.deletedImages + :images, a.leaseUntil = :leaseUntil, a.updatedAt = :now "
+        + "WHERE a.userId = :userId AND a.owner = :owner")
+    int recordProgress(@Param("userId") String userId,
+                       @Param("owner") String owner,
+                       @Param("diaries") int diaries,
+                       @Param("images") int images,
+                       @Param("leaseUntil") LocalDateTime leaseUntil,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * まだ開始していない、またはリースの期限を過ぎた削除のユーザーIDを受付順に取得します。
+     * @param now 現在日時
+     * @param pageable 取得件数
+     * @return ユーザーIDのリスト
+     */
+    @Query("SELECT a.userId FROM AccountDeletion a WHERE a.leaseUntil IS NULL OR a.leaseUntil < :now "
+        + "ORDER BY a.requestedAt")
+    List<String> findClaimable(@Param("now") LocalDateTime now, Pageable pageable);
+}
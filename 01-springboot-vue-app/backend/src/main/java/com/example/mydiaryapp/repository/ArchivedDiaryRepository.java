@@ -0,0 +1,289 @@
+package com.example.mydiaryapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.mydiaryapp.entity.ArchivedDiary;
+
+/**
+ * アーカイブ済み日記に対する永続化操作を行うリポジトリインターフェースです。
+ * 一覧・詳細の検索メソッドと、日記テーブルとの間で行を移動するSQLを提供します。
+ * 移動は行単位の読み書きを避けるため INSERT ... SELECT でまとめて行います。
+ */
+@Repository
+public interface ArchivedDiaryRepository extends JpaRepository<ArchivedDiary, String> {
+
+    /**
+     * アーカイブ時の本文のSQL式。未圧縮で一定以上の長さの本文を MySQL の COMPRESS で圧縮します。
+     * COMPRESS の結果に CompressedTextConverter のヘッダー (0xFF, 0x01) を付けると同じ形式になります。
+     */
+    String ARCHIVE_CONTENT = "IF(LEFT(d.content, 1) = X'FF' OR LENGTH(d.content) < 64, d.content, "
+        + "CONCAT(X'FF01', COMPRESS(d.content)))";
+
+    /**
+     * 指定ユーザーのアーカイブ済み日記を取得します。
+     * @param id 日記ID
+     * @param userId ユーザーID
+     * @return Optionalでラップされたアーカイブ済み日記
+     */
+    Optional<ArchivedDiary> findByIdAndUserId(String id, String userId);
+
+    /**
+     * 指定ユーザーにアーカイブ済みの日記があるかを判定します。
+     * @param userId ユーザーID
+     * @return アーカイブ済みの日記がある場合 true
+     */
+    boolean existsByUserId(String userId);
+
+    /**
+     * 指定ユーザーのアーカイブ済み日記を作成日時降順でページング取得します。
+     */
+    Page<ArchivedDiary> findByUserIdOrderByCreatedAtDesc(String userId, Pageable pageable);
+
+    /**
+     * タイトルまたは本文にキーワードを含むアーカイブ済み日記を作成日時降順でページング取得します。
+     */
+    @Query(value = "SELECT d.* FROM archived_diaries d WHERE d.user_id = :userId AND (d.title LIKE CONCAT('%', :keyword, '%') OR "
+            + DiaryRepository.CONTENT_TEXT + " LIKE CONCAT('%', :keyword, '%')) ORDER BY d.created_at DESC",
+        countQuery = "SELECT COUNT(*) FROM archived_diaries d WHERE d.user_id = :userId AND (d.title LIKE CONCAT('%', :keyword, '%') OR "
+            + DiaryRepository.CONTENT_TEXT + " LIKE CONCAT('%', :keyword, '%'))",
+        nativeQuery = true)
+    Page<ArchivedDiary> findByUserIdAndKeyword(@Param("userId") String userId,
+                                               @Param("keyword") String keyword,
+                                               Pageable pageable);
+
+    /**
+     * 特定のタグ名が付与されていたアーカイブ済み日記を作成日時降順でページング取得します。
+     */
+    @Query("SELECT d FROM ArchivedDiary d JOIN d.tags t WHERE d.userId = :userId AND t = :tagName ORDER BY d.createdAt DESC")
+    Page<ArchivedDiary> findByUserIdAndTag(@Param("userId") String userId,
+                                           @Param("tagName") String tagName,
+                                           Pageable pageable);
+
+    /**
+     * 指定月に作成されたアーカイブ済み日記を作成日時降順でページング取得します。
+     */
+    @Query("SELECT d FROM ArchivedDiary d WHERE d.userId = :userId AND d.createdAt >= :startDate AND d.createdAt < :endDate ORDER BY d.createdAt DESC")
+    Page<ArchivedDiary> findByUserIdAndMonth(@Param("userId") String userId,
+                                             @Param("startDate") LocalDateTime startDate,
+                                             @Param("endDate") LocalDateTime endDate,
+                                             Pageable pageable);
+
+    /**
+     * 日記をアーカイブテーブルに複製します。
+     * @param ids 日記IDのリスト
+     * @return 複製した件数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO archived_diaries (id, user_id, title, content, emotion, created_at, updated_at, archived_at) "
+            + "SELECT d.id, d.user_id, d.title, " + ARCHIVE_CONTENT + ", d.emotion, d.created_at, d.updated_at, NOW() "
+            + "FROM diaries d WHERE d.id IN (:ids)",
+        nativeQuery = true)
+    int archiveDiaries(@Param("ids") Collection<String> ids);
+
+    /**
+     * 日記のタグをタグ名としてアーカイブテーブルに複製します。
+     */
+    @Modifying
+    @Query(value = "INSERT INTO archived_diary_tags (diary_id, tag_name) "
+            + "SELECT dt.diary_id, t.name FROM diary_tags dt JOIN tags t ON t.id = dt.tag_id WHERE dt.diary_id IN (:ids)",
+        nativeQuery = true)
+    int archiveTags(@Param("ids") Collection<String> ids);
+
+    /**
+     * 日記の画像の参照情報をアーカイブテーブルに複製します。
+     */
+    @Modifying
+    @Query(value = "INSERT INTO archived_diary_images (diary_id, image_id, url, filename, created_at) "
+            + "SELECT i.diary_id, i.id, i.url, i.filename, i.created_at FROM images i WHERE i.diary_id IN (:ids)",
+        nativeQuery = true)
+    int archiveImages(@Param("ids") Collection<String> ids);
+
+    /**
+     * 日記の変更履歴をアーカイブテーブルに複製します。本文のスナップショットと差分はそのままの形式で複製します。
+     */
+    @Modifying
+    @Query(value = "INSERT INTO archived_diary_revisions (diary_id, revision_number, snapshot, title, emotion, data, created_at) "
+            + "SELECT r.diary_id, r.revision_number, r.snapshot, r.title, r.emotion, r.data, r.created_at "
+            + "FROM diary_revisions r WHERE r.diary_id IN (:ids)",
+        nativeQuery = true)
+    int archiveRevisions(@Param("ids") Collection<String> ids);
+
+    /**
+     * 指定ユーザーのアーカイブ済み日記のIDを取得します（アカウント削除時に一定件数ずつ削除するために使用）。
+     * @param userId ユーザーID
+     * @param pageable 取得件数
+     * @return 日記IDのリスト
+     */
+    @Query("SELECT d.id FROM ArchivedDiary d WHERE d.userId = :userId")
+    List<String> findIdsByUserId(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * 複数のアーカイブ済み日記の画像のURLを取得します（保存済みの画像ファイルの削除用）。
+     * @param ids 日記IDのリスト
+     * @return 画像URLのリスト
+     */
+    @Query(value = "SELECT url FROM archived_diary_images WHERE diary_id IN (:ids)", nativeQuery = true)
+    List<String> findImageUrlsByDiaryIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 一括操作の対象となるアーカイブ済み日記のIDを作成日時順に取得します。条件の指定方法は日記テーブルと同じです。
+     */
+    @Query(value = "SELECT d.id FROM archived_diaries d WHERE d.user_id = :userId "
+            + "AND (:allIds OR d.id IN (:ids)) "
+            + "AND (:tag IS NULL OR EXISTS (SELECT 1 FROM archived_diary_tags a "
+            + "WHERE a.diary_id = d.id AND a.tag_name = :tag)) "
+            + "AND (:start IS NULL OR (d.created_at >= :start AND d.created_at < :end)) "
+            + "ORDER BY d.created_at LIMIT :limit",
+        nativeQuery = true)
+    List<String> findIdsForBulk(@Param("userId") String userId,
+                                @Param("allIds") boolean allIds,
+                                @Param("ids") Collection<String> ids,
+                                @Param("tag") String tag,
+                                @Param("start") LocalDateTime start,
+                                @Param("end") LocalDateTime end,
+                                @Param("limit") int limit);
+
+    /**
+     * 複数のアーカイブ済み日記にタグを追加します。既に付いているタグは無視します。
+     * @param ids 日記IDのリスト
+     * @param name タグ名
+     * @return 追加した件数
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO archived_diary_tags (diary_id, tag_name) "
+            + "SELECT d.id, :name FROM archived_diaries d WHERE d.id IN (:ids)",
+        nativeQuery = true)
+    int insertTag(@Param("ids") Collection<String> ids, @Param("name") String name);
+
+    /**
+     * 複数のアーカイブ済み日記から、指定した名前のタグを外します。
+     * @param ids 日記IDのリスト
+     * @param names タグ名のリスト
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM archived_diary_tags WHERE diary_id IN (:ids) AND tag_name IN (:names)",
+        nativeQuery = true)
+    int deleteTagsByName(@Param("ids") Collection<String> ids, @Param("names") Collection<String> names);
+
+    /**
+     * 複数のアーカイブ済み日記に付いているタグの名前を重複なしで取得します。
+     * @param ids 日記IDのリスト
+     * @return タグ名のリスト
+     */
+    @Query(value = "SELECT DISTINCT tag_name FROM archived_diary_tags WHERE diary_id IN (:ids)", nativeQuery = true)
+    List<String> findTagNamesByDiaryIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 指定ユーザーのアーカイブ済み日記に付いている元のタグに、付け替え先のタグを追加します。既に付いている場合は無視します。
+     * @param userId ユーザーID
+     * @param sourceNames 元のタグ名のリスト
+     * @param targetName 付け替え先のタグ名
+     * @return 追加した件数
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO archived_diary_tags (diary_id, tag_name) "
+            + "SELECT DISTINCT adt.diary_id, :targetName FROM archived_diary_tags adt "
+            + "JOIN archived_diaries a ON a.id = adt.diary_id "
+            + "WHERE a.user_id = :userId AND adt.tag_name IN (:sourceNames)",
+        nativeQuery = true)
+    int copyTagsOfUser(@Param("userId") String userId,
+                       @Param("sourceNames") Collection<String> sourceNames,
+                       @Param("targetName") String targetName);
+
+    /**
+     * 指定ユーザーのアーカイブ済み日記から、指定した名前のタグを外します。
+     * @param userId ユーザーID
+     * @param names タグ名のリスト
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query(value = "DELETE adt FROM archived_diary_tags adt JOIN archived_diaries a ON a.id = adt.diary_id "
+            + "WHERE a.user_id = :userId AND adt.tag_name IN (:names)",
+        nativeQuery = true)
+    int deleteTagsOfUser(@Param("userId") String userId, @Param("names") Collection<String> names);
+
+    /**
+     * 複数のアーカイブ済み日記のタグを削除します。
+     * @param ids 日記IDのリスト
+     */
+    @Modifying
+    @Query(value = "DELETE FROM archived_diary_tags WHERE diary_id IN (:ids)", nativeQuery = true)
+    void deleteTagsByDiaryIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 複数のアーカイブ済み日記の画像の参照情報を削除します。
+     * @param ids 日記IDのリスト
+     */
+    @Modifying
+    @Query(value = "DELETE FROM archived_diary_images WHERE diary_id IN (:ids)", nativeQuery = true)
+    void deleteImagesByDiaryIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 複数のアーカイブ済み日記の変更履歴を削除します。
+     * @param ids 日記IDのリスト
+     */
+    @Modifying
+    @Query(value = "DELETE FROM archived_diary_revisions WHERE diary_id IN (:ids)", nativeQuery = true)
+    void deleteRevisionsByDiaryIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 複数のアーカイブ済み日記を削除します。タグ・画像・変更履歴は事前に削除しておく必要があります。
+     * @param ids 日記IDのリスト
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM archived_diaries WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * アーカイブ済み日記を日記テーブルに戻します。本文は圧縮された形式のまま戻します。
+     * @param id 日記ID
+     * @return 戻した件数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO diaries (id, user_id, title, content, emotion, created_at, updated_at) "
+            + "SELECT d.id, d.user_id, d.title, d.content, d.emotion, d.created_at, d.updated_at "
+            + "FROM archived_diaries d WHERE d.id = :id",
+        nativeQuery = true)
+    int restoreDiary(@Param("id") String id);
+
+    /**
+     * アーカイブ済み日記のタグを名前で対応付けて日記に戻します。対応するタグは事前に作成しておく必要があります。
+     */
+    @Modifying
+    @Query(value = "INSERT INTO diary_tags (diary_id, tag_id) "
+            + "SELECT a.diary_id, t.id FROM archived_diary_tags a JOIN tags t ON t.name = a.tag_name WHERE a.diary_id = :id",
+        nativeQuery = true)
+    int restoreTags(@Param("id") String id);
+
+    /**
+     * アーカイブ済み日記の画像の参照情報を日記に戻します。
+     */
+    @Modifying
+    @Query(value = "INSERT INTO images (id, diary_id, url, filename, created_at) "
+            + "SELECT a.image_id, a.diary_id, a.url, a.filename, a.created_at FROM archived_diary_images a WHERE a.diary_id = :id",
+        nativeQuery = true)
+    int restoreImages(@Param("id") String id);
+
+    /**
+     * アーカイブ済み日記の変更履歴を日記の変更履歴に戻します。
+     */
+    @Modifying
+    @Query(value = "INSERT INTO diary_revisions (diary_id, user_id, revision_number, snapshot, title, emotion, data, created_at) "
+            + "SELECT a.diary_id, d.user_id, a.revision_number, a.snapshot, a.title, a.emotion, a.data, a.created_at "
+            + "FROM archived_diary_revisions a JOIN archived_diaries d ON d.id = a.diary_id WHERE a.diary_id = :id",
+        nativeQuery = true)
+    int restoreRevisions(@Param("id") String id);
+}
@@ -1,11 +1,14 @@
 package com.example.mydiaryapp.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,6 +22,12 @@ import com.example.mydiaryapp.entity.Diary;
 @Repository
 public interface DiaryRepository extends JpaRepository<Diary, String> {
 
+    /**
+     * 本文カラムを文字列として扱うSQL式（圧縮されている場合は展開）。
+     * 形式は CompressedTextConverter を参照してください。
+     */
+    String CONTENT_TEXT = "CONVERT(IF(LEFT(d.content, 1) = X'FF', UNCOMPRESS(SUBSTRING(d.content, 3)), d.content) USING utf8mb4)";
+
     /**
      * 指定ユーザーの全日記を作成日時降順でページング取得します。
      * @param userId ユーザーID
@@ -29,12 +38,17 @@ public interface DiaryRepository extends JpaRepository<Diary, String> {
 
     /**
      * タイトルまたは本文にキーワードを含む日記を作成日時降順でページング取得します。
+     * 本文は圧縮されている場合があるため、MySQLのUNCOMPRESSで展開してから検索します。
      * @param userId ユーザーID
      * @param keyword 検索キーワード
      * @param pageable ページ情報
      * @return ページングされた日記リスト
      */
-    @Query("SELECT d FROM Diary d WHERE d.user.id = :userId AND (d.title LIKE %:keyword% OR d.content LIKE %:keyword%) ORDER BY d.createdAt DESC")
+    @Query(value = "SELECT d.* FROM diaries d WHERE d.user_id = :userId AND (d.title LIKE CONCAT('%', :keyword, '%') OR "
+            + CONTENT_TEXT + " LIKE CONCAT('%', :keyword, '%')) ORDER BY d.created_at DESC",
+        countQuery = "SELECT COUNT(*) FROM diaries d WHERE d.user_id = :userId AND (d.title LIKE CONCAT('%', :keyword, '%') OR "
+            + CONTENT_TEXT + " LIKE CONCAT('%', :keyword, '%'))",
+        nativeQuery = true)
     Page<Diary> findByUserIdAndKeyword(@Param("userId") String userId, 
                                        @Param("keyword") String keyword, 
                                        Pageable pageable);
@@ -72,4 +86,180 @@ public interface DiaryRepository extends JpaRepository<Diary, String> {
      * @return Optionalでラップされた日記エンティティ
      */
     Optional<Diary> findByIdAndUserId(String id, String userId);
-}
\ No newline at end of file
+
+    /**
+     * 指定したユーザーのうち、基準日時以降に日記を作成したユーザーのIDを取得します（リマインダーの対象外の判定用）。
+     * (user_id, created_at) の索引で、ユーザーごとに基準日時以降の範囲だけを読み込みます。
+     * @param userIds ユーザーIDのリスト
+     * @param since 基準日時
+     * @return ユーザーIDのリスト
+     */
+    @Query("SELECT DISTINCT d.user.id FROM Diary d WHERE d.user.id IN :userIds AND d.createdAt >= :since")
+    List<String> findUserIdsWithDiariesSince(@Param("userIds") Collection<String> userIds,
+                                             @Param("since") LocalDateTime since);
+
+    /**
+     * 作成日時・更新日時がともに基準日時より古い日記のIDを取得します（アーカイブ対象の抽出用。updated_at の索引を使用します）。
+     * @param cutoff 基準日時
+     * @param pageable 取得件数
+     * @return 日記IDのリスト
+     */
+    @Query("SELECT d.id FROM Diary d WHERE d.createdAt < :cutoff AND d.updatedAt < :cutoff")
+    List<String> findIdsNotUpdatedSince(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * 指定ユーザーの日記のIDを取得します（アカウント削除時に一定件数ずつ削除するために使用）。
+     * @param userId ユーザーID
+     * @param pageable 取得件数
+     * @return 日記IDのリスト
+     */
+    @Query("SELECT d.id FROM Diary d WHERE d.user.id = :userId")
+    List<String> findIdsByUserId(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * 複数の日記の画像のURLを取得します（保存済みの画像ファイルの削除用）。
+     * @param ids 日記IDのリスト
+     * @return 画像URLのリスト
+     */
+    @Query(value = "SELECT url FROM images WHERE diary_id IN (:ids)", nativeQuery = true)
+    List<String> findImageUrlsByDiaryIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 一括操作の対象となる日記のIDを作成日時順に取得します。
+     * 条件を指定しない項目は、パラメータに null（IDのリストの場合は allIds に true）を渡します。
+     * @param userId ユーザーID
+     * @param allIds IDのリストで絞り込まない場合 true
+     * @param ids 日記IDのリスト（allIds が true の場合はダミーの値）
+     * @param tag タグ名（任意）
+     * @param start 作成日時の開始（inclusive、任意）
+     * @param end 作成日時の終了（exclusive、start を指定した場合は必須）
+     * @param limit 取得件数
+     * @return 日記IDのリスト
+     */
+    @Query(value = "SELECT d.id FROM diaries d WHERE d.user_id = :userId "
+            + "AND (:allIds OR d.id IN (:ids)) "
+            + "AND (:tag IS NULL OR EXISTS (SELECT 1 FROM diary_tags dt JOIN tags t ON t.id = dt.tag_id "
+            + "WHERE dt.diary_id = d.id AND t.name = :tag)) "
+            + "AND (:start IS NULL OR (d.created_at >= :start AND d.created_at < :end)) "
+            + "ORDER BY d.created_at LIMIT :limit",
+        nativeQuery = true)
+    List<String> findIdsForBulk(@Param("userId") String userId,
+                                @Param("allIds") boolean allIds,
+                                @Param("ids") Collection<String> ids,
+                                @Param("tag") String tag,
+                                @Param("start") LocalDateTime start,
+                                @Param("end") LocalDateTime end,
+                                @Param("limit") int limit);
+
+    /**
+     * 複数の日記に複数のタグをまとめて関連付けます。既に関連付けられているタグは無視します。
+     * @param ids 日記IDのリスト
+     * @param tagIds タグIDのリスト
+     * @return 追加した関連の件数
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO diary_tags (diary_id, tag_id) "
+            + "SELECT d.id, t.id FROM diaries d JOIN tags t ON t.id IN (:tagIds) WHERE d.id IN (:ids)",
+        nativeQuery = true)
+    int insertTagLinks(@Param("ids") Collection<String> ids, @Param("tagIds") Collection<Long> tagIds);
+
+    /**
+     * 複数の日記から、指定した名前のタグの関連を外します。
+     * @param ids 日記IDのリスト
+     * @param names タグ名のリスト
+     * @return 削除した関連の件数
+     */
+    @Modifying
+    @Query(value = "DELETE dt FROM diary_tags dt JOIN tags t ON t.id = dt.tag_id "
+            + "WHERE dt.diary_id IN (:ids) AND t.name IN (:names)",
+        nativeQuery = true)
+    int deleteTagLinksByName(@Param("ids") Collection<String> ids, @Param("names") Collection<String> names);
+
+    /**
+     * 複数の日記の更新日時を設定します（SQLでまとめて変更した場合に使用）。
+     * @param ids 日記IDのリスト
+     * @param updatedAt 更新日時
+     * @return 更新した件数
+     */
+    @Modifying
+    @Query(value = "UPDATE diaries SET updated_at = :updatedAt WHERE id IN (:ids)", nativeQuery = true)
+    int touchByIdIn(@Param("ids") Collection<String> ids, @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * 複数の日記に付いているタグの名前を重複なしで取得します（一括削除の前に使用件数の対象を求めるために使用）。
+     * @param ids 日記IDのリスト
+     * @return タグ名のリスト
+     */
+    @Query(value = "SELECT DISTINCT t.name FROM diary_tags dt JOIN tags t ON t.id = dt.tag_id "
+            + "WHERE dt.diary_id IN (:ids)",
+        nativeQuery = true)
+    List<String> findTagNamesByDiaryIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 指定ユーザーの日記に付いている元のタグに、付け替え先のタグを関連付けます。既に付いている場合は無視します。
+     * @param userId ユーザーID
+     * @param sourceIds 元のタグIDのリスト
+     * @param targetId 付け替え先のタグID
+     * @return 追加した関連の件数
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO diary_tags (diary_id, tag_id) "
+            + "SELECT DISTINCT dt.diary_id, :targetId FROM diary_tags dt JOIN diaries d ON d.id = dt.diary_id "
+            + "WHERE d.user_id = :userId AND dt.tag_id IN (:sourceIds)",
+        nativeQuery = true)
+    int copyTagLinksOfUser(@Param("userId") String userId,
+                           @Param("sourceIds") Collection<Long> sourceIds,
+                           @Param("targetId") Long targetId);
+
+    /**
+     * 指定ユーザーの日記から、指定したタグの関連を外します。他のユーザーの関連は変更しません。
+     * @param userId ユーザーID
+     * @param tagIds タグIDのリスト
+     * @return 削除した関連の件数
+     */
+    @Modifying
+    @Query(value = "DELETE dt FROM diary_tags dt JOIN diaries d ON d.id = dt.diary_id "
+            + "WHERE d.user_id = :userId AND dt.tag_id IN (:tagIds)",
+        nativeQuery = true)
+    int deleteTagLinksOfUser(@Param("userId") String userId, @Param("tagIds") Collection<Long> tagIds);
+
+    /**
+     * 指定したタグが付いている、指定ユーザーの日記の更新日時を設定します。
+     * @param userId ユーザーID
+     * @param tagIds タグIDのリスト
+     * @param updatedAt 更新日時
+     * @return 更新した件数
+     */
+    @Modifying
+    @Query(value = "UPDATE diaries d SET d.updated_at = :updatedAt WHERE d.user_id = :userId "
+            + "AND EXISTS (SELECT 1 FROM diary_tags dt WHERE dt.diary_id = d.id AND dt.tag_id IN (:tagIds))",
+        nativeQuery = true)
+    int touchByUserIdAndTagIds(@Param("userId") String userId,
+                               @Param("tagIds") Collection<Long> tagIds,
+                               @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * 複数の日記のタグの関連を削除します（アーカイブへの移動時に使用）。
+     * @param ids 日記IDのリスト
+     */
+    @Modifying
+    @Query(value = "DELETE FROM diary_tags WHERE diary_id IN (:ids)", nativeQuery = true)
+    void deleteTagLinksByDiaryIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 複数の日記の画像を削除します（アーカイブへの移動時に使用）。
+     * @param ids 日記IDのリスト
+     */
+    @Modifying
+    @Query(value = "DELETE FROM images WHERE diary_id IN (:ids)", nativeQuery = true)
+    void deleteImagesByDiaryIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * 複数の日記を削除します。タグの関連・画像・履歴は事前に削除しておく必要があります。
+     * @param ids 日記IDのリスト
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM diaries WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
+}
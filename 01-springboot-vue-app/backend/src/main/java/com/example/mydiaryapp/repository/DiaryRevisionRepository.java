@@ -0,0 +1,91 @@
+package com.example.mydiaryapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.mydiaryapp.entity.DiaryRevision;
+
+/**
+ * 日記の変更履歴に対する永続化操作を行うリポジトリインターフェースです。
+ * 版の一覧取得、復元に必要なスナップショットと差分の取得メソッドを提供します。
+ */
+@Repository
+public interface DiaryRevisionRepository extends JpaRepository<DiaryRevision, Long> {
+
+    /**
+     * 版一覧の表示用に、本文データを除いた項目のみを取得するためのプロジェクションです。
+     */
+    interface RevisionSummary {
+        int getRevisionNumber();
+        String getTitle();
+        String getEmotion();
+        LocalDateTime getCreatedAt();
+    }
+
+    /**
+     * 指定ユーザーの日記の版一覧を新しい順に取得します（本文データは読み込みません）。
+     * @param diaryId 日記ID
+     * @param userId ユーザーID
+     * @return 版の概要リスト
+     */
+    List<RevisionSummary> findByDiaryIdAndUserIdOrderByRevisionNumberDesc(String diaryId, String userId);
+
+    /**
+     * 指定ユーザーの日記に指定した版が存在するかチェックします。
+     * @param diaryId 日記ID
+     * @param userId ユーザーID
+     * @param revisionNumber 版番号
+     * @return 存在する場合 true
+     */
+    boolean existsByDiaryIdAndUserIdAndRevisionNumber(String diaryId, String userId, int revisionNumber);
+
+    /**
+     * 指定日記の最新の版番号を取得します。
+     * @param diaryId 日記ID
+     * @return 最新の版番号（履歴がない場合は null）
+     */
+    @Query("SELECT MAX(r.revisionNumber) FROM DiaryRevision r WHERE r.diaryId = :diaryId")
+    Integer findLatestRevisionNumber(@Param("diaryId") String diaryId);
+
+    /**
+     * 指定した版以前で最も新しいスナップショットを取得します。
+     * @param diaryId 日記ID
+     * @param revisionNumber 版番号
+     * @return Optionalでラップされたスナップショットの版
+     */
+    Optional<DiaryRevision> findFirstByDiaryIdAndSnapshotTrueAndRevisionNumberLessThanEqualOrderByRevisionNumberDesc(
+            String diaryId, int revisionNumber);
+
+    /**
+     * 指定範囲の版を版番号の昇順で取得します。
+     * @param diaryId 日記ID
+     * @param from 開始版番号（inclusive）
+     * @param to 終了版番号（inclusive）
+     * @return 版のリスト
+     */
+    List<DiaryRevision> findByDiaryIdAndRevisionNumberBetweenOrderByRevisionNumberAsc(String diaryId, int from, int to);
+
+    /**
+     * 指定日記の全履歴を一括削除します。
+     * @param diaryId 日記ID
+     */
+    @Modifying
+    @Query("DELETE FROM DiaryRevision r WHERE r.diaryId = :diaryId")
+    void deleteByDiaryId(@Param("diaryId") String diaryId);
+
+    /**
+     * 複数の日記の全履歴を一括削除します。
+     * @param diaryIds 日記IDのリスト
+     */
+    @Modifying
+    @Query("DELETE FROM DiaryRevision r WHERE r.diaryId IN :diaryIds")
+    void deleteByDiaryIdIn(@Param("diaryIds") Collection<String> diaryIds);
+}
@@ -0,0 +1,123 @@
+package com.example.mydiaryapp.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.mydiaryapp.entity.IdempotencyRecord;
+
+/**
+ * Idempotency-Key の実行状況と結果に対する永続化操作を行うリポジトリインターフェースです。
+ * キーの取得は行の挿入または期限切れのリースの更新で行い、更新件数で取得できたかを判定します。
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    /**
+     * まだ使われていないキーを取得し、実行中として記録します。
+     * @param userId ユーザーID
+     * @param key Idempotency-Key
+     * @param requestHash リクエストの内容のハッシュ値
+     * @param owner インスタンスの識別子
+     * @param leaseUntil リースの期限
+     * @param expiresAt キーの有効期限
+     * @return 取得できた場合 1、既にキーがある場合 0
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO idempotency_keys "
+            + "(user_id, idempotency_key, request_hash, owner, lease_until, expires_at) "
+            + "VALUES (:userId, :key, :requestHash, :owner, :leaseUntil, :expiresAt)",
+        nativeQuery = true)
+    int tryAcquire(@Param("userId") String userId,
+                   @Param("key") String key,
+                   @Param("requestHash") String requestHash,
+                   @Param("owner") String owner,
+                   @Param("leaseUntil") LocalDateTime leaseUntil,
+                   @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * 完了しないままリースの期限を過ぎたキーを引き継ぎます。
+     * @param userId ユーザーID
+     * @param key Idempotency-Key
+     * @param owner インスタンスの識別子
+     * @param leaseUntil 新しいリースの期限
+     * @param now 現在日時
+     * @return 引き継げた場合 1
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.owner = :owner, r.leaseUntil = :leaseUntil "
+        + "WHERE r.userId = :userId AND r.idempotencyKey = :key AND r.statusCode IS NULL AND r.leaseUntil < :now")
+    int takeOver(@Param("userId") String userId,
+                 @Param("key") String key,
+                 @Param("owner") String owner,
+                 @Param("leaseUntil") LocalDateTime leaseUntil,
+                 @Param("now") LocalDateTime now);
+
+    /**
+     * 実行の結果を記録します。
+     * @param userId ユーザーID
+     * @param key Idempotency-Key
+     * @param owner インスタンスの識別子
+     * @param statusCode レスポンスのHTTPステータス
+     * @param responseBody レスポンスのJSON（保存形式）
+     * @param expiresAt キーの有効期限
+     * @return 更新した件数（リースを引き継がれていた場合は 0）
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.statusCode = :statusCode, r.responseBody = :responseBody, "
+        + "r.expiresAt = :expiresAt "
+        + "WHERE r.userId = :userId AND r.idempotencyKey = :key AND r.owner = :owner AND r.statusCode IS NULL")
+    int complete(@Param("userId") String userId,
+                 @Param("key") String key,
+                 @Param("owner") String owner,
+                 @Param("statusCode") int statusCode,
+                 @Param("responseBody") byte[] responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * 実行に失敗したキーを削除し、再送されたリクエストで実行し直せるようにします。
+     * @param userId ユーザーID
+     * @param key Idempotency-Key
+     * @param owner インスタンスの識別子
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r "
+        + "WHERE r.userId = :userId AND r.idempotencyKey = :key AND r.owner = :owner AND r.statusCode IS NULL")
+    int release(@Param("userId") String userId, @Param("key") String key, @Param("owner") String owner);
+
+    /**
+     * 有効期限を過ぎたキーを削除します。
+     * @param userId ユーザーID
+     * @param key Idempotency-Key
+     * @param now 現在日時
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r "
+        + "WHERE r.userId = :userId AND r.idempotencyKey = :key AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("userId") String userId, @Param("key") String key, @Param("now") LocalDateTime now);
+
+    /**
+     * 有効期限を過ぎたキーを指定件数まで削除します。
+     * @param now 現在日時
+     * @param limit 削除する最大件数
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys WHERE expires_at < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 指定ユーザーのキーをすべて削除します（アカウント削除時に使用）。
+     * @param userId ユーザーID
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.userId = :userId")
+    int deleteByUserId(@Param("userId") String userId);
+}
@@ -0,0 +1,79 @@
+package com.example.mydiaryapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.mydiaryapp.entity.ReminderLease;
+
+/**
+ * リマインダー送信のリースに対する永続化操作を行うリポジトリインターフェースです。
+ * リースの取得は行の挿入または期限切れの行の更新で行い、更新件数で取得できたかを判定します。
+ */
+@Repository
+public interface ReminderLeaseRepository extends JpaRepository<ReminderLease, LocalDateTime> {
+
+    /**
+     * まだ誰も担当していない通知日時のリースを取得します。
+     * @param slot 通知日時
+     * @param owner インスタンスの識別子
+     * @param leaseUntil リースの期限
+     * @return 取得できた場合 1、既にリースがある場合 0
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO reminder_leases (slot, owner, lease_until, completed) "
+            + "VALUES (:slot, :owner, :leaseUntil, FALSE)",
+        nativeQuery = true)
+    int tryAcquire(@Param("slot") LocalDateTime slot,
+                   @Param("owner") String owner,
+                   @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 送信を終えないまま期限を過ぎたリースを引き継ぎます。
+     * @param slot 通知日時
+     * @param owner インスタンスの識別子
+     * @param leaseUntil 新しいリースの期限
+     * @param now 現在日時
+     * @return 引き継げた場合 1
+     */
+    @Modifying
+    @Query("UPDATE ReminderLease l SET l.owner = :owner, l.leaseUntil = :leaseUntil "
+        + "WHERE l.slot = :slot AND l.completed = false AND l.leaseUntil < :now")
+    int takeOver(@Param("slot") LocalDateTime slot,
+                 @Param("owner") String owner,
+                 @Param("leaseUntil") LocalDateTime leaseUntil,
+                 @Param("now") LocalDateTime now);
+
+    /**
+     * 送信を終えたことを記録します。
+     * @param slot 通知日時
+     * @param owner インスタンスの識別子
+     * @return 更新した件数（リースを引き継がれていた場合は 0）
+     */
+    @Modifying
+    @Query("UPDATE ReminderLease l SET l.completed = true WHERE l.slot = :slot AND l.owner = :owner")
+    int complete(@Param("slot") LocalDateTime slot, @Param("owner") String owner);
+
+    /**
+     * 送信を終えないまま期限を過ぎたリースのうち、指定日時以降のものの通知日時を取得します。
+     * @param since この日時より前の通知日時は対象外（遅れすぎた通知は送信しない）
+     * @param now 現在日時
+     * @return 通知日時のリスト
+     */
+    @Query("SELECT l.slot FROM ReminderLease l WHERE l.slot >= :since AND l.completed = false AND l.leaseUntil < :now")
+    List<LocalDateTime> findExpired(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    /**
+     * 指定日時より前のリースを削除します。
+     * @param before 基準日時
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query("DELETE FROM ReminderLease l WHERE l.slot < :before")
+    int deleteBefore(@Param("before") LocalDateTime before);
+}
@@ -1,9 +1,13 @@
 package com.example.mydiaryapp.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,7 +16,7 @@ import com.example.mydiaryapp.entity.Tag;
 
 /**
  * タグデータに対する永続化操作を行うリポジトリインターフェースです。
- * JpaRepositoryを継承し、タグ取得やユーザー関連タグの検索メソッドを提供します。
+ * JpaRepositoryを継承し、タグ取得やユーザー関連タグの検索メソッドと、参照されなくなったタグの削除用のメソッドを提供します。
  */
 @Repository
 public interface TagRepository extends JpaRepository<Tag, Long> {
@@ -24,6 +28,13 @@ public interface TagRepository extends JpaRepository<Tag, Long> {
      */
     Optional<Tag> findByName(String name);
 
+    /**
+     * 複数のタグ名に一致するタグをまとめて取得します。
+     * @param names タグ名の集合
+     * @return 存在するタグのリスト（存在しない名前は含まれません）
+     */
+    List<Tag> findByNameIn(Collection<String> names);
+
     /**
      * 指定ユーザーが使用しているタグの一覧を取得します。
      * @param userId ユーザーID
@@ -31,4 +42,56 @@ public interface TagRepository extends JpaRepository<Tag, Long> {
      */
     @Query("SELECT DISTINCT t FROM Tag t JOIN t.diaries d WHERE d.user.id = :userId")
     List<Tag> findByUserId(@Param("userId") String userId);
-}
\ No newline at end of file
+
+    /**
+     * どの日記からも参照されておらず、まだ印の付いていないタグのIDを、ID順に取得します。
+     * @param afterId このIDより後のタグから検索します
+     * @param limit 取得件数
+     * @return タグIDのリスト
+     */
+    @Query(value = "SELECT t.id FROM tags t WHERE t.id > :afterId AND t.orphaned_at IS NULL "
+            + "AND NOT EXISTS (SELECT 1 FROM diary_tags dt WHERE dt.tag_id = t.id) "
+            + "ORDER BY t.id LIMIT :limit",
+        nativeQuery = true)
+    List<Long> findUnmarkedOrphanIds(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 参照されていないことを確認した日時を記録します。
+     * @param ids タグIDのリスト
+     * @param orphanedAt 確認した日時
+     * @return 更新した件数
+     */
+    @Modifying
+    @Query("UPDATE Tag t SET t.orphanedAt = :orphanedAt WHERE t.id IN :ids")
+    int markOrphaned(@Param("ids") Collection<Long> ids, @Param("orphanedAt") LocalDateTime orphanedAt);
+
+    /**
+     * 指定日時より前に参照されていないことを確認したタグのIDを取得します。
+     * @param before 基準日時
+     * @param pageable 取得件数
+     * @return タグIDのリスト
+     */
+    @Query("SELECT t.id FROM Tag t WHERE t.orphanedAt < :before ORDER BY t.id")
+    List<Long> findIdsOrphanedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * 指定したタグのうち、現在も参照されていないものを削除します。
+     * 確認から削除までの間に再び使われ、印が外されたタグは削除しません。
+     * @param ids タグIDのリスト
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM tags WHERE id IN (:ids) AND orphaned_at IS NOT NULL "
+            + "AND NOT EXISTS (SELECT 1 FROM diary_tags dt WHERE dt.tag_id = tags.id)",
+        nativeQuery = true)
+    int deleteOrphansByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 削除しなかった（再び使われた）タグの印を外します。
+     * @param ids タグIDのリスト
+     * @return 更新した件数
+     */
+    @Modifying
+    @Query("UPDATE Tag t SET t.orphanedAt = NULL WHERE t.id IN :ids")
+    int unmarkOrphaned(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,111 @@
+package com.example.mydiaryapp.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.mydiaryapp.entity.TagUsage;
+
+/**
+ * ユーザーごとのタグの使用件数に対する永続化操作を行うリポジトリインターフェースです。
+ * 件数は読み込んで更新せず、SQLで加算するため、同じユーザーの同時の書き込みでも失われません。
+ */
+@Repository
+public interface TagUsageRepository extends JpaRepository<TagUsage, TagUsage.Key> {
+
+    /**
+     * 指定ユーザーが使用しているタグを、件数の多い順に取得します。
+     * @param userId ユーザーID
+     * @return 件数が1以上のタグの使用件数のリスト
+     */
+    @Query("SELECT u FROM TagUsage u WHERE u.userId = :userId AND u.diaryCount > 0 "
+        + "ORDER BY u.diaryCount DESC, u.tagName")
+    List<TagUsage> findUsedByUserId(@Param("userId") String userId);
+
+    /**
+     * 指定ユーザーが指定タグのいずれかを使用しているかを判定します。
+     * @param userId ユーザーID
+     * @param tagNames タグ名の集合
+     * @return 件数が1以上のタグがある場合 true
+     */
+    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN true ELSE false END FROM TagUsage u "
+        + "WHERE u.userId = :userId AND u.tagName IN :tagNames "
+        + "AND u.diaryCount > 0")
+    boolean existsUsed(@Param("userId") String userId, @Param("tagNames") Collection<String> tagNames);
+
+    /**
+     * タグの使用件数に差分を加算します。行がない場合は差分を件数として作成します。
+     * 件数が増えた場合は最後に使用した日時も更新します。
+     * @param userId ユーザーID
+     * @param tagName タグ名
+     * @param delta 加算する件数（減らす場合は負の値）
+     * @param usedAt 書き込みの日時
+     * @return 更新した件数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO tag_usages (user_id, tag_name, diary_count, last_used_at) "
+            + "VALUES (:userId, :tagName, :delta, :usedAt) "
+            + "ON DUPLICATE KEY UPDATE diary_count = diary_count + :delta, "
+            + "last_used_at = CASE WHEN :delta > 0 THEN :usedAt ELSE last_used_at END",
+        nativeQuery = true)
+    int addCount(@Param("userId") String userId,
+                 @Param("tagName") String tagName,
+                 @Param("delta") int delta,
+                 @Param("usedAt") LocalDateTime usedAt);
+
+    /**
+     * 件数が0以下になったタグの行を削除します。
+     * @param userId ユーザーID
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query("DELETE FROM TagUsage u WHERE u.userId = :userId AND u.diaryCount <= 0")
+    int deleteUnused(@Param("userId") String userId);
+
+    /**
+     * 指定タグの行を削除します。件数を集計し直す前に呼び出します。
+     * @param userId ユーザーID
+     * @param tagNames タグ名の集合
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query("DELETE FROM TagUsage u WHERE u.userId = :userId AND u.tagName IN :tagNames")
+    int deleteByTagNames(@Param("userId") String userId, @Param("tagNames") Collection<String> tagNames);
+
+    /**
+     * 指定タグの件数を、日記とアーカイブ済み日記のタグから集計して作成します。
+     * 最後に使用した日時は、タグの付いた日記の最新の更新日時とします。
+     * ユーザーの日記からたどるため、他のユーザーの日記の件数によらず集計できます。
+     * @param userId ユーザーID
+     * @param tagNames タグ名の集合
+     * @return 作成した件数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO tag_usages (user_id, tag_name, diary_count, last_used_at) "
+            + "SELECT :userId, x.name, COUNT(*), MAX(x.updated_at) FROM ("
+            + "SELECT t.name, d.updated_at FROM diaries d JOIN diary_tags dt ON dt.diary_id = d.id "
+            + "JOIN tags t ON t.id = dt.tag_id "
+            + "WHERE d.user_id = :userId AND t.name IN (:tagNames) "
+            + "UNION ALL "
+            + "SELECT adt.tag_name AS name, a.updated_at FROM archived_diaries a "
+            + "JOIN archived_diary_tags adt ON adt.diary_id = a.id "
+            + "WHERE a.user_id = :userId AND adt.tag_name IN (:tagNames)"
+            + ") x GROUP BY x.name",
+        nativeQuery = true)
+    int insertCounts(@Param("userId") String userId, @Param("tagNames") Collection<String> tagNames);
+
+    /**
+     * 指定ユーザーのタグの使用件数をすべて削除します。
+     * @param userId ユーザーID
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query("DELETE FROM TagUsage u WHERE u.userId = :userId")
+    int deleteByUserId(@Param("userId") String userId);
+}
@@ -1,8 +1,14 @@
 package com.example.mydiaryapp.repository;
 
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.mydiaryapp.entity.User;
@@ -14,6 +20,14 @@ import com.example.mydiaryapp.entity.User;
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
 
+    /**
+     * リマインダーの通知時刻の読み込み用に、IDと通知時刻のみを取得するためのプロジェクションです。
+     */
+    interface ReminderSetting {
+        String getId();
+        LocalTime getReminderTime();
+    }
+
     /**
      * メールアドレスでユーザーを取得します。
      * @param email メールアドレス
@@ -41,4 +55,46 @@ public interface UserRepository extends JpaRepository<User, String> {
      * @return 存在する場合 true
      */
     boolean existsByUsername(String username);
-}
\ No newline at end of file
+
+    /**
+     * 通知時刻が指定範囲にあるユーザーを取得します（reminder_time の索引を使用します）。
+     * @param from 開始時刻（inclusive）
+     * @param to 終了時刻（inclusive）
+     * @return ユーザーIDと通知時刻のリスト
+     */
+    @Query("SELECT u.id AS id, u.reminderTime AS reminderTime FROM User u WHERE u.reminderTime BETWEEN :from AND :to")
+    List<ReminderSetting> findRemindersBetween(@Param("from") LocalTime from, @Param("to") LocalTime to);
+
+    /**
+     * 指定日時以降に更新されたユーザーの通知時刻を取得します（updated_at の索引を使用します）。
+     * 通知時刻を解除したユーザーも含みます。
+     * @param since 基準日時
+     * @return ユーザーIDと通知時刻のリスト
+     */
+    @Query("SELECT u.id AS id, u.reminderTime AS reminderTime FROM User u WHERE u.updatedAt >= :since")
+    List<ReminderSetting> findRemindersUpdatedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * パスワードのハッシュ値を、読み込んだときから変わっていない場合に限り置き換えます。
+     * ログイン時に弱いハッシュ値を作成し直すために使用します。
+     * @param id ユーザーID
+     * @param currentHash 読み込んだときのハッシュ値
+     * @param newHash 新しいハッシュ値
+     * @return 更新した件数
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :currentHash")
+    int replacePasswordHash(@Param("id") String id,
+                            @Param("currentHash") String currentHash,
+                            @Param("newHash") String newHash);
+
+    /**
+     * ユーザーの行だけを削除します。
+     * deleteById と異なり、関連する日記を読み込まないため、日記を削除し終えてから呼び出します。
+     * @param id ユーザーID
+     * @return 削除した件数
+     */
+    @Modifying
+    @Query(value = "DELETE FROM users WHERE id = :id", nativeQuery = true)
+    int deleteRowById(@Param("id") String id);
+}
@@ -3,7 +3,9 @@ package com.example.mydiaryapp.security;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.example.mydiaryapp.entity.User;
@@ -64,10 +66,10 @@ public class CustomUserDetails implements UserDetails {
         return true;
     }
 
-    /** @return アカウントが有効である場合true */
+    /** @return アカウントの削除を受け付けていない場合true */
     @Override
     public boolean isEnabled() {
-        return true;
+        return user.getDeletedAt() == null;
     }
     
     /**
@@ -85,4 +87,17 @@ public class CustomUserDetails implements UserDetails {
     public User getUser() {
         return user;
     }
-}
\ No newline at end of file
+
+    /**
+     * 現在のスレッドで認証済みのユーザーIDを取得します。
+     * リクエスト外のスレッドや未認証の場合は null を返します。
+     * @return 認証済みユーザーのID、または null
+     */
+    public static String currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails) {
+            return ((CustomUserDetails) authentication.getPrincipal()).getUserId();
+        }
+        return null;
+    }
+}
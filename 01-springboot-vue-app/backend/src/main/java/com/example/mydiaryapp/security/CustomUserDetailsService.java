@@ -4,6 +4,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.mydiaryapp.entity.User;
 import com.example.mydiaryapp.repository.UserRepository;
@@ -19,6 +20,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
     private final UserRepository userRepository;
+    private final TransactionTemplate primaryTransaction;
 
     /**
      * メールアドレスをキーにユーザー情報をロードします。
@@ -28,7 +30,9 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        // 読み取りレプリカに未反映の新規登録ユーザーのため、見つからない場合はプライマリで再検索する
         User user = userRepository.findByEmail(email)
+            .or(() -> primaryTransaction.execute(status -> userRepository.findByEmail(email)))
             .orElseThrow(() -> new UsernameNotFoundException("ユーザーが見つかりません: " + email));
         
         return new CustomUserDetails(user);
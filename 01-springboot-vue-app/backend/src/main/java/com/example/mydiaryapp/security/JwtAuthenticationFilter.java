@@ -6,27 +6,50 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 
 /**
  * HTTPリクエスト毎にJWTトークンを検証し、認証コンテキストを設定するフィルタです。
  * AuthorizationヘッダーのBearerトークンをパースし、トークンが有効ならば
  * Spring Securityのコンテキストに認証情報をセットします。
+ * トークンの解析時間、ユーザーとの照合を含む検証時間、ユーザー情報の取得時間はそれぞれメトリクスとして記録します。
+ * 削除を受け付けたアカウントや削除済みのアカウントのトークンは、有効期限内でも認証しません。
  */
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final Timer parseTimer;
+    private final Timer validateTimer;
+    private final Timer userLookupTimer;
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService, MeterRegistry meterRegistry) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.parseTimer = Timer.builder("diary.jwt.parse")
+            .description("JWTの解析・署名検証にかかった時間")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.validateTimer = Timer.builder("diary.jwt.validate")
+            .description("JWTのユーザーとの照合・有効期限の検証にかかった時間")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.userLookupTimer = Timer.builder("diary.jwt.user.lookup")
+            .description("JWTのユーザー情報の取得にかかった時間")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
 
     /**
      * リクエストヘッダーからJWTを抽出し、検証後にセキュリティコンテキストに認証情報をセットします。
@@ -43,22 +66,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String authorizationHeader = request.getHeader("Authorization");
         
+        final String jwt = authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+            ? authorizationHeader.substring(7) : null;
+        
         String email = null;
-        String jwt = null;
         
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+        if (jwt != null) {
             try {
-                email = jwtUtil.extractEmail(jwt);
+                email = parseTimer.record(() -> jwtUtil.extractEmail(jwt));
             } catch (Exception e) {
                 logger.warn("JWT token extraction failed: " + e.getMessage());
             }
         }
         
         if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+            final String username = email;
+            UserDetails userDetails = userLookupTimer.record(() -> {
+                try {
+                    return userDetailsService.loadUserByUsername(username);
+                } catch (UsernameNotFoundException e) {
+                    return null;
+                }
+            });
             
-            if (jwtUtil.validateToken(jwt, email)) {
+            if (userDetails != null && userDetails.isEnabled()
+                    && validateTimer.record(() -> jwtUtil.validateToken(jwt, username))) {
                 UsernamePasswordAuthenticationToken authToken = 
                     new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
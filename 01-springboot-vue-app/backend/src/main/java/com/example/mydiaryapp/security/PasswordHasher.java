@@ -0,0 +1,114 @@
+package com.example.mydiaryapp.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * パスワードのハッシュ化と照合を、リクエストのスレッドではなく専用のスレッドで実行するクラスです。
+ * ログインが集中しても BCrypt の計算に使うスレッドは CPU のコア数までに抑え、
+ * 日記の読み書きなど他のAPIのスレッドとCPUを使い尽くさないようにします。
+ *
+ * <ul>
+ *   <li>待ち行列は件数を制限し、満杯の場合は待たせずに {@link RejectedExecutionException} で失敗した結果を返します。</li>
+ *   <li>結果は {@link CompletableFuture} で返すため、コントローラーは非同期のレスポンスとして
+ *       リクエストのスレッドを解放したまま完了を待てます。</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+    /** 存在しないユーザーのログインでも照合と同じ時間をかけるためのハッシュ値。 */
+    private final String dummyHash;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          MeterRegistry meterRegistry,
+                          @Value("${diary.auth.hash-threads:0}") int threads,
+                          @Value("${diary.auth.hash-queue-capacity:32}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "password-hasher-" + sequence.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.rejected = Counter.builder("diary.auth.hash.rejected")
+            .description("待ち行列が満杯のため受け付けなかったパスワードのハッシュ化・照合の件数")
+            .register(meterRegistry);
+        Gauge.builder("diary.auth.hash.queued", executor, pool -> pool.getQueue().size())
+            .description("実行を待っているパスワードのハッシュ化・照合の件数")
+            .register(meterRegistry);
+        this.dummyHash = passwordEncoder.encode("dummy-password");
+        log.info("Password hashing uses {} threads with a queue of {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * パスワードをハッシュ化します。
+     * @param rawPassword 平文のパスワード
+     * @return ハッシュ値。待ち行列が満杯の場合は {@link RejectedExecutionException} で失敗した結果
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * パスワードを保存されているハッシュ値と照合します。
+     * @param rawPassword 平文のパスワード
+     * @param encodedPassword 保存されているハッシュ値（ユーザーが存在しない場合は null）
+     * @return 一致した場合 true。待ち行列が満杯の場合は {@link RejectedExecutionException} で失敗した結果
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            // ユーザーの有無を応答時間から推測されないように、照合と同じ計算をします
+            return submit(() -> {
+                passwordEncoder.matches(rawPassword, dummyHash);
+                return false;
+            });
+        }
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * 保存されているハッシュ値が現在の設定（BCrypt の強度）より弱く、作成し直すべきかを判定します。
+     * @param encodedPassword 保存されているハッシュ値
+     * @return 作成し直す場合 true
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
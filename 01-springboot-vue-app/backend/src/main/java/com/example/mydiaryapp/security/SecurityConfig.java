@@ -1,6 +1,10 @@
 package com.example.mydiaryapp.security;
 
+import com.example.mydiaryapp.config.ConcurrencyLimitFilter;
+import com.example.mydiaryapp.config.RateLimitFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,27 +16,38 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.expression.WebExpressionAuthorizationManager;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Spring Securityの設定クラスです。
- * JWT認証フィルタやCORS設定、パスワードエンコーダなどのBean定義を行います。
+ * JWT認証フィルタや同時実行数・ユーザーごとの書き込み数の制限、CORS設定、パスワードエンコーダなどのBean定義を行います。
  */
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final CustomUserDetailsService customUserDetailsService; // 追加
 
+    /** メトリクスの収集を許可するアドレス（CIDR表記も可）。 */
+    @Value("${diary.metrics.allowed-addresses:127.0.0.1,::1}")
+    private List<String> metricsAllowedAddresses;
+
     /**
      * HTTPセキュリティフィルターのチェインを構成します。
      * /api/auth/** は許可し、それ以外は認証を要求します。
+     * 同時実行数の制限はJWT認証の前に行い、上限を超えたリクエストではユーザー検索も行いません。
+     * ユーザーごとの書き込み数の制限は、ユーザーIDが確定するJWT認証の直後に行います。
      */
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -41,20 +56,69 @@ public class SecurityConfig {
                 .and()
                 .authorizeHttpRequests(authz -> authz
                         .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // メトリクスには通信量や制限の状況が含まれるため、収集サーバーのアドレスからのみ許可する
+                        .requestMatchers("/actuator/prometheus").access(
+                                new WebExpressionAuthorizationManager(ipAddressExpression(metricsAllowedAddresses)))
+                        // JFRの書き出しはサーバー自身からのみ許可する
+                        .requestMatchers("/actuator/flightrecording").access(
+                                new WebExpressionAuthorizationManager("hasIpAddress('127.0.0.1') or hasIpAddress('::1')"))
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(concurrencyLimitFilter, JwtAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
+    /**
+     * アドレスのリストから、いずれかに一致する場合に許可する式を作成します。
+     * @param addresses アドレスまたはCIDR表記のリスト
+     * @return hasIpAddress を or で結んだ式
+     */
+    private static String ipAddressExpression(List<String> addresses) {
+        return addresses.stream()
+                .map(String::trim)
+                .filter(address -> !address.isEmpty())
+                .map(address -> "hasIpAddress('" + address + "')")
+                .collect(Collectors.joining(" or "));
+    }
+
+    /**
+     * 同時実行数の制限フィルタをサーブレットのフィルタとして自動登録しないようにします。
+     * セキュリティのフィルタチェインでのみ実行し、1リクエストで実行枠を二重に確保しないようにします。
+     * @param filter 同時実行数の制限フィルタ
+     * @return 無効にしたFilterRegistrationBean
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilterRegistration(ConcurrencyLimitFilter filter) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    /**
+     * 書き込み数の制限フィルタも、セキュリティのフィルタチェインでのみ実行します。
+     * @param filter 書き込み数の制限フィルタ
+     * @return 無効にしたFilterRegistrationBean
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter filter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     /**
      * パスワードハッシュ化用のエンコーダを提供します。
+     * 強度を上げた場合、それより弱いハッシュ値はログインに成功したときに作成し直します（{@link PasswordHasher#upgradeEncoding}）。
+     * @param strength BCryptの強度（log2のラウンド数）
      * @return BCryptPasswordEncoderインスタンス
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${diary.auth.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     /**
@@ -73,10 +137,10 @@ public class SecurityConfig {
      * BCryptパスワードエンコーダを設定します。
      */
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(customUserDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -88,7 +152,7 @@ public class SecurityConfig {
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOriginPatterns(Arrays.asList("*"));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true);
 
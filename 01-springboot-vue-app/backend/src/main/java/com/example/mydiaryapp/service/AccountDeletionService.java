@@ -0,0 +1,319 @@
+package com.example.mydiaryapp.service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.mydiaryapp.config.ShardContext;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.entity.AccountDeletion;
+import com.example.mydiaryapp.entity.User;
+import com.example.mydiaryapp.repository.AccountDeletionRepository;
+import com.example.mydiaryapp.repository.ArchivedDiaryRepository;
+import com.example.mydiaryapp.repository.DiaryRepository;
+import com.example.mydiaryapp.repository.DiaryRevisionRepository;
+import com.example.mydiaryapp.repository.IdempotencyRecordRepository;
+import com.example.mydiaryapp.repository.TagUsageRepository;
+import com.example.mydiaryapp.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * アカウントの削除を受け付け、ユーザーのデータをバックグラウンドで削除するサービスクラスです。
+ *
+ * <ul>
+ *   <li>受付時はユーザーに削除日時を設定するだけで、以降の認証とログインを拒否します。</li>
+ *   <li>日記は一定件数ずつIDを取得し、画像ファイル・変更履歴・タグの関連・画像・日記の順に
+ *       主キーを指定して削除します。1回のトランザクションでロックする行数を抑えるため、
+ *       エンティティの関連（cascade）による削除は使用しません。アーカイブ済みの日記も同様に削除します。</li>
+ *   <li>削除した件数は account_deletions に記録し、一定件数ごとにリースを延長します。
+ *       途中で停止した場合は、リースの期限切れ後にいずれかのインスタンスが残りの日記から再開します。</li>
+ *   <li>日記を削除し終えたら、Idempotency-Key の記録、シャードの配置とユーザー情報を削除します。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class AccountDeletionService {
+    private static final int RESUME_LIMIT = 100;
+
+    private final UserRepository userRepository;
+    private final DiaryRepository diaryRepository;
+    private final ArchivedDiaryRepository archivedDiaryRepository;
+    private final DiaryRevisionRepository revisionRepository;
+    private final TagUsageRepository tagUsageRepository;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final AccountDeletionRepository deletionRepository;
+    private final ImageService imageService;
+    private final DraftService draftService;
+    private final IdempotencyService idempotencyService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<ReminderService> reminderService;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "account-deletion");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 実行待ちのユーザー（同じユーザーを重ねて登録しないため）
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final Counter completed;
+    private final Counter failed;
+
+    @Value("${diary.account-deletion.batch-size:200}")
+    private int batchSize;
+
+    @Value("${diary.account-deletion.lease-seconds:300}")
+    private int leaseSeconds;
+
+    @Value("${diary.account-deletion.pause-ms:50}")
+    private long pauseMillis;
+
+    public AccountDeletionService(UserRepository userRepository,
+                                  DiaryRepository diaryRepository,
+                                  ArchivedDiaryRepository archivedDiaryRepository,
+                                  DiaryRevisionRepository revisionRepository,
+                                  TagUsageRepository tagUsageRepository,
+                                  IdempotencyRecordRepository idempotencyRecordRepository,
+                                  AccountDeletionRepository deletionRepository,
+                                  ImageService imageService,
+                                  DraftService draftService,
+                                  IdempotencyService idempotencyService,
+                                  ShardRouter shardRouter,
+                                  TransactionTemplate transactionTemplate,
+                                  ObjectProvider<ReminderService> reminderService,
+                                  MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.diaryRepository = diaryRepository;
+        this.archivedDiaryRepository = archivedDiaryRepository;
+        this.revisionRepository = revisionRepository;
+        this.tagUsageRepository = tagUsageRepository;
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.deletionRepository = deletionRepository;
+        this.imageService = imageService;
+        this.draftService = draftService;
+        this.idempotencyService = idempotencyService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = transactionTemplate;
+        this.reminderService = reminderService;
+        this.completed = meterRegistry.counter("diary.account.deletions", "result", "completed");
+        this.failed = meterRegistry.counter("diary.account.deletions", "result", "failed");
+    }
+
+    /**
+     * アカウントの削除を受け付けます。
+     * ユーザーに削除日時を設定してリマインダーを解除し、データの削除をバックグラウンドで開始します。
+     * 削除を受け付け済みの場合は、最初に受け付けた日時を返します。
+     * @param userId ユーザーID
+     * @return 削除の状態と受付日時を含むMap
+     * @throws RuntimeException ユーザーが見つからない場合
+     */
+    public Map<String, Object> requestDeletion(String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime requestedAt = ShardContext.call(shardRouter.getDirectoryShard(), () ->
+            transactionTemplate.execute(status -> {
+                User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
+                if (user.getDeletedAt() != null) {
+                    return user.getDeletedAt();
+                }
+                user.setDeletedAt(now);
+                user.setReminderTime(null);
+                deletionRepository.save(new AccountDeletion(userId, now, null, null, 0, 0, now));
+                return now;
+            }));
+        reminderService.ifAvailable(service -> service.reschedule(userId, null));
+        draftService.discardAll(userId);
+        submit(userId);
+        log.info("Accepted account deletion of user {}", userId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "deleting");
+        response.put("requestedAt", requestedAt.toString());
+        return response;
+    }
+
+    /**
+     * まだ開始していない削除と、リースの期限が切れた（実行中のインスタンスが停止した）削除を再開します。
+     */
+    @Scheduled(fixedDelayString = "${diary.account-deletion.resume-interval-ms:60000}")
+    public void resumePending() {
+        try {
+            List<String> userIds = ShardContext.call(shardRouter.getDirectoryShard(), () ->
+                deletionRepository.findClaimable(LocalDateTime.now(), PageRequest.of(0, RESUME_LIMIT)));
+            userIds.forEach(this::submit);
+        } catch (RuntimeException e) {
+            log.error("Failed to look up pending account deletions", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void submit(String userId) {
+        if (queued.add(userId)) {
+            worker.execute(() -> {
+                queued.remove(userId);
+                process(userId);
+            });
+        }
+    }
+
+    /**
+     * リースを取得できた場合に、ユーザーのデータを削除します。
+     * 削除中に別のシャードへ移動された場合は、移動先のシャードでも削除します。
+     */
+    private void process(String userId) {
+        String directory = shardRouter.getDirectoryShard();
+        Integer claimed = ShardContext.call(directory, () -> transactionTemplate.execute(status ->
+            deletionRepository.tryClaim(userId, owner, leaseUntil(), LocalDateTime.now())));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        try {
+            String shard;
+            do {
+                if (shardRouter.isMoving(userId)) {
+                    // 移動が終わってからリースの期限切れ後に再開する
+                    log.info("Postponing account deletion of user {} until its shard move finishes", userId);
+                    return;
+                }
+                shard = shardRouter.shardFor(userId);
+                while (deleteChunk(userId, shard, false)) {
+                    pause();
+                }
+                while (deleteChunk(userId, shard, true)) {
+                    pause();
+                }
+            } while (!shard.equals(shardRouter.shardFor(userId)));
+
+            deleteUser(userId, shard);
+            completed.increment();
+            log.info("Deleted account of user {} in {} ms", userId, System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.error("Failed to delete account of user {}; it will be resumed after the lease expires", userId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 日記またはアーカイブ済みの日記を一定件数削除し、進捗を記録します。
+     * @return まだ削除する日記が残っている可能性がある場合 true
+     */
+    private boolean deleteChunk(String userId, String shard, boolean archived) {
+        Chunk chunk = ShardContext.call(shard, () -> transactionTemplate.execute(status ->
+            archived ? deleteArchivedDiaries(userId) : deleteDiaries(userId)));
+        if (chunk.getDiaries() == 0) {
+            return false;
+        }
+        Integer recorded = ShardContext.call(shardRouter.getDirectoryShard(), () ->
+            transactionTemplate.execute(status -> deletionRepository.recordProgress(
+                userId, owner, chunk.getDiaries(), chunk.getImages(), leaseUntil(), LocalDateTime.now())));
+        if (recorded == null || recorded == 0) {
+            throw new IllegalStateException("Lost the deletion lease of user " + userId);
+        }
+        return chunk.getDiaries() == batchSize;
+    }
+
+    /**
+     * 日記を一定件数削除します。
+     * IDの取得はロックを取らない読み取りで行い、削除は主キーを指定して取得した行だけをロックします。
+     * 画像ファイルは行より先に削除するため、途中で停止しても再開時に同じ行から削除し直せます。
+     */
+    private Chunk deleteDiaries(String userId) {
+        List<String> ids = diaryRepository.findIdsByUserId(userId, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return new Chunk(0, 0);
+        }
+        List<String> urls = diaryRepository.findImageUrlsByDiaryIdIn(ids);
+        imageService.deleteFromStorage(urls);
+        revisionRepository.deleteByDiaryIdIn(ids);
+        diaryRepository.deleteTagLinksByDiaryIdIn(ids);
+        diaryRepository.deleteImagesByDiaryIdIn(ids);
+        return new Chunk(diaryRepository.deleteByIdIn(ids), urls.size());
+    }
+
+    /**
+     * アーカイブ済みの日記を一定件数削除します。手順は日記テーブルと同じです。
+     */
+    private Chunk deleteArchivedDiaries(String userId) {
+        List<String> ids = archivedDiaryRepository.findIdsByUserId(userId, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return new Chunk(0, 0);
+        }
+        List<String> urls = archivedDiaryRepository.findImageUrlsByDiaryIdIn(ids);
+        imageService.deleteFromStorage(urls);
+        archivedDiaryRepository.deleteTagsByDiaryIdIn(ids);
+        archivedDiaryRepository.deleteImagesByDiaryIdIn(ids);
+        archivedDiaryRepository.deleteRevisionsByDiaryIdIn(ids);
+        return new Chunk(archivedDiaryRepository.deleteByIdIn(ids), urls.size());
+    }
+
+    /**
+     * 日記を削除し終えたユーザーのタグの使用件数・Idempotency-Key の記録と複製、シャードの配置、
+     * ディレクトリシャードのユーザー情報と進捗を削除します。メモリに保持しているキーの結果も削除します。
+     * 削除の途中で日記が追加されていた場合は外部キーの制約で失敗し、リースの期限切れ後に再開されます。
+     */
+    private void deleteUser(String userId, String shard) {
+        String directory = shardRouter.getDirectoryShard();
+        ShardContext.run(shard, () -> transactionTemplate.execute(status -> {
+            tagUsageRepository.deleteByUserId(userId);
+            idempotencyRecordRepository.deleteByUserId(userId);
+            return shard.equals(directory) ? 0 : userRepository.deleteRowById(userId);
+        }));
+        idempotencyService.evictUser(userId);
+        shardRouter.removePlacement(userId);
+        ShardContext.run(directory, () -> transactionTemplate.execute(status -> {
+            userRepository.deleteRowById(userId);
+            deletionRepository.deleteById(userId);
+            return null;
+        }));
+    }
+
+    private LocalDateTime leaseUntil() {
+        return LocalDateTime.now().plusSeconds(leaseSeconds);
+    }
+
+    /**
+     * 他のトランザクションが同じテーブルの行をロックできるよう、一定件数ごとに間隔を空けます。
+     */
+    private void pause() throws InterruptedException {
+        if (pauseMillis > 0) {
+            Thread.sleep(pauseMillis);
+        }
+    }
+
+    /**
+     * 1回の削除で削除した件数を表すクラスです。
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class Chunk {
+        private final int diaries;
+        private final int images;
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.mydiaryapp.config.ShardContext;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.entity.ArchivedDiary;
+import com.example.mydiaryapp.entity.Diary;
+import com.example.mydiaryapp.entity.Tag;
+import com.example.mydiaryapp.repository.ArchivedDiaryRepository;
+import com.example.mydiaryapp.repository.DiaryRepository;
+import com.example.mydiaryapp.repository.DiaryRevisionRepository;
+import com.example.mydiaryapp.repository.TagRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 長期間更新されていない日記をアーカイブテーブルへ移動し、参照できるようにするサービスクラスです。
+ * 日記テーブルとその索引を直近の日記だけの大きさに保つため、定期的に古い日記を移動します。
+ * アーカイブ済みの日記も詳細取得と一覧・検索の対象になり、更新・削除する場合は日記テーブルに戻します。
+ * 変更履歴もアーカイブテーブルへ移動し、日記を戻す際に一緒に戻します。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveService {
+    private final DiaryRepository diaryRepository;
+    private final ArchivedDiaryRepository archivedDiaryRepository;
+    private final DiaryRevisionRepository revisionRepository;
+    private final TagRepository tagRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${diary.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${diary.archive.after-days:730}")
+    private int afterDays;
+
+    @Value("${diary.archive.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * すべてのシャードで、作成・更新から一定日数が経過した日記をアーカイブします。
+     */
+    @Scheduled(cron = "${diary.archive.cron:0 0 4 * * *}")
+    public void archiveOldDiaries() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+        for (String shard : shardRouter.getShardNames()) {
+            try {
+                int archived = ShardContext.call(shard, () -> archiveBefore(cutoff));
+                if (archived > 0) {
+                    log.info("Archived {} diaries not updated since {} on shard {}", archived, cutoff, shard);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to archive diaries on shard {}", shard, e);
+            }
+        }
+    }
+
+    /**
+     * 作成日時・更新日時がともに基準日時より古い日記をアーカイブします。
+     * ロックを短く保つため、一定件数ごとに別のトランザクションで移動します。
+     * @param cutoff 基準日時
+     * @return アーカイブした件数
+     */
+    public int archiveBefore(LocalDateTime cutoff) {
+        int total = 0;
+        while (true) {
+            Integer archived = transactionTemplate.execute(status -> {
+                List<String> ids = diaryRepository.findIdsNotUpdatedSince(cutoff, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                archivedDiaryRepository.archiveDiaries(ids);
+                archivedDiaryRepository.archiveTags(ids);
+                archivedDiaryRepository.archiveImages(ids);
+                archivedDiaryRepository.archiveRevisions(ids);
+                revisionRepository.deleteByDiaryIdIn(ids);
+                diaryRepository.deleteTagLinksByDiaryIdIn(ids);
+                diaryRepository.deleteImagesByDiaryIdIn(ids);
+                return diaryRepository.deleteByIdIn(ids);
+            });
+            total += archived;
+            if (archived < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * 指定ユーザーにアーカイブ済みの日記があるかを判定します。
+     * アーカイブのないユーザーの一覧取得では、アーカイブテーブルを検索しないために使用します。
+     * @param userId ユーザーID
+     * @return アーカイブ済みの日記がある場合 true
+     */
+    public boolean hasArchived(String userId) {
+        return archivedDiaryRepository.existsByUserId(userId);
+    }
+
+    /**
+     * アーカイブ済み日記の詳細を取得します。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     * @return 日記詳細を含むMap（アーカイブにない場合は空）
+     */
+    public Optional<Map<String, Object>> getDiary(String userId, String diaryId) {
+        return archivedDiaryRepository.findByIdAndUserId(diaryId, userId).map(this::convertToDetailMap);
+    }
+
+    /**
+     * 一覧・検索の条件に一致するアーカイブ済み日記を作成日時降順で取得します。
+     * 条件の優先順位は日記テーブルの検索と同じです。
+     * @param userId ユーザーID
+     * @param keyword 検索キーワード(任意)
+     * @param tagName フィルタ用タグ名(任意)
+     * @param startDate 月フィルタの開始日時(任意)
+     * @param endDate 月フィルタの終了日時(任意)
+     * @param skip 読み飛ばす件数
+     * @param count 取得件数（0の場合は件数のみ取得）
+     * @return 条件に一致する件数と、取得した日記のリスト
+     */
+    public ArchivedPage findDiaries(String userId, String keyword, String tagName,
+                                    LocalDateTime startDate, LocalDateTime endDate, long skip, int count) {
+        Function<Pageable, Page<ArchivedDiary>> query;
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            query = pageable -> archivedDiaryRepository.findByUserIdAndKeyword(userId, keyword, pageable);
+        } else if (tagName != null && !tagName.trim().isEmpty()) {
+            query = pageable -> archivedDiaryRepository.findByUserIdAndTag(userId, tagName, pageable);
+        } else if (startDate != null) {
+            query = pageable -> archivedDiaryRepository.findByUserIdAndMonth(userId, startDate, endDate, pageable);
+        } else {
+            query = pageable -> archivedDiaryRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+        }
+
+        if (count == 0) {
+            return new ArchivedPage(query.apply(PageRequest.of(0, 1)).getTotalElements(), List.of());
+        }
+        // skip が count の倍数でない場合は、隣り合う2ページから切り出す
+        int pageNumber = (int) (skip / count);
+        int offset = (int) (skip % count);
+        Page<ArchivedDiary> first = query.apply(PageRequest.of(pageNumber, count));
+        List<ArchivedDiary> rows = new ArrayList<>(first.getContent().subList(
+            Math.min(offset, first.getNumberOfElements()), first.getNumberOfElements()));
+        if (offset > 0 && first.hasNext()) {
+            List<ArchivedDiary> next = query.apply(PageRequest.of(pageNumber + 1, count)).getContent();
+            rows.addAll(next.subList(0, Math.min(offset, next.size())));
+        }
+        return new ArchivedPage(first.getTotalElements(),
+            rows.stream().map(this::convertToMap).collect(Collectors.toList()));
+    }
+
+    /**
+     * アーカイブ済み日記を日記テーブルに戻します。更新・削除の前に呼び出します。
+     * アーカイブ後に削除されたタグは作成し直し、変更履歴も戻します。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     * @return 戻した日記エンティティ（アーカイブにない場合は空）
+     */
+    public Optional<Diary> restore(String userId, String diaryId) {
+        Optional<ArchivedDiary> archived = archivedDiaryRepository.findByIdAndUserId(diaryId, userId);
+        if (archived.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Set<String> tagNames = archived.get().getTags();
+        if (!tagNames.isEmpty()) {
+            Set<String> existing = tagRepository.findByNameIn(tagNames).stream()
+                .map(Tag::getName)
+                .collect(Collectors.toSet());
+            for (String tagName : tagNames) {
+                if (!existing.contains(tagName)) {
+                    Tag newTag = new Tag();
+                    newTag.setName(tagName);
+                    tagRepository.save(newTag);
+                }
+            }
+        }
+        archivedDiaryRepository.restoreDiary(diaryId);
+        archivedDiaryRepository.restoreTags(diaryId);
+        archivedDiaryRepository.restoreImages(diaryId);
+        archivedDiaryRepository.restoreRevisions(diaryId);
+        archivedDiaryRepository.delete(archived.get());
+        return diaryRepository.findById(diaryId);
+    }
+
+    /**
+     * 一括操作の対象となるアーカイブ済み日記のIDを取得します。
+     * アーカイブのないユーザーの場合はアーカイブテーブルを検索しません。
+     * @param userId ユーザーID
+     * @param ids 日記IDのリスト（null の場合は絞り込まない）
+     * @param tag タグ名（任意）
+     * @param start 作成日時の開始（任意）
+     * @param end 作成日時の終了（exclusive）
+     * @param limit 取得件数
+     * @return 日記IDのリスト
+     */
+    public List<String> findIdsForBulk(String userId, Collection<String> ids, String tag,
+                                       LocalDateTime start, LocalDateTime end, int limit) {
+        if (limit <= 0 || !hasArchived(userId)) {
+            return List.of();
+        }
+        return archivedDiaryRepository.findIdsForBulk(userId, ids == null, ids == null ? List.of("") : ids,
+            tag, start, end, limit);
+    }
+
+    /**
+     * アーカイブ済み日記に付いているタグの名前を重複なしで取得します。
+     * @param ids 日記IDのリスト
+     * @return タグ名のリスト
+     */
+    public List<String> findTagNames(Collection<String> ids) {
+        return archivedDiaryRepository.findTagNamesByDiaryIdIn(ids);
+    }
+
+    /**
+     * アーカイブ済み日記をまとめて削除します。
+     * @param ids ユーザーの所有を確認済みの日記IDのリスト
+     * @return 削除した日記の画像のURL（ストレージからの削除用）
+     */
+    public List<String> deleteForBulk(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<String> urls = archivedDiaryRepository.findImageUrlsByDiaryIdIn(ids);
+        archivedDiaryRepository.deleteTagsByDiaryIdIn(ids);
+        archivedDiaryRepository.deleteImagesByDiaryIdIn(ids);
+        archivedDiaryRepository.deleteRevisionsByDiaryIdIn(ids);
+        archivedDiaryRepository.deleteByIdIn(ids);
+        return urls;
+    }
+
+    /**
+     * アーカイブ済み日記のタグをまとめて変更します。タグは名前で保持するため、タグテーブルは更新しません。
+     * @param ids ユーザーの所有を確認済みの日記IDのリスト
+     * @param addTags 追加するタグ名
+     * @param removeTags 外すタグ名
+     */
+    public void retagForBulk(Collection<String> ids, Set<String> addTags, Set<String> removeTags) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (!removeTags.isEmpty()) {
+            archivedDiaryRepository.deleteTagsByName(ids, removeTags);
+        }
+        for (String tagName : addTags) {
+            archivedDiaryRepository.insertTag(ids, tagName);
+        }
+    }
+
+    private Map<String, Object> convertToMap(ArchivedDiary diary) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("diaryId", diary.getId());
+        map.put("title", diary.getTitle());
+        map.put("createdAt", diary.getCreatedAt().toString());
+        map.put("emotion", diary.getEmotion());
+        map.put("tags", new ArrayList<>(diary.getTags()));
+        map.put("archived", true);
+        return map;
+    }
+
+    private Map<String, Object> convertToDetailMap(ArchivedDiary diary) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("diaryId", diary.getId());
+        map.put("title", diary.getTitle());
+        map.put("content", diary.getContent());
+        map.put("emotion", diary.getEmotion());
+        map.put("createdAt", diary.getCreatedAt().toString());
+        map.put("updatedAt", diary.getUpdatedAt().toString());
+        map.put("tags", new ArrayList<>(diary.getTags()));
+        map.put("images", diary.getImages().stream()
+            .map(image -> {
+                Map<String, Object> imageMap = new HashMap<>();
+                imageMap.put("imageId", image.getImageId());
+                imageMap.put("url", image.getUrl());
+                return imageMap;
+            })
+            .collect(Collectors.toList()));
+        map.put("archived", true);
+        return map;
+    }
+
+    /**
+     * アーカイブ済み日記の検索結果を表すクラスです。
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ArchivedPage {
+        /** 条件に一致する件数。 */
+        private final long total;
+        private final List<Map<String, Object>> diaries;
+    }
+}
@@ -1,93 +1,153 @@
 package com.example.mydiaryapp.service;
 
+import com.example.mydiaryapp.config.ShardRouter;
 import com.example.mydiaryapp.dto.AuthRequest;
 import com.example.mydiaryapp.dto.RegisterRequest;
 import com.example.mydiaryapp.entity.User;
 import com.example.mydiaryapp.repository.UserRepository;
+import com.example.mydiaryapp.security.CustomUserDetails;
+import com.example.mydiaryapp.security.CustomUserDetailsService;
 import com.example.mydiaryapp.security.JwtUtil;
+import com.example.mydiaryapp.security.PasswordHasher;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 認証および登録に関するビジネスロジックを提供するサービスクラスです。
  * ユーザーの登録、ログイン処理を担当し、JWTトークンを生成します。
+ * パスワードのハッシュ化と照合は {@link PasswordHasher} の専用スレッドで行うため、結果は CompletableFuture で返します。
+ * ハッシュ化の後の処理（ユーザーの保存、トークンの生成）もそのスレッドで続けて実行します。
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AuthService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final CustomUserDetailsService userDetailsService;
+    private final PasswordHasher passwordHasher;
+    private final TransactionTemplate transactionTemplate;
     private final JwtUtil jwtUtil;
+    private final ShardRouter shardRouter;
 
     /**
      * 新規ユーザー登録処理を実行します。
-     * - メールアドレスとユーザー名の重複チェック
      * - パスワードのハッシュ化
-     * - ユーザー情報の保存とJWTトークン生成
+     * - ユーザー情報の保存（メールアドレスとユーザー名の重複は、事前に確認せず一意制約の違反で判定します）
+     * - 日記を保存するシャードへの配置とJWTトークン生成
      * @param request ユーザー名、メールアドレス、パスワードを含む登録情報DTO
-     * @return 登録結果としてユーザーID、ユーザー名、メールアドレス、JWTトークンを含むMap
-     * @throws RuntimeException 登録時にメールアドレスまたはユーザー名が重複している場合
+     * @return 登録結果としてユーザーID、ユーザー名、メールアドレス、JWTトークンを含むMap。
+     *         メールアドレスまたはユーザー名が重複している場合は RuntimeException、
+     *         ハッシュ化の待ち行列が満杯の場合は {@link RejectedExecutionException} で失敗します
      */
-    public Map<String, Object> register(RegisterRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("このメールアドレスは既に使用されています");
-        }
-        
-        if (userRepository.existsByUsername(request.getUsername())) {
-            throw new RuntimeException("このユーザー名は既に使用されています");
-        }
+    public CompletableFuture<Map<String, Object>> register(RegisterRequest request) {
+        return passwordHasher.encode(request.getPassword()).thenApply(passwordHash -> {
+            User user = new User();
+            user.setUsername(request.getUsername());
+            user.setEmail(request.getEmail());
+            user.setPasswordHash(passwordHash);
 
-        User user = new User();
-        user.setUsername(request.getUsername());
-        user.setEmail(request.getEmail());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
-        
-        User savedUser = userRepository.save(user);
-        String token = jwtUtil.generateToken(savedUser.getEmail());
+            User savedUser = insert(user);
+            shardRouter.assignNewUser(savedUser.getId());
+            String token = jwtUtil.generateToken(savedUser.getEmail());
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("userId", savedUser.getId());
-        response.put("username", savedUser.getUsername());
-        response.put("email", savedUser.getEmail());
-        response.put("token", token);
-        
-        return response;
+            Map<String, Object> response = new HashMap<>();
+            response.put("userId", savedUser.getId());
+            response.put("username", savedUser.getUsername());
+            response.put("email", savedUser.getEmail());
+            response.put("token", token);
+
+            return response;
+        });
     }
 
     /**
      * ログイン認証を実行し、JWTトークンを発行します。
-     * - 認証マネージャによる認証
-     * - ユーザー情報の取得
+     * - ユーザー情報の取得（リクエストのスレッドで実行）
+     * - パスワードの照合
+     * - ハッシュ値が現在の設定より弱い場合は、バックグラウンドで作成し直します
      * - JWTトークン生成
      * @param request メールアドレスとパスワードを含む認証情報DTO
-     * @return 認証結果としてユーザーID、ユーザー名、JWTトークンを含むMap
-     * @throws RuntimeException 認証失敗やユーザーが見つからない場合
+     * @return 認証結果としてユーザーID、ユーザー名、JWTトークンを含むMap。
+     *         認証に失敗した場合は RuntimeException、
+     *         照合の待ち行列が満杯の場合は {@link RejectedExecutionException} で失敗します
      */
-    public Map<String, Object> login(AuthRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
+    public CompletableFuture<Map<String, Object>> login(AuthRequest request) {
+        CustomUserDetails userDetails = findUser(request.getEmail());
+        String passwordHash = userDetails != null ? userDetails.getPassword() : null;
+        return passwordHasher.matches(request.getPassword(), passwordHash).thenApply(matched -> {
+            if (!matched) {
+                throw new BadCredentialsException("メールアドレスまたはパスワードが正しくありません");
+            }
+            if (!userDetails.isEnabled()) {
+                throw new DisabledException("アカウントは削除されています");
+            }
+
+            User user = userDetails.getUser();
+            if (passwordHasher.upgradeEncoding(passwordHash)) {
+                upgradePasswordHash(user.getId(), passwordHash, request.getPassword());
+            }
+            String token = jwtUtil.generateToken(user.getEmail());
 
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        User user = userRepository.findByEmail(userDetails.getUsername())
-            .orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
+            Map<String, Object> response = new HashMap<>();
+            response.put("userId", user.getId());
+            response.put("username", user.getUsername());
+            response.put("token", token);
 
-        String token = jwtUtil.generateToken(user.getEmail());
+            return response;
+        });
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("userId", user.getId());
-        response.put("username", user.getUsername());
-        response.put("token", token);
-        
-        return response;
+    /**
+     * ユーザーを1回のINSERTで保存し、一意制約の違反を重複のエラーに変換します。
+     */
+    private User insert(User user) {
+        try {
+            return transactionTemplate.execute(status -> userRepository.saveAndFlush(user));
+        } catch (DataIntegrityViolationException e) {
+            // MySQL のメッセージは "Duplicate entry '...' for key 'users.idx_users_email'" の形式で、違反した制約名で終わります
+            String detail = String.valueOf(e.getMostSpecificCause().getMessage());
+            if (detail.endsWith(User.EMAIL_CONSTRAINT + "'")) {
+                throw new RuntimeException("このメールアドレスは既に使用されています");
+            }
+            if (detail.endsWith(User.USERNAME_CONSTRAINT + "'")) {
+                throw new RuntimeException("このユーザー名は既に使用されています");
+            }
+            throw e;
+        }
+    }
+
+    private CustomUserDetails findUser(String email) {
+        try {
+            return (CustomUserDetails) userDetailsService.loadUserByUsername(email);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 現在の設定でハッシュ値を作成し直して保存します。ログインのレスポンスは待たせず、
+     * ハッシュ化の待ち行列が満杯の場合は次回のログインに持ち越します。
+     */
+    private void upgradePasswordHash(String userId, String currentHash, String rawPassword) {
+        passwordHasher.encode(rawPassword)
+            .thenAccept(newHash -> transactionTemplate.executeWithoutResult(status ->
+                userRepository.replacePasswordHash(userId, currentHash, newHash)))
+            .exceptionally(e -> {
+                if (!(e.getCause() instanceof RejectedExecutionException)) {
+                    log.warn("Failed to upgrade password hash for user {}", userId, e);
+                }
+                return null;
+            });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,211 @@
+package com.example.mydiaryapp.service;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * バイト列同士の差分（デルタ）を生成・適用するユーティリティクラスです。
+ * 差分は元データからのコピー命令(COPY)と新規データの追加命令(ADD)の列で表現します。
+ * 共通の先頭・末尾を除いたうえで、元データを固定長ブロック単位でハッシュ索引し、
+ * ローリングハッシュで一致箇所を探すため、差分の大きさは変更量にほぼ比例します。
+ *
+ * 形式: [変更後の長さ(varint)] { [COPY(1) 位置(varint) 長さ(varint)] | [ADD(2) 長さ(varint) バイト列] }*
+ */
+final class BinaryDelta {
+    private static final int BLOCK = 16;
+    private static final int PRIME = 0x01000193;
+    private static final int PRIME_POW = pow(PRIME, BLOCK - 1);
+    private static final byte OP_COPY = 1;
+    private static final byte OP_ADD = 2;
+
+    private BinaryDelta() {
+    }
+
+    /**
+     * 変更前のバイト列から変更後のバイト列を再現する差分を生成します。
+     * @param source 変更前のバイト列
+     * @param target 変更後のバイト列
+     * @return 差分のバイト列
+     */
+    static byte[] encode(byte[] source, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, target.length);
+
+        int max = Math.min(source.length, target.length);
+        int prefix = 0;
+        while (prefix < max && source[prefix] == target[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && source[source.length - 1 - suffix] == target[target.length - 1 - suffix]) {
+            suffix++;
+        }
+
+        if (prefix > 0) {
+            writeCopy(out, 0, prefix);
+        }
+
+        int end = target.length - suffix;
+        int[] index = buildIndex(source);
+        int addStart = prefix;
+        int i = prefix;
+        int hash = i + BLOCK <= end ? hash(target, i) : 0;
+        while (i + BLOCK <= end) {
+            int candidate = index.length == 0 ? -1 : index[hash & (index.length - 1)] - 1;
+            if (candidate >= 0 && regionEquals(source, candidate, target, i, BLOCK)) {
+                // 一致を前後に伸ばす
+                int matchSource = candidate;
+                int matchTarget = i;
+                while (matchTarget > addStart && matchSource > 0
+                        && source[matchSource - 1] == target[matchTarget - 1]) {
+                    matchSource--;
+                    matchTarget--;
+                }
+                int length = i + BLOCK - matchTarget;
+                while (matchTarget + length < end && matchSource + length < source.length
+                        && source[matchSource + length] == target[matchTarget + length]) {
+                    length++;
+                }
+
+                if (matchTarget > addStart) {
+                    writeAdd(out, target, addStart, matchTarget - addStart);
+                }
+                writeCopy(out, matchSource, length);
+                i = matchTarget + length;
+                addStart = i;
+                if (i + BLOCK <= end) {
+                    hash = hash(target, i);
+                }
+                continue;
+            }
+            if (i + BLOCK < end) {
+                hash = roll(hash, target[i], target[i + BLOCK]);
+            }
+            i++;
+        }
+        if (end > addStart) {
+            writeAdd(out, target, addStart, end - addStart);
+        }
+
+        if (suffix > 0) {
+            writeCopy(out, source.length - suffix, suffix);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 変更前のバイト列に差分を適用し、変更後のバイト列を復元します。
+     * @param source 変更前のバイト列
+     * @param delta {@link #encode} で生成した差分
+     * @return 変更後のバイト列
+     * @throws IllegalArgumentException 差分の形式が不正な場合
+     */
+    static byte[] apply(byte[] source, byte[] delta) {
+        int[] pos = {0};
+        int length = readVarint(delta, pos);
+        byte[] result = new byte[length];
+        int written = 0;
+        while (pos[0] < delta.length) {
+            byte op = delta[pos[0]++];
+            if (op == OP_COPY) {
+                int offset = readVarint(delta, pos);
+                int count = readVarint(delta, pos);
+                System.arraycopy(source, offset, result, written, count);
+                written += count;
+            } else if (op == OP_ADD) {
+                int count = readVarint(delta, pos);
+                System.arraycopy(delta, pos[0], result, written, count);
+                pos[0] += count;
+                written += count;
+            } else {
+                throw new IllegalArgumentException("Unknown delta op: " + op);
+            }
+        }
+        if (written != length) {
+            throw new IllegalArgumentException("Delta produced " + written + " bytes, expected " + length);
+        }
+        return result;
+    }
+
+    /**
+     * 元データのブロック境界ごとのハッシュ索引を作成します。
+     * 値は「位置 + 1」で、0は空きを表します。
+     */
+    private static int[] buildIndex(byte[] source) {
+        int blocks = source.length / BLOCK;
+        if (blocks == 0) {
+            return new int[0];
+        }
+        int size = Integer.highestOneBit(blocks * 2 - 1) << 1;
+        int[] index = new int[size];
+        for (int b = 0; b < blocks; b++) {
+            int offset = b * BLOCK;
+            index[hash(source, offset) & (size - 1)] = offset + 1;
+        }
+        return index;
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int h = 0;
+        for (int k = 0; k < BLOCK; k++) {
+            h = h * PRIME + (data[offset + k] & 0xff);
+        }
+        return h;
+    }
+
+    private static int roll(int hash, byte out, byte in) {
+        return (hash - (out & 0xff) * PRIME_POW) * PRIME + (in & 0xff);
+    }
+
+    private static int pow(int base, int exponent) {
+        int result = 1;
+        for (int k = 0; k < exponent; k++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    private static boolean regionEquals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        if (aOffset + length > a.length || bOffset + length > b.length) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (a[aOffset + k] != b[bOffset + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeCopy(ByteArrayOutputStream out, int offset, int length) {
+        out.write(OP_COPY);
+        writeVarint(out, offset);
+        writeVarint(out, length);
+    }
+
+    private static void writeAdd(ByteArrayOutputStream out, byte[] data, int offset, int length) {
+        out.write(OP_ADD);
+        writeVarint(out, length);
+        out.write(data, offset, length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos[0]++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.mydiaryapp.service;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 日記をSQLでまとめて削除・変更したことを通知するアプリケーションイベントです。
+ * 日記ごとの {@link DiaryChangedEvent} を発行しない一括処理で、{@link DiaryService} がトランザクション内で発行します。
+ */
+@Getter
+@AllArgsConstructor
+public class DiaryBulkChangedEvent {
+    private final String userId;
+
+    /** 削除・変更した日記のID（アーカイブ済みの日記を含む）。 */
+    private final List<String> diaryIds;
+}
@@ -0,0 +1,32 @@
+package com.example.mydiaryapp.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 日記が作成・更新・削除されたことを通知するアプリケーションイベントです。
+ * DiaryService がトランザクション内で発行し、履歴の記録などの後続処理が購読します。
+ */
+@Getter
+@AllArgsConstructor
+public class DiaryChangedEvent {
+    /**
+     * 変更の種別。
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final String userId;
+    private final String diaryId;
+
+    /** 変更後のタイトル（削除時は null）。 */
+    private final String title;
+
+    /** 変更後の本文（削除時は null）。 */
+    private final String content;
+
+    /** 変更後の感情状態（削除時は null）。 */
+    private final String emotion;
+}
@@ -0,0 +1,151 @@
+package com.example.mydiaryapp.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 同じユーザーの同じ条件の日記の読み取りが同時に届いた場合に、1回の取得結果を共有するサービスクラスです。
+ * 画面の読み込み時や再接続時に、複数のコンポーネント・タブから同じ一覧・詳細の取得が重なっても、
+ * データベースへの問い合わせは1回になります。
+ *
+ * <ul>
+ *   <li>最初のリクエストが {@link DiaryService} で取得し、取得中に届いた同じ条件のリクエストはその完了を待って
+ *       同じ結果（例外の場合は同じ例外）を返します。取得が終わった結果は保持しません。</li>
+ *   <li>日記の書き込みがコミットされると、そのユーザーの取得中の結果は共有をやめます。
+ *       書き込みの後に届いたリクエストは、書き込み前に始まった取得を待たずに取得し直します。</li>
+ * </ul>
+ * 共有した結果は複数のリクエストで同時にレスポンスに変換するため、呼び出し元で変更しないでください。
+ */
+@Service
+public class DiaryReadCoalescer {
+    private final DiaryService diaryService;
+    private final boolean enabled;
+    private final Map<FlightKey, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter joined;
+
+    public DiaryReadCoalescer(DiaryService diaryService,
+                              MeterRegistry meterRegistry,
+                              @Value("${diary.read-coalescing.enabled:true}") boolean enabled) {
+        this.diaryService = diaryService;
+        this.enabled = enabled;
+        this.leaders = meterRegistry.counter("diary.read.coalescing", "result", "leader");
+        this.joined = meterRegistry.counter("diary.read.coalescing", "result", "joined");
+        meterRegistry.gaugeMapSize("diary.read.in-flight", List.of(), inFlight);
+    }
+
+    /**
+     * 日記一覧を取得します。同じ条件の取得が実行中の場合はその結果を共有します。
+     * 引数は {@link DiaryService#getDiaries} と同じです。
+     * @return 日記リストとページ情報を含むMap
+     */
+    public Map<String, Object> getDiaries(String userId, String keyword, String tagName,
+                                          String month, int page, int limit) {
+        return coalesce(userId, Arrays.asList("list", keyword, tagName, month, page, limit),
+            () -> diaryService.getDiaries(userId, keyword, tagName, month, page, limit));
+    }
+
+    /**
+     * 日記の詳細を取得します。同じ日記の取得が実行中の場合はその結果を共有します。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     * @return 日記詳細を含むMap
+     */
+    public Map<String, Object> getDiary(String userId, String diaryId) {
+        return coalesce(userId, Arrays.asList("detail", diaryId), () -> diaryService.getDiary(userId, diaryId));
+    }
+
+    /**
+     * 日記の作成・更新・削除のコミット後に、そのユーザーの取得中の結果の共有をやめます。
+     * @param event 日記の変更イベント
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDiaryChanged(DiaryChangedEvent event) {
+        invalidate(event.getUserId());
+    }
+
+    /**
+     * 日記の一括削除・一括変更のコミット後に、そのユーザーの取得中の結果の共有をやめます。
+     * @param event 日記の一括変更イベント
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDiaryBulkChanged(DiaryBulkChangedEvent event) {
+        invalidate(event.getUserId());
+    }
+
+    /**
+     * タグの名前の変更・統合など、日記のタグが変わった後に、そのユーザーの取得中の結果の共有をやめます。
+     * @param event タグの使用件数の変更イベント
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTagUsageChanged(TagUsageChangedEvent event) {
+        invalidate(event.getUserId());
+    }
+
+    private void invalidate(String userId) {
+        inFlight.keySet().removeIf(key -> key.userId.equals(userId));
+    }
+
+    private Map<String, Object> coalesce(String userId, List<Object> params, Supplier<Map<String, Object>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        FlightKey key = new FlightKey(userId, params);
+        CompletableFuture<Map<String, Object>> flight = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            joined.increment();
+            return await(existing);
+        }
+
+        leaders.increment();
+        try {
+            Map<String, Object> result = loader.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static Map<String, Object> await(CompletableFuture<Map<String, Object>> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 取得中の結果を共有する単位（ユーザーと取得条件）です。
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class FlightKey {
+        private final String userId;
+        private final List<Object> params;
+    }
+}
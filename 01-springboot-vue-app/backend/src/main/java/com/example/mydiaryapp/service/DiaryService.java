@@ -1,19 +1,34 @@
 package com.example.mydiaryapp.service;
 
+import com.example.mydiaryapp.dto.DiaryBatchRequest;
+import com.example.mydiaryapp.dto.DiaryBulkRequest;
+import com.example.mydiaryapp.dto.DiaryDraftRequest;
+import com.example.mydiaryapp.dto.DiaryPatchRequest;
 import com.example.mydiaryapp.dto.DiaryRequest;
 import com.example.mydiaryapp.entity.Diary;
 import com.example.mydiaryapp.entity.Image;
 import com.example.mydiaryapp.entity.Tag;
 import com.example.mydiaryapp.entity.User;
+import com.example.mydiaryapp.jfr.DiaryListEvent;
+import com.example.mydiaryapp.jfr.DiaryWriteEvent;
 import com.example.mydiaryapp.repository.DiaryRepository;
+import com.example.mydiaryapp.repository.DiaryRevisionRepository;
 import com.example.mydiaryapp.repository.TagRepository;
 import com.example.mydiaryapp.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.time.YearMonth;
@@ -22,9 +37,14 @@ import java.util.stream.Collectors;
 
 /**
  * 日記に関わるビジネスロジックを提供するサービスクラスです。
- * 日記の一覧取得、作成、詳細取得、更新、削除処理を担当します。
+ * 日記の一覧取得、作成、詳細取得、更新、削除処理と、複数の日記の一括削除・タグ変更を担当します。
+ * タグを変更した場合は、同じトランザクションでユーザーごとのタグの使用件数も更新します。
+ * アーカイブ済みの日記も詳細取得と一覧・検索の対象とし、一覧ではアーカイブ外の日記の後ろに続けて返します。
+ * 参照系メソッドは読み取り専用トランザクションで実行され、フラッシュと変更検知が無効になり、
+ * レプリカが設定されている場合はレプリカで実行されます。
  */
 @Service
+@Timed(value = "diary.service", histogram = true)
 @RequiredArgsConstructor
 @Transactional
 public class DiaryService {
@@ -32,6 +52,13 @@ public class DiaryService {
     private final UserRepository userRepository;
     private final TagRepository tagRepository;
     private final ImageService imageService;
+    private final ArchiveService archiveService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DiaryRevisionRepository revisionRepository;
+    private final TagService tagService;
+
+    @Value("${diary.bulk.max-diaries:1000}")
+    private int maxBulkDiaries;
 
     /**
      * 指定ユーザーの日記一覧を取得します。
@@ -44,38 +71,68 @@ public class DiaryService {
      * @param limit 1ページあたりの件数
      * @return 日記リストとページ情報を含むMap
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> getDiaries(String userId, String keyword, String tagName, 
                                           String month, int page, int limit) {
+        DiaryListEvent event = new DiaryListEvent();
+        event.begin();
         Pageable pageable = PageRequest.of(page - 1, limit);
+        String filter = "all";
         Page<Diary> diaryPage;
+        LocalDateTime startDate = null;
+        LocalDateTime endDate = null;
 
         if (keyword != null && !keyword.trim().isEmpty()) {
             diaryPage = diaryRepository.findByUserIdAndKeyword(userId, keyword, pageable);
+            filter = "keyword";
         } else if (tagName != null && !tagName.trim().isEmpty()) {
             diaryPage = diaryRepository.findByUserIdAndTag(userId, tagName, pageable);
+            filter = "tag";
         } else if (month != null && !month.trim().isEmpty()) {
             YearMonth yearMonth = YearMonth.parse(month);
-            LocalDateTime startDate = yearMonth.atDay(1).atStartOfDay();
-            LocalDateTime endDate = yearMonth.atEndOfMonth().atTime(23, 59, 59);
+            startDate = yearMonth.atDay(1).atStartOfDay();
+            endDate = yearMonth.atEndOfMonth().atTime(23, 59, 59);
             diaryPage = diaryRepository.findByUserIdAndMonth(userId, startDate, endDate, pageable);
+            filter = "month";
         } else {
             diaryPage = diaryRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
         }
 
         List<Map<String, Object>> diaries = diaryPage.getContent().stream()
             .map(this::convertToMap)
-            .collect(Collectors.toList());
+            .collect(Collectors.toCollection(ArrayList::new));
+        long total = diaryPage.getTotalElements();
+
+        // アーカイブ済みの日記は、日記テーブルの日記の後ろに続けて返す
+        boolean archiveSearched = archiveService.hasArchived(userId);
+        if (archiveSearched) {
+            long skip = Math.max(0, (long) (page - 1) * limit - total);
+            ArchiveService.ArchivedPage archived = archiveService.findDiaries(userId, keyword, tagName,
+                startDate, endDate, skip, limit - diaries.size());
+            diaries.addAll(archived.getDiaries());
+            total += archived.getTotal();
+        }
 
         Map<String, Object> pagination = new HashMap<>();
-        pagination.put("total", diaryPage.getTotalElements());
+        pagination.put("total", total);
         pagination.put("page", page);
         pagination.put("limit", limit);
-        pagination.put("totalPages", diaryPage.getTotalPages());
+        pagination.put("totalPages", (int) ((total + limit - 1) / limit));
 
         Map<String, Object> response = new HashMap<>();
         response.put("diaries", diaries);
         response.put("pagination", pagination);
 
+        event.end();
+        if (event.shouldCommit()) {
+            event.setFilter(filter);
+            event.setPage(page);
+            event.setLimit(limit);
+            event.setRows(diaries.size());
+            event.setTotal(total);
+            event.setArchiveSearched(archiveSearched);
+            event.commit();
+        }
         return response;
     }
 
@@ -87,6 +144,8 @@ public class DiaryService {
      * @return 作成した日記の詳細を含むMap
      */
     public Map<String, Object> createDiary(String userId, DiaryRequest request) {
+        DiaryWriteEvent event = new DiaryWriteEvent();
+        event.begin();
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
 
@@ -102,6 +161,7 @@ public class DiaryService {
                 .map(this::findOrCreateTag)
                 .collect(Collectors.toSet());
             diary.setTags(tags);
+            tagService.applyUsage(userId, usageDelta(Set.of(), tagNames(diary)));
         }
 
         Diary savedDiary = diaryRepository.save(diary);
@@ -114,6 +174,8 @@ public class DiaryService {
             savedDiary.setImages(images);
         }
 
+        publishChanged(DiaryChangedEvent.Type.CREATED, savedDiary);
+        commitWrite(event, "create", savedDiary);
         return convertToDetailMap(savedDiary);
     }
 
@@ -123,10 +185,12 @@ public class DiaryService {
      * @param diaryId 日記ID
      * @return 日記詳細を含むMap
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> getDiary(String userId, String diaryId) {
-        Diary diary = diaryRepository.findByIdAndUserId(diaryId, userId)
+        return diaryRepository.findByIdAndUserId(diaryId, userId)
+            .map(this::convertToDetailMap)
+            .or(() -> archiveService.getDiary(userId, diaryId))
             .orElseThrow(() -> new RuntimeException("日記が見つかりません"));
-        return convertToDetailMap(diary);
     }
 
     /**
@@ -138,19 +202,24 @@ public class DiaryService {
      * @return 更新後の日記詳細を含むMap
      */
     public Map<String, Object> updateDiary(String userId, String diaryId, DiaryRequest request) {
-        Diary diary = diaryRepository.findByIdAndUserId(diaryId, userId)
+        DiaryWriteEvent event = new DiaryWriteEvent();
+        event.begin();
+        Diary diary = findOwnDiary(userId, diaryId)
             .orElseThrow(() -> new RuntimeException("日記が見つかりません"));
 
         diary.setTitle(request.getTitle());
         diary.setContent(request.getContent());
         diary.setEmotion(request.getEmotion());
 
-        // タグの更新
+        // タグの更新（差分のみ diary_tags に反映するため、既存の集合を直接変更）
         if (request.getTags() != null) {
+            Set<String> before = tagNames(diary);
             Set<Tag> tags = request.getTags().stream()
                 .map(this::findOrCreateTag)
                 .collect(Collectors.toSet());
-            diary.setTags(tags);
+            diary.getTags().retainAll(tags);
+            diary.getTags().addAll(tags);
+            tagService.applyUsage(userId, usageDelta(before, tagNames(diary)));
         }
 
         // 画像の更新（既存の画像を削除して新しい画像を追加）
@@ -163,22 +232,451 @@ public class DiaryService {
         }
 
         Diary savedDiary = diaryRepository.save(diary);
+        publishChanged(DiaryChangedEvent.Type.UPDATED, savedDiary);
+        commitWrite(event, "update", savedDiary);
         return convertToDetailMap(savedDiary);
     }
 
+    /**
+     * 指定IDの日記を部分更新します（JSON Merge Patch）。
+     * リクエストに含まれる項目のみを変更し、タグは現在の集合との差分だけを反映します。
+     * 画像はリクエストに含まれる場合のみ置き換えます。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     * @param request 部分更新用日記情報(DiaryPatchRequest)
+     * @return 更新後の日記詳細を含むMap
+     */
+    public Map<String, Object> patchDiary(String userId, String diaryId, DiaryPatchRequest request) {
+        DiaryWriteEvent event = new DiaryWriteEvent();
+        event.begin();
+        Diary diary = findOwnDiary(userId, diaryId)
+            .orElseThrow(() -> new RuntimeException("日記が見つかりません"));
+
+        if (request.has("title")) {
+            diary.setTitle(request.getTitle());
+        }
+        if (request.has("content")) {
+            diary.setContent(request.getContent());
+        }
+        if (request.has("emotion")) {
+            diary.setEmotion(request.getEmotion());
+        }
+
+        // タグの差分更新
+        Set<String> tagNames = new HashSet<>();
+        if (request.getTags() != null) {
+            tagNames.addAll(request.getTags());
+        }
+        if (request.getAddTags() != null) {
+            tagNames.addAll(request.getAddTags());
+        }
+        Map<String, Tag> tagCache = resolveTags(tagNames);
+        boolean tagsChanged = request.has("tags") || request.getAddTags() != null || request.getRemoveTags() != null;
+        Set<String> before = tagsChanged ? tagNames(diary) : Set.of();
+        if (request.has("tags")) {
+            Set<Tag> tags = request.getTags() == null ? Set.of() : request.getTags().stream()
+                .map(tagCache::get)
+                .collect(Collectors.toSet());
+            diary.getTags().retainAll(tags);
+            diary.getTags().addAll(tags);
+        }
+        if (request.getAddTags() != null) {
+            request.getAddTags().forEach(tagName -> diary.getTags().add(tagCache.get(tagName)));
+        }
+        if (request.getRemoveTags() != null) {
+            Set<String> removeTags = new HashSet<>(request.getRemoveTags());
+            diary.getTags().removeIf(tag -> removeTags.contains(tag.getName()));
+        }
+        if (tagsChanged) {
+            tagService.applyUsage(userId, usageDelta(before, tagNames(diary)));
+        }
+
+        // 画像の置き換え（指定された場合のみ）
+        if (request.has("images")) {
+            diary.getImages().clear();
+            if (request.getImages() != null) {
+                request.getImages().stream()
+                    .map(imageReq -> imageService.saveImage(diary, imageReq))
+                    .forEach(diary.getImages()::add);
+            }
+        }
+
+        publishChanged(DiaryChangedEvent.Type.UPDATED, diary);
+        commitWrite(event, "patch", diary);
+        return convertToDetailMap(diary);
+    }
+
     /**
      * 指定IDの日記を削除します。
      * @param userId ユーザーID
      * @param diaryId 日記ID
      */
     public void deleteDiary(String userId, String diaryId) {
-        Diary diary = diaryRepository.findByIdAndUserId(diaryId, userId)
+        DiaryWriteEvent event = new DiaryWriteEvent();
+        event.begin();
+        Diary diary = findOwnDiary(userId, diaryId)
             .orElseThrow(() -> new RuntimeException("日記が見つかりません"));
+        tagService.applyUsage(userId, usageDelta(tagNames(diary), Set.of()));
         diaryRepository.delete(diary);
+        publishChanged(DiaryChangedEvent.Type.DELETED, diary);
+        commitWrite(event, "delete", diary);
+    }
+
+    /**
+     * 日記の作成・更新・削除をまとめて1トランザクションで実行します。
+     * ユーザーの参照とタグの解決は全操作で共有し、INSERT/UPDATEはコミット時に
+     * JDBCバッチとしてまとめて発行されます。
+     * 対象が見つからない等の操作単位のエラーは結果に記録し、残りの操作は続行します。
+     * @param userId ユーザーID
+     * @param request 実行順に並んだ操作リスト(DiaryBatchRequest)
+     * @return 操作ごとの実行結果リストを含むMap
+     */
+    public Map<String, Object> executeBatch(String userId, DiaryBatchRequest request) {
+        DiaryWriteEvent event = new DiaryWriteEvent();
+        event.begin();
+        User user = userRepository.getReferenceById(userId);
+        Map<String, Tag> tagCache = resolveTags(request.getOperations().stream()
+            .map(DiaryBatchRequest.Operation::getDiary)
+            .filter(Objects::nonNull)
+            .map(DiaryRequest::getTags)
+            .filter(Objects::nonNull)
+            .flatMap(List::stream)
+            .collect(Collectors.toSet()));
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<String, Integer> usage = new HashMap<>();
+        List<DiaryBatchRequest.Operation> operations = request.getOperations();
+        for (int i = 0; i < operations.size(); i++) {
+            DiaryBatchRequest.Operation operation = operations.get(i);
+            Map<String, Object> result = new HashMap<>();
+            result.put("index", i);
+            result.put("op", operation.getOp());
+
+            String error = null;
+            switch (operation.getOp()) {
+                case "create":
+                    if (operation.getDiary() == null) {
+                        error = "日記の内容は必須です";
+                        break;
+                    }
+                    Diary created = new Diary();
+                    created.setUser(user);
+                    applyRequest(created, operation.getDiary(), tagCache);
+                    addUsageDelta(usage, Set.of(), tagNames(created));
+                    Diary savedDiary = diaryRepository.save(created);
+                    saveImages(savedDiary, operation.getDiary());
+                    publishChanged(DiaryChangedEvent.Type.CREATED, savedDiary);
+                    result.put("diaryId", savedDiary.getId());
+                    result.put("diary", convertToDetailMap(savedDiary));
+                    break;
+                case "update":
+                    if (operation.getDiary() == null) {
+                        error = "日記の内容は必須です";
+                        break;
+                    }
+                    Optional<Diary> target = findOwnDiary(userId, operation.getDiaryId());
+                    if (target.isEmpty()) {
+                        error = "日記が見つかりません";
+                        break;
+                    }
+                    Diary updated = target.get();
+                    Set<String> before = operation.getDiary().getTags() != null ? tagNames(updated) : Set.of();
+                    applyRequest(updated, operation.getDiary(), tagCache);
+                    if (operation.getDiary().getTags() != null) {
+                        addUsageDelta(usage, before, tagNames(updated));
+                    }
+                    replaceImages(updated, operation.getDiary());
+                    publishChanged(DiaryChangedEvent.Type.UPDATED, updated);
+                    result.put("diaryId", updated.getId());
+                    result.put("diary", convertToDetailMap(updated));
+                    break;
+                case "delete":
+                    Optional<Diary> deleted = findOwnDiary(userId, operation.getDiaryId());
+                    if (deleted.isEmpty()) {
+                        error = "日記が見つかりません";
+                        break;
+                    }
+                    addUsageDelta(usage, tagNames(deleted.get()), Set.of());
+                    diaryRepository.delete(deleted.get());
+                    publishChanged(DiaryChangedEvent.Type.DELETED, deleted.get());
+                    result.put("diaryId", operation.getDiaryId());
+                    break;
+                default:
+                    error = "不明な操作種別です";
+            }
+
+            result.put("status", error == null ? "ok" : "error");
+            if (error != null) {
+                result.put("error", error);
+            }
+            results.add(result);
+        }
+        tagService.applyUsage(userId, usage);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setOperation("batch");
+            event.setDiaries(operations.size());
+            event.commit();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("results", results);
+        return response;
+    }
+
+    /**
+     * 条件に一致する日記をまとめて削除します（アーカイブ済みの日記を含む）。
+     * エンティティを読み込まず、対象のIDを取得した後は、変更履歴・タグの関連・画像・日記を
+     * それぞれ1回のSQLで削除します。ストレージの画像はコミット後に別スレッドで削除します。
+     * 一度に削除する件数には上限があり、超えた分は hasMore で通知します。
+     * @param userId ユーザーID
+     * @param request 対象の日記IDまたは絞り込み条件(DiaryBulkRequest)
+     * @return 削除した件数と日記IDのリスト、残りの有無を含むMap
+     */
+    public Map<String, Object> bulkDelete(String userId, DiaryBulkRequest request) {
+        DiaryWriteEvent event = new DiaryWriteEvent();
+        event.begin();
+        BulkSelection selection = selectForBulk(userId, request);
+        List<String> ids = selection.getIds();
+
+        List<String> urls = new ArrayList<>();
+        Set<String> usedTags = new HashSet<>();
+        if (!ids.isEmpty()) {
+            usedTags.addAll(diaryRepository.findTagNamesByDiaryIdIn(ids));
+            urls.addAll(diaryRepository.findImageUrlsByDiaryIdIn(ids));
+            revisionRepository.deleteByDiaryIdIn(ids);
+            diaryRepository.deleteTagLinksByDiaryIdIn(ids);
+            diaryRepository.deleteImagesByDiaryIdIn(ids);
+            diaryRepository.deleteByIdIn(ids);
+        }
+        if (!selection.getArchivedIds().isEmpty()) {
+            usedTags.addAll(archiveService.findTagNames(selection.getArchivedIds()));
+        }
+        urls.addAll(archiveService.deleteForBulk(selection.getArchivedIds()));
+        tagService.recountUsage(userId, usedTags);
+        eventPublisher.publishEvent(new ImagesDeletedEvent(urls));
+
+        List<String> deleted = selection.getAllIds();
+        if (!deleted.isEmpty()) {
+            eventPublisher.publishEvent(new DiaryBulkChangedEvent(userId, deleted));
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.setOperation("bulk-delete");
+            event.setDiaries(deleted.size());
+            event.setImages(urls.size());
+            event.commit();
+        }
+        return bulkResponse("deleted", deleted, selection.isHasMore());
+    }
+
+    /**
+     * 条件に一致する日記のタグをまとめて変更します（アーカイブ済みの日記を含む）。
+     * 外すタグを先に処理するため、同じタグを追加・削除の両方に指定した場合は追加されます。
+     * タグの関連は日記ごとではなく、追加・削除それぞれ1回のSQLで変更します。
+     * @param userId ユーザーID
+     * @param request 対象の日記IDまたは絞り込み条件と、追加・削除するタグ名(DiaryBulkRequest)
+     * @return 更新した件数と日記IDのリスト、残りの有無を含むMap
+     * @throws ResponseStatusException 追加・削除するタグがどちらも指定されていない場合(400)
+     */
+    public Map<String, Object> bulkRetag(String userId, DiaryBulkRequest request) {
+        Set<String> addTags = request.getAddTags() != null ? new HashSet<>(request.getAddTags()) : Set.of();
+        Set<String> removeTags = request.getRemoveTags() != null ? new HashSet<>(request.getRemoveTags()) : Set.of();
+        if (addTags.isEmpty() && removeTags.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "追加または外すタグを指定してください");
+        }
+        DiaryWriteEvent event = new DiaryWriteEvent();
+        event.begin();
+        BulkSelection selection = selectForBulk(userId, request);
+        List<String> ids = selection.getIds();
+
+        if (!ids.isEmpty()) {
+            if (!removeTags.isEmpty()) {
+                diaryRepository.deleteTagLinksByName(ids, removeTags);
+            }
+            if (!addTags.isEmpty()) {
+                List<Long> tagIds = resolveTags(addTags).values().stream()
+                    .map(Tag::getId)
+                    .collect(Collectors.toList());
+                diaryRepository.insertTagLinks(ids, tagIds);
+            }
+            diaryRepository.touchByIdIn(ids, LocalDateTime.now());
+        }
+        archiveService.retagForBulk(selection.getArchivedIds(), addTags, removeTags);
+        if (!selection.getAllIds().isEmpty()) {
+            Set<String> changedTags = new HashSet<>(addTags);
+            changedTags.addAll(removeTags);
+            tagService.recountUsage(userId, changedTags);
+        }
+
+        List<String> updated = selection.getAllIds();
+        if (!updated.isEmpty()) {
+            eventPublisher.publishEvent(new DiaryBulkChangedEvent(userId, updated));
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.setOperation("bulk-retag");
+            event.setDiaries(updated.size());
+            event.setTags(addTags.size() + removeTags.size());
+            event.commit();
+        }
+        return bulkResponse("updated", updated, selection.isHasMore());
+    }
+
+    /**
+     * バッファされた下書きをまとめて日記に反映します。
+     * 対象の日記は1回のクエリで取得し、所有者が一致しない・削除済みの日記への下書きは無視します。
+     * 変更されたカラムのみがコミット時にJDBCバッチで更新されます。
+     * 内容が変わった日記は、通常の更新と同じく変更イベントを発行します（変更履歴の記録や読み取り中の結果の無効化）。
+     * @param drafts 反映する下書きのリスト
+     */
+    public void applyDrafts(Collection<DraftJournal.Entry> drafts) {
+        DiaryWriteEvent event = new DiaryWriteEvent();
+        event.begin();
+        Map<String, Diary> diaries = new HashMap<>();
+        diaryRepository.findAllById(drafts.stream()
+                .map(DraftJournal.Entry::getDiaryId)
+                .collect(Collectors.toSet()))
+            .forEach(diary -> diaries.put(diary.getId(), diary));
+
+        int changed = 0;
+        int contentLength = 0;
+        for (DraftJournal.Entry entry : drafts) {
+            Diary diary = diaries.get(entry.getDiaryId());
+            if (diary == null || !diary.getUser().getId().equals(entry.getUserId())) {
+                continue;
+            }
+            DiaryDraftRequest draft = entry.getDraft();
+            boolean modified = false;
+            if (draft.getTitle() != null && !draft.getTitle().trim().isEmpty()
+                    && !draft.getTitle().equals(diary.getTitle())) {
+                diary.setTitle(draft.getTitle());
+                modified = true;
+            }
+            if (draft.getContent() != null && !draft.getContent().equals(diary.getContent())) {
+                diary.setContent(draft.getContent());
+                modified = true;
+            }
+            if (draft.getEmotion() != null && !draft.getEmotion().equals(diary.getEmotion())) {
+                diary.setEmotion(draft.getEmotion());
+                modified = true;
+            }
+            if (modified) {
+                publishChanged(DiaryChangedEvent.Type.UPDATED, diary);
+                changed++;
+                contentLength += diary.getContent() == null ? 0 : diary.getContent().length();
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setOperation("draft-flush");
+            event.setDiaries(changed);
+            event.setContentLength(contentLength);
+            event.commit();
+        }
+    }
+
+    /**
+     * 更新・削除の対象となる、指定ユーザー所有の日記を取得します。
+     * アーカイブ済みの場合は日記テーブルに戻してから返します。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID（未指定の場合は空を返します）
+     * @return Optionalでラップされた日記エンティティ
+     */
+    private Optional<Diary> findOwnDiary(String userId, String diaryId) {
+        if (diaryId == null) {
+            return Optional.empty();
+        }
+        return diaryRepository.findByIdAndUserId(diaryId, userId)
+            .or(() -> archiveService.restore(userId, diaryId));
+    }
+
+    /**
+     * リクエストのタイトル・本文・感情・タグを日記エンティティに反映します。
+     * タグは事前に解決済みのキャッシュから取得します。
+     */
+    private void applyRequest(Diary diary, DiaryRequest request, Map<String, Tag> tagCache) {
+        diary.setTitle(request.getTitle());
+        diary.setContent(request.getContent());
+        diary.setEmotion(request.getEmotion());
+        if (diary.getTags() == null) {
+            diary.setTags(new HashSet<>());
+        }
+        if (request.getTags() != null) {
+            Set<Tag> tags = request.getTags().stream()
+                .map(tagCache::get)
+                .collect(Collectors.toSet());
+            diary.getTags().retainAll(tags);
+            diary.getTags().addAll(tags);
+        }
+    }
+
+    /**
+     * リクエストに画像が含まれる場合、日記に画像を保存して関連付けます。
+     */
+    private void saveImages(Diary diary, DiaryRequest request) {
+        if (request.getImages() != null) {
+            diary.setImages(request.getImages().stream()
+                .map(imageReq -> imageService.saveImage(diary, imageReq))
+                .collect(Collectors.toList()));
+        } else if (diary.getImages() == null) {
+            diary.setImages(new ArrayList<>());
+        }
+    }
+
+    /**
+     * リクエストに画像が含まれる場合、既存の画像を削除して新しい画像に置き換えます。
+     */
+    private void replaceImages(Diary diary, DiaryRequest request) {
+        if (request.getImages() != null) {
+            diary.getImages().clear();
+            request.getImages().stream()
+                .map(imageReq -> imageService.saveImage(diary, imageReq))
+                .forEach(diary.getImages()::add);
+        }
+    }
+
+    /**
+     * 複数のタグ名をまとめて解決します。
+     * 既存のタグは1回のクエリで取得し、存在しないタグのみ新規作成します。
+     * @param tagNames タグ名の集合
+     * @return タグ名をキーとするタグのMap
+     */
+    private Map<String, Tag> resolveTags(Set<String> tagNames) {
+        Map<String, Tag> tags = new HashMap<>();
+        if (tagNames.isEmpty()) {
+            return tags;
+        }
+        tagRepository.findByNameIn(tagNames).forEach(tag -> tags.put(tag.getName(), reuse(tag)));
+        for (String tagName : tagNames) {
+            if (!tags.containsKey(tagName)) {
+                Tag newTag = new Tag();
+                newTag.setName(tagName);
+                tags.put(tagName, tagRepository.save(newTag));
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * 日記の変更イベントを発行します。
+     * 削除の場合は本文等を含めずに通知します。
+     */
+    private void publishChanged(DiaryChangedEvent.Type type, Diary diary) {
+        if (type == DiaryChangedEvent.Type.DELETED) {
+            eventPublisher.publishEvent(new DiaryChangedEvent(type, diary.getUser().getId(), diary.getId(),
+                null, null, null));
+        } else {
+            eventPublisher.publishEvent(new DiaryChangedEvent(type, diary.getUser().getId(), diary.getId(),
+                diary.getTitle(), diary.getContent(), diary.getEmotion()));
+        }
     }
 
     private Tag findOrCreateTag(String tagName) {
         return tagRepository.findByName(tagName)
+            .map(this::reuse)
             .orElseGet(() -> {
                 Tag newTag = new Tag();
                 newTag.setName(tagName);
@@ -186,7 +684,107 @@ public class DiaryService {
             });
     }
 
-    private Map<String, Object> convertToMap(Diary diary) {
+    /**
+     * 参照されなくなったとして削除を待っているタグを再び使う場合に、削除の印を外します。
+     * 印を外す更新でタグの行がロックされるため、コミットまでに削除されることはありません。
+     */
+    private Tag reuse(Tag tag) {
+        if (tag.getOrphanedAt() != null) {
+            tag.setOrphanedAt(null);
+        }
+        return tag;
+    }
+
+    /**
+     * 日記に付いているタグの名前を取得します。
+     */
+    private static Set<String> tagNames(Diary diary) {
+        if (diary.getTags() == null) {
+            return Set.of();
+        }
+        return diary.getTags().stream()
+            .map(Tag::getName)
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * 変更前後のタグの名前から、タグの使用件数の増減を求めます。
+     */
+    private static Map<String, Integer> usageDelta(Set<String> before, Set<String> after) {
+        Map<String, Integer> deltas = new HashMap<>();
+        addUsageDelta(deltas, before, after);
+        return deltas;
+    }
+
+    private static void addUsageDelta(Map<String, Integer> deltas, Set<String> before, Set<String> after) {
+        before.stream()
+            .filter(name -> !after.contains(name))
+            .forEach(name -> deltas.merge(name, -1, Integer::sum));
+        after.stream()
+            .filter(name -> !before.contains(name))
+            .forEach(name -> deltas.merge(name, 1, Integer::sum));
+    }
+
+    /**
+     * 一括操作の対象となる、指定ユーザーの日記とアーカイブ済み日記のIDを取得します。
+     * 上限より1件多く取得して、上限を超える日記があるかを判定します。
+     */
+    private BulkSelection selectForBulk(String userId, DiaryBulkRequest request) {
+        List<String> requestedIds = request.getDiaryIds() != null && !request.getDiaryIds().isEmpty()
+            ? request.getDiaryIds() : null;
+        String tag = request.getTag() != null && !request.getTag().isBlank() ? request.getTag() : null;
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+        if (request.getMonth() != null && !request.getMonth().isBlank()) {
+            YearMonth yearMonth = YearMonth.parse(request.getMonth());
+            start = yearMonth.atDay(1).atStartOfDay();
+            end = yearMonth.plusMonths(1).atDay(1).atStartOfDay();
+        }
+
+        List<String> ids = diaryRepository.findIdsForBulk(userId, requestedIds == null,
+            requestedIds == null ? List.of("") : requestedIds, tag, start, end, maxBulkDiaries + 1);
+        boolean hasMore = ids.size() > maxBulkDiaries;
+        if (hasMore) {
+            return new BulkSelection(ids.subList(0, maxBulkDiaries), List.of(), true);
+        }
+        int remaining = maxBulkDiaries - ids.size();
+        List<String> archivedIds = archiveService.findIdsForBulk(userId, requestedIds, tag, start, end, remaining + 1);
+        hasMore = archivedIds.size() > remaining;
+        return new BulkSelection(ids, hasMore ? archivedIds.subList(0, remaining) : archivedIds, hasMore);
+    }
+
+    private Map<String, Object> bulkResponse(String countKey, List<String> diaryIds, boolean hasMore) {
+        Map<String, Object> response = new HashMap<>();
+        response.put(countKey, diaryIds.size());
+        response.put("diaryIds", diaryIds);
+        response.put("hasMore", hasMore);
+        return response;
+    }
+
+    /**
+     * 日記の書き込みのJFRイベントを記録します。
+     * イベントのためにSQLを発行しないよう、タグと画像は読み込み済みの場合のみ件数を記録します。
+     */
+    private void commitWrite(DiaryWriteEvent event, String operation, Diary diary) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setOperation(operation);
+            event.setDiaries(1);
+            if (diary.getTags() != null && Hibernate.isInitialized(diary.getTags())) {
+                event.setTags(diary.getTags().size());
+            }
+            if (diary.getImages() != null && Hibernate.isInitialized(diary.getImages())) {
+                event.setImages(diary.getImages().size());
+            }
+            event.setContentLength(diary.getContent() == null ? 0 : diary.getContent().length());
+            event.commit();
+        }
+    }
+
+    /**
+     * 日記を一覧用のMapに変換します（ベンチマークから呼び出すためパッケージプライベートにしています）。
+     */
+    Map<String, Object> convertToMap(Diary diary) {
         Map<String, Object> map = new HashMap<>();
         map.put("diaryId", diary.getId());
         map.put("title", diary.getTitle());
@@ -198,7 +796,10 @@ public class DiaryService {
         return map;
     }
 
-    private Map<String, Object> convertToDetailMap(Diary diary) {
+    /**
+     * 日記を詳細用のMapに変換します（ベンチマークから呼び出すためパッケージプライベートにしています）。
+     */
+    Map<String, Object> convertToDetailMap(Diary diary) {
         Map<String, Object> map = new HashMap<>();
         map.put("diaryId", diary.getId());
         map.put("title", diary.getTitle());
@@ -219,4 +820,24 @@ public class DiaryService {
             .collect(Collectors.toList()));
         return map;
     }
+
+    /**
+     * 一括操作の対象を表すクラスです。
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class BulkSelection {
+        /** 日記テーブルの日記ID。 */
+        private final List<String> ids;
+        /** アーカイブ済み日記のID。 */
+        private final List<String> archivedIds;
+        /** 上限を超えて対象にならなかった日記があるかどうか。 */
+        private final boolean hasMore;
+
+        List<String> getAllIds() {
+            List<String> all = new ArrayList<>(ids);
+            all.addAll(archivedIds);
+            return all;
+        }
+    }
 }
\ No newline at end of file
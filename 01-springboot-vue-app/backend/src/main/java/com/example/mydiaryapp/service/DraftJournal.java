@@ -0,0 +1,198 @@
+package com.example.mydiaryapp.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.mydiaryapp.dto.DiaryDraftRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 下書きバッファ用のローカル追記型ジャーナルです。
+ * バッファへの保存・破棄を1行1件のJSONとして追記し、プロセスが異常終了しても
+ * 次回起動時に未反映の下書きを復元できるようにします。
+ * データベースへの反映が済んだ時点でファイルを切り詰めて肥大化を防ぎます。
+ */
+@Slf4j
+@Component
+public class DraftJournal {
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    // ファイルへの書き込み中に仮想スレッドがキャリアスレッドを固定しないよう ReentrantLock で排他します
+    private final ReentrantLock lock = new ReentrantLock();
+    private BufferedWriter writer;
+
+    public DraftJournal(ObjectMapper objectMapper,
+                        @Value("${diary.draft.journal-path:./data/draft-journal.log}") String journalPath) {
+        this.objectMapper = objectMapper;
+        this.path = Paths.get(journalPath);
+    }
+
+    /**
+     * 下書きの保存をジャーナルに追記します。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     * @param draft 下書き内容
+     * @param savedAt 保存時刻（エポックミリ秒）
+     */
+    public void appendSave(String userId, String diaryId, DiaryDraftRequest draft, long savedAt) {
+        lock.lock();
+        try {
+            append(new Entry("save", userId, diaryId, draft, savedAt));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 下書きの破棄（反映済み・明示保存による置き換え）をジャーナルに追記します。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     */
+    public void appendClear(String userId, String diaryId) {
+        lock.lock();
+        try {
+            append(new Entry("clear", userId, diaryId, null, System.currentTimeMillis()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * ジャーナルを再生し、未反映のまま残っている下書きを返します。
+     * 同じ日記に対する複数の記録は最後のものが優先されます。
+     * @return 未反映の下書きエントリ
+     */
+    public Collection<Entry> replay() {
+        lock.lock();
+        try {
+            Map<String, Entry> pending = new LinkedHashMap<>();
+            if (!Files.exists(path)) {
+                return pending.values();
+            }
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    Entry entry;
+                    try {
+                        entry = objectMapper.readValue(line, Entry.class);
+                    } catch (IOException e) {
+                        // 異常終了時の書きかけ行は読み飛ばす
+                        log.warn("Skipping corrupt draft journal line: {}", e.getMessage());
+                        continue;
+                    }
+                    String key = entry.getUserId() + ":" + entry.getDiaryId();
+                    if ("save".equals(entry.getType())) {
+                        pending.put(key, entry);
+                    } else {
+                        pending.remove(key);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Failed to replay draft journal {}", path, e);
+            }
+            return pending.values();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * ジャーナルを、指定した未反映の下書きのみを含む内容に書き換えます。
+     * 空のコレクションを渡した場合はファイルを切り詰めます。
+     * @param remaining バッファに残っている下書きエントリ
+     */
+    public void compact(Collection<Entry> remaining) {
+        lock.lock();
+        try {
+            try {
+                closeWriter();
+                Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+                try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    for (Entry entry : remaining) {
+                        out.write(objectMapper.writeValueAsString(entry));
+                        out.newLine();
+                    }
+                }
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.error("Failed to compact draft journal {}", path, e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(Entry entry) {
+        try {
+            if (writer == null) {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(objectMapper.writeValueAsString(entry));
+            writer.newLine();
+            // OSへ書き出しておけばプロセスが落ちても内容は失われない
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("下書きの保存に失敗しました: " + e.getMessage());
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closeWriter();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * ジャーナルの1行分を表すクラスです。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        /** 記録種別（"save" または "clear"）。 */
+        private String type;
+        private String userId;
+        private String diaryId;
+        private DiaryDraftRequest draft;
+        /** 記録時刻（エポックミリ秒）。 */
+        private long savedAt;
+    }
+}
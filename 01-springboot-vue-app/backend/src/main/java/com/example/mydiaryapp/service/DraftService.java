@@ -0,0 +1,292 @@
+package com.example.mydiaryapp.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.mydiaryapp.config.ShardContext;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.dto.DiaryDraftRequest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 日記の下書き自動保存を扱うライトビハインド方式のサービスクラスです。
+ * 自動保存された下書きはユーザー・日記ごとにメモリ上で上書き統合し、
+ * 一定間隔、明示的な保存時、またはバッファ量の上限超過時にまとめてデータベースへ反映します。
+ * バッファの内容は {@link DraftJournal} に追記されるため、プロセスが異常終了しても復元できます。
+ * 列の長さを超えるなど、何度反映しても失敗する下書きは破棄し、同じシャードの他の下書きの反映を止めないようにします。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DraftService {
+    private final DiaryService diaryService;
+    private final DraftJournal draftJournal;
+    private final ShardRouter shardRouter;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, DraftJournal.Entry> buffer = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedChars = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // バッファとジャーナルをそろえて更新するためのロック
+    private final ReentrantLock bufferLock = new ReentrantLock();
+
+    @Value("${diary.draft.max-buffered-chars:5000000}")
+    private long maxBufferedChars;
+
+    /**
+     * 起動時にジャーナルを再生し、前回反映されなかった下書きをバッファに戻します。
+     * 復元した下書きは次回の定期反映でデータベースに書き込まれます。
+     */
+    @PostConstruct
+    public void recover() {
+        bufferLock.lock();
+        try {
+            for (DraftJournal.Entry entry : draftJournal.replay()) {
+                buffer.put(key(entry.getUserId(), entry.getDiaryId()), entry);
+                bufferedChars.addAndGet(size(entry));
+            }
+        } finally {
+            bufferLock.unlock();
+        }
+        if (!buffer.isEmpty()) {
+            log.info("Recovered {} unflushed diary drafts from journal", buffer.size());
+        }
+    }
+
+    /**
+     * 下書きをバッファに保存します。
+     * 同じ日記の未反映の下書きがある場合は、指定された項目で上書きして1件に統合します。
+     * データベースにはアクセスせず、所有者の確認は反映時に行います。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     * @param request 下書き内容(DiaryDraftRequest)
+     * @return 日記IDと保存時刻を含むMap
+     */
+    public Map<String, Object> saveDraft(String userId, String diaryId, DiaryDraftRequest request) {
+        long savedAt = System.currentTimeMillis();
+        String key = key(userId, diaryId);
+
+        bufferLock.lock();
+        try {
+            DraftJournal.Entry previous = buffer.get(key);
+            DiaryDraftRequest merged = new DiaryDraftRequest();
+            if (previous != null) {
+                merged.setTitle(previous.getDraft().getTitle());
+                merged.setContent(previous.getDraft().getContent());
+                merged.setEmotion(previous.getDraft().getEmotion());
+            }
+            if (request.getTitle() != null) {
+                merged.setTitle(request.getTitle());
+            }
+            if (request.getContent() != null) {
+                merged.setContent(request.getContent());
+            }
+            if (request.getEmotion() != null) {
+                merged.setEmotion(request.getEmotion());
+            }
+
+            DraftJournal.Entry entry = new DraftJournal.Entry("save", userId, diaryId, merged, savedAt);
+            draftJournal.appendSave(userId, diaryId, merged, savedAt);
+            buffer.put(key, entry);
+            bufferedChars.addAndGet(size(entry) - (previous == null ? 0 : size(previous)));
+        } finally {
+            bufferLock.unlock();
+        }
+
+        // メモリ使用量が上限を超えた場合は定期反映を待たずに書き出す
+        if (bufferedChars.get() > maxBufferedChars && flushLock.tryLock()) {
+            try {
+                flush();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("diaryId", diaryId);
+        response.put("status", "buffered");
+        response.put("savedAt", Instant.ofEpochMilli(savedAt).toString());
+        return response;
+    }
+
+    /**
+     * 未反映の下書きを取得します。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     * @return 下書き内容と保存時刻を含むMap（下書きがない場合は空）
+     */
+    public Optional<Map<String, Object>> getDraft(String userId, String diaryId) {
+        return Optional.ofNullable(buffer.get(key(userId, diaryId)))
+            .map(entry -> {
+                Map<String, Object> response = new HashMap<>();
+                response.put("diaryId", diaryId);
+                response.put("title", entry.getDraft().getTitle());
+                response.put("content", entry.getDraft().getContent());
+                response.put("emotion", entry.getDraft().getEmotion());
+                response.put("savedAt", Instant.ofEpochMilli(entry.getSavedAt()).toString());
+                return response;
+            });
+    }
+
+    /**
+     * 明示的な保存や削除に先立って、未反映の下書きを破棄します。
+     * 実行中の反映処理の完了を待つため、古い下書きが後から上書きすることはありません。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     */
+    public void discard(String userId, String diaryId) {
+        flushLock.lock();
+        try {
+            bufferLock.lock();
+            try {
+                DraftJournal.Entry removed = buffer.remove(key(userId, diaryId));
+                if (removed != null) {
+                    bufferedChars.addAndGet(-size(removed));
+                    draftJournal.appendClear(userId, diaryId);
+                }
+            } finally {
+                bufferLock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * アカウントの削除時に、ユーザーの未反映の下書きをすべて破棄します。
+     * @param userId ユーザーID
+     */
+    public void discardAll(String userId) {
+        flushLock.lock();
+        try {
+            bufferLock.lock();
+            try {
+                for (DraftJournal.Entry entry : new ArrayList<>(buffer.values())) {
+                    if (entry.getUserId().equals(userId)
+                            && buffer.remove(key(userId, entry.getDiaryId()), entry)) {
+                        bufferedChars.addAndGet(-size(entry));
+                        draftJournal.appendClear(userId, entry.getDiaryId());
+                    }
+                }
+            } finally {
+                bufferLock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * バッファ内のすべての下書きを、シャードごとに1トランザクションでデータベースに反映します。
+     * 反映中に上書きされた下書きはバッファに残し、次回反映します。
+     * まとめた反映に失敗した場合は1件ずつ反映し直し、データの誤りで反映できない下書きだけを破棄します。
+     */
+    @Scheduled(fixedDelayString = "${diary.draft.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            // シャードごとに1トランザクションで反映する（シャード間を移動中のユーザーは移動後に反映する）
+            Map<String, List<DraftJournal.Entry>> byShard = buffer.values().stream()
+                .filter(entry -> !shardRouter.isMoving(entry.getUserId()))
+                .collect(Collectors.groupingBy(entry -> shardRouter.shardFor(entry.getUserId())));
+
+            List<DraftJournal.Entry> flushed = new ArrayList<>();
+            byShard.forEach((shard, entries) -> {
+                try {
+                    ShardContext.run(shard, () -> diaryService.applyDrafts(entries));
+                    flushed.addAll(entries);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to flush {} diary drafts on shard {}, retrying one by one: {}",
+                        entries.size(), shard, e.getMessage());
+                    flushed.addAll(flushOneByOne(shard, entries));
+                }
+            });
+            if (flushed.isEmpty()) {
+                return;
+            }
+
+            bufferLock.lock();
+            try {
+                for (DraftJournal.Entry entry : flushed) {
+                    if (buffer.remove(key(entry.getUserId(), entry.getDiaryId()), entry)) {
+                        bufferedChars.addAndGet(-size(entry));
+                    }
+                }
+                draftJournal.compact(buffer.values());
+            } finally {
+                bufferLock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 下書きを1件ずつ反映します。
+     * データの誤り（列の長さの超過など）で反映できない下書きは、再試行しても成功しないため破棄します。
+     * 接続の失敗など一時的な理由で反映できない下書きはバッファとジャーナルに残り、次回再試行されます。
+     * @return バッファから取り除く下書き（反映したものと破棄したもの）
+     */
+    private List<DraftJournal.Entry> flushOneByOne(String shard, List<DraftJournal.Entry> entries) {
+        List<DraftJournal.Entry> done = new ArrayList<>();
+        for (DraftJournal.Entry entry : entries) {
+            try {
+                ShardContext.run(shard, () -> diaryService.applyDrafts(List.of(entry)));
+                done.add(entry);
+            } catch (NonTransientDataAccessException e) {
+                log.error("Dropping diary draft {} of user {} that cannot be saved: {}",
+                    entry.getDiaryId(), entry.getUserId(), e.getMessage());
+                meterRegistry.counter("diary.draft.dropped").increment();
+                done.add(entry);
+            } catch (RuntimeException e) {
+                log.warn("Failed to flush diary draft {} on shard {}: {}", entry.getDiaryId(), shard, e.getMessage());
+            }
+        }
+        return done;
+    }
+
+    /**
+     * アプリケーション終了時に未反映の下書きを書き出します。
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static String key(String userId, String diaryId) {
+        return userId + ":" + diaryId;
+    }
+
+    private static long size(DraftJournal.Entry entry) {
+        DiaryDraftRequest draft = entry.getDraft();
+        long size = 0;
+        if (draft.getTitle() != null) {
+            size += draft.getTitle().length();
+        }
+        if (draft.getContent() != null) {
+            size += draft.getContent().length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.mydiaryapp.service;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.mydiaryapp.config.ShardContext;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.entity.CompressedTextConverter;
+import com.example.mydiaryapp.entity.IdempotencyRecord;
+import com.example.mydiaryapp.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Idempotency-Key ヘッダー付きの書き込みを1回だけ実行し、再送されたリクエストには同じレスポンスを返すサービスクラスです。
+ * 通信が不安定なクライアントが日記の作成を再送しても、日記が重複して作成されず、画像の保存もやり直しません。
+ *
+ * <ul>
+ *   <li>キーと結果はユーザーのシャードの idempotency_keys テーブルに保存するため、再起動後や別のインスタンスでも有効です。
+ *       最近の結果は、圧縮したJSONとしてメモリにも件数の上限まで保持します。</li>
+ *   <li>同じキーのリクエストが同時に届いた場合、後のリクエストは最初のリクエストの完了を待ってその結果を返します。
+ *       別のインスタンスで実行中の場合は、完了するまで一定時間待ち、それでも終わらない場合は 409 を返します。</li>
+ *   <li>同じキーで内容の異なるリクエストには 422 を返します。</li>
+ *   <li>例外で終了したリクエストの結果は保存せず、再送されたリクエストで実行し直します。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    /** キーの最大長。 */
+    public static final int MAX_KEY_LENGTH = 255;
+    /** 再送したリクエストへのレスポンスに付けるヘッダー。 */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private static final TypeReference<Map<String, Object>> BODY_TYPE = new TypeReference<>() {};
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+    private final Map<FlightKey, StoredResponse> completed = new ConcurrentHashMap<>();
+    private final Map<FlightKey, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter replays;
+    private final long ttlMinutes;
+    private final int maxCached;
+    private final long leaseSeconds;
+    private final long waitMillis;
+    private final int compressionThreshold;
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              TransactionTemplate transactionTemplate,
+                              ShardRouter shardRouter,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${diary.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${diary.idempotency.max-cached:10000}") int maxCached,
+                              @Value("${diary.idempotency.lease-seconds:60}") long leaseSeconds,
+                              @Value("${diary.idempotency.wait-seconds:10}") long waitSeconds,
+                              @Value("${diary.content.compression-threshold:1024}") int compressionThreshold) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+        this.ttlMinutes = ttlMinutes;
+        this.maxCached = maxCached;
+        this.leaseSeconds = leaseSeconds;
+        this.waitMillis = waitSeconds * 1000;
+        this.compressionThreshold = compressionThreshold;
+        this.cacheHits = meterRegistry.counter("diary.cache.gets", "cache", "idempotency", "result", "hit");
+        this.cacheMisses = meterRegistry.counter("diary.cache.gets", "cache", "idempotency", "result", "miss");
+        this.replays = meterRegistry.counter("diary.idempotency.replays");
+    }
+
+    /**
+     * 書き込みを実行します。キーが指定されている場合は、同じキーで実行済みのレスポンスがあればそれを返します。
+     * @param userId ユーザーID
+     * @param key Idempotency-Key（指定されていない場合は null）
+     * @param operation 書き込みの種類（メソッドとパス）。同じキーを別の書き込みに使った場合の検出に使用します
+     * @param request リクエストボディ
+     * @param action 書き込みを実行してレスポンスを返す処理
+     * @return 書き込みのレスポンス、または再送の場合は保存していたレスポンス
+     * @throws ResponseStatusException キーが不正な場合(400)、別のインスタンスで実行中の場合(409)、
+     *         同じキーで内容の異なるリクエストの場合(422)
+     */
+    public ResponseEntity<Map<String, Object>> execute(String userId, String key, String operation, Object request,
+                                                       Supplier<ResponseEntity<Map<String, Object>>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Idempotency-Key は1文字以上" + MAX_KEY_LENGTH + "文字以内で指定してください");
+        }
+        FlightKey flightKey = new FlightKey(userId, key);
+        String requestHash = hash(operation, request);
+
+        while (true) {
+            StoredResponse cached = completed.get(flightKey);
+            if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+                cacheHits.increment();
+                return replay(cached, requestHash);
+            }
+
+            CompletableFuture<StoredResponse> flight = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> existing = inFlight.putIfAbsent(flightKey, flight);
+            if (existing != null) {
+                try {
+                    return replay(existing.join(), requestHash);
+                } catch (CompletionException e) {
+                    // 最初のリクエストが失敗した場合は、このリクエストで実行し直します
+                    continue;
+                }
+            }
+
+            cacheMisses.increment();
+            try {
+                Executed executed = executeOnce(userId, key, requestHash, action);
+                flight.complete(executed.stored);
+                if (executed.response == null) {
+                    return replay(executed.stored, requestHash);
+                }
+                return executed.response;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(flightKey, flight);
+            }
+        }
+    }
+
+    /**
+     * メモリに保持している結果のうち、有効期限を過ぎたものを削除します。
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpiredCache() {
+        long now = System.currentTimeMillis();
+        completed.values().removeIf(stored -> stored.isExpired(now));
+    }
+
+    /**
+     * 指定ユーザーの結果をメモリから削除します。アカウントの削除でキーを削除した後に呼び出します。
+     * @param userId ユーザーID
+     */
+    public void evictUser(String userId) {
+        completed.keySet().removeIf(flightKey -> flightKey.userId.equals(userId));
+    }
+
+    /**
+     * すべてのシャードで、有効期限を過ぎたキーを一定件数ずつ削除します。
+     */
+    @Scheduled(fixedDelayString = "${diary.idempotency.purge-interval-ms:600000}")
+    public void purgeExpiredKeys() {
+        LocalDateTime now = LocalDateTime.now();
+        for (String shard : shardRouter.getShardNames()) {
+            try {
+                int deleted = ShardContext.call(shard, () -> {
+                    int total = 0;
+                    int batch;
+                    do {
+                        batch = transactionTemplate.execute(status -> repository.deleteExpired(now, 1000));
+                        total += batch;
+                    } while (batch == 1000);
+                    return total;
+                });
+                if (deleted > 0) {
+                    log.info("Deleted {} expired idempotency keys on shard {}", deleted, shard);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to delete expired idempotency keys on shard {}", shard, e);
+            }
+        }
+    }
+
+    /**
+     * データベースでキーを取得して書き込みを実行し、結果を保存します。
+     * キーを取得できなかった場合は、保存されている結果を返します。
+     */
+    private Executed executeOnce(String userId, String key, String requestHash,
+                                 Supplier<ResponseEntity<Map<String, Object>>> action) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (!acquire(userId, key, requestHash)) {
+            IdempotencyRecord record = repository.findById(new IdempotencyRecord.Key(userId, key)).orElse(null);
+            if (record == null) {
+                continue;
+            }
+            if (record.getStatusCode() != null) {
+                StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getStatusCode(),
+                    record.getResponseBody(), toEpochMillis(record.getExpiresAt()));
+                remember(new FlightKey(userId, key), stored);
+                return new Executed(stored, null);
+            }
+            if (!record.getRequestHash().equals(requestHash)) {
+                throw mismatch();
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "同じ Idempotency-Key のリクエストを処理中です。しばらくしてから再度お試しください");
+            }
+            sleep();
+        }
+
+        ResponseEntity<Map<String, Object>> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            transactionTemplate.execute(status -> repository.release(userId, key, owner));
+            throw e;
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(ttlMinutes);
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(),
+            encode(response.getBody()), toEpochMillis(expiresAt));
+        Integer updated = transactionTemplate.execute(status ->
+            repository.complete(userId, key, owner, stored.statusCode, stored.body, expiresAt));
+        if (updated == null || updated == 0) {
+            log.warn("Idempotency key lease expired before completion for user {}", userId);
+        }
+        remember(new FlightKey(userId, key), stored);
+        return new Executed(stored, response);
+    }
+
+    /**
+     * キーを実行中として記録します。有効期限を過ぎた古いキーは削除してから取得します。
+     * @return 取得できた場合 true
+     */
+    private boolean acquire(String userId, String key, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+        Boolean acquired = transactionTemplate.execute(status -> {
+            repository.deleteIfExpired(userId, key, now);
+            return repository.tryAcquire(userId, key, requestHash, owner, leaseUntil, now.plusMinutes(ttlMinutes)) == 1
+                || repository.takeOver(userId, key, owner, leaseUntil, now) == 1;
+        });
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    private ResponseEntity<Map<String, Object>> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash.equals(requestHash)) {
+            throw mismatch();
+        }
+        replays.increment();
+        try {
+            Map<String, Object> body = stored.body != null
+                ? objectMapper.readValue(CompressedTextConverter.decode(stored.body), BODY_TYPE) : null;
+            return ResponseEntity.status(stored.statusCode).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt idempotent response", e);
+        }
+    }
+
+    /**
+     * 結果をメモリに保持します。上限を超えた場合は任意の結果を捨てます（捨てた結果もデータベースから取得できます）。
+     */
+    private void remember(FlightKey flightKey, StoredResponse stored) {
+        completed.put(flightKey, stored);
+        if (completed.size() > maxCached) {
+            Iterator<FlightKey> keys = completed.keySet().iterator();
+            while (completed.size() > maxCached && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+    }
+
+    private byte[] encode(Map<String, Object> body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return CompressedTextConverter.encode(objectMapper.writeValueAsString(body), compressionThreshold);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotent response", e);
+        }
+    }
+
+    private String hash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to hash request", e);
+        }
+    }
+
+    private static ResponseStatusException mismatch() {
+        return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+            "この Idempotency-Key は内容の異なるリクエストに使用されています");
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for idempotent request", e);
+        }
+    }
+
+    /**
+     * 結果を共有する単位（ユーザーとキー）です。
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class FlightKey {
+        private final String userId;
+        private final String key;
+    }
+
+    /**
+     * 保存した結果です。レスポンスボディは保存形式のバイト列で保持します。
+     */
+    @AllArgsConstructor
+    private static class StoredResponse {
+        private final String requestHash;
+        private final int statusCode;
+        private final byte[] body;
+        private final long expiresAt;
+
+        boolean isExpired(long now) {
+            return expiresAt < now;
+        }
+    }
+
+    /**
+     * 実行の結果です。このリクエストで実行した場合は response にそのレスポンスを持ちます。
+     */
+    @AllArgsConstructor
+    private static class Executed {
+        private final StoredResponse stored;
+        private final ResponseEntity<Map<String, Object>> response;
+    }
+}
@@ -1,24 +1,42 @@
 package com.example.mydiaryapp.service;
 
 import java.util.Base64;
+import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import com.example.mydiaryapp.dto.DiaryRequest;
 import com.example.mydiaryapp.entity.Diary;
 import com.example.mydiaryapp.entity.Image;
+import com.example.mydiaryapp.jfr.ImageDecodeEvent;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * 画像データの保存・処理を行うサービスクラスです。
  * Base64形式の画像データを解析し、一意のファイル名を生成して
  * ストレージに保存します。
  */
+@Slf4j
 @Service
+@Timed(value = "diary.service", histogram = true)
 @RequiredArgsConstructor
 public class ImageService {
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService cleaner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Diaryエンティティに紐付く画像を保存します。
@@ -41,7 +59,7 @@ public class ImageService {
         
         // 実際の実装では、ここでファイルをクラウドストレージやローカルディスクに保存
         // 今回は簡易実装として、Base64データをそのままURLとして保存
-        String imageUrl = saveImageToStorage(data, uniqueFilename);
+        String imageUrl = saveImageToStorage(data, uniqueFilename, extension);
         
         Image image = new Image();
         image.setDiary(diary);
@@ -51,6 +69,42 @@ public class ImageService {
         return image;
     }
 
+    /**
+     * 保存済みの画像をストレージから削除します。
+     * 存在しない画像は無視するため、同じ画像に対して繰り返し呼び出すことができます。
+     * @param urls 削除する画像のURL
+     */
+    public void deleteFromStorage(Collection<String> urls) {
+        // 実際の実装では、ここでストレージのファイルを削除する（保存処理と同様に簡易実装）
+        for (String url : urls) {
+            log.debug("Deleting stored image {}", url);
+        }
+    }
+
+    /**
+     * 画像の行をまとめて削除したトランザクションのコミット後に、ストレージの画像を別スレッドで削除します。
+     * ロールバックされた場合は画像を残します。
+     * @param event 削除した画像のURLを含むイベント
+     */
+    @TransactionalEventListener
+    public void onImagesDeleted(ImagesDeletedEvent event) {
+        if (event.getUrls().isEmpty()) {
+            return;
+        }
+        cleaner.execute(() -> {
+            try {
+                deleteFromStorage(event.getUrls());
+            } catch (RuntimeException e) {
+                log.warn("Failed to delete {} stored images: {}", event.getUrls().size(), e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdown();
+    }
+
     /**
      * Data URL形式の文字列からMIMEタイプを抽出します。
      * @param dataUrl Base64を含むデータURL文字列
@@ -96,16 +150,33 @@ public class ImageService {
      * 画像のBase64データをストレージに保存し、アクセス用URLを生成します。
      * @param dataUrl Base64を含むデータURL文字列
      * @param filename 保存用の一意なファイル名
+     * @param extension ファイル拡張子（処理したバイト数のメトリクスの分類に使用）
      * @return 画像の公開URL
      * @throws RuntimeException 無効なデータまたは保存失敗時
      */
-    private String saveImageToStorage(String dataUrl, String filename) {
+    private String saveImageToStorage(String dataUrl, String filename, String extension) {
         try {
             // data:image/jpeg;base64,<base64-data> から base64データ部分を抽出
             int commaIndex = dataUrl.indexOf(',');
             if (commaIndex > 0) {
                 String base64Data = dataUrl.substring(commaIndex + 1);
+                ImageDecodeEvent event = new ImageDecodeEvent();
+                event.begin();
                 byte[] imageBytes = Base64.getDecoder().decode(base64Data);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.setFormat(extension.substring(1));
+                    event.setEncodedBytes(base64Data.length());
+                    event.setDecodedBytes(imageBytes.length);
+                    event.commit();
+                }
+                DistributionSummary.builder("diary.image.bytes")
+                    .description("保存した画像のデコード後のサイズ")
+                    .baseUnit("bytes")
+                    .tag("format", extension.substring(1))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(imageBytes.length);
                 
                 // 実際の実装では、ここでファイルシステムやクラウドストレージに保存
                 // 例: AWS S3, Google Cloud Storage, ローカルディスクなど
@@ -0,0 +1,17 @@
+package com.example.mydiaryapp.service;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 画像の行をSQLでまとめて削除したことを通知するアプリケーションイベントです。
+ * トランザクションのコミット後に、ストレージに保存された画像を {@link ImageService} が削除します。
+ */
+@Getter
+@AllArgsConstructor
+public class ImagesDeletedEvent {
+    /** 削除した画像のURL。 */
+    private final List<String> urls;
+}
@@ -0,0 +1,24 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalTime;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.mydiaryapp.entity.User;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * リマインダーをログに出力する実装です。ローカルでの動作確認に使用します。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "diary.reminder.sender", havingValue = "log", matchIfMissing = true)
+public class LogReminderSender implements ReminderSender {
+
+    @Override
+    public void send(User user, LocalTime reminderTime) {
+        log.info("Diary reminder for user {} ({})", user.getId(), reminderTime);
+    }
+}
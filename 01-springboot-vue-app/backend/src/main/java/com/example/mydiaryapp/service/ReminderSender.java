@@ -0,0 +1,19 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalTime;
+
+import com.example.mydiaryapp.entity.User;
+
+/**
+ * 日記のリマインダーを通知するインターフェースです。
+ * diary.reminder.sender で実装を切り替えます（log: ログに出力、smtp: メールで送信）。
+ */
+public interface ReminderSender {
+
+    /**
+     * ユーザーにリマインダーを通知します。
+     * @param user 通知先のユーザー
+     * @param reminderTime 通知時刻
+     */
+    void send(User user, LocalTime reminderTime);
+}
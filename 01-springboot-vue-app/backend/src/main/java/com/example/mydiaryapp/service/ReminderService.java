@@ -0,0 +1,268 @@
+package com.example.mydiaryapp.service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.mydiaryapp.config.ShardContext;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.entity.User;
+import com.example.mydiaryapp.repository.DiaryRepository;
+import com.example.mydiaryapp.repository.ReminderLeaseRepository;
+import com.example.mydiaryapp.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ユーザーが設定した時刻に、その日の日記を書いていないユーザーへリマインダーを通知するサービスクラスです。
+ *
+ * <ul>
+ *   <li>通知時刻は {@link ReminderWheel} に保持し、次の時間帯の分だけを事前に読み込みます。
+ *       users テーブルを毎分検索せず、設定の変更は更新日時で差分だけを読み込みます。</li>
+ *   <li>1分ごとの通知は、reminder_leases のリースを取得した1つのインスタンスだけが送信します。
+ *       送信を終えないまま停止した場合は、リースの期限切れ後に別のインスタンスが送信し直します。</li>
+ *   <li>通知の直前に最新の通知時刻と当日の日記の有無を確認し、日記を書いたユーザーには通知しません。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "diary.reminder.enabled", havingValue = "true", matchIfMissing = true)
+public class ReminderService {
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final UserRepository userRepository;
+    private final DiaryRepository diaryRepository;
+    private final ReminderLeaseRepository leaseRepository;
+    private final ShardRouter shardRouter;
+    private final ReminderSender sender;
+    private final TransactionTemplate transactionTemplate;
+    private final ReminderWheel wheel = new ReminderWheel();
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reminder-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter sent;
+    private final Counter skipped;
+    private final Counter failed;
+
+    @Value("${diary.reminder.preload-minutes:10}")
+    private int preloadMinutes;
+
+    @Value("${diary.reminder.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${diary.reminder.max-delay-minutes:30}")
+    private int maxDelayMinutes;
+
+    private LocalDateTime lastChangeCheck;
+
+    public ReminderService(UserRepository userRepository,
+                           DiaryRepository diaryRepository,
+                           ReminderLeaseRepository leaseRepository,
+                           ShardRouter shardRouter,
+                           ReminderSender sender,
+                           TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.diaryRepository = diaryRepository;
+        this.leaseRepository = leaseRepository;
+        this.shardRouter = shardRouter;
+        this.sender = sender;
+        this.transactionTemplate = transactionTemplate;
+        this.sent = meterRegistry.counter("diary.reminders", "result", "sent");
+        this.skipped = meterRegistry.counter("diary.reminders", "result", "skipped");
+        this.failed = meterRegistry.counter("diary.reminders", "result", "failed");
+        meterRegistry.gauge("diary.reminder.wheel.size", wheel, ReminderWheel::size);
+    }
+
+    /**
+     * 1分ごとにホイールを進め、通知時刻になったユーザーへの通知を送信スレッドに渡します。
+     */
+    @Scheduled(cron = "${diary.reminder.cron:0 * * * * *}")
+    public void tick() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        boolean firstTick = lastChangeCheck == null;
+        if (firstTick) {
+            lastChangeCheck = now;
+        } else {
+            applyChanges();
+        }
+
+        int hour = now.getHour();
+        if (wheel.getCurrentHour() != hour) {
+            if (!wheel.isLoaded(hour)) {
+                loadHour(hour);
+            }
+            // 起動直後は、過ぎた分の通知を他のインスタンスが送信済みとして扱う
+            wheel.advanceTo(hour, firstTick ? now.getMinute() : 0);
+        }
+        int nextHour = (hour + 1) % 24;
+        if (now.getMinute() >= 60 - preloadMinutes && !wheel.isLoaded(nextHour)) {
+            loadHour(nextHour);
+        }
+
+        wheel.takeUntil(now.getMinute()).forEach((minute, userIds) ->
+            dispatcher.execute(() -> dispatch(now.withMinute(minute), userIds)));
+        dispatcher.execute(() -> retryExpired(now));
+    }
+
+    /**
+     * ユーザーの通知時刻の変更をこのインスタンスのホイールに反映します。
+     * 他のインスタンスには、次の定期処理で更新日時による差分として反映されます。
+     * @param userId ユーザーID
+     * @param reminderTime 新しい通知時刻（null の場合は通知しない）
+     */
+    public void reschedule(String userId, LocalTime reminderTime) {
+        wheel.reschedule(userId, reminderTime);
+    }
+
+    /**
+     * 数日以上前のリースを削除します。
+     */
+    @Scheduled(cron = "${diary.reminder.cleanup-cron:0 30 4 * * *}")
+    public void purgeOldLeases() {
+        LocalDateTime before = LocalDateTime.now().minusDays(2);
+        Integer deleted = transactionTemplate.execute(status -> leaseRepository.deleteBefore(before));
+        log.debug("Purged {} reminder leases before {}", deleted, before);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private void loadHour(int hour) {
+        List<UserRepository.ReminderSetting> settings = userRepository.findRemindersBetween(
+            LocalTime.of(hour, 0), LocalTime.of(hour, 59, 59, 999_999_999));
+        wheel.load(hour, settings.stream().collect(Collectors.toMap(
+            UserRepository.ReminderSetting::getId, UserRepository.ReminderSetting::getReminderTime)));
+        log.debug("Loaded {} reminders for {}:00", settings.size(), hour);
+    }
+
+    /**
+     * 前回の確認以降に更新されたユーザーの通知時刻をホイールに反映します。
+     * コミットの遅れやインスタンス間の時刻のずれを考慮し、確認する期間を1分重ねます。
+     */
+    private void applyChanges() {
+        LocalDateTime checkedAt = LocalDateTime.now();
+        for (UserRepository.ReminderSetting setting : userRepository.findRemindersUpdatedSince(lastChangeCheck.minusMinutes(1))) {
+            wheel.reschedule(setting.getId(), setting.getReminderTime());
+        }
+        lastChangeCheck = checkedAt;
+    }
+
+    /**
+     * リースを取得できた場合に、指定した分の通知を送信します。
+     */
+    private void dispatch(LocalDateTime slot, Set<String> userIds) {
+        try {
+            LocalDateTime leaseUntil = LocalDateTime.now().plusSeconds(leaseSeconds);
+            Integer acquired = transactionTemplate.execute(status -> leaseRepository.tryAcquire(slot, owner, leaseUntil));
+            if (acquired == null || acquired == 0) {
+                return;
+            }
+            deliver(slot, userIds);
+        } catch (RuntimeException e) {
+            log.error("Failed to send reminders for {}", slot, e);
+        }
+    }
+
+    /**
+     * 送信を終えないまま期限を過ぎたリースを引き継ぎ、その分の通知を送信し直します。
+     * 対象のユーザーは通知時刻の索引で検索します。
+     */
+    private void retryExpired(LocalDateTime now) {
+        try {
+            for (LocalDateTime slot : leaseRepository.findExpired(now.minusMinutes(maxDelayMinutes), LocalDateTime.now())) {
+                LocalDateTime leaseUntil = LocalDateTime.now().plusSeconds(leaseSeconds);
+                Integer taken = transactionTemplate.execute(status ->
+                    leaseRepository.takeOver(slot, owner, leaseUntil, LocalDateTime.now()));
+                if (taken == null || taken == 0) {
+                    continue;
+                }
+                LocalTime time = slot.toLocalTime();
+                Set<String> userIds = userRepository.findRemindersBetween(time, time.plusSeconds(59)).stream()
+                    .map(UserRepository.ReminderSetting::getId)
+                    .collect(Collectors.toSet());
+                log.info("Taking over {} reminders for {} from an expired lease", userIds.size(), slot);
+                deliver(slot, userIds);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to retry expired reminder leases", e);
+        }
+    }
+
+    private void deliver(LocalDateTime slot, Set<String> userIds) {
+        LocalTime time = slot.toLocalTime();
+        List<User> users = new ArrayList<>();
+        for (List<String> chunk : chunks(userIds)) {
+            userRepository.findAllById(chunk).stream()
+                // ホイールに読み込んだ後に通知時刻が変更されたユーザーを除く
+                .filter(user -> user.getReminderTime() != null
+                    && user.getReminderTime().truncatedTo(ChronoUnit.MINUTES).equals(time))
+                .forEach(users::add);
+        }
+        Set<String> wroteToday = usersWithDiariesSince(
+            users.stream().map(User::getId).collect(Collectors.toList()), slot.toLocalDate().atStartOfDay());
+
+        for (User user : users) {
+            if (wroteToday.contains(user.getId())) {
+                skipped.increment();
+                continue;
+            }
+            try {
+                sender.send(user, time);
+                sent.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.warn("Failed to send a reminder to user {}: {}", user.getId(), e.getMessage());
+            }
+        }
+        transactionTemplate.execute(status -> leaseRepository.complete(slot, owner));
+    }
+
+    /**
+     * 指定したユーザーのうち、基準日時以降に日記を作成したユーザーを、日記を保持するシャードごとに検索します。
+     */
+    private Set<String> usersWithDiariesSince(Collection<String> userIds, LocalDateTime since) {
+        Map<String, List<String>> byShard = userIds.stream()
+            .collect(Collectors.groupingBy(shardRouter::shardFor));
+        Set<String> result = new HashSet<>();
+        byShard.forEach((shard, ids) -> {
+            for (List<String> chunk : chunks(ids)) {
+                result.addAll(ShardContext.call(shard, () -> diaryRepository.findUserIdsWithDiariesSince(chunk, since)));
+            }
+        });
+        return result;
+    }
+
+    private static List<List<String>> chunks(Collection<String> ids) {
+        List<String> list = new ArrayList<>(ids);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += MAX_IDS_PER_QUERY) {
+            chunks.add(list.subList(i, Math.min(i + MAX_IDS_PER_QUERY, list.size())));
+        }
+        return chunks;
+    }
+}
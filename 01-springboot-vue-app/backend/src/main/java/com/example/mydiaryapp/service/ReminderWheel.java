@@ -0,0 +1,161 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * リマインダーの通知時刻ごとにユーザーを振り分ける2階層のタイミングホイールです。
+ *
+ * <ul>
+ *   <li>上位のホイールは24時間分のスロットで、読み込み済みの時間帯のユーザーを保持します。</li>
+ *   <li>下位のホイールは現在の時間帯の60分ぶんのスロットで、時間帯が変わるときに上位のスロットの
+ *       ユーザーを分ごとのスロットへ移します（カスケード）。</li>
+ * </ul>
+ * 1日分のユーザーをまとめて保持せず、時間帯ごとに読み込んで使い終わったスロットを空にします。
+ * ユーザーIDだけを保持し、通知時にデータベースの内容を確認します。
+ */
+public class ReminderWheel {
+    private static final int HOURS = 24;
+    private static final int MINUTES = 60;
+
+    private final List<Map<String, Integer>> hourSlots = new ArrayList<>(HOURS);
+    private final List<Set<String>> minuteSlots = new ArrayList<>(MINUTES);
+    private final boolean[] loaded = new boolean[HOURS];
+    private final Map<String, LocalTime> positions = new HashMap<>();
+    private int currentHour = -1;
+    private int lastTakenMinute = -1;
+
+    public ReminderWheel() {
+        for (int i = 0; i < HOURS; i++) {
+            hourSlots.add(new HashMap<>());
+        }
+        for (int i = 0; i < MINUTES; i++) {
+            minuteSlots.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * 指定した時間帯のユーザーを上位のホイールに読み込みます。
+     * @param hour 時間帯（0～23）
+     * @param reminders ユーザーIDと通知時刻
+     */
+    public synchronized void load(int hour, Map<String, LocalTime> reminders) {
+        reminders.forEach((userId, time) -> {
+            if (time.getHour() == hour) {
+                remove(userId);
+                hourSlots.get(hour).put(userId, time.getMinute());
+                positions.put(userId, time);
+            }
+        });
+        loaded[hour] = true;
+    }
+
+    /**
+     * 指定した時間帯が読み込み済みかを返します。
+     * @param hour 時間帯（0～23）
+     * @return 読み込み済みの場合 true
+     */
+    public synchronized boolean isLoaded(int hour) {
+        return loaded[hour];
+    }
+
+    /**
+     * 現在の時間帯を返します。
+     * @return 時間帯（まだ進めていない場合は -1）
+     */
+    public synchronized int getCurrentHour() {
+        return currentHour;
+    }
+
+    /**
+     * 指定した時間帯に進め、上位のスロットのユーザーを分ごとのスロットへ移します。
+     * 前の時間帯で通知されずに残ったユーザーは破棄します。
+     * @param hour 時間帯（0～23）
+     * @param fromMinute この分より前は通知済みとして扱う（起動直後など）
+     */
+    public synchronized void advanceTo(int hour, int fromMinute) {
+        for (Set<String> slot : minuteSlots) {
+            slot.forEach(positions::remove);
+            slot.clear();
+        }
+        hourSlots.get(hour).forEach((userId, minute) -> {
+            if (minute >= fromMinute) {
+                minuteSlots.get(minute).add(userId);
+            } else {
+                positions.remove(userId);
+            }
+        });
+        hourSlots.get(hour).clear();
+        loaded[hour] = false;
+        currentHour = hour;
+        lastTakenMinute = fromMinute - 1;
+    }
+
+    /**
+     * 現在の時間帯で、前回から指定した分までのスロットのユーザーを取り出します。
+     * @param minute 取り出す最後の分
+     * @return 分ごとのユーザーIDの集合（キーは分）
+     */
+    public synchronized Map<Integer, Set<String>> takeUntil(int minute) {
+        Map<Integer, Set<String>> due = new HashMap<>();
+        for (int m = lastTakenMinute + 1; m <= minute; m++) {
+            Set<String> slot = minuteSlots.get(m);
+            if (!slot.isEmpty()) {
+                slot.forEach(positions::remove);
+                due.put(m, new HashSet<>(slot));
+                slot.clear();
+            }
+        }
+        lastTakenMinute = Math.max(lastTakenMinute, minute);
+        return due;
+    }
+
+    /**
+     * ユーザーの通知時刻の変更を反映します。
+     * 現在の時間帯のまだ通知していない分、または読み込み済みの時間帯であればスロットに追加し、
+     * それ以外の時間帯はその時間帯を読み込むときに追加されます。
+     * @param userId ユーザーID
+     * @param time 通知時刻（null の場合は通知しない）
+     */
+    public synchronized void reschedule(String userId, LocalTime time) {
+        remove(userId);
+        if (time == null) {
+            return;
+        }
+        int hour = time.getHour();
+        int minute = time.getMinute();
+        if (hour == currentHour) {
+            if (minute > lastTakenMinute) {
+                minuteSlots.get(minute).add(userId);
+                positions.put(userId, time);
+            }
+        } else if (loaded[hour]) {
+            hourSlots.get(hour).put(userId, minute);
+            positions.put(userId, time);
+        }
+    }
+
+    /**
+     * ホイールに登録されているユーザー数を返します。
+     * @return ユーザー数
+     */
+    public synchronized int size() {
+        return positions.size();
+    }
+
+    private void remove(String userId) {
+        LocalTime previous = positions.remove(userId);
+        if (previous == null) {
+            return;
+        }
+        if (previous.getHour() == currentHour) {
+            minuteSlots.get(previous.getMinute()).remove(userId);
+        }
+        hourSlots.get(previous.getHour()).remove(userId);
+    }
+}
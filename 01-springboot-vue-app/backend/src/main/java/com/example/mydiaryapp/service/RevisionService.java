@@ -0,0 +1,340 @@
+package com.example.mydiaryapp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.mydiaryapp.config.ShardContext;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.entity.DiaryRevision;
+import com.example.mydiaryapp.repository.DiaryRevisionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 日記の変更履歴を管理するサービスクラスです。
+ * 本文は直前の版からのバイナリ差分として保存し、一定間隔ごとに全文スナップショットを挟むため、
+ * 任意の版はスナップショットから最大 (間隔 - 1) 件の差分を適用するだけで復元できます。
+ * 履歴の書き込みはコミット後に日記IDごとに振り分けた書き込みスレッドで非同期に行います。
+ * 待ち行列が満杯の場合は空くまで呼び出し元を待たせ、待ちきれない場合はその版を書き込まずに数えます
+ * （同じ日記の版の順番は入れ替えません）。
+ */
+@Slf4j
+@Service
+public class RevisionService {
+    private static final int CACHE_ENTRIES_PER_WRITER = 256;
+
+    private final DiaryRevisionRepository revisionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final int snapshotInterval;
+    private final long enqueueWaitMillis;
+    private final ThreadPoolExecutor[] writers;
+    private final ReentrantLock[] submitLocks;
+    private final Map<String, Version>[] latestVersions;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter dropped;
+
+    @SuppressWarnings("unchecked")
+    public RevisionService(DiaryRevisionRepository revisionRepository,
+                           TransactionTemplate transactionTemplate,
+                           ShardRouter shardRouter,
+                           MeterRegistry meterRegistry,
+                           @Value("${diary.revision.snapshot-interval:20}") int snapshotInterval,
+                           @Value("${diary.revision.writer-threads:2}") int writerThreads,
+                           @Value("${diary.revision.queue-capacity:10000}") int queueCapacity,
+                           @Value("${diary.revision.enqueue-wait-ms:5000}") long enqueueWaitMillis) {
+        this.revisionRepository = revisionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.snapshotInterval = snapshotInterval;
+        this.enqueueWaitMillis = enqueueWaitMillis;
+        this.writers = new ThreadPoolExecutor[writerThreads];
+        this.submitLocks = new ReentrantLock[writerThreads];
+        this.latestVersions = new Map[writerThreads];
+        this.cacheHits = meterRegistry.counter("diary.cache.gets", "cache", "revision-latest", "result", "hit");
+        this.cacheMisses = meterRegistry.counter("diary.cache.gets", "cache", "revision-latest", "result", "miss");
+        this.dropped = meterRegistry.counter("diary.revision.dropped");
+        for (int i = 0; i < writerThreads; i++) {
+            String name = "revision-writer-" + i;
+            // 呼び出し元で書き込むと、先に待ち行列に入った同じ日記の版より先に保存されてしまうため、
+            // 書き込みスレッドを先に起動しておき、submit() で待ち行列へ直接追加する
+            writers[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+            writers[i].prestartCoreThread();
+            // 公平なロックで、待っている呼び出し元を到着順に待ち行列へ入れる
+            submitLocks[i] = new ReentrantLock(true);
+            latestVersions[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Version> eldest) {
+                    return size() > CACHE_ENTRIES_PER_WRITER;
+                }
+            };
+        }
+    }
+
+    /**
+     * 日記の作成・更新がコミットされた後に、新しい版の書き込みを予約します。
+     * 同じ日記の版は常に同じ書き込みスレッドで順番に処理されます。
+     * @param event 日記の変更イベント
+     */
+    @TransactionalEventListener(condition = "#event.type.name() != 'DELETED'")
+    public void onDiaryChanged(DiaryChangedEvent event) {
+        int stripe = Math.floorMod(event.getDiaryId().hashCode(), writers.length);
+        submit(event, stripe);
+    }
+
+    /**
+     * 書き込みスレッドの待ち行列に版の書き込みを追加します。
+     * 満杯の場合は最大 enqueueWaitMillis だけ待ち、空かなければ書き込みを諦めて
+     * diary.revision.dropped に数えます（次の変更は、その時点の内容を次の版として保存します）。
+     */
+    private void submit(DiaryChangedEvent event, int stripe) {
+        ThreadPoolExecutor writer = writers[stripe];
+        Runnable task = () -> record(event, stripe);
+        submitLocks[stripe].lock();
+        try {
+            if (writer.isShutdown() || !writer.getQueue().offer(task, enqueueWaitMillis, TimeUnit.MILLISECONDS)) {
+                dropped.increment();
+                log.error("Dropped revision for diary {}: writer queue {} is full", event.getDiaryId(), stripe);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+            log.error("Dropped revision for diary {}: interrupted while waiting for writer queue {}",
+                event.getDiaryId(), stripe);
+        } finally {
+            submitLocks[stripe].unlock();
+        }
+    }
+
+    /**
+     * 日記の削除と同じトランザクションで、その日記の全履歴を削除します。
+     * @param event 日記の削除イベント
+     */
+    @EventListener(condition = "#event.type.name() == 'DELETED'")
+    public void onDiaryDeleted(DiaryChangedEvent event) {
+        revisionRepository.deleteByDiaryId(event.getDiaryId());
+        int stripe = Math.floorMod(event.getDiaryId().hashCode(), writers.length);
+        synchronized (latestVersions[stripe]) {
+            latestVersions[stripe].remove(event.getDiaryId());
+        }
+    }
+
+    /**
+     * 指定日記の版一覧を新しい順に取得します。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     * @return 版番号、タイトル、感情、作成日時のリストを含むMap
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getRevisions(String userId, String diaryId) {
+        List<Map<String, Object>> revisions = revisionRepository
+            .findByDiaryIdAndUserIdOrderByRevisionNumberDesc(diaryId, userId).stream()
+            .map(summary -> {
+                Map<String, Object> map = new HashMap<>();
+                map.put("revision", summary.getRevisionNumber());
+                map.put("title", summary.getTitle());
+                map.put("emotion", summary.getEmotion());
+                map.put("createdAt", summary.getCreatedAt().toString());
+                return map;
+            })
+            .collect(Collectors.toList());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("diaryId", diaryId);
+        response.put("revisions", revisions);
+        return response;
+    }
+
+    /**
+     * 指定した版の日記を復元して取得します。
+     * @param userId ユーザーID
+     * @param diaryId 日記ID
+     * @param revisionNumber 版番号
+     * @return 復元したタイトル、本文、感情を含むMap
+     * @throws RuntimeException 指定した版が存在しない場合
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getRevision(String userId, String diaryId, int revisionNumber) {
+        // 他のユーザーの日記の履歴を復元しないように、所有者を先に確認する
+        if (!revisionRepository.existsByDiaryIdAndUserIdAndRevisionNumber(diaryId, userId, revisionNumber)) {
+            throw new RuntimeException("履歴が見つかりません");
+        }
+        Version version = reconstruct(diaryId, revisionNumber);
+        if (version == null || !version.getUserId().equals(userId)) {
+            throw new RuntimeException("履歴が見つかりません");
+        }
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("diaryId", diaryId);
+        map.put("revision", version.getRevisionNumber());
+        map.put("title", version.getTitle());
+        map.put("content", new String(version.getContent(), StandardCharsets.UTF_8));
+        map.put("emotion", version.getEmotion());
+        map.put("createdAt", version.getCreatedAt().toString());
+        return map;
+    }
+
+    /**
+     * 変更内容を新しい版として保存します。
+     * 直前の版と内容が同じ場合は保存しません。
+     */
+    private void record(DiaryChangedEvent event, int stripe) {
+        try {
+            // 書き込みスレッドには認証情報がないため、所有者のシャードを明示する
+            ShardContext.run(shardRouter.shardFor(event.getUserId()), () -> transactionTemplate.executeWithoutResult(status -> {
+                String diaryId = event.getDiaryId();
+                byte[] content = toBytes(event.getContent());
+                Integer latest = revisionRepository.findLatestRevisionNumber(diaryId);
+
+                DiaryRevision revision = new DiaryRevision();
+                revision.setDiaryId(diaryId);
+                revision.setUserId(event.getUserId());
+                revision.setTitle(event.getTitle());
+                revision.setEmotion(event.getEmotion());
+
+                if (latest == null) {
+                    revision.setRevisionNumber(1);
+                    revision.setSnapshot(true);
+                    revision.setData(content);
+                } else {
+                    Version previous = latestVersion(diaryId, latest, stripe);
+                    if (Objects.equals(previous.getTitle(), event.getTitle())
+                            && Objects.equals(previous.getEmotion(), event.getEmotion())
+                            && Arrays.equals(previous.getContent(), content)) {
+                        return;
+                    }
+                    int number = latest + 1;
+                    revision.setRevisionNumber(number);
+                    byte[] delta = BinaryDelta.encode(previous.getContent(), content);
+                    // 定期的なスナップショット、または差分の方が大きい場合は全文を保存する
+                    if ((number - 1) % snapshotInterval == 0 || delta.length >= content.length) {
+                        revision.setSnapshot(true);
+                        revision.setData(content);
+                    } else {
+                        revision.setSnapshot(false);
+                        revision.setData(delta);
+                    }
+                }
+
+                DiaryRevision saved = revisionRepository.save(revision);
+                synchronized (latestVersions[stripe]) {
+                    latestVersions[stripe].put(diaryId, new Version(saved.getRevisionNumber(), event.getUserId(),
+                        event.getTitle(), event.getEmotion(), content, saved.getCreatedAt()));
+                }
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // 別インスタンスが同じ版番号を先に書き込んだ場合
+            log.warn("Skipped conflicting revision for diary {}: {}", event.getDiaryId(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Failed to record revision for diary {}", event.getDiaryId(), e);
+        }
+    }
+
+    /**
+     * 最新の版を取得します。キャッシュが最新の版番号と一致する場合は復元を省略します。
+     */
+    private Version latestVersion(String diaryId, int latest, int stripe) {
+        synchronized (latestVersions[stripe]) {
+            Version cached = latestVersions[stripe].get(diaryId);
+            if (cached != null && cached.getRevisionNumber() == latest) {
+                cacheHits.increment();
+                return cached;
+            }
+        }
+        cacheMisses.increment();
+        return reconstruct(diaryId, latest);
+    }
+
+    /**
+     * 直近のスナップショットに差分を順に適用して、指定した版を復元します。
+     * @return 復元した版（存在しない場合は null）
+     */
+    private Version reconstruct(String diaryId, int revisionNumber) {
+        DiaryRevision snapshot = revisionRepository
+            .findFirstByDiaryIdAndSnapshotTrueAndRevisionNumberLessThanEqualOrderByRevisionNumberDesc(
+                diaryId, revisionNumber)
+            .orElse(null);
+        if (snapshot == null) {
+            return null;
+        }
+
+        DiaryRevision target = snapshot;
+        byte[] content = snapshot.getData();
+        if (snapshot.getRevisionNumber() < revisionNumber) {
+            List<DiaryRevision> deltas = revisionRepository.findByDiaryIdAndRevisionNumberBetweenOrderByRevisionNumberAsc(
+                diaryId, snapshot.getRevisionNumber() + 1, revisionNumber);
+            for (DiaryRevision delta : deltas) {
+                content = delta.isSnapshot() ? delta.getData() : BinaryDelta.apply(content, delta.getData());
+                target = delta;
+            }
+            if (target.getRevisionNumber() != revisionNumber) {
+                return null;
+            }
+        }
+        return new Version(target.getRevisionNumber(), target.getUserId(), target.getTitle(),
+            target.getEmotion(), content, target.getCreatedAt());
+    }
+
+    private static byte[] toBytes(String content) {
+        return content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 書き込みスレッドを停止し、予約済みの履歴書き込みの完了を待ちます。
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor writer : writers) {
+            writer.shutdown();
+        }
+        for (ThreadPoolExecutor writer : writers) {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 復元済みの1つの版を表すクラスです。
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class Version {
+        private final int revisionNumber;
+        private final String userId;
+        private final String title;
+        private final String emotion;
+        private final byte[] content;
+        private final LocalDateTime createdAt;
+    }
+}
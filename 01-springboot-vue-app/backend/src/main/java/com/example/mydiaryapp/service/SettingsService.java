@@ -0,0 +1,71 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.mydiaryapp.config.ShardContext;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.dto.SettingsRequest;
+import com.example.mydiaryapp.entity.User;
+import com.example.mydiaryapp.repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ユーザー設定（表示テーマ・リマインダー時刻）の取得と更新を行うサービスクラスです。
+ * ユーザー情報はディレクトリシャードのものを正とするため、シャーディング有効時もディレクトリシャードを更新します。
+ */
+@Service
+@RequiredArgsConstructor
+public class SettingsService {
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<ReminderService> reminderService;
+
+    /**
+     * ユーザー設定を取得します。
+     * @param userId ユーザーID
+     * @return テーマとリマインダー時刻を含むMap
+     */
+    public Map<String, Object> getSettings(String userId) {
+        User user = ShardContext.call(shardRouter.getDirectoryShard(), () -> userRepository.findById(userId))
+            .orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
+        return convertToMap(user);
+    }
+
+    /**
+     * ユーザー設定を更新し、リマインダーの通知時刻の変更をスケジューラに反映します。
+     * @param userId ユーザーID
+     * @param request テーマとリマインダー時刻
+     * @return 更新後のテーマとリマインダー時刻を含むMap
+     */
+    public Map<String, Object> updateSettings(String userId, SettingsRequest request) {
+        LocalTime reminderTime = request.getReminderTime() != null
+            ? request.getReminderTime().truncatedTo(ChronoUnit.MINUTES) : null;
+        User user = ShardContext.call(shardRouter.getDirectoryShard(), () -> transactionTemplate.execute(status -> {
+            User found = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
+            if (request.getTheme() != null) {
+                found.setTheme(request.getTheme());
+            }
+            found.setReminderTime(reminderTime);
+            return found;
+        }));
+        reminderService.ifAvailable(service -> service.reschedule(userId, reminderTime));
+        return convertToMap(user);
+    }
+
+    private Map<String, Object> convertToMap(User user) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("theme", user.getTheme());
+        map.put("reminderTime", user.getReminderTime() != null ? user.getReminderTime().toString() : null);
+        return map;
+    }
+}
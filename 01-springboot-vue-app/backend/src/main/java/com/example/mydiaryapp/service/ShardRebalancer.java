@@ -0,0 +1,276 @@
+package com.example.mydiaryapp.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.mydiaryapp.config.ShardRouter;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ユーザーの日記データをシャード間で移動するサービスクラスです。
+ * シャードを追加した後などに、現在のシャードとホームシャードが異なるユーザーを
+ * バックグラウンドで1人ずつホームシャードへ移動します。
+ *
+ * 移動は次の手順で行い、その間もユーザーは日記を読み取ることができます。
+ * <ol>
+ *   <li>配置表に移動先を記録し、そのユーザーの書き込みを停止する</li>
+ *   <li>全インスタンスのキャッシュが更新されるまで待ち、移動元から移動先へデータを複製する</li>
+ *   <li>読み取り先を移動先に切り替え、キャッシュの更新を待ってから移動元のデータを削除する</li>
+ *   <li>書き込みを再開する</li>
+ * </ol>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "diary.sharding", name = "enabled", havingValue = "true")
+public class ShardRebalancer {
+    private static final int COPY_BATCH_SIZE = 500;
+
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final int usersPerRun;
+    private final long staleMoveSeconds;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shard-rebalancer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile String cursor = "";
+
+    public ShardRebalancer(ShardRouter shardRouter,
+                           @Value("${diary.sharding.rebalance.enabled:false}") boolean enabled,
+                           @Value("${diary.sharding.rebalance.users-per-run:100}") int usersPerRun,
+                           @Value("${diary.sharding.rebalance.stale-move-seconds:600}") long staleMoveSeconds) {
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.usersPerRun = usersPerRun;
+        this.staleMoveSeconds = staleMoveSeconds;
+    }
+
+    /**
+     * 定期的に再配置を開始します。前回の再配置が実行中の場合は何もしません。
+     * 移動には数秒かかるため、スケジューラのスレッドではなく専用のスレッドで実行します。
+     */
+    @Scheduled(fixedDelayString = "${diary.sharding.rebalance.interval-ms:60000}")
+    public void scheduleRebalance() {
+        if (enabled && running.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                try {
+                    rebalance();
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * ユーザーID順に配置を確認し、ホームシャード以外に置かれているユーザーを移動します。
+     * 1回の実行で確認するユーザー数には上限があり、続きは次回の実行で確認します。
+     * @return 移動したユーザー数
+     */
+    public int rebalance() {
+        int released = shardRouter.releaseStaleMoves(staleMoveSeconds);
+        if (released > 0) {
+            log.warn("Released {} stale shard moves", released);
+        }
+
+        List<Map<String, Object>> placements = shardRouter.findPlacements(cursor, usersPerRun);
+        cursor = placements.size() < usersPerRun ? "" : (String) placements.get(placements.size() - 1).get("id");
+        int moved = 0;
+        for (Map<String, Object> placement : placements) {
+            String userId = (String) placement.get("id");
+            String home = shardRouter.homeShard(userId);
+            if (!home.equals(placement.get("shard_key")) && moveUser(userId, home)) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * ユーザーの日記データを指定したシャードへ移動します。
+     * @param userId ユーザーID
+     * @param target 移動先のシャード名
+     * @return 移動した場合 true（既に移動先にある、または別の移動が実行中の場合は false）
+     */
+    public boolean moveUser(String userId, String target) {
+        String source = shardRouter.shardFor(userId);
+        if (source.equals(target) || !shardRouter.beginMove(userId, target)) {
+            return false;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            // 他のインスタンスが書き込み停止を認識し、実行中の書き込みが完了するまで待つ
+            awaitCacheExpiry();
+            shardRouter.copyUserRow(userId, target);
+            copyUserData(userId, shardRouter.getDataSource(source), shardRouter.getDataSource(target));
+        } catch (RuntimeException | InterruptedException e) {
+            shardRouter.endMove(userId);
+            log.error("Failed to copy diaries of user {} from {} to {}", userId, source, target, e);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        shardRouter.switchToTarget(userId);
+        try {
+            // 他のインスタンスの読み取りが移動先に切り替わるまで待ってから移動元を削除する
+            awaitCacheExpiry();
+            deleteUserData(userId, shardRouter.getDataSource(source),
+                !source.equals(shardRouter.getDirectoryShard()));
+        } catch (RuntimeException e) {
+            log.warn("Moved user {} to {} but failed to clean up {}: {}", userId, target, source, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            shardRouter.endMove(userId);
+        }
+        log.info("Moved user {} from {} to {} in {} ms", userId, source, target, System.currentTimeMillis() - started);
+        return true;
+    }
+
+    /**
+     * 1つのトランザクションで、移動先の中途半端なデータを削除してから移動元のデータを複製します。
+     * 本文や履歴はバイト列のまま複製するため、圧縮や差分の形式は変わりません。アーカイブ済みの日記とタグの使用件数も複製します。
+     * タグはシャードごとに採番されるため、名前で対応付けます。
+     */
+    private void copyUserData(String userId, DataSource source, DataSource target) {
+        JdbcTemplate from = new JdbcTemplate(source);
+        JdbcTemplate to = new JdbcTemplate(target);
+        new TransactionTemplate(new DataSourceTransactionManager(target)).executeWithoutResult(status -> {
+            deleteDiaries(to, userId);
+
+            copyRows(from, to, userId,
+                "SELECT id, user_id, title, content, emotion, created_at, updated_at FROM diaries WHERE user_id = ?",
+                "INSERT INTO diaries (id, user_id, title, content, emotion, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)", 7);
+            copyRows(from, to, userId,
+                "SELECT i.id, i.diary_id, i.url, i.filename, i.created_at FROM images i "
+                    + "JOIN diaries d ON d.id = i.diary_id WHERE d.user_id = ?",
+                "INSERT INTO images (id, diary_id, url, filename, created_at) VALUES (?, ?, ?, ?, ?)", 5);
+            copyRows(from, to, userId,
+                "SELECT diary_id, user_id, revision_number, snapshot, title, emotion, data, created_at "
+                    + "FROM diary_revisions WHERE user_id = ?",
+                "INSERT INTO diary_revisions (diary_id, user_id, revision_number, snapshot, title, emotion, data, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", 8);
+
+            copyRows(from, to, userId,
+                "SELECT id, user_id, title, content, emotion, created_at, updated_at, archived_at "
+                    + "FROM archived_diaries WHERE user_id = ?",
+                "INSERT INTO archived_diaries (id, user_id, title, content, emotion, created_at, updated_at, archived_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", 8);
+            copyRows(from, to, userId,
+                "SELECT a.diary_id, a.tag_name FROM archived_diary_tags a "
+                    + "JOIN archived_diaries d ON d.id = a.diary_id WHERE d.user_id = ?",
+                "INSERT INTO archived_diary_tags (diary_id, tag_name) VALUES (?, ?)", 2);
+            copyRows(from, to, userId,
+                "SELECT a.diary_id, a.image_id, a.url, a.filename, a.created_at FROM archived_diary_images a "
+                    + "JOIN archived_diaries d ON d.id = a.diary_id WHERE d.user_id = ?",
+                "INSERT INTO archived_diary_images (diary_id, image_id, url, filename, created_at) VALUES (?, ?, ?, ?, ?)", 5);
+            copyRows(from, to, userId,
+                "SELECT a.diary_id, a.revision_number, a.snapshot, a.title, a.emotion, a.data, a.created_at "
+                    + "FROM archived_diary_revisions a JOIN archived_diaries d ON d.id = a.diary_id WHERE d.user_id = ?",
+                "INSERT INTO archived_diary_revisions (diary_id, revision_number, snapshot, title, emotion, data, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)", 7);
+            copyRows(from, to, userId,
+                "SELECT user_id, tag_name, diary_count, last_used_at FROM tag_usages WHERE user_id = ?",
+                "INSERT INTO tag_usages (user_id, tag_name, diary_count, last_used_at) VALUES (?, ?, ?, ?)", 4);
+
+            List<Map<String, Object>> diaryTags = from.queryForList(
+                "SELECT dt.diary_id, t.name FROM diary_tags dt JOIN tags t ON t.id = dt.tag_id "
+                    + "JOIN diaries d ON d.id = dt.diary_id WHERE d.user_id = ?", userId);
+            Map<String, Long> tagIds = new HashMap<>();
+            List<Object[]> links = new ArrayList<>(diaryTags.size());
+            for (Map<String, Object> row : diaryTags) {
+                String name = (String) row.get("name");
+                Long tagId = tagIds.computeIfAbsent(name, key -> {
+                    to.update("INSERT IGNORE INTO tags (name) VALUES (?)", key);
+                    return to.queryForObject("SELECT id FROM tags WHERE name = ?", Long.class, key);
+                });
+                links.add(new Object[] {row.get("diary_id"), tagId});
+            }
+            to.batchUpdate("INSERT INTO diary_tags (diary_id, tag_id) VALUES (?, ?)", links);
+        });
+    }
+
+    /**
+     * 移動元のシャードからユーザーの日記データを削除します。
+     * @param deleteUser ユーザー情報の複製も削除する場合 true（ディレクトリシャードの場合は false）
+     */
+    private void deleteUserData(String userId, DataSource source, boolean deleteUser) {
+        JdbcTemplate jdbc = new JdbcTemplate(source);
+        new TransactionTemplate(new DataSourceTransactionManager(source)).executeWithoutResult(status -> {
+            deleteDiaries(jdbc, userId);
+            if (deleteUser) {
+                jdbc.update("DELETE FROM users WHERE id = ?", userId);
+            }
+        });
+    }
+
+    private static void deleteDiaries(JdbcTemplate jdbc, String userId) {
+        jdbc.update("DELETE dt FROM diary_tags dt JOIN diaries d ON d.id = dt.diary_id WHERE d.user_id = ?", userId);
+        jdbc.update("DELETE i FROM images i JOIN diaries d ON d.id = i.diary_id WHERE d.user_id = ?", userId);
+        jdbc.update("DELETE FROM diary_revisions WHERE user_id = ?", userId);
+        jdbc.update("DELETE FROM diaries WHERE user_id = ?", userId);
+        jdbc.update("DELETE a FROM archived_diary_tags a JOIN archived_diaries d ON d.id = a.diary_id "
+            + "WHERE d.user_id = ?", userId);
+        jdbc.update("DELETE a FROM archived_diary_images a JOIN archived_diaries d ON d.id = a.diary_id "
+            + "WHERE d.user_id = ?", userId);
+        jdbc.update("DELETE a FROM archived_diary_revisions a JOIN archived_diaries d ON d.id = a.diary_id "
+            + "WHERE d.user_id = ?", userId);
+        jdbc.update("DELETE FROM archived_diaries WHERE user_id = ?", userId);
+        jdbc.update("DELETE FROM tag_usages WHERE user_id = ?", userId);
+    }
+
+    /**
+     * 検索結果を一定件数ずつバッチで挿入します。
+     */
+    private static void copyRows(JdbcTemplate from, JdbcTemplate to, String userId,
+                                 String selectSql, String insertSql, int columns) {
+        List<Object[]> batch = new ArrayList<>(COPY_BATCH_SIZE);
+        from.query(selectSql, rs -> {
+            Object[] row = new Object[columns];
+            for (int i = 0; i < columns; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            batch.add(row);
+            if (batch.size() == COPY_BATCH_SIZE) {
+                to.batchUpdate(insertSql, batch);
+                batch.clear();
+            }
+        }, userId);
+        if (!batch.isEmpty()) {
+            to.batchUpdate(insertSql, batch);
+        }
+    }
+
+    private void awaitCacheExpiry() throws InterruptedException {
+        Thread.sleep(shardRouter.getCacheMillis() + 1000);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        worker.shutdownNow();
+        worker.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import com.example.mydiaryapp.entity.User;
+
+/**
+ * リマインダーをメールで送信する実装です。
+ * 送信先のSMTPサーバーは spring.mail.* で指定します。
+ */
+@Component
+@ConditionalOnProperty(name = "diary.reminder.sender", havingValue = "smtp")
+public class SmtpReminderSender implements ReminderSender {
+    private final JavaMailSender mailSender;
+    private final String from;
+
+    public SmtpReminderSender(JavaMailSender mailSender,
+                              @Value("${diary.reminder.mail-from:no-reply@my-diary-app.local}") String from) {
+        this.mailSender = mailSender;
+        this.from = from;
+    }
+
+    @Override
+    public void send(User user, LocalTime reminderTime) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(user.getEmail());
+        message.setSubject("今日の日記を書きましょう");
+        message.setText(user.getUsername() + " さん\n\n"
+            + "今日の日記はまだ書かれていません。今日の出来事や気持ちを記録しておきましょう。\n\n"
+            + "（このメールは設定画面のリマインダー時刻 " + reminderTime + " に送信されています）");
+        mailSender.send(message);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.mydiaryapp.service;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.example.mydiaryapp.entity.TagUsage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 1ユーザーのタグ名の前方一致検索用の索引です。
+ * 正規化したタグ名を昇順に並べた配列を持ち、二分探索で前方一致する範囲を求めます。
+ * 候補は使用件数と最後に使用した日時から計算したスコアの高い順に返します。
+ * 索引は不変で、更新時は新しい索引を作成するため、検索中の索引は同期せずに読み取れます。
+ */
+final class TagPrefixIndex {
+    private final String[] keys;
+    private final String[] names;
+    private final int[] counts;
+    /** 最後に使用した日時（エポック秒、不明な場合は 0）。 */
+    private final long[] lastUsed;
+
+    private TagPrefixIndex(List<Entry> entries) {
+        entries.sort(Comparator.comparing(Entry::getKey).thenComparing(Entry::getName));
+        int size = entries.size();
+        keys = new String[size];
+        names = new String[size];
+        counts = new int[size];
+        lastUsed = new long[size];
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries.get(i);
+            keys[i] = entry.getKey();
+            names[i] = entry.getName();
+            counts[i] = entry.getCount();
+            lastUsed[i] = entry.getLastUsed();
+        }
+    }
+
+    /**
+     * タグの使用件数から索引を作成します。
+     * @param usages 件数が1以上のタグの使用件数
+     * @return 作成した索引
+     */
+    static TagPrefixIndex build(Collection<TagUsage> usages) {
+        List<Entry> entries = new ArrayList<>(usages.size());
+        for (TagUsage usage : usages) {
+            entries.add(new Entry(normalize(usage.getTagName()), usage.getTagName(), usage.getDiaryCount(),
+                toEpochSecond(usage.getLastUsedAt())));
+        }
+        return new TagPrefixIndex(entries);
+    }
+
+    /**
+     * 比較用にタグ名を正規化します（全角英数字・半角カナの統一と、英字の小文字化）。
+     * @param text タグ名または入力中の文字列
+     * @return 正規化した文字列
+     */
+    static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 前方一致するタグを、スコアの高い順に取得します。
+     * スコアは使用件数に、最後に使用してからの経過時間による減衰（半減期 halfLifeSeconds）を掛けた値です。
+     * @param prefix 入力中の文字列（空の場合はすべてのタグが対象）
+     * @param limit 取得件数
+     * @param now 現在日時（エポック秒）
+     * @param halfLifeSeconds スコアが半分になる経過時間（秒）
+     * @return 候補のリスト
+     */
+    List<Suggestion> search(String prefix, int limit, long now, double halfLifeSeconds) {
+        String key = normalize(prefix);
+        Comparator<Suggestion> order = Comparator.comparingDouble(Suggestion::getScore)
+            .thenComparingInt(Suggestion::getCount)
+            .thenComparing(Suggestion::getName, Comparator.reverseOrder());
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(limit + 1, order);
+        for (int i = lowerBound(key); i < keys.length && keys[i].startsWith(key); i++) {
+            double age = lastUsed[i] > 0 ? Math.max(0, now - lastUsed[i]) : Double.POSITIVE_INFINITY;
+            double score = counts[i] * Math.pow(0.5, age / halfLifeSeconds);
+            top.add(new Suggestion(names[i], counts[i], score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Suggestion> result = new ArrayList<>(top);
+        result.sort(order.reversed());
+        return result;
+    }
+
+    /**
+     * 使用件数の増減を反映した新しい索引を作成します。件数が0以下になったタグは除きます。
+     * @param deltas タグ名ごとの増減
+     * @param usedAt 書き込みの日時（件数が増えたタグの最後に使用した日時になります）
+     * @return 新しい索引
+     */
+    TagPrefixIndex apply(Map<String, Integer> deltas, LocalDateTime usedAt) {
+        Map<String, Entry> entries = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            entries.put(names[i], new Entry(keys[i], names[i], counts[i], lastUsed[i]));
+        }
+        long usedSecond = toEpochSecond(usedAt);
+        deltas.forEach((name, delta) -> {
+            Entry current = entries.get(name);
+            int count = (current != null ? current.getCount() : 0) + delta;
+            if (count <= 0) {
+                entries.remove(name);
+            } else {
+                long last = delta > 0 ? usedSecond : current.getLastUsed();
+                entries.put(name, new Entry(normalize(name), name, count, last));
+            }
+        });
+        return new TagPrefixIndex(new ArrayList<>(entries.values()));
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * 正規化したタグ名が prefix 以上になる最初の位置を求めます。
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toEpochSecond(ZoneOffset.UTC) : 0;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final String key;
+        private final String name;
+        private final int count;
+        private final long lastUsed;
+    }
+
+    /**
+     * タグの入力候補を表すクラスです。
+     */
+    @Getter
+    @AllArgsConstructor
+    static class Suggestion {
+        private final String name;
+        private final int count;
+        private final double score;
+    }
+}
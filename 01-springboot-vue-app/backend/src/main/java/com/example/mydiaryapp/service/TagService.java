@@ -0,0 +1,251 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.mydiaryapp.config.ShardContext;
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.entity.Tag;
+import com.example.mydiaryapp.entity.TagUsage;
+import com.example.mydiaryapp.repository.ArchivedDiaryRepository;
+import com.example.mydiaryapp.repository.DiaryRepository;
+import com.example.mydiaryapp.repository.TagRepository;
+import com.example.mydiaryapp.repository.TagUsageRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * タグの一覧・名前の変更・統合と、タグの保守を行うサービスクラスです。
+ *
+ * <ul>
+ *   <li>タグは全ユーザーで共有されるため、名前の変更と統合は新しいタグを作成し、そのユーザーの日記の関連だけを
+ *       付け替えます。付け替えは日記ごとではなく、中間テーブルへのSQLでまとめて行います。</li>
+ *   <li>ユーザーごとのタグの使用件数を tag_usages に保持し、日記の書き込みと同じトランザクションで更新します。
+ *       変更は {@link TagUsageChangedEvent} で通知し、コミット後にタグの入力候補の索引へ反映されます。</li>
+ *   <li>どの日記からも参照されなくなったタグは、定期的に印を付け、一定時間が経過しても参照されていなければ
+ *       一定件数ずつ削除します。アーカイブ済みの日記のタグは名前で保持しているため、削除しても失われません。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TagService {
+    private final TagRepository tagRepository;
+    private final TagUsageRepository tagUsageRepository;
+    private final DiaryRepository diaryRepository;
+    private final ArchivedDiaryRepository archivedDiaryRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${diary.tag.collect-batch-size:500}")
+    private int batchSize;
+
+    @Value("${diary.tag.orphan-grace-minutes:60}")
+    private int graceMinutes;
+
+    /**
+     * 指定ユーザーが使用しているタグを、使用件数の多い順に取得します。
+     * @param userId ユーザーID
+     * @return タグ名と件数のリストを含むMap
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getTags(String userId) {
+        List<Map<String, Object>> tags = tagUsageRepository.findUsedByUserId(userId).stream()
+            .map(this::convertToMap)
+            .collect(Collectors.toList());
+        Map<String, Object> response = new HashMap<>();
+        response.put("tags", tags);
+        return response;
+    }
+
+    /**
+     * 指定ユーザーの日記のタグの名前を変更します。変更後の名前のタグが既にある場合は統合されます。
+     * @param userId ユーザーID
+     * @param name 変更前のタグ名
+     * @param newName 変更後のタグ名
+     * @return 変更後のタグ名と件数を含むMap
+     */
+    @Transactional
+    public Map<String, Object> renameTag(String userId, String name, String newName) {
+        return mergeTags(userId, List.of(name), newName);
+    }
+
+    /**
+     * 指定ユーザーの日記（アーカイブ済みを含む）に付いている複数のタグを1つのタグにまとめます。
+     * 他のユーザーの日記のタグは変更しません。元のタグは他のユーザーが使用していなければ、後で削除されます。
+     * @param userId ユーザーID
+     * @param sourceNames 統合するタグ名
+     * @param targetName 統合先のタグ名（存在しない場合は作成します）
+     * @return 統合先のタグ名と件数を含むMap
+     * @throws RuntimeException 統合するタグがない、またはユーザーが使用していない場合
+     */
+    @Transactional
+    public Map<String, Object> mergeTags(String userId, Collection<String> sourceNames, String targetName) {
+        Set<String> sources = new HashSet<>(sourceNames);
+        sources.remove(targetName);
+        if (sources.isEmpty()) {
+            throw new RuntimeException("統合するタグを指定してください");
+        }
+        if (!tagUsageRepository.existsUsed(userId, sources)) {
+            throw new RuntimeException("タグが見つかりません");
+        }
+
+        List<Long> sourceIds = tagRepository.findByNameIn(sources).stream()
+            .map(Tag::getId)
+            .collect(Collectors.toList());
+        if (!sourceIds.isEmpty()) {
+            Tag target = tagRepository.findByName(targetName)
+                .orElseGet(() -> {
+                    Tag newTag = new Tag();
+                    newTag.setName(targetName);
+                    return tagRepository.save(newTag);
+                });
+            target.setOrphanedAt(null);
+            diaryRepository.touchByUserIdAndTagIds(userId, sourceIds, LocalDateTime.now());
+            diaryRepository.copyTagLinksOfUser(userId, sourceIds, target.getId());
+            diaryRepository.deleteTagLinksOfUser(userId, sourceIds);
+        }
+        archivedDiaryRepository.copyTagsOfUser(userId, sources, targetName);
+        archivedDiaryRepository.deleteTagsOfUser(userId, sources);
+
+        Set<String> affected = new HashSet<>(sources);
+        affected.add(targetName);
+        recountUsage(userId, affected);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("name", targetName);
+        response.put("count", tagUsageRepository.findById(new TagUsage.Key(userId, targetName))
+            .map(TagUsage::getDiaryCount)
+            .orElse(0));
+        return response;
+    }
+
+    /**
+     * 日記の書き込みによるタグの使用件数の増減を反映します。呼び出し元のトランザクションで実行します。
+     * @param userId ユーザーID
+     * @param deltas タグ名ごとの増減（0のタグは無視します）
+     */
+    public void applyUsage(String userId, Map<String, Integer> deltas) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean changed = false;
+        boolean decreased = false;
+        for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+            if (delta.getValue() != 0) {
+                tagUsageRepository.addCount(userId, delta.getKey(), delta.getValue(), now);
+                changed = true;
+                decreased |= delta.getValue() < 0;
+            }
+        }
+        if (decreased) {
+            tagUsageRepository.deleteUnused(userId);
+        }
+        if (changed) {
+            eventPublisher.publishEvent(new TagUsageChangedEvent(userId, deltas, now));
+        }
+    }
+
+    /**
+     * 指定タグの使用件数を、ユーザーの日記から集計し直します。
+     * SQLでまとめてタグを変更し、日記ごとの増減がわからない場合に使用します。
+     * @param userId ユーザーID
+     * @param tagNames タグ名の集合
+     */
+    public void recountUsage(String userId, Collection<String> tagNames) {
+        if (tagNames.isEmpty()) {
+            return;
+        }
+        tagUsageRepository.deleteByTagNames(userId, tagNames);
+        tagUsageRepository.insertCounts(userId, tagNames);
+        eventPublisher.publishEvent(new TagUsageChangedEvent(userId, null, LocalDateTime.now()));
+    }
+
+    /**
+     * すべてのシャードで、参照されなくなったタグを削除します。
+     * 前回までに印を付けたタグを先に削除してから、新たに参照されなくなったタグに印を付けます。
+     */
+    @Scheduled(cron = "${diary.tag.collect-cron:0 30 4 * * *}")
+    public void collectOrphans() {
+        for (String shard : shardRouter.getShardNames()) {
+            try {
+                int deleted = ShardContext.call(shard, this::deleteOrphans);
+                int marked = ShardContext.call(shard, this::markOrphans);
+                if (deleted > 0 || marked > 0) {
+                    log.info("Deleted {} orphaned tags and marked {} new ones on shard {}", deleted, marked, shard);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to collect orphaned tags on shard {}", shard, e);
+            }
+        }
+    }
+
+    /**
+     * 印を付けてから一定時間が経過したタグのうち、現在も参照されていないものを一定件数ずつ削除します。
+     * 再び使われていたタグは印を外します。
+     * @return 削除した件数
+     */
+    int deleteOrphans() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(graceMinutes);
+        int total = 0;
+        while (true) {
+            int[] result = transactionTemplate.execute(status -> {
+                List<Long> ids = tagRepository.findIdsOrphanedBefore(before, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    return new int[] {0, 0};
+                }
+                int deleted = tagRepository.deleteOrphansByIdIn(ids);
+                if (deleted < ids.size()) {
+                    tagRepository.unmarkOrphaned(ids);
+                }
+                return new int[] {ids.size(), deleted};
+            });
+            total += result[1];
+            if (result[0] < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * どの日記からも参照されていないタグに、ID順に一定件数ずつ印を付けます。
+     * @return 印を付けた件数
+     */
+    int markOrphans() {
+        LocalDateTime now = LocalDateTime.now();
+        long afterId = 0;
+        int total = 0;
+        while (true) {
+            List<Long> ids = tagRepository.findUnmarkedOrphanIds(afterId, batchSize);
+            if (ids.isEmpty()) {
+                return total;
+            }
+            total += transactionTemplate.execute(status -> tagRepository.markOrphaned(ids, now));
+            if (ids.size() < batchSize) {
+                return total;
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private Map<String, Object> convertToMap(TagUsage usage) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", usage.getTagName());
+        map.put("count", usage.getDiaryCount());
+        return map;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.mydiaryapp.repository.TagUsageRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 日記の入力フォームで、入力中の文字列に前方一致するタグの候補を返すサービスクラスです。
+ *
+ * <ul>
+ *   <li>ユーザーごとの索引（{@link TagPrefixIndex}）をメモリに保持し、候補の検索ではデータベースにアクセスしません。
+ *       索引は最初の検索時に tag_usages から作成します。作成中に書き込みがコミットされた場合は、
+ *       その変更を含まない可能性があるため、作成した索引は保持せずに次の検索で作成し直します。</li>
+ *   <li>このインスタンスでの日記の書き込みは、コミット後に索引へ反映します。別のインスタンスでの書き込みは、
+ *       索引を作成し直すまで（最大 diary.tag-suggest.max-age-minutes）反映されません。</li>
+ *   <li>一定時間検索されなかったユーザーの索引は破棄します。</li>
+ * </ul>
+ */
+@Service
+public class TagSuggestionService {
+    /** 一度に返す候補の最大件数。 */
+    public static final int MAX_LIMIT = 20;
+
+    private final TagUsageRepository tagUsageRepository;
+    private final Map<String, CachedIndex> indexes = new ConcurrentHashMap<>();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final long idleMillis;
+    private final long maxAgeMillis;
+    private final double halfLifeSeconds;
+
+    public TagSuggestionService(TagUsageRepository tagUsageRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${diary.tag-suggest.idle-minutes:10}") long idleMinutes,
+                                @Value("${diary.tag-suggest.max-age-minutes:10}") long maxAgeMinutes,
+                                @Value("${diary.tag-suggest.half-life-days:30}") double halfLifeDays) {
+        this.tagUsageRepository = tagUsageRepository;
+        this.idleMillis = idleMinutes * 60_000;
+        this.maxAgeMillis = maxAgeMinutes * 60_000;
+        this.halfLifeSeconds = halfLifeDays * 86_400;
+        this.cacheHits = meterRegistry.counter("diary.cache.gets", "cache", "tag-suggestions", "result", "hit");
+        this.cacheMisses = meterRegistry.counter("diary.cache.gets", "cache", "tag-suggestions", "result", "miss");
+        meterRegistry.gaugeMapSize("diary.tag.suggest.users", List.of(), indexes);
+    }
+
+    /**
+     * 入力中の文字列に前方一致するタグを、よく使う・最近使ったタグから順に取得します。
+     * 英字の大文字・小文字と、全角・半角の違いは区別しません。
+     * @param userId ユーザーID
+     * @param prefix 入力中の文字列（空の場合はすべてのタグが対象）
+     * @param limit 取得件数（最大 {@link #MAX_LIMIT}）
+     * @return タグ名と件数のリストを含むMap
+     */
+    public Map<String, Object> suggest(String userId, String prefix, int limit) {
+        int count = Math.max(1, Math.min(limit, MAX_LIMIT));
+        long now = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        List<Map<String, Object>> suggestions = index(userId)
+            .search(prefix != null ? prefix.trim() : "", count, now, halfLifeSeconds).stream()
+            .map(this::convertToMap)
+            .collect(Collectors.toList());
+        Map<String, Object> response = new HashMap<>();
+        response.put("suggestions", suggestions);
+        return response;
+    }
+
+    /**
+     * タグの使用件数の変更を、コミット後に索引へ反映します。
+     * 件数を集計し直した場合と、索引を作成中の場合は、次の検索で作成し直すため索引を破棄します。
+     * @param event タグの使用件数の変更イベント
+     */
+    @TransactionalEventListener
+    public void onTagUsageChanged(TagUsageChangedEvent event) {
+        if (event.getDeltas() == null) {
+            indexes.remove(event.getUserId());
+            return;
+        }
+        indexes.computeIfPresent(event.getUserId(), (userId, cached) -> cached.getIndex() == null ? null
+            : new CachedIndex(cached.getIndex().apply(event.getDeltas(), event.getUsedAt()), cached.getLoadedAt(),
+                cached.lastAccess));
+    }
+
+    /**
+     * 一定時間検索されなかった索引と、作成から一定時間が経過した索引を破棄します。
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        indexes.values().removeIf(cached -> cached.lastAccess < now - idleMillis || cached.isExpired(now));
+    }
+
+    /**
+     * ユーザーの索引を取得します。索引がない場合は作成します。
+     * 作成の前に作成中を表す目印を登録し、作成中に変更が反映されて目印が破棄された場合は、作成した索引を保持しません。
+     */
+    private TagPrefixIndex index(String userId) {
+        long now = System.currentTimeMillis();
+        CachedIndex cached = indexes.get(userId);
+        if (cached != null && cached.getIndex() != null && !cached.isExpired(now)) {
+            cacheHits.increment();
+            cached.lastAccess = now;
+            return cached.getIndex();
+        }
+        cacheMisses.increment();
+        CachedIndex loading = new CachedIndex(null, now, now);
+        indexes.put(userId, loading);
+        TagPrefixIndex index;
+        try {
+            index = TagPrefixIndex.build(tagUsageRepository.findUsedByUserId(userId));
+        } catch (RuntimeException e) {
+            indexes.remove(userId, loading);
+            throw e;
+        }
+        indexes.replace(userId, loading, new CachedIndex(index, now, now));
+        return index;
+    }
+
+    private Map<String, Object> convertToMap(TagPrefixIndex.Suggestion suggestion) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", suggestion.getName());
+        map.put("count", suggestion.getCount());
+        return map;
+    }
+
+    /**
+     * メモリに保持しているユーザーの索引を表すクラスです。
+     */
+    @Getter
+    @AllArgsConstructor
+    private class CachedIndex {
+        /** 索引（作成中の場合は null）。 */
+        private final TagPrefixIndex index;
+        private final long loadedAt;
+        /** 最後に検索された日時（ミリ秒）。 */
+        private volatile long lastAccess;
+
+        boolean isExpired(long now) {
+            return loadedAt < now - maxAgeMillis;
+        }
+    }
+}
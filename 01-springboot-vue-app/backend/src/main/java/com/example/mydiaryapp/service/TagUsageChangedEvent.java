@@ -0,0 +1,23 @@
+package com.example.mydiaryapp.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * ユーザーのタグの使用件数が変わったことを通知するアプリケーションイベントです。
+ * {@link TagService} がトランザクション内で発行し、コミット後にタグの入力候補の索引へ反映されます。
+ */
+@Getter
+@AllArgsConstructor
+public class TagUsageChangedEvent {
+    private final String userId;
+
+    /** タグ名ごとの件数の増減（集計し直した場合は null）。 */
+    private final Map<String, Integer> deltas;
+
+    /** 書き込みの日時。 */
+    private final LocalDateTime usedAt;
+}
@@ -0,0 +1,162 @@
+package com.example.mydiaryapp.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 応答時間を与えて上限の増減を確認します。
+ * 再計算の間隔を0ミリ秒にし、計測数だけで再計算されるようにして結果を時刻に依存させません。
+ */
+class AdaptiveConcurrencyLimitTest {
+    private static final int SAMPLES = 10;
+    private static final long BASE_RTT = 10_000_000;
+
+    @Test
+    void decreasesWhileRequestsQueue() {
+        AdaptiveConcurrencyLimit limit = newLimit(20);
+        window(limit, 20, BASE_RTT);
+        int previous = limit.getLimit();
+
+        // 基準の4倍の応答時間が続く間は、再計算のたびに上限を下げる
+        for (int i = 0; i < 5; i++) {
+            window(limit, 50, BASE_RTT * 4);
+            assertThat(limit.getLimit()).isLessThan(previous);
+            previous = limit.getLimit();
+        }
+    }
+
+    @Test
+    void staysAtMinimumUnderSustainedQueueing() {
+        AdaptiveConcurrencyLimit limit = newLimit(20);
+        window(limit, 20, BASE_RTT);
+
+        for (int i = 0; i < 25; i++) {
+            window(limit, 50, BASE_RTT * 4);
+            assertThat(limit.getLimit()).isGreaterThanOrEqualTo(2);
+        }
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void recoversWhenLatencyReturnsToBaseline() {
+        AdaptiveConcurrencyLimit limit = newLimit(20);
+        window(limit, 20, BASE_RTT);
+        for (int i = 0; i < 10; i++) {
+            window(limit, 50, BASE_RTT * 4);
+        }
+        int lowered = limit.getLimit();
+        assertThat(lowered).isLessThan(10);
+
+        int previous = lowered;
+        for (int i = 0; i < 10; i++) {
+            window(limit, 50, BASE_RTT);
+            assertThat(limit.getLimit()).isGreaterThanOrEqualTo(previous);
+            previous = limit.getLimit();
+        }
+        assertThat(limit.getLimit()).isGreaterThan(lowered);
+    }
+
+    @Test
+    void staysAtMaximumUnderBaselineLatency() {
+        AdaptiveConcurrencyLimit limit = newLimit(20);
+        for (int i = 0; i < 100; i++) {
+            window(limit, 100, BASE_RTT);
+            assertThat(limit.getLimit()).isLessThanOrEqualTo(50);
+        }
+        assertThat(limit.getLimit()).isEqualTo(50);
+    }
+
+    @Test
+    void doesNotGrowWhileUnderused() {
+        AdaptiveConcurrencyLimit limit = newLimit(20);
+        for (int i = 0; i < 10; i++) {
+            window(limit, 3, BASE_RTT);
+        }
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void toleratesLatencyWithinTolerance() {
+        AdaptiveConcurrencyLimit limit = newLimit(20);
+        window(limit, 20, BASE_RTT);
+        int previous = limit.getLimit();
+
+        window(limit, 50, BASE_RTT * 14 / 10);
+        assertThat(limit.getLimit()).isGreaterThanOrEqualTo(previous);
+    }
+
+    @Test
+    void clampsInitialLimitAndRejectsBeyondIt() {
+        assertThat(newLimit(1000).getLimit()).isEqualTo(50);
+        assertThat(newLimit(0).getLimit()).isEqualTo(2);
+
+        AdaptiveConcurrencyLimit limit = newLimit(3);
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+        assertThat(limit.getInFlight()).isEqualTo(3);
+
+        limit.release(BASE_RTT, false);
+        assertThat(limit.getInFlight()).isEqualTo(2);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void ignoresFailedRequests() {
+        AdaptiveConcurrencyLimit limit = newLimit(20);
+        window(limit, 20, BASE_RTT);
+        int previous = limit.getLimit();
+
+        // 例外で終了した処理の応答時間は使わない
+        for (int i = 0; i < 100; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+            limit.release(BASE_RTT * 100, false);
+        }
+        assertThat(limit.getLimit()).isEqualTo(previous);
+    }
+
+    @Test
+    void remeasuresBaselineAfterSustainedSlowdown() {
+        AdaptiveConcurrencyLimit limit = newLimit(20);
+        window(limit, 20, BASE_RTT);
+        for (int i = 0; i < 29; i++) {
+            window(limit, 50, BASE_RTT * 4);
+        }
+        assertThat(limit.getLimit()).isEqualTo(2);
+
+        // 30回目で遅い応答時間を新しい基準にし、以降はその応答時間で上限を戻していく
+        window(limit, 50, BASE_RTT * 4);
+        int remeasured = limit.getLimit();
+        for (int i = 0; i < 10; i++) {
+            window(limit, 50, BASE_RTT * 4);
+        }
+        assertThat(limit.getLimit()).isGreaterThan(remeasured);
+    }
+
+    private static AdaptiveConcurrencyLimit newLimit(int initialLimit) {
+        return new AdaptiveConcurrencyLimit(initialLimit, 2, 50, 1.5, 0, SAMPLES);
+    }
+
+    /**
+     * 上限まで（最大 demand 件）実行枠を確保したまま、1件ずつ返しては確保し直し、
+     * 1回の再計算に必要な件数の応答時間を記録します。
+     */
+    private static void window(AdaptiveConcurrencyLimit limit, int demand, long rttNanos) {
+        int held = 0;
+        while (held < demand && limit.tryAcquire()) {
+            held++;
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            limit.release(rttNanos, true);
+            held--;
+            if (limit.tryAcquire()) {
+                held++;
+            }
+        }
+        for (; held > 0; held--) {
+            limit.release(rttNanos, false);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.mydiaryapp.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.mydiaryapp.dto.RegisterRequest;
+import com.example.mydiaryapp.repository.DiaryRevisionRepository;
+import com.example.mydiaryapp.repository.UserRepository;
+import com.example.mydiaryapp.service.AuthService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link QueryBudget} のあるエンドポイントを実際に呼び出し、発行したSQLの件数が予算内であることを確認します。
+ * test プロファイルでは予算を超えたリクエストは 500 になるため、各エンドポイントの 200 を確認します。
+ * キーワード検索とタグの名前の変更・統合は MySQL 固有のSQL（UNCOMPRESS、複数テーブルの DELETE）を使うため、
+ * H2 では確認できず対象外です。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QueryBudgetIntegrationTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private DiaryRevisionRepository diaryRevisionRepository;
+
+    private String email;
+    private String token;
+    private String diaryId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = "user" + UUID.randomUUID().toString().substring(0, 8);
+        RegisterRequest register = new RegisterRequest();
+        register.setUsername(name);
+        email = name + "@example.com";
+        register.setEmail(email);
+        register.setPassword("password123");
+        token = (String) authService.register(register).join().get("token");
+
+        for (int i = 1; i <= 12; i++) {
+            diaryId = createDiary("日記 " + i, "本文 " + i, List.of("旅行", "食事", "tag" + i));
+        }
+        mockMvc.perform(authorized(put("/api/diaries/" + diaryId))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of(
+                    "title", "日記 12", "content", "本文 12 を書き直した", "tags", List.of("旅行")))))
+            .andExpect(status().isOk());
+        awaitRevision(diaryId, 2);
+    }
+
+    @Test
+    void listsDiariesWithinBudget() throws Exception {
+        mockMvc.perform(authorized(get("/api/diaries")))
+            .andExpect(status().isOk());
+        mockMvc.perform(authorized(get("/api/diaries").param("tag", "旅行").param("page", "2")))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void readsDiaryWithinBudget() throws Exception {
+        mockMvc.perform(authorized(get("/api/diaries/" + diaryId)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.title").value("日記 12"));
+    }
+
+    @Test
+    void readsDraftWithinBudget() throws Exception {
+        mockMvc.perform(authorized(get("/api/diaries/" + diaryId + "/draft")))
+            .andExpect(status().isNoContent());
+        mockMvc.perform(authorized(put("/api/diaries/" + diaryId + "/draft"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("title", "下書き", "content", "書きかけ"))))
+            .andExpect(status().isAccepted());
+        mockMvc.perform(authorized(get("/api/diaries/" + diaryId + "/draft")))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void readsRevisionsWithinBudget() throws Exception {
+        mockMvc.perform(authorized(get("/api/diaries/" + diaryId + "/revisions")))
+            .andExpect(status().isOk());
+        mockMvc.perform(authorized(get("/api/diaries/" + diaryId + "/revisions/1")))
+            .andExpect(status().isOk());
+        mockMvc.perform(authorized(get("/api/diaries/" + diaryId + "/revisions/2")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content").value("本文 12 を書き直した"));
+    }
+
+    @Test
+    void readsTagsWithinBudget() throws Exception {
+        mockMvc.perform(authorized(get("/api/tags")))
+            .andExpect(status().isOk());
+        mockMvc.perform(authorized(get("/api/tags/suggestions").param("prefix", "ta")))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void deliversAsyncResponses() throws Exception {
+        // 保持したレスポンスは、非同期処理の完了後のディスパッチで書き出す
+        MvcResult started = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("email", email, "password", "password123"))))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.token").isNotEmpty());
+    }
+
+    @Test
+    void failsRequestOverBudget() throws Exception {
+        MvcResult result = mockMvc.perform(authorized(get(OverBudgetController.PATH)))
+            .andExpect(status().isInternalServerError())
+            .andReturn();
+
+        assertThat(result.getResponse().getErrorMessage()).contains("budget 1");
+        // コントローラーのレスポンスは送信しない
+        assertThat(result.getResponse().getContentAsString()).doesNotContain("count");
+    }
+
+    private String createDiary(String title, String content, List<String> tags) throws Exception {
+        MvcResult result = mockMvc.perform(authorized(post("/api/diaries"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("title", title, "content", content, "tags", tags, "images", List.of()))))
+            .andExpect(status().isCreated())
+            .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("diaryId").asText();
+    }
+
+    /**
+     * 変更履歴は非同期に書き込むため、指定の版が保存されるまで待ちます。
+     */
+    private void awaitRevision(String diaryId, int revision) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Integer.valueOf(revision).equals(diaryRevisionRepository.findLatestRevisionNumber(diaryId))) {
+            assertThat(System.currentTimeMillis()).as("revision %d of %s", revision, diaryId).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+        return request.header("Authorization", "Bearer " + token);
+    }
+
+    /**
+     * 予算を超えるSQLを発行するエンドポイントです。
+     */
+    @TestConfiguration
+    static class OverBudgetConfiguration {
+        @Bean
+        OverBudgetController overBudgetController(UserRepository userRepository) {
+            return new OverBudgetController(userRepository);
+        }
+    }
+
+    @RestController
+    static class OverBudgetController {
+        static final String PATH = "/api/query-budget-test";
+
+        private final UserRepository userRepository;
+
+        OverBudgetController(UserRepository userRepository) {
+            this.userRepository = userRepository;
+        }
+
+        @GetMapping(PATH)
+        @QueryBudget(maxStatements = 1)
+        Map<String, Object> overBudget() {
+            return Map.of("count", userRepository.count() + userRepository.count());
+        }
+    }
+}
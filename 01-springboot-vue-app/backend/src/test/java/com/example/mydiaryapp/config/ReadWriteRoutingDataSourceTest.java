@@ -0,0 +1,97 @@
+package com.example.mydiaryapp.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.mydiaryapp.entity.User;
+import com.example.mydiaryapp.security.CustomUserDetails;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * 書き込んだユーザーの読み取りを、書き込みのコミット後からプライマリに送ることを確認します。
+ * トランザクションは TransactionSynchronizationManager の状態を直接設定して再現します。
+ */
+class ReadWriteRoutingDataSourceTest {
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private ReadWriteRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        HikariDataSource primary = mock(HikariDataSource.class);
+        HikariDataSource replica = mock(HikariDataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        dataSource = new ReadWriteRoutingDataSource(primary, replica, 60_000);
+
+        User user = new User();
+        user.setId("user-1");
+        CustomUserDetails principal = new CustomUserDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void routesReadsToPrimaryAfterCommit() throws SQLException {
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+
+        // コミット前の読み取りは、まだ書き込みが見えないためレプリカのままでよい
+        assertThat(read()).isSameAs(replicaConnection);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(read()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void keepsReadsOnReplicaAfterRollback() throws SQLException {
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+
+        TransactionSynchronizationManager.getSynchronizations()
+            .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(read()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void recordsWriteOutsideTransactionImmediately() throws SQLException {
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+
+        assertThat(read()).isSameAs(primaryConnection);
+    }
+
+    /**
+     * 読み取り専用トランザクションとして接続を取得します。
+     */
+    private Connection read() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            return dataSource.getConnection();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.mydiaryapp.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketStoreTest {
+    /** 同じ区画に入る上位ビット。 */
+    private static final long STRIPE = 7L << 58;
+
+    @Test
+    void consumesBurstThenRejectsUntilRefilled() {
+        TokenBucketStore store = new TokenBucketStore(3, 60);
+        long t = start();
+        long key = TokenBucketStore.hash("user-1", 0);
+
+        assertThat(store.tryConsume(key, t)).isEqualTo(2000);
+        assertThat(store.tryConsume(key, t)).isEqualTo(1000);
+        assertThat(store.tryConsume(key, t)).isZero();
+        // 1分に60件 = 1秒に1件
+        assertThat(store.tryConsume(key, t)).isEqualTo(-1000 - 1);
+        assertThat(store.tryConsume(key, t + 400)).isEqualTo(-600 - 1);
+        assertThat(store.tryConsume(key, t + 1000)).isZero();
+        assertThat(store.tryConsume(key, t + 1000)).isEqualTo(-1000 - 1);
+    }
+
+    @Test
+    void refillsToCapacityWithoutOverflow() {
+        TokenBucketStore store = new TokenBucketStore(2, 60);
+        long t = start();
+        long key = TokenBucketStore.hash("user-1", 0);
+        store.tryConsume(key, t);
+        store.tryConsume(key, t);
+
+        // 長時間経過しても容量までしか補充しない
+        assertThat(store.tryConsume(key, t + 3_600_000)).isEqualTo(1000);
+    }
+
+    @Test
+    void carriesFractionalRefillAcrossFrequentCalls() {
+        // 1分に7件: 3ミリ秒ごとの補充は1/1000トークン単位では切り捨てると0になる
+        // 容量を2件にし、満杯で補充が捨てられないようにする
+        TokenBucketStore store = new TokenBucketStore(2, 7);
+        long t = start();
+        long key = TokenBucketStore.hash("user-1", 0);
+
+        int accepted = 0;
+        for (long now = t; now <= t + 60_000 + 10; now += 3) {
+            if (store.tryConsume(key, now) >= 0) {
+                accepted++;
+            }
+        }
+        assertThat(accepted).isEqualTo(2 + 7);
+    }
+
+    @Test
+    void reportsSecondsUntilFull() {
+        TokenBucketStore store = new TokenBucketStore(10, 60);
+        long key = TokenBucketStore.hash("user-1", 0);
+        long remaining = store.tryConsume(key, start());
+
+        assertThat(store.getBurst()).isEqualTo(10);
+        assertThat(store.secondsUntilFull(remaining)).isEqualTo(1);
+        assertThat(store.secondsUntilFull(0)).isEqualTo(10);
+    }
+
+    @Test
+    void separatesCategoriesAndNeverHashesToZero() {
+        assertThat(TokenBucketStore.hash("user-1", 0)).isNotEqualTo(TokenBucketStore.hash("user-1", 1));
+        assertThat(TokenBucketStore.hash("user-1", 0)).isNotEqualTo(TokenBucketStore.hash("user-2", 0));
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(TokenBucketStore.hash("u" + i, i % 4)).isNotZero();
+        }
+    }
+
+    @Test
+    void keepsBucketsAcrossResize() {
+        TokenBucketStore store = new TokenBucketStore(1, 60);
+        long t = start();
+        // すべて同じ区画に入れ、区画の配列を何度も拡張させる
+        for (int id = 1; id <= 2000; id++) {
+            assertThat(store.tryConsume(key(id), t)).isZero();
+        }
+        assertThat(store.size()).isEqualTo(2000);
+        for (int id = 1; id <= 2000; id++) {
+            assertThat(store.tryConsume(key(id), t + 250)).isEqualTo(-750 - 1);
+        }
+    }
+
+    @Test
+    void evictsOnlyFullBucketsFromWrappedProbeChains() {
+        TokenBucketStore store = new TokenBucketStore(2, 60);
+        long t = start();
+        // 下位ビットが同じキーは区画内の同じ位置から探索し、配列の末尾から先頭へ折り返して並ぶ
+        long[] chain = new long[6];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = key(i + 1);
+            store.tryConsume(chain[i], t);
+        }
+        // 偶数番目だけ満杯になる直前に使い、奇数番目は満杯まで補充させる
+        for (int i = 0; i < chain.length; i += 2) {
+            store.tryConsume(chain[i], t + 1999);
+        }
+
+        assertThat(store.evictIdle(t + 2001)).isEqualTo(3);
+        assertThat(store.size()).isEqualTo(3);
+        for (int i = 0; i < chain.length; i += 2) {
+            // 残ったバケットは状態を保持している（新しいバケットなら 1000 を返す）
+            assertThat(store.tryConsume(chain[i], t + 2001)).isEqualTo(2);
+        }
+    }
+
+    /**
+     * 容量1・1秒に1件のバケットで、使用・削除を無作為に繰り返し、単純なモデルと結果を比較します。
+     * キーは同じ区画・末尾付近の同じ位置に集中させ、折り返した探索列での削除と詰め直しを繰り返し確認します。
+     */
+    @Test
+    void matchesModelUnderRandomConsumeAndEvict() {
+        TokenBucketStore store = new TokenBucketStore(1, 60);
+        Random random = new Random(42);
+        long now = start();
+        Map<Long, Long> lastConsumed = new HashMap<>();
+        Set<Long> present = new HashSet<>();
+
+        for (int round = 0; round < 5000; round++) {
+            now += random.nextInt(300);
+            for (int n = random.nextInt(8); n > 0; n--) {
+                long key = key(1 + random.nextInt(300));
+                Long last = lastConsumed.get(key);
+                long result = store.tryConsume(key, now);
+                if (last == null || now - last >= 1000) {
+                    assertThat(result).isZero();
+                    lastConsumed.put(key, now);
+                } else {
+                    assertThat(result).isEqualTo(-(1000 - (now - last)) - 1);
+                }
+                present.add(key);
+            }
+            if (round % 7 == 0) {
+                long at = now;
+                Set<Long> idle = new HashSet<>();
+                present.stream()
+                    .filter(key -> at - lastConsumed.get(key) >= 1000)
+                    .forEach(idle::add);
+                assertThat(store.evictIdle(now)).isEqualTo(idle.size());
+                present.removeAll(idle);
+            }
+            assertThat(store.size()).isEqualTo(present.size());
+        }
+    }
+
+    /**
+     * 同じ区画に入り、下位ビットが配列の末尾付近に集中するキーを作成します。
+     */
+    private static long key(int id) {
+        return STRIPE | ((long) id << 20) | (0xFFFFFL - id % 5);
+    }
+
+    /**
+     * ストアの基準時刻より後の現在時刻を返します。
+     */
+    private static long start() {
+        return System.currentTimeMillis() + 1000;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.mydiaryapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BinaryDeltaTest {
+    private static final String TEXT = "今日は朝から雨が降っていた。電車が遅れて会議に間に合わなかったが、"
+        + "午後には晴れて公園を散歩した。夜は友達と夕飯を食べ、映画の話で盛り上がった。";
+
+    @Test
+    void roundTripsEmptyInputs() {
+        assertRoundTrip(new byte[0], new byte[0]);
+        assertRoundTrip(new byte[0], bytes(TEXT));
+        assertRoundTrip(bytes(TEXT), new byte[0]);
+    }
+
+    @Test
+    void identicalInputProducesSingleCopy() {
+        byte[] source = bytes(TEXT.repeat(20));
+        byte[] delta = BinaryDelta.encode(source, source.clone());
+
+        assertThat(BinaryDelta.apply(source, delta)).isEqualTo(source);
+        // 長さ + COPY(命令・位置・長さ) のみ
+        assertThat(delta.length).isLessThan(10);
+    }
+
+    @Test
+    void roundTripsPrefixInsertion() {
+        byte[] source = bytes(TEXT.repeat(10));
+        byte[] target = bytes("追記: " + TEXT.repeat(10));
+        byte[] delta = assertRoundTrip(source, target);
+
+        assertThat(delta.length).isLessThan(32);
+    }
+
+    @Test
+    void roundTripsSuffixAppend() {
+        byte[] source = bytes(TEXT.repeat(10));
+        byte[] target = bytes(TEXT.repeat(10) + "寝る前に本を読んだ。");
+        byte[] delta = assertRoundTrip(source, target);
+
+        assertThat(delta.length).isLessThan(48);
+    }
+
+    @Test
+    void roundTripsMiddleEditAndTruncation() {
+        String text = TEXT.repeat(10);
+        assertRoundTrip(bytes(text), bytes(text.substring(0, 200) + "猫" + text.substring(230)));
+        assertRoundTrip(bytes(text), bytes(text.substring(0, text.length() / 2)));
+        assertRoundTrip(bytes(text), bytes(text.substring(text.length() / 2)));
+    }
+
+    @Test
+    void roundTripsMovedBlocks() {
+        String first = TEXT.repeat(3);
+        String second = "週末は海へ旅行に行った。".repeat(8);
+        byte[] delta = assertRoundTrip(bytes(first + second), bytes(second + first));
+
+        assertThat(delta.length).isLessThan(bytes(first + second).length / 4);
+    }
+
+    @Test
+    void roundTripsRandomEdits() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            byte[] source = new byte[random.nextInt(2000)];
+            // 一致が見つかるように、少ない種類のバイトで構成する
+            for (int i = 0; i < source.length; i++) {
+                source[i] = (byte) ('a' + random.nextInt(4));
+            }
+            byte[] target = source;
+            for (int edit = random.nextInt(6); edit > 0; edit--) {
+                target = randomEdit(target, random);
+            }
+            assertRoundTrip(source, target);
+        }
+    }
+
+    @Test
+    void roundTripsUnrelatedRandomBytes() {
+        Random random = new Random(7);
+        for (int round = 0; round < 100; round++) {
+            byte[] source = new byte[random.nextInt(500)];
+            byte[] target = new byte[random.nextInt(500)];
+            random.nextBytes(source);
+            random.nextBytes(target);
+            assertRoundTrip(source, target);
+        }
+    }
+
+    @Test
+    void rejectsCorruptDelta() {
+        byte[] source = bytes("morning");
+        byte[] delta = BinaryDelta.encode(source, bytes("morning walk"));
+        // 先頭の1バイトは長さ（12）、続く1バイトが最初の命令
+        byte[] corrupt = Arrays.copyOf(delta, delta.length);
+        corrupt[1] = 9;
+
+        assertThatThrownBy(() -> BinaryDelta.apply(source, corrupt))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] assertRoundTrip(byte[] source, byte[] target) {
+        byte[] delta = BinaryDelta.encode(source, target);
+        assertThat(BinaryDelta.apply(source, delta)).isEqualTo(target);
+        return delta;
+    }
+
+    private static byte[] randomEdit(byte[] data, Random random) {
+        int at = data.length == 0 ? 0 : random.nextInt(data.length);
+        int removed = Math.min(data.length - at, random.nextInt(40));
+        byte[] inserted = new byte[random.nextInt(40)];
+        random.nextBytes(inserted);
+        byte[] result = new byte[data.length - removed + inserted.length];
+        System.arraycopy(data, 0, result, 0, at);
+        System.arraycopy(inserted, 0, result, at, inserted.length);
+        System.arraycopy(data, at + removed, result, at + inserted.length, data.length - at - removed);
+        return result;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.mydiaryapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.dto.DiaryDraftRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 反映できない下書きが、同じシャードの他の下書きの反映を止めないことを確認します。
+ */
+class DraftServiceTest {
+    @TempDir
+    Path dir;
+
+    private final List<String> applied = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DiaryService diaryService;
+    private DraftService draftService;
+
+    @BeforeEach
+    void setUp() {
+        diaryService = mock(DiaryService.class);
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.shardFor(anyString())).thenReturn("default");
+        draftService = new DraftService(diaryService,
+            new DraftJournal(new ObjectMapper(), dir.resolve("journal.log").toString()), shardRouter, meterRegistry);
+        ReflectionTestUtils.setField(draftService, "maxBufferedChars", 1_000_000L);
+    }
+
+    @Test
+    void dropsOnlyDraftThatCannotBeSaved() {
+        // 感情が列の長さを超える下書きを含むと、トランザクション全体が失敗する
+        doAnswer(invocation -> {
+            Collection<DraftJournal.Entry> entries = invocation.getArgument(0);
+            if (entries.stream().anyMatch(entry -> "broken".equals(entry.getDiaryId()))) {
+                throw new DataIntegrityViolationException("Data too long for column 'emotion'");
+            }
+            entries.forEach(entry -> applied.add(entry.getDiaryId()));
+            return null;
+        }).when(diaryService).applyDrafts(anyCollection());
+
+        draftService.saveDraft("user-1", "diary-1", draft("happy"));
+        draftService.saveDraft("user-2", "broken", draft("x".repeat(21)));
+        draftService.saveDraft("user-3", "diary-3", draft("sad"));
+        draftService.flush();
+
+        assertThat(applied).containsExactlyInAnyOrder("diary-1", "diary-3");
+        assertThat(draftService.getDraft("user-2", "broken")).isEmpty();
+        assertThat(draftService.getDraft("user-1", "diary-1")).isEmpty();
+        assertThat(meterRegistry.counter("diary.draft.dropped").count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsDraftsAfterTransientFailure() {
+        doAnswer(invocation -> {
+            throw new QueryTimeoutException("Connection timed out");
+        }).when(diaryService).applyDrafts(anyCollection());
+
+        draftService.saveDraft("user-1", "diary-1", draft("happy"));
+        draftService.saveDraft("user-2", "diary-2", draft("sad"));
+        draftService.flush();
+
+        assertThat(draftService.getDraft("user-1", "diary-1")).isPresent();
+        assertThat(draftService.getDraft("user-2", "diary-2")).isPresent();
+        assertThat(meterRegistry.counter("diary.draft.dropped").count()).isZero();
+    }
+
+    private static DiaryDraftRequest draft(String emotion) {
+        DiaryDraftRequest draft = new DiaryDraftRequest();
+        draft.setTitle("下書き");
+        draft.setContent("書きかけの本文");
+        draft.setEmotion(emotion);
+        return draft;
+    }
+}
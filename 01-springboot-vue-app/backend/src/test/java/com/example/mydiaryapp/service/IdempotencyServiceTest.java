@@ -0,0 +1,387 @@
+package com.example.mydiaryapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.entity.IdempotencyRecord;
+import com.example.mydiaryapp.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 再送の検出、内容の異なる再送の拒否、同時に届いた再送、リースの引き継ぎ、削除したユーザーの結果の破棄を確認します。
+ * リポジトリはメモリ上のマップで置き換え、SQLと同じ条件で行を挿入・更新します。
+ */
+class IdempotencyServiceTest {
+    private static final String USER_ID = "user-1";
+    private static final String KEY = "key-1";
+    private static final String OPERATION = "POST /api/diaries";
+    private static final String OTHER_OWNER = "other-instance";
+
+    private final Map<IdempotencyRecord.Key, IdempotencyRecord> rows = new ConcurrentHashMap<>();
+    private IdempotencyRecordRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IdempotencyRecordRepository.class);
+        when(repository.tryAcquire(anyString(), anyString(), anyString(), anyString(), any(), any()))
+            .thenAnswer(invocation -> {
+                IdempotencyRecord record = new IdempotencyRecord(invocation.getArgument(0), invocation.getArgument(1),
+                    invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4), null, null,
+                    invocation.getArgument(5));
+                return rows.putIfAbsent(key(record.getUserId(), record.getIdempotencyKey()), record) == null ? 1 : 0;
+            });
+        when(repository.takeOver(anyString(), anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            synchronized (rows) {
+                IdempotencyRecord record = rows.get(key(invocation.getArgument(0), invocation.getArgument(1)));
+                LocalDateTime now = invocation.getArgument(4);
+                if (record == null || record.getStatusCode() != null || !record.getLeaseUntil().isBefore(now)) {
+                    return 0;
+                }
+                record.setOwner(invocation.getArgument(2));
+                record.setLeaseUntil(invocation.getArgument(3));
+                return 1;
+            }
+        });
+        when(repository.complete(anyString(), anyString(), anyString(), anyInt(), any(), any()))
+            .thenAnswer(invocation -> {
+                synchronized (rows) {
+                    IdempotencyRecord record = rows.get(key(invocation.getArgument(0), invocation.getArgument(1)));
+                    if (record == null || record.getStatusCode() != null
+                        || !record.getOwner().equals(invocation.getArgument(2))) {
+                        return 0;
+                    }
+                    record.setStatusCode(invocation.getArgument(3));
+                    record.setResponseBody(invocation.getArgument(4));
+                    record.setExpiresAt(invocation.getArgument(5));
+                    return 1;
+                }
+            });
+        when(repository.release(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            IdempotencyRecord.Key key = key(invocation.getArgument(0), invocation.getArgument(1));
+            IdempotencyRecord record = rows.get(key);
+            boolean removed = record != null && record.getStatusCode() == null
+                && record.getOwner().equals(invocation.getArgument(2)) && rows.remove(key, record);
+            return removed ? 1 : 0;
+        });
+        when(repository.deleteIfExpired(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            IdempotencyRecord.Key key = key(invocation.getArgument(0), invocation.getArgument(1));
+            IdempotencyRecord record = rows.get(key);
+            LocalDateTime now = invocation.getArgument(2);
+            return record != null && record.getExpiresAt().isBefore(now) && rows.remove(key, record) ? 1 : 0;
+        });
+        when(repository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.getArgument(0))));
+    }
+
+    @Test
+    void executesEveryTimeWithoutKey() {
+        IdempotencyService service = newService(10);
+        AtomicInteger executions = new AtomicInteger();
+
+        service.execute(USER_ID, null, OPERATION, request("a"), created(executions));
+        service.execute(USER_ID, null, OPERATION, request("a"), created(executions));
+
+        assertThat(executions).hasValue(2);
+        assertThat(rows).isEmpty();
+    }
+
+    @Test
+    void rejectsInvalidKey() {
+        IdempotencyService service = newService(10);
+        AtomicInteger executions = new AtomicInteger();
+
+        assertStatus(() -> service.execute(USER_ID, " ", OPERATION, request("a"), created(executions)),
+            HttpStatus.BAD_REQUEST);
+        assertStatus(() -> service.execute(USER_ID, "k".repeat(IdempotencyService.MAX_KEY_LENGTH + 1), OPERATION,
+            request("a"), created(executions)), HttpStatus.BAD_REQUEST);
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void replaysCompletedResponse() {
+        IdempotencyService service = newService(10);
+        AtomicInteger executions = new AtomicInteger();
+
+        ResponseEntity<Map<String, Object>> first = service.execute(USER_ID, KEY, OPERATION, request("a"),
+            created(executions));
+        ResponseEntity<Map<String, Object>> second = service.execute(USER_ID, KEY, OPERATION, request("a"),
+            created(executions));
+
+        assertThat(executions).hasValue(1);
+        assertThat(first.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(second.getBody()).isEqualTo(first.getBody());
+    }
+
+    @Test
+    void replaysStoredResponseOnAnotherInstance() {
+        AtomicInteger executions = new AtomicInteger();
+        ResponseEntity<Map<String, Object>> first = newService(10).execute(USER_ID, KEY, OPERATION, request("a"),
+            created(executions));
+
+        // メモリに結果を持たないインスタンスでも、保存した結果を返す
+        ResponseEntity<Map<String, Object>> replayed = newService(10).execute(USER_ID, KEY, OPERATION, request("a"),
+            created(executions));
+
+        assertThat(executions).hasValue(1);
+        assertThat(replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(replayed.getBody()).isEqualTo(first.getBody());
+    }
+
+    @Test
+    void keysAreScopedPerUser() {
+        IdempotencyService service = newService(10);
+        AtomicInteger executions = new AtomicInteger();
+
+        service.execute(USER_ID, KEY, OPERATION, request("a"), created(executions));
+        service.execute("user-2", KEY, OPERATION, request("a"), created(executions));
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void rejectsDifferentRequestWithSameKey() {
+        IdempotencyService service = newService(10);
+        AtomicInteger executions = new AtomicInteger();
+        service.execute(USER_ID, KEY, OPERATION, request("a"), created(executions));
+
+        assertStatus(() -> service.execute(USER_ID, KEY, OPERATION, request("b"), created(executions)),
+            HttpStatus.UNPROCESSABLE_ENTITY);
+        assertStatus(() -> service.execute(USER_ID, KEY, "PUT /api/diaries/1", request("a"), created(executions)),
+            HttpStatus.UNPROCESSABLE_ENTITY);
+        assertStatus(() -> newService(10).execute(USER_ID, KEY, OPERATION, request("b"), created(executions)),
+            HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void runsConcurrentDuplicatesOnce() throws Exception {
+        IdempotencyService service = newService(10);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Supplier<ResponseEntity<Map<String, Object>>> action = () -> {
+            started.countDown();
+            await(finish);
+            return created(executions).get();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ResponseEntity<Map<String, Object>>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> service.execute(USER_ID, KEY, OPERATION, request("a"), action)));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> service.execute(USER_ID, KEY, OPERATION, request("a"), action)));
+            }
+            // 後のリクエストが待ち始めてから最初のリクエストを完了させる
+            Thread.sleep(100);
+            finish.countDown();
+
+            Map<String, Object> body = results.get(0).get(5, TimeUnit.SECONDS).getBody();
+            for (Future<ResponseEntity<Map<String, Object>>> result : results) {
+                ResponseEntity<Map<String, Object>> response = result.get(5, TimeUnit.SECONDS);
+                assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+                assertThat(response.getBody()).isEqualTo(body);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void takesOverExpiredLease() {
+        pendingOnAnotherInstance(request("a"), LocalDateTime.now().minusSeconds(1));
+        IdempotencyService service = newService(10);
+        AtomicInteger executions = new AtomicInteger();
+
+        ResponseEntity<Map<String, Object>> response = service.execute(USER_ID, KEY, OPERATION, request("a"),
+            created(executions));
+
+        assertThat(executions).hasValue(1);
+        assertThat(response.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        IdempotencyRecord record = rows.get(key(USER_ID, KEY));
+        assertThat(record.getOwner()).isNotEqualTo(OTHER_OWNER);
+        assertThat(record.getStatusCode()).isEqualTo(HttpStatus.CREATED.value());
+    }
+
+    @Test
+    void conflictsWhileAnotherInstanceHoldsLease() {
+        pendingOnAnotherInstance(request("a"), LocalDateTime.now().plusMinutes(1));
+        IdempotencyService service = newService(0);
+        AtomicInteger executions = new AtomicInteger();
+
+        assertStatus(() -> service.execute(USER_ID, KEY, OPERATION, request("a"), created(executions)),
+            HttpStatus.CONFLICT);
+        assertStatus(() -> service.execute(USER_ID, KEY, OPERATION, request("b"), created(executions)),
+            HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(executions).hasValue(0);
+        assertThat(rows.get(key(USER_ID, KEY)).getOwner()).isEqualTo(OTHER_OWNER);
+    }
+
+    @Test
+    void waitsForAnotherInstanceToComplete() throws Exception {
+        IdempotencyRecord completed = pendingOnAnotherInstance(request("a"), LocalDateTime.now().plusMinutes(1));
+        AtomicInteger executions = new AtomicInteger();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResponseEntity<Map<String, Object>>> waiting = executor.submit(() ->
+                newService(10).execute(USER_ID, KEY, OPERATION, request("a"), created(executions)));
+            Thread.sleep(250);
+            assertThat(waiting.isDone()).isFalse();
+            // 別のインスタンスが完了した結果を返す
+            rows.put(key(USER_ID, KEY), completed);
+
+            ResponseEntity<Map<String, Object>> response = waiting.get(5, TimeUnit.SECONDS);
+            assertThat(response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+            assertThat(response.getBody()).containsEntry("id", "diary-1");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void releasesKeyWhenActionFails() {
+        IdempotencyService service = newService(10);
+        AtomicInteger executions = new AtomicInteger();
+
+        assertThatThrownBy(() -> service.execute(USER_ID, KEY, OPERATION, request("a"), () -> {
+            executions.incrementAndGet();
+            throw new RuntimeException("画像の保存に失敗しました");
+        })).hasMessage("画像の保存に失敗しました");
+        assertThat(rows).isEmpty();
+
+        // 再送されたリクエストで実行し直す
+        ResponseEntity<Map<String, Object>> retried = service.execute(USER_ID, KEY, OPERATION, request("a"),
+            created(executions));
+        assertThat(executions).hasValue(2);
+        assertThat(retried.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retried.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void reusesExpiredKey() {
+        AtomicInteger executions = new AtomicInteger();
+        newService(10).execute(USER_ID, KEY, OPERATION, request("a"), created(executions));
+        rows.get(key(USER_ID, KEY)).setExpiresAt(LocalDateTime.now().minusSeconds(1));
+
+        ResponseEntity<Map<String, Object>> response = newService(10).execute(USER_ID, KEY, OPERATION, request("b"),
+            created(executions));
+
+        assertThat(executions).hasValue(2);
+        assertThat(response.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void forgetsCachedResponsesOfDeletedUser() {
+        IdempotencyService service = newService(10);
+        AtomicInteger executions = new AtomicInteger();
+        service.execute(USER_ID, KEY, OPERATION, request("a"), created(executions));
+        service.execute("user-2", KEY, OPERATION, request("a"), created(executions));
+
+        // アカウントの削除でキーの行を削除した後は、メモリの結果も使わない
+        rows.clear();
+        service.evictUser(USER_ID);
+
+        ResponseEntity<Map<String, Object>> reused = service.execute(USER_ID, KEY, OPERATION, request("b"),
+            created(executions));
+        assertThat(executions).hasValue(3);
+        assertThat(reused.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+
+        // 他のユーザーの結果はメモリに残る
+        ResponseEntity<Map<String, Object>> replayed = service.execute("user-2", KEY, OPERATION, request("a"),
+            created(executions));
+        assertThat(executions).hasValue(3);
+        assertThat(replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    private IdempotencyService newService(long waitSeconds) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.shardFor(anyString())).thenReturn("default");
+        return new IdempotencyService(repository, new TransactionTemplate(transactionManager), shardRouter,
+            new ObjectMapper(), new SimpleMeterRegistry(), 60, 100, 60, waitSeconds, 16);
+    }
+
+    /**
+     * 別のインスタンスで実行中のキーを作成します。
+     * 一度実行して保存された行を、完了前の状態に戻して使います（リクエストのハッシュ値を同じにするため）。
+     */
+    private IdempotencyRecord pendingOnAnotherInstance(Map<String, Object> request, LocalDateTime leaseUntil) {
+        newService(10).execute(USER_ID, KEY, OPERATION, request, created(new AtomicInteger()));
+        IdempotencyRecord record = rows.get(key(USER_ID, KEY));
+        IdempotencyRecord completed = new IdempotencyRecord(record.getUserId(), record.getIdempotencyKey(),
+            record.getRequestHash(), OTHER_OWNER, leaseUntil, record.getStatusCode(), record.getResponseBody(),
+            record.getExpiresAt());
+        record.setOwner(OTHER_OWNER);
+        record.setLeaseUntil(leaseUntil);
+        record.setStatusCode(null);
+        record.setResponseBody(null);
+        return completed;
+    }
+
+    /**
+     * 実行回数を数え、実行ごとに異なるIDの作成結果を返す処理です。
+     */
+    private static Supplier<ResponseEntity<Map<String, Object>>> created(AtomicInteger executions) {
+        return () -> ResponseEntity.status(HttpStatus.CREATED)
+            .body(Map.of("id", "diary-" + executions.incrementAndGet(), "message", "日記を作成しました。".repeat(5)));
+    }
+
+    private static Map<String, Object> request(String title) {
+        return Map.of("title", title, "content", "本文");
+    }
+
+    private static IdempotencyRecord.Key key(String userId, String key) {
+        return new IdempotencyRecord.Key(userId, key);
+    }
+
+    private static void assertStatus(Runnable call, HttpStatus status) {
+        assertThatThrownBy(call::run)
+            .isInstanceOfSatisfying(ResponseStatusException.class,
+                e -> assertThat(e.getStatusCode()).isEqualTo(status));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.mydiaryapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.mydiaryapp.config.ShardRouter;
+import com.example.mydiaryapp.entity.DiaryRevision;
+import com.example.mydiaryapp.repository.DiaryRevisionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 変更履歴の保存（差分とスナップショット）と、スナップショットの境界をまたいだ版の復元、
+ * 書き込みの待ち行列が満杯の場合も同じ日記の版の順番が入れ替わらないことを確認します。
+ * リポジトリはメモリ上のリストで置き換えます。
+ */
+class RevisionServiceTest {
+    private static final String USER_ID = "user-1";
+    private static final String DIARY_ID = "diary-1";
+    private static final int SNAPSHOT_INTERVAL = 4;
+
+    private final List<DiaryRevision> rows = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch saving = new CountDownLatch(1);
+    private CountDownLatch release = new CountDownLatch(0);
+    private DiaryRevisionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(DiaryRevisionRepository.class);
+        when(repository.save(any(DiaryRevision.class))).thenAnswer(invocation -> {
+            saving.countDown();
+            assertThat(release.await(10, TimeUnit.SECONDS)).isTrue();
+            DiaryRevision revision = invocation.getArgument(0);
+            revision.setId((long) rows.size() + 1);
+            revision.setCreatedAt(LocalDateTime.now());
+            rows.add(revision);
+            return revision;
+        });
+        when(repository.findLatestRevisionNumber(anyString())).thenAnswer(invocation -> rows.stream()
+            .filter(row -> row.getDiaryId().equals(invocation.getArgument(0)))
+            .map(DiaryRevision::getRevisionNumber)
+            .max(Integer::compare)
+            .orElse(null));
+        when(repository.existsByDiaryIdAndUserIdAndRevisionNumber(anyString(), anyString(), anyInt()))
+            .thenAnswer(invocation -> rows.stream().anyMatch(row -> row.getDiaryId().equals(invocation.getArgument(0))
+                && row.getUserId().equals(invocation.getArgument(1))
+                && row.getRevisionNumber() == (int) invocation.getArgument(2)));
+        when(repository.findFirstByDiaryIdAndSnapshotTrueAndRevisionNumberLessThanEqualOrderByRevisionNumberDesc(
+                anyString(), anyInt()))
+            .thenAnswer(invocation -> rows.stream()
+                .filter(row -> row.getDiaryId().equals(invocation.getArgument(0)) && row.isSnapshot()
+                    && row.getRevisionNumber() <= (int) invocation.getArgument(1))
+                .max(Comparator.comparingInt(DiaryRevision::getRevisionNumber)));
+        when(repository.findByDiaryIdAndRevisionNumberBetweenOrderByRevisionNumberAsc(anyString(), anyInt(), anyInt()))
+            .thenAnswer(invocation -> rows.stream()
+                .filter(row -> row.getDiaryId().equals(invocation.getArgument(0))
+                    && row.getRevisionNumber() >= (int) invocation.getArgument(1)
+                    && row.getRevisionNumber() <= (int) invocation.getArgument(2))
+                .sorted(Comparator.comparingInt(DiaryRevision::getRevisionNumber))
+                .toList());
+    }
+
+    @Test
+    void reconstructsEveryRevisionAcrossSnapshotBoundaries() throws InterruptedException {
+        List<String> contents = editHistory(11);
+        record(contents);
+
+        assertThat(rows).hasSize(contents.size());
+        // 1, 5, 9 版は定期的なスナップショット、それ以外は差分
+        for (DiaryRevision row : rows) {
+            assertThat(row.isSnapshot())
+                .as("revision %d", row.getRevisionNumber())
+                .isEqualTo((row.getRevisionNumber() - 1) % SNAPSHOT_INTERVAL == 0);
+        }
+
+        RevisionService service = newService();
+        for (int number = 1; number <= contents.size(); number++) {
+            Map<String, Object> revision = service.getRevision(USER_ID, DIARY_ID, number);
+            assertThat(revision.get("revision")).isEqualTo(number);
+            assertThat(revision.get("title")).isEqualTo("title " + number);
+            assertThat(revision.get("content")).isEqualTo(contents.get(number - 1));
+        }
+    }
+
+    @Test
+    void skipsUnchangedContent() throws InterruptedException {
+        String content = editHistory(1).get(0);
+        RevisionService service = newService();
+        for (int i = 0; i < 3; i++) {
+            service.onDiaryChanged(new DiaryChangedEvent(DiaryChangedEvent.Type.UPDATED, USER_ID, DIARY_ID,
+                "title", content, "happy"));
+        }
+        service.shutdown();
+
+        assertThat(rows).hasSize(1);
+    }
+
+    @Test
+    void rejectsOtherUsersRevisionWithoutReconstructing() throws InterruptedException {
+        record(editHistory(3));
+        RevisionService service = newService();
+
+        assertThatThrownBy(() -> service.getRevision("intruder", DIARY_ID, 2))
+            .hasMessage("履歴が見つかりません");
+        verify(repository, never())
+            .findFirstByDiaryIdAndSnapshotTrueAndRevisionNumberLessThanEqualOrderByRevisionNumberDesc(anyString(), anyInt());
+    }
+
+    @Test
+    void rejectsMissingRevision() throws InterruptedException {
+        record(editHistory(2));
+
+        assertThatThrownBy(() -> newService().getRevision(USER_ID, DIARY_ID, 3))
+            .hasMessage("履歴が見つかりません");
+    }
+
+    @Test
+    void waitsForQueueInsteadOfWritingOutOfOrder() throws InterruptedException {
+        List<String> contents = editHistory(6);
+        release = new CountDownLatch(1);
+        RevisionService service = newService(1, 5000);
+
+        // 1件目の保存中に待ち行列（1件）が埋まり、3件目以降は空くまで待つ
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < contents.size(); i++) {
+                service.onDiaryChanged(new DiaryChangedEvent(DiaryChangedEvent.Type.UPDATED, USER_ID, DIARY_ID,
+                    "title " + (i + 1), contents.get(i), "neutral"));
+            }
+        });
+        producer.start();
+        assertThat(saving.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        release.countDown();
+        producer.join(10_000);
+        service.shutdown();
+
+        assertThat(rows).extracting(DiaryRevision::getTitle)
+            .containsExactly("title 1", "title 2", "title 3", "title 4", "title 5", "title 6");
+        assertThat(rows).extracting(DiaryRevision::getRevisionNumber).containsExactly(1, 2, 3, 4, 5, 6);
+        assertThat(meterRegistry.counter("diary.revision.dropped").count()).isZero();
+    }
+
+    @Test
+    void dropsAndCountsWhenQueueStaysFull() throws InterruptedException {
+        List<String> contents = editHistory(5);
+        release = new CountDownLatch(1);
+        RevisionService service = newService(1, 0);
+
+        service.onDiaryChanged(new DiaryChangedEvent(DiaryChangedEvent.Type.UPDATED, USER_ID, DIARY_ID,
+            "title 1", contents.get(0), "neutral"));
+        assertThat(saving.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < contents.size(); i++) {
+            service.onDiaryChanged(new DiaryChangedEvent(DiaryChangedEvent.Type.UPDATED, USER_ID, DIARY_ID,
+                "title " + (i + 1), contents.get(i), "neutral"));
+        }
+        release.countDown();
+        service.shutdown();
+
+        // 待ち行列に入った2件目までを保存し、残りは書き込まずに数える
+        assertThat(rows).extracting(DiaryRevision::getTitle).containsExactly("title 1", "title 2");
+        assertThat(meterRegistry.counter("diary.revision.dropped").count()).isEqualTo(3);
+    }
+
+    /**
+     * 書き込みスレッドで版を保存し、完了を待ちます。
+     */
+    private void record(List<String> contents) throws InterruptedException {
+        RevisionService service = newService();
+        for (int i = 0; i < contents.size(); i++) {
+            service.onDiaryChanged(new DiaryChangedEvent(DiaryChangedEvent.Type.UPDATED, USER_ID, DIARY_ID,
+                "title " + (i + 1), contents.get(i), "neutral"));
+        }
+        service.shutdown();
+    }
+
+    private RevisionService newService() {
+        return newService(100, 5000);
+    }
+
+    private RevisionService newService(int queueCapacity, long enqueueWaitMillis) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ShardRouter shardRouter = mock(ShardRouter.class);
+        when(shardRouter.shardFor(anyString())).thenReturn("default");
+        return new RevisionService(repository, new TransactionTemplate(transactionManager), shardRouter,
+            meterRegistry, SNAPSHOT_INTERVAL, 1, queueCapacity, enqueueWaitMillis);
+    }
+
+    /**
+     * 長い本文に少しずつ追記・書き換えを加えた履歴を作成します（差分がスナップショットより小さくなるように）。
+     */
+    private static List<String> editHistory(int versions) {
+        Random random = new Random(1);
+        List<String> contents = new ArrayList<>();
+        StringBuilder text = new StringBuilder("今日は朝から雨が降っていた。電車が遅れて会議に間に合わなかった。".repeat(30));
+        for (int i = 0; i < versions; i++) {
+            int at = random.nextInt(text.length());
+            text.insert(at, "追記" + i + "。");
+            if (i % 3 == 2) {
+                text.delete(0, 10);
+            }
+            contents.add(text.toString());
+        }
+        return contents;
+    }
+}
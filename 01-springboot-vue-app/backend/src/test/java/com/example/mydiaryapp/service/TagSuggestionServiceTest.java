@@ -0,0 +1,77 @@
+package com.example.mydiaryapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.mydiaryapp.entity.TagUsage;
+import com.example.mydiaryapp.repository.TagUsageRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 索引の作成中にコミットされた変更が、作成した索引に取り込まれずに失われないことを確認します。
+ */
+class TagSuggestionServiceTest {
+    private static final String USER_ID = "user-1";
+
+    private final List<TagUsage> usages = new ArrayList<>();
+    private TagUsageRepository repository;
+    private TagSuggestionService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TagUsageRepository.class);
+        service = new TagSuggestionService(repository, new SimpleMeterRegistry(), 10, 10, 30);
+        usages.add(usage("旅行", 3));
+    }
+
+    @Test
+    void appliesChangesToLoadedIndex() {
+        when(repository.findUsedByUserId(USER_ID)).thenAnswer(invocation -> List.copyOf(usages));
+        assertThat(names(service.suggest(USER_ID, "", 10))).containsExactly("旅行");
+
+        service.onTagUsageChanged(new TagUsageChangedEvent(USER_ID, Map.of("食事", 1), LocalDateTime.now()));
+
+        assertThat(names(service.suggest(USER_ID, "", 10))).containsExactlyInAnyOrder("旅行", "食事");
+        verify(repository, times(1)).findUsedByUserId(USER_ID);
+    }
+
+    @Test
+    void reloadsIndexWhenChangeCommitsDuringBuild() {
+        when(repository.findUsedByUserId(USER_ID)).thenAnswer(invocation -> {
+            List<TagUsage> loaded = List.copyOf(usages);
+            // 読み取った後に別の書き込みがコミットされ、変更が通知される
+            usages.add(usage("食事", 1));
+            service.onTagUsageChanged(new TagUsageChangedEvent(USER_ID, Map.of("食事", 1), LocalDateTime.now()));
+            return loaded;
+        }).thenAnswer(invocation -> List.copyOf(usages));
+
+        assertThat(names(service.suggest(USER_ID, "", 10))).containsExactly("旅行");
+
+        // 作成中の変更で目印が破棄されたため、次の検索で作成し直す
+        assertThat(names(service.suggest(USER_ID, "", 10))).containsExactlyInAnyOrder("旅行", "食事");
+        verify(repository, times(2)).findUsedByUserId(USER_ID);
+    }
+
+    private static TagUsage usage(String tagName, int count) {
+        return new TagUsage(USER_ID, tagName, count, LocalDateTime.now());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> names(Map<String, Object> response) {
+        return ((List<Map<String, Object>>) response.get("suggestions")).stream()
+            .map(suggestion -> (String) suggestion.get("name"))
+            .toList();
+    }
+}
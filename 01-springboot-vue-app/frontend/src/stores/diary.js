@@ -67,6 +67,34 @@ export const useDiaryStore = defineStore('diary', () => {
     }
   }
 
+  // 既存の日記を部分更新する非同期関数（JSON Merge Patch）
+  // id: 更新対象の日記ID, patch: 変更する項目のみを含むデータ（addTags/removeTagsでタグの差分指定も可能）
+  const patchDiary = async (id, patch) => {
+    try {
+      const response = await api.patch(`/diaries/${id}`, patch, {
+        headers: { 'Content-Type': 'application/merge-patch+json' }
+      })
+      currentDiary.value = response.data
+      return response.data
+    } catch (error) {
+      throw new Error('日記の更新に失敗しました')
+    }
+  }
+
+  // 編集中の日記の下書きを自動保存する非同期関数
+  // id: 編集中の日記ID, draft: タイトル・本文・感情
+  const saveDraft = async (id, draft) => {
+    const response = await api.put(`/diaries/${id}/draft`, draft)
+    return response.data
+  }
+
+  // タグ入力欄で、入力中の文字列に前方一致するタグの候補を取得する非同期関数
+  // prefix: 入力中の文字列
+  const fetchTagSuggestions = async (prefix) => {
+    const response = await api.get('/tags/suggestions', { params: { prefix, limit: 8 } })
+    return response.data.suggestions
+  }
+
   // 日記を削除する非同期関数
   // id: 削除対象の日記ID
   const deleteDiary = async (id) => {
@@ -88,6 +116,9 @@ export const useDiaryStore = defineStore('diary', () => {
     fetchDiary,
     createDiary,
     updateDiary,
+    patchDiary,
+    saveDraft,
+    fetchTagSuggestions,
     deleteDiary
   }
 })
\ No newline at end of file
@@ -58,6 +58,32 @@ export const useUserStore = defineStore('user', () => {
     localStorage.setItem('theme', newTheme)
   }
 
+  // 設定取得：サーバーに保存されているリマインダー時刻などを取得
+  const fetchSettings = async () => {
+    const response = await api.get('/settings')
+    return response.data
+  }
+
+  // リマインダー時刻更新：空の場合はリマインダーを解除
+  const updateReminderTime = async (reminderTime) => {
+    try {
+      const response = await api.put('/settings', { reminderTime: reminderTime || null })
+      return response.data
+    } catch (error) {
+      throw new Error(error.response?.data?.error || 'リマインダー時刻の保存に失敗しました')
+    }
+  }
+
+  // アカウント削除：削除を受け付けた後、データはサーバー側で順次削除される
+  const deleteAccount = async () => {
+    try {
+      await api.delete('/auth/account')
+      logout()
+    } catch (error) {
+      throw new Error(error.response?.data?.error || 'アカウントの削除に失敗しました')
+    }
+  }
+
   // アプリ起動時にlocalStorageから保存ユーザー情報を再設定
   const initializeUser = () => {
     const savedUser = localStorage.getItem('user')
@@ -76,6 +102,9 @@ export const useUserStore = defineStore('user', () => {
     register,
     logout,
     updateTheme,
+    fetchSettings,
+    updateReminderTime,
+    deleteAccount,
     initializeUser
   }
 })
\ No newline at end of file
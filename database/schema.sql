@@ -31,6 +31,9 @@ CREATE TABLE IF NOT EXISTS `users` (
   `theme` VARCHAR(10) NOT NULL DEFAULT 'light',
   -- `reminder_time`: 日記の書き忘れを通知する時間。設定しない場合はNULL (空) になります。
   `reminder_time` TIME NULL,
+  -- `deleted_at`: アカウントの削除を受け付けた日時。設定されたユーザーはログインできず、日記はバックグラウンドで削除されます。
+  -- 既存のテーブルには `ALTER TABLE users ADD COLUMN deleted_at DATETIME NULL AFTER reminder_time;` で追加できます。
+  `deleted_at` DATETIME NULL,
   -- `created_at`: このレコードが作成された日時。DEFAULT CURRENT_TIMESTAMPで自動的に現在日時が記録されます。
   `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   -- `updated_at`: このレコードが更新された日時。ON UPDATE CURRENT_TIMESTAMPで更新時に自動的に現在日時が記録されます。
@@ -40,7 +43,12 @@ CREATE TABLE IF NOT EXISTS `users` (
   -- `UNIQUE KEY`: このカラムの値がテーブル内で重複しないことを保証します。同じユーザー名での登録を防ぎます。
   UNIQUE KEY `idx_users_username` (`username`),
   -- `UNIQUE KEY`: 同じメールアドレスでの登録を防ぎます。
-  UNIQUE KEY `idx_users_email` (`email`)
+  UNIQUE KEY `idx_users_email` (`email`),
+  -- `INDEX`: リマインダーの通知時刻ごとにユーザーを読み込むためのインデックスです。
+  INDEX `idx_users_reminder_time` (`reminder_time`),
+  -- `INDEX`: 通知時刻の変更を更新日時で差分だけ読み込むためのインデックスです。
+  -- 既存のテーブルには `ALTER TABLE users ADD INDEX idx_users_reminder_time (reminder_time), ADD INDEX idx_users_updated_at (updated_at);` で追加できます。
+  INDEX `idx_users_updated_at` (`updated_at`)
 ) ENGINE=InnoDB; -- FOREIGN KEY制約やトランザクションをサポートするInnoDBエンジンを使用します。
 
 -- ---
@@ -52,10 +60,41 @@ CREATE TABLE IF NOT EXISTS `tags` (
   `id` INT NOT NULL AUTO_INCREMENT,
   -- `name`: タグの名前 (例: "旅行", "仕事")。50文字まで。
   `name` VARCHAR(50) NOT NULL,
+  -- `orphaned_at`: どの日記からも参照されていないことを確認した日時。参照されているタグはNULL。
+  -- 一定時間が経過してもまだ参照されていない場合に、バックグラウンドの処理で削除されます。
+  `orphaned_at` DATETIME NULL,
   -- `PRIMARY KEY`: `id`カラムをこのテーブルの主キーに設定します。
   PRIMARY KEY (`id`),
   -- `UNIQUE KEY`: 同じ名前のタグが複数作られるのを防ぎます。
-  UNIQUE KEY `idx_tags_name` (`name`)
+  UNIQUE KEY `idx_tags_name` (`name`),
+  -- `INDEX`: 削除を待っているタグを検索するためのインデックスです。
+  -- 既存のテーブルには `ALTER TABLE tags ADD COLUMN orphaned_at DATETIME NULL, ADD INDEX idx_tags_orphaned_at (orphaned_at);` で追加できます。
+  INDEX `idx_tags_orphaned_at` (`orphaned_at`)
+) ENGINE=InnoDB;
+
+-- ---
+-- Table `tag_usages`
+-- ユーザーごとに、各タグを付けた日記の件数 (アーカイブ済みの日記を含む) を保持します。
+-- 日記の作成・更新・削除と同じトランザクションで更新し、タグ一覧の取得で中間テーブルを集計しないようにします。
+-- タグはシャードごとに採番されるため、名前で保持します。
+-- 既存のデータからは次のSQLで作成できます。
+--   INSERT INTO tag_usages (user_id, tag_name, diary_count, last_used_at)
+--   SELECT x.user_id, x.name, COUNT(*), MAX(x.updated_at) FROM (
+--     SELECT d.user_id, t.name, d.updated_at FROM diaries d JOIN diary_tags dt ON dt.diary_id = d.id JOIN tags t ON t.id = dt.tag_id
+--     UNION ALL
+--     SELECT a.user_id, adt.tag_name, a.updated_at FROM archived_diaries a JOIN archived_diary_tags adt ON adt.diary_id = a.id
+--   ) x GROUP BY x.user_id, x.name;
+-- ---
+CREATE TABLE IF NOT EXISTS `tag_usages` (
+  -- `user_id`: ユーザーのID。
+  `user_id` CHAR(36) NOT NULL,
+  -- `tag_name`: タグの名前。
+  `tag_name` VARCHAR(50) NOT NULL,
+  -- `diary_count`: このタグを付けた日記の件数。0になった行は削除されます。
+  `diary_count` INT NOT NULL,
+  -- `last_used_at`: 最後にこのタグを日記に付けた日時。タグの入力候補の並び順に使用します。
+  `last_used_at` DATETIME NULL,
+  PRIMARY KEY (`user_id`, `tag_name`)
 ) ENGINE=InnoDB;
 
 -- ---
@@ -69,8 +108,10 @@ CREATE TABLE IF NOT EXISTS `diaries` (
   `user_id` CHAR(36) NOT NULL,
   -- `title`: 日記のタイトル。255文字まで。
   `title` VARCHAR(255) NOT NULL,
-  -- `content`: 日記の本文。TEXT型で長い文章も保存できます。
-  `content` TEXT,
+  -- `content`: 日記の本文。長い本文はアプリケーション側で圧縮して保存するためバイナリ型です。
+  -- 先頭バイトが 0xFF の値は圧縮済み (形式は CompressedTextConverter を参照)、それ以外は UTF-8 の文字列です。
+  -- 既存の TEXT カラムからは `ALTER TABLE diaries MODIFY content MEDIUMBLOB;` で移行でき、既存の行はそのまま読み込めます。
+  `content` MEDIUMBLOB,
   -- `emotion`: その日の感情を表す文字列 (例: 'happy', 'sad')。
   `emotion` VARCHAR(20),
   `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
@@ -78,6 +119,12 @@ CREATE TABLE IF NOT EXISTS `diaries` (
   PRIMARY KEY (`id`),
   -- `INDEX`: `user_id`での検索を高速化するためのインデックスです。
   INDEX `idx_diaries_user_id` (`user_id`),
+  -- `INDEX`: リマインダーの対象外の判定で、ユーザーごとに指定日時以降の日記の有無を調べるためのインデックスです。
+  -- 既存のテーブルには `ALTER TABLE diaries ADD INDEX idx_diaries_user_id_created_at (user_id, created_at);` で追加できます。
+  INDEX `idx_diaries_user_id_created_at` (`user_id`, `created_at`),
+  -- `INDEX`: アーカイブ処理で、更新日時が古い日記を範囲検索するためのインデックスです（作成日時は更新日時以前のため、更新日時で絞り込めます）。
+  -- 既存のテーブルには `ALTER TABLE diaries ADD INDEX idx_diaries_updated_at (updated_at);` で追加できます。
+  INDEX `idx_diaries_updated_at` (`updated_at`),
   -- `CONSTRAINT`: テーブル間の関連性を定義する「制約」です。`fk_diaries_users`という名前を付けています。
   CONSTRAINT `fk_diaries_users`
     -- `FOREIGN KEY`: `user_id`を外部キーとして設定します。
@@ -137,3 +184,205 @@ CREATE TABLE IF NOT EXISTS `diary_tags` (
     ON DELETE CASCADE
     ON UPDATE CASCADE
 ) ENGINE=InnoDB;
+
+-- ---
+-- Table `diary_revisions`
+-- 日記の変更履歴を管理します。本文は一定間隔ごとの全文スナップショットと、
+-- 直前の版からの差分（バイナリ差分）として保存し、小さな編集の保存容量を抑えます。
+-- ---
+CREATE TABLE IF NOT EXISTS `diary_revisions` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  -- `diary_id`: 履歴の対象となる日記のID。
+  `diary_id` CHAR(36) NOT NULL,
+  -- `user_id`: 日記の所有者のID。履歴の参照時の所有者確認に使用します。
+  `user_id` CHAR(36) NOT NULL,
+  -- `revision_number`: 日記ごとの版番号 (1始まりの連番)。
+  `revision_number` INT NOT NULL,
+  -- `snapshot`: `data` が全文の場合は1、直前の版からの差分の場合は0。
+  `snapshot` BOOLEAN NOT NULL,
+  -- `title`: この版のタイトル。
+  `title` VARCHAR(255) NOT NULL,
+  -- `emotion`: この版の感情。
+  `emotion` VARCHAR(20),
+  -- `data`: 本文の全文 (UTF-8) または差分のバイト列。
+  `data` MEDIUMBLOB NOT NULL,
+  `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  -- 同じ日記の版番号の重複を防ぎ、版番号での検索にも使用します。
+  UNIQUE KEY `idx_diary_revisions_diary_revision` (`diary_id`, `revision_number`),
+  CONSTRAINT `fk_diary_revisions_diaries`
+    FOREIGN KEY (`diary_id`)
+    REFERENCES `diaries` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE CASCADE
+) ENGINE=InnoDB;
+
+-- ---
+-- Table `user_shards`
+-- シャーディング有効時に、各ユーザーの日記データを保持するシャードを管理します。
+-- ディレクトリシャード (spring.datasource.*) にのみ存在すれば十分で、起動時に自動作成されます。
+-- 登録されていないユーザーのデータはディレクトリシャードにあるものとして扱います。
+-- ---
+CREATE TABLE IF NOT EXISTS `user_shards` (
+  -- `user_id`: ユーザーのID。
+  `user_id` CHAR(36) NOT NULL,
+  -- `shard_key`: 日記データを保持しているシャードの名前。
+  `shard_key` VARCHAR(50) NOT NULL,
+  -- `move_target`: シャード間を移動中の場合の移動先。移動中はそのユーザーの書き込みを停止します。
+  `move_target` VARCHAR(50) NULL,
+  `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB;
+
+-- ---
+-- Table `archived_diaries`
+-- 作成・更新から一定期間 (diary.archive.after-days) が経過した日記を diaries から移動して保持します。
+-- diaries とその索引を直近の日記だけの大きさに保つためのテーブルで、アーカイブ済みの日記も詳細取得・一覧・検索の対象です。
+-- 更新・削除する場合は diaries に戻されます。変更履歴 (diary_revisions) は archived_diary_revisions へ移動し、戻す際に一緒に戻されます。
+-- ---
+CREATE TABLE IF NOT EXISTS `archived_diaries` (
+  -- `id`: 元の日記のID。
+  `id` CHAR(36) NOT NULL,
+  `user_id` CHAR(36) NOT NULL,
+  `title` VARCHAR(255) NOT NULL,
+  -- `content`: 本文。形式は diaries.content と同じですが、64バイト以上の本文は常に圧縮されます。
+  `content` MEDIUMBLOB,
+  `emotion` VARCHAR(20),
+  -- `created_at` / `updated_at`: 元の日記の作成日時・更新日時。
+  `created_at` TIMESTAMP NOT NULL,
+  `updated_at` TIMESTAMP NOT NULL,
+  -- `archived_at`: アーカイブした日時。
+  `archived_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  -- 一覧を作成日時降順で取得するためのインデックスです。
+  INDEX `idx_archived_diaries_user_created` (`user_id`, `created_at`),
+  CONSTRAINT `fk_archived_diaries_users`
+    FOREIGN KEY (`user_id`)
+    REFERENCES `users` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE CASCADE
+) ENGINE=InnoDB;
+
+-- ---
+-- Table `archived_diary_tags`
+-- アーカイブ済み日記に付与されていたタグを名前で保持します。
+-- ---
+CREATE TABLE IF NOT EXISTS `archived_diary_tags` (
+  `diary_id` CHAR(36) NOT NULL,
+  `tag_name` VARCHAR(50) NOT NULL,
+  PRIMARY KEY (`diary_id`, `tag_name`),
+  CONSTRAINT `fk_archived_diary_tags_diaries`
+    FOREIGN KEY (`diary_id`)
+    REFERENCES `archived_diaries` (`id`)
+    ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- ---
+-- Table `archived_diary_images`
+-- アーカイブ済み日記に添付されていた画像の参照情報を保持します。
+-- ---
+CREATE TABLE IF NOT EXISTS `archived_diary_images` (
+  `diary_id` CHAR(36) NOT NULL,
+  -- `image_id`: 元の画像のID。
+  `image_id` CHAR(36) NOT NULL,
+  `url` VARCHAR(2048) NOT NULL,
+  `filename` VARCHAR(255) NOT NULL,
+  `created_at` TIMESTAMP NOT NULL,
+  INDEX `idx_archived_diary_images_diary_id` (`diary_id`),
+  CONSTRAINT `fk_archived_diary_images_diaries`
+    FOREIGN KEY (`diary_id`)
+    REFERENCES `archived_diaries` (`id`)
+    ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- ---
+-- Table `archived_diary_revisions`
+-- アーカイブ済み日記の変更履歴を diary_revisions と同じ形式（全文スナップショットと差分）のまま保持します。
+-- 日記を diaries に戻す際に diary_revisions へ戻します。
+-- ---
+CREATE TABLE IF NOT EXISTS `archived_diary_revisions` (
+  `diary_id` CHAR(36) NOT NULL,
+  `revision_number` INT NOT NULL,
+  `snapshot` BOOLEAN NOT NULL,
+  `title` VARCHAR(255) NOT NULL,
+  `emotion` VARCHAR(20),
+  `data` MEDIUMBLOB NOT NULL,
+  -- `created_at`: 元の版の作成日時。
+  `created_at` TIMESTAMP NOT NULL,
+  UNIQUE KEY `idx_archived_diary_revisions_diary_revision` (`diary_id`, `revision_number`),
+  CONSTRAINT `fk_archived_diary_revisions_diaries`
+    FOREIGN KEY (`diary_id`)
+    REFERENCES `archived_diaries` (`id`)
+    ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- ---
+-- Table `reminder_leases`
+-- リマインダーを1分ごとにまとめて送信する際、複数のアプリケーションインスタンスのうち1つだけが送信するためのリースです。
+-- ディレクトリシャード (spring.datasource.*) にのみ存在すれば十分です。古い行は定期的に削除されます。
+-- ---
+CREATE TABLE IF NOT EXISTS `reminder_leases` (
+  -- `slot`: 通知する日時 (分単位)。
+  `slot` DATETIME NOT NULL,
+  -- `owner`: 送信を担当しているインスタンスの識別子 (プロセスID@ホスト名)。
+  `owner` VARCHAR(100) NOT NULL,
+  -- `lease_until`: リースの期限。送信を終えないまま期限を過ぎた場合は別のインスタンスが引き継ぎます。
+  `lease_until` DATETIME NOT NULL,
+  -- `completed`: 送信を終えたかどうか。
+  `completed` BOOLEAN NOT NULL DEFAULT FALSE,
+  PRIMARY KEY (`slot`)
+) ENGINE=InnoDB;
+
+-- ---
+-- Table `account_deletions`
+-- 削除を受け付けたアカウントの、日記データの削除の進み具合を記録します。
+-- 日記は一定件数ずつ別のトランザクションで削除し、途中で停止した場合はリースの期限切れ後に続きから再開します。
+-- ディレクトリシャード (spring.datasource.*) にのみ存在すれば十分です。削除が完了すると行も削除されます。
+-- ---
+CREATE TABLE IF NOT EXISTS `account_deletions` (
+  -- `user_id`: 削除するユーザーのID。
+  `user_id` CHAR(36) NOT NULL,
+  -- `requested_at`: 削除を受け付けた日時。
+  `requested_at` DATETIME NOT NULL,
+  -- `owner`: 削除を実行しているインスタンスの識別子 (プロセスID@ホスト名)。まだ開始していない場合はNULL。
+  `owner` VARCHAR(100) NULL,
+  -- `lease_until`: 実行中のインスタンスのリースの期限。一定件数を削除するたびに延長されます。
+  `lease_until` DATETIME NULL,
+  -- `deleted_diaries`: 削除した日記の件数 (アーカイブ済みの日記を含む)。
+  `deleted_diaries` INT NOT NULL DEFAULT 0,
+  -- `deleted_images`: 削除した画像の件数。
+  `deleted_images` INT NOT NULL DEFAULT 0,
+  -- `updated_at`: 最後に進み具合を記録した日時。
+  `updated_at` DATETIME NOT NULL,
+  PRIMARY KEY (`user_id`),
+  -- `INDEX`: 再開が必要な削除をリースの期限で検索するためのインデックスです。
+  INDEX `idx_account_deletions_lease_until` (`lease_until`)
+) ENGINE=InnoDB;
+
+-- ---
+-- Table `idempotency_keys`
+-- Idempotency-Key ヘッダー付きの書き込み（日記の作成・更新・一括実行）の結果を保持し、
+-- 再送されたリクエストを実行し直さずに同じレスポンスを返すために使用します。
+-- ユーザーのシャードに保存します。有効期限を過ぎた行は定期的に削除されます。
+-- ---
+CREATE TABLE IF NOT EXISTS `idempotency_keys` (
+  -- `user_id`: リクエストしたユーザーのID。
+  `user_id` CHAR(36) NOT NULL,
+  -- `idempotency_key`: クライアントが指定したキー。
+  `idempotency_key` VARCHAR(255) NOT NULL,
+  -- `request_hash`: リクエストの内容のハッシュ値 (SHA-256)。同じキーで内容の異なるリクエストを検出します。
+  `request_hash` CHAR(64) NOT NULL,
+  -- `owner`: リクエストを実行しているインスタンスの識別子 (プロセスID@ホスト名)。
+  `owner` VARCHAR(100) NOT NULL,
+  -- `lease_until`: 実行中のインスタンスのリースの期限。完了しないまま期限を過ぎた場合は別のインスタンスが実行し直します。
+  `lease_until` DATETIME NOT NULL,
+  -- `status_code`: レスポンスのHTTPステータス。実行中はNULL。
+  `status_code` INT NULL,
+  -- `response_body`: レスポンスのJSON。長い場合は日記本文と同じ形式で圧縮されます。
+  `response_body` MEDIUMBLOB NULL,
+  -- `expires_at`: この日時を過ぎるとキーを再利用できます。
+  `expires_at` DATETIME NOT NULL,
+  PRIMARY KEY (`user_id`, `idempotency_key`),
+  -- `INDEX`: 有効期限を過ぎた行を削除するためのインデックスです。
+  INDEX `idx_idempotency_keys_expires_at` (`expires_at`)
+) ENGINE=InnoDB;